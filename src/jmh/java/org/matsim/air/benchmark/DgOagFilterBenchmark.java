@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagFilterBenchmark
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.benchmark;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.air.scenario.DgAirportsReader;
+import org.matsim.air.scenario.DgFlightScenarioConfig;
+import org.matsim.air.scenario.SfAirScheduleBuilder;
+import org.matsim.air.scenario.countryfilter.DgWorldCountryFilter;
+import org.matsim.air.scenario.filter.DgAirportCoordinatesFilterStage;
+import org.matsim.air.scenario.filter.DgBadDataFilterStage;
+import org.matsim.air.scenario.filter.DgBusOrTrainFilterStage;
+import org.matsim.air.scenario.filter.DgCodeshareFilterStage;
+import org.matsim.air.scenario.filter.DgCountryFilterStage;
+import org.matsim.air.scenario.filter.DgDuplicateFlightFilterStage;
+import org.matsim.air.scenario.filter.DgOagFilterPipeline;
+import org.matsim.air.scenario.filter.DgOagRowConsumer;
+import org.matsim.air.scenario.filter.DgUtcOffsetFilterStage;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagReader;
+import org.matsim.air.scenario.oag.OagFlightTable;
+import org.matsim.air.scenario.utcoffsets.DgUTCOffsetsReader;
+import org.matsim.api.core.v01.Coord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Throughput of filtering the rows of a parsed OAG table with the stages used by the {@link SfAirScheduleBuilder},
+ * and of the complete builder, i.e. filtering, creating the flights and writing the output files. One operation is one row
+ * of the input table.
+ *
+ * @author dgrether
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DgOagFilterBenchmark.ROWS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DgOagFilterBenchmark {
+
+	static final int ROWS = 200000;
+
+	private File directory;
+
+	private String airportsFile;
+
+	private String utcOffsetsFile;
+
+	private OagFlightTable table;
+
+	private Map<String, Coord> airports;
+
+	private Map<String, Double> utcOffsets;
+
+	@Setup
+	public void setup() throws Exception {
+		this.directory = DgSyntheticOagData.createTempDirectory();
+		String oagFile = new File(this.directory, "oag.csv").getAbsolutePath();
+		this.airportsFile = new File(this.directory, "airports.txt").getAbsolutePath();
+		this.utcOffsetsFile = new File(this.directory, "utc_offsets.txt").getAbsolutePath();
+		DgSyntheticOagData data = new DgSyntheticOagData();
+		data.writeOagFile(oagFile, ROWS);
+		data.writeAirportsFile(this.airportsFile);
+		data.writeUtcOffsetsFile(this.utcOffsetsFile);
+		this.table = new DgOagReader().readOagTable(oagFile);
+		this.airports = new DgAirportsReader().loadAirportCoordinates(this.airportsFile);
+		this.utcOffsets = new DgUTCOffsetsReader().loadUtcOffsets(this.utcOffsetsFile);
+	}
+
+	@TearDown
+	public void tearDown() {
+		DgSyntheticOagData.deleteDirectory(this.directory);
+	}
+
+	@Benchmark
+	public long filter() {
+		final long[] accepted = new long[1];
+		final DgDuplicateFlightFilterStage duplicateStage = new DgDuplicateFlightFilterStage();
+		DgOagFilterPipeline pipeline = new DgOagFilterPipeline(new DgOagRowConsumer() {
+			@Override
+			public void consume(OagFlightTable table, int row) {
+				duplicateStage.addFlight(table, row, table.getDaysOfOperationMask(row));
+				accepted[0]++;
+			}
+		});
+		pipeline.addStage(new DgCountryFilterStage(new DgWorldCountryFilter()));
+		pipeline.addStage(new DgCodeshareFilterStage());
+		pipeline.addStage(new DgBusOrTrainFilterStage());
+		pipeline.addStage(duplicateStage);
+		pipeline.addNonTerminatingStage(new DgAirportCoordinatesFilterStage(this.airports));
+		pipeline.addNonTerminatingStage(new DgUtcOffsetFilterStage(this.utcOffsets));
+		pipeline.addNonTerminatingStage(new DgBadDataFilterStage());
+		pipeline.process(this.table);
+		return accepted[0];
+	}
+
+	@Benchmark
+	public DgOagFlightsData filterAndCreateFlights() throws Exception {
+		String outputDirectory = this.directory.getAbsolutePath() + "/";
+		return new SfAirScheduleBuilder(new DgFlightScenarioConfig().withWriteIntermediateFiles(true)).readDataAndFilter(this.airportsFile, this.table, outputDirectory,
+				this.utcOffsetsFile, outputDirectory + "oag_flights.bin");
+	}
+
+}
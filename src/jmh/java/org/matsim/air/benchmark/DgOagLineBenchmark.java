@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagLineBenchmark
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.air.scenario.oag.DgOagLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Throughput of the {@link DgOagLine} constructor on rows that are already split into columns, and of splitting
+ * and unquoting the text rows as the line based reader did before. One operation is one row.
+ *
+ * @author dgrether
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DgOagLineBenchmark.ROWS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DgOagLineBenchmark {
+
+	static final int ROWS = 100000;
+
+	private String[][] entries;
+
+	private String[] csvLines;
+
+	@Setup
+	public void setup() {
+		DgSyntheticOagData data = new DgSyntheticOagData();
+		this.entries = new String[ROWS][];
+		this.csvLines = new String[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			this.entries[i] = data.createLineEntries();
+			this.csvLines[i] = DgSyntheticOagData.toCsvLine(this.entries[i]);
+		}
+	}
+
+	@Benchmark
+	public void createLine(Blackhole blackhole) {
+		for (int i = 0; i < ROWS; i++) {
+			blackhole.consume(new DgOagLine(this.entries[i]));
+		}
+	}
+
+	@Benchmark
+	public void splitAndCreateLine(Blackhole blackhole) {
+		for (int i = 0; i < ROWS; i++) {
+			String[] lineEntries = this.csvLines[i].split(",");
+			for (int j = 0; j < lineEntries.length; j++) {
+				lineEntries[j] = lineEntries[j].replaceAll("\"", "");
+			}
+			blackhole.consume(new DgOagLine(lineEntries));
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagReaderBenchmark
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.air.scenario.oag.DgOagLine;
+import org.matsim.air.scenario.oag.DgOagReader;
+import org.matsim.air.scenario.oag.OagFlightTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Throughput of reading the OAG file with the {@link DgOagReader}. One operation is one row, thus the score is
+ * in rows per second and the gc profiler (-prof gc) reports the bytes allocated per row as gc.alloc.rate.norm.
+ *
+ * @author dgrether
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DgOagReaderBenchmark.ROWS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DgOagReaderBenchmark {
+
+	static final int ROWS = 200000;
+
+	private File directory;
+
+	private String oagFile;
+
+	@Setup
+	public void setup() throws Exception {
+		this.directory = DgSyntheticOagData.createTempDirectory();
+		this.oagFile = new File(this.directory, "oag.csv").getAbsolutePath();
+		new DgSyntheticOagData().writeOagFile(this.oagFile, ROWS);
+	}
+
+	@TearDown
+	public void tearDown() {
+		DgSyntheticOagData.deleteDirectory(this.directory);
+	}
+
+	@Benchmark
+	public OagFlightTable readTable() throws Exception {
+		return new DgOagReader().readOagTable(this.oagFile);
+	}
+
+	@Benchmark
+	public OagFlightTable readTableParallel() throws Exception {
+		DgOagReader reader = new DgOagReader();
+		reader.setNumberOfThreads(Runtime.getRuntime().availableProcessors());
+		return reader.readOagTable(this.oagFile);
+	}
+
+	@Benchmark
+	public List<DgOagLine> readLines() throws Exception {
+		return new DgOagReader().readOagLines(this.oagFile);
+	}
+
+}
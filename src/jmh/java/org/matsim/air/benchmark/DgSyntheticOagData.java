@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgSyntheticOagData
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.matsim.air.scenario.oag.DgOagRecord;
+import org.matsim.core.utils.io.IOUtils;
+
+
+/**
+ * Deterministic generator of OAG data for the benchmarks. The same seed always creates the same rows.
+ *
+ * The rows resemble the OAG dump: all 81 columns are written, strings quoted, with a mix of codeshare flights,
+ * bus and train connections, bad data and airports without coordinates or UTC offset, thus all filter stages
+ * have something to do.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgSyntheticOagData {
+
+	public static final long SEED = 4711;
+
+	public static final int NUMBER_OF_AIRPORTS = 1000;
+
+	private static final String[] COUNTRIES = {"DE", "FR", "GB", "IT", "ES", "NL", "CH", "AT", "PL", "SE", "NO", "DK",
+		"FI", "IE", "PT", "GR", "TR", "RU", "US", "CA", "MX", "BR", "AR", "CN", "JP", "KR", "IN", "TH", "SG", "AU",
+		"NZ", "ZA", "EG", "AE", "QA", "SA", "IL", "MA", "KE", "NG"};
+
+	private static final String[] AIRCRAFT_TYPES = {"320", "319", "321", "738", "733", "744", "77W", "772", "333",
+		"E90", "CR9", "DH4", "AT7", "388", "789", "BUS", "TRN"};
+
+	private static final int NUMBER_OF_CARRIERS = 80;
+
+	private final Random random;
+
+	private final String[] airports = new String[NUMBER_OF_AIRPORTS];
+	private final String[] airportCountries = new String[NUMBER_OF_AIRPORTS];
+	private final double[] airportLongitudes = new double[NUMBER_OF_AIRPORTS];
+	private final double[] airportLatitudes = new double[NUMBER_OF_AIRPORTS];
+	private final String[] carriers = new String[NUMBER_OF_CARRIERS];
+
+	public DgSyntheticOagData() {
+		this(SEED);
+	}
+
+	public DgSyntheticOagData(long seed) {
+		this.random = new Random(seed);
+		for (int i = 0; i < NUMBER_OF_AIRPORTS; i++) {
+			this.airports[i] = "" + (char) ('A' + i / 676) + (char) ('A' + (i / 26) % 26) + (char) ('A' + i % 26);
+			this.airportCountries[i] = COUNTRIES[this.random.nextInt(COUNTRIES.length)];
+			this.airportLongitudes[i] = this.random.nextDouble() * 360.0 - 180.0;
+			this.airportLatitudes[i] = this.random.nextDouble() * 140.0 - 70.0;
+		}
+		for (int i = 0; i < NUMBER_OF_CARRIERS; i++) {
+			this.carriers[i] = "" + (char) ('A' + i / 26) + (char) ('A' + i % 26);
+		}
+	}
+
+	/**
+	 * @return the columns of the next row without quotes, as expected by the DgOagLine constructor
+	 */
+	public String[] createLineEntries() {
+		String[] entries = new String[DgOagRecord.NUMBER_OF_COLUMNS];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = "";
+		}
+		int origin = this.random.nextInt(NUMBER_OF_AIRPORTS);
+		int destination = this.random.nextInt(NUMBER_OF_AIRPORTS);
+		if (this.random.nextInt(100) == 0) {
+			destination = origin;
+		}
+		entries[DgOagRecord.CARRIER] = this.carriers[this.random.nextInt(NUMBER_OF_CARRIERS)] + " ";
+		entries[DgOagRecord.FLIGHT_NUMBER] = String.format("%4d", this.random.nextInt(9999) + 1);
+		entries[DgOagRecord.ORIGIN_AIRPORT] = this.airports[origin];
+		entries[DgOagRecord.ORIGIN_COUNTRY] = this.airportCountries[origin];
+		entries[DgOagRecord.DESTINATION_AIRPORT] = this.airports[destination];
+		entries[DgOagRecord.DESTINATION_COUNTRY] = this.airportCountries[destination];
+		entries[DgOagRecord.DEPARTURE_TIME] = String.format("%02d%02d", this.random.nextInt(24), this.random.nextInt(60));
+		entries[DgOagRecord.ELAPSED_TIME] = String.format("%03d%02d", this.random.nextInt(16), this.random.nextInt(60));
+		StringBuilder days = new StringBuilder();
+		int mask = this.random.nextInt(127) + 1;
+		for (int day = 1; day <= 7; day++) {
+			days.append((mask & (1 << (day - 1))) != 0 ? (char) ('0' + day) : ' ');
+		}
+		entries[DgOagRecord.DAYS_OF_OPERATION] = days.toString();
+		entries[DgOagRecord.STOPS] = Integer.toString(this.random.nextInt(10) == 0 ? 1 : 0);
+		entries[DgOagRecord.AIRCRAFT_TYPE] = AIRCRAFT_TYPES[this.random.nextInt(AIRCRAFT_TYPES.length)];
+		entries[DgOagRecord.SEATS] = Integer.toString(this.random.nextInt(100) == 0 ? 0 : 20 + this.random.nextInt(500));
+		entries[DgOagRecord.FULL_ROUTING] = this.airports[origin] + this.airports[destination];
+		entries[DgOagRecord.DISTANCE_MILES] = Integer.toString(50 + this.random.nextInt(8000));
+		entries[DgOagRecord.SHARED_AIRLINE_DESIGNATOR] = this.random.nextBoolean() ? "X" : "";
+		entries[DgOagRecord.OPERATING_MARKER] = this.random.nextBoolean() ? "O" : "";
+		entries[DgOagRecord.DUPLICATE] = this.random.nextBoolean() ? "D" : "";
+		return entries;
+	}
+
+	/**
+	 * @return the row in the csv format of the OAG file, numbers are not quoted
+	 */
+	public static String toCsvLine(String[] entries) {
+		StringBuilder sb = new StringBuilder(512);
+		for (int i = 0; i < entries.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			if (i == DgOagRecord.STOPS || i == DgOagRecord.SEATS || i == DgOagRecord.DISTANCE_MILES) {
+				sb.append(entries[i]);
+			}
+			else {
+				sb.append('"').append(entries[i]).append('"');
+			}
+		}
+		return sb.toString();
+	}
+
+	public void writeOagFile(String filename, int numberOfRows) throws IOException {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			StringBuilder header = new StringBuilder();
+			for (int i = 0; i < DgOagRecord.NUMBER_OF_COLUMNS; i++) {
+				if (i > 0) {
+					header.append(',');
+				}
+				header.append("\"COLUMN").append(i).append('"');
+			}
+			writer.write(header.toString());
+			writer.write("\r\n");
+			for (int row = 0; row < numberOfRows; row++) {
+				writer.write(toCsvLine(this.createLineEntries()));
+				writer.write("\r\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes the coordinates in the format of the DgAirportsReader, every 20th airport is missing.
+	 */
+	public void writeAirportsFile(String filename) throws IOException {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			for (int i = 0; i < NUMBER_OF_AIRPORTS; i++) {
+				if (i % 20 != 19) {
+					writer.write(this.airports[i] + "\t" + this.airportLongitudes[i] + "\t" + this.airportLatitudes[i]);
+					writer.newLine();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the offsets in the format of the DgUTCOffsetsReader, every 50th airport is missing.
+	 */
+	public void writeUtcOffsetsFile(String filename) throws IOException {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			for (int i = 0; i < NUMBER_OF_AIRPORTS; i++) {
+				if (i % 50 != 49) {
+					writer.write(this.airports[i] + "\t" + Math.round(this.airportLongitudes[i] / 15.0));
+					writer.newLine();
+				}
+			}
+		}
+	}
+
+	public static File createTempDirectory() throws IOException {
+		File directory = File.createTempFile("oag_benchmark", "");
+		if (! directory.delete() || ! directory.mkdirs()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+		return directory;
+	}
+
+	public static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.isDirectory()) {
+					deleteDirectory(f);
+				}
+				else {
+					f.delete();
+				}
+			}
+		}
+		directory.delete();
+	}
+
+}
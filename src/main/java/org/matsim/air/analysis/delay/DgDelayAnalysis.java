@@ -30,14 +30,13 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagFlightsReader;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.utils.io.IOUtils;
 
-import air.scenario.oag.DgOagFlightsData;
-import air.scenario.oag.DgOagFlightsReader;
-
 
 
 /**
@@ -64,6 +63,9 @@ public class DgDelayAnalysis {
 		eventsReader.readFile(eventsFilename);
 		
 		this.delays = handler.getFlightDelaysByFlightDesignatorMap();
+		if (handler.getNumberOfUnknownDepartures() > 0) {
+			log.warn(handler.getNumberOfUnknownDepartures() + " departures that are not the departures of flights are not analyzed.");
+		}
 		log.info("delays are analyzed");
 	}
 
@@ -22,6 +22,10 @@ package org.matsim.air.analysis.delay;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
@@ -31,24 +35,46 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
-
-import air.scenario.oag.DgOagFlight;
-import air.scenario.oag.DgOagFlightsData;
+import org.matsim.pt.transitSchedule.api.Departure;
 
 
 /**
+ * Computes the departure and arrival delays of the flights, a flight is identified by the id of its departure,
+ * i.e. origin_destination_designator. The id of the departure is the same with and without pooled departures,
+ * see {@link org.matsim.air.scenario.DgTransitBuilder#setPoolDepartures(boolean)}, whereas a pooled transit route
+ * is shared by several flights.
+ * The vehicles of unknown departures are skipped with a warning and not part of the analysis.
+ *
  * @author dgrether
  */
 public class DgDelayEventHandler implements TransitDriverStartsEventHandler, 
 	VehicleArrivesAtFacilityEventHandler, VehicleDepartsAtFacilityEventHandler, PersonLeavesVehicleEventHandler {
 
+	private static final Logger log = Logger.getLogger(DgDelayEventHandler.class);
+
+	private static final int MAX_WARNINGS = 10;
+
 	private DgOagFlightsData oagFlights;
 
+	/**
+	 * the flights by the ids of their departures, i.e. origin_destination_designator
+	 */
+	private Map<Id<Departure>, DgOagFlight> departureFlightMap = new HashMap<Id<Departure>, DgOagFlight>();
+
 	private Map<Id, TransitDriverStartsEvent> vehicleIdTransitDriverStartsEventMap  = new HashMap<Id, TransitDriverStartsEvent>();
 	private Map<String, DgFlightDelay> flightDesignatorDelayMap = new HashMap<String, DgFlightDelay>();
+
+	private int unknownDepartures = 0;
 	
 	public DgDelayEventHandler(DgOagFlightsData oagFlights) {
+		this(oagFlights, new AirCodeDictionary());
+	}
+
+	public DgDelayEventHandler(DgOagFlightsData oagFlights, AirCodeDictionary codes) {
 		this.oagFlights = oagFlights;
+		for (DgOagFlight flight : this.oagFlights.getFlightDesignatorFlightMap().values()) {
+			this.departureFlightMap.put(Id.create(codes.getFlightCode(flight), Departure.class), flight);
+		}
 	}
 
 	public Map<String, DgFlightDelay> getFlightDelaysByFlightDesignatorMap(){
@@ -59,13 +85,25 @@ public class DgDelayEventHandler implements TransitDriverStartsEventHandler,
 	public void reset(int iteration) {
 		this.vehicleIdTransitDriverStartsEventMap.clear();
 		this.flightDesignatorDelayMap.clear();
+		this.unknownDepartures = 0;
+	}
+
+	/**
+	 * @return the number of transit drivers that started a departure that is not the departure of a flight
+	 */
+	public int getNumberOfUnknownDepartures(){
+		return this.unknownDepartures;
 	}
 
 	@Override
 	public void handleEvent(VehicleDepartsAtFacilityEvent event) {
 		TransitDriverStartsEvent e = this.vehicleIdTransitDriverStartsEventMap.get(event.getVehicleId());
-		String flightDesignator = e.getTransitRouteId().toString().split("_")[2];
-		DgOagFlight flight = this.oagFlights.getFlightDesignatorFlightMap().get(flightDesignator);
+		if (e == null) {
+			// not a vehicle of a flight
+			return;
+		}
+		DgOagFlight flight = this.departureFlightMap.get(e.getDepartureId());
+		String flightDesignator = flight.getFlightDesignator();
 		if (event.getFacilityId().toString().compareTo(flight.getOriginCode()) == 0) {
 			double delay = event.getTime() - flight.getDepartureTime();
 			DgFlightDelay d = new DgFlightDelay(flight);
@@ -79,8 +117,12 @@ public class DgDelayEventHandler implements TransitDriverStartsEventHandler,
 	@Override
 	public void handleEvent(VehicleArrivesAtFacilityEvent event) {
 		TransitDriverStartsEvent e = this.vehicleIdTransitDriverStartsEventMap.get(event.getVehicleId());
-		String flightDesignator = e.getTransitRouteId().toString().split("_")[2];
-		DgOagFlight flight = this.oagFlights.getFlightDesignatorFlightMap().get(flightDesignator);
+		if (e == null) {
+			// not a vehicle of a flight
+			return;
+		}
+		DgOagFlight flight = this.departureFlightMap.get(e.getDepartureId());
+		String flightDesignator = flight.getFlightDesignator();
 		if (event.getFacilityId().toString().compareTo(flight.getDestinationCode()) == 0){
 			double delay = event.getTime() - flight.getDepartureTime() - flight.getScheduledDuration();
 			DgFlightDelay d = this.flightDesignatorDelayMap.get(flightDesignator); //if this is not in the map, there is something wrong
@@ -91,6 +133,18 @@ public class DgDelayEventHandler implements TransitDriverStartsEventHandler,
 
 	@Override
 	public void handleEvent(TransitDriverStartsEvent event) {
+		if (! this.departureFlightMap.containsKey(event.getDepartureId())) {
+			this.unknownDepartures++;
+			if (this.unknownDepartures <= MAX_WARNINGS) {
+				log.warn("Departure " + event.getDepartureId() + " on transit route " + event.getTransitRouteId() + " of vehicle "
+						+ event.getVehicleId() + " is not the departure of a flight, skipping it.");
+				if (this.unknownDepartures == MAX_WARNINGS) {
+					log.warn("Further unknown departures are not logged.");
+				}
+			}
+			this.vehicleIdTransitDriverStartsEventMap.remove(event.getVehicleId());
+			return;
+		}
 		this.vehicleIdTransitDriverStartsEventMap.put(event.getVehicleId(), event);
 	}
 
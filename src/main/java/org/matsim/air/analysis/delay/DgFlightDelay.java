@@ -19,7 +19,7 @@
  * *********************************************************************** */
 package org.matsim.air.analysis.delay;
 
-import air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlight;
 
 
 /**
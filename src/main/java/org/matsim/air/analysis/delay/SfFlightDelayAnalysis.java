@@ -32,6 +32,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.DgOagFlightsFile;
 
 /**
  * When using SfAirController flight delays can be analyzed using this class. Range of delays may be determined by
@@ -95,18 +96,16 @@ public class SfFlightDelayAnalysis {
 		Map<String, Double> actualArrival = new HashMap<String, Double>();
 		Map<String, Double> scheduledArrival = new HashMap<String, Double>();
 
-		BufferedReader brScheduled = new BufferedReader(new FileReader(new File(scheduledTimes)));
+		DgOagFlightsFile scheduledFlights = DgOagFlightsFile.read(scheduledTimes);
 		BufferedWriter bwDelaySingleFlights = new BufferedWriter(new FileWriter(new File(
 				delaySingleFlight)));
 		actualArrival = this.readActualArrivals(actualTimes);
 
-		while (brScheduled.ready()) {
-			String line = brScheduled.readLine();
-			String[] entries = line.split("\t");
-			String flightNumber = entries[2];
+		for (int i = 0; i < scheduledFlights.size(); i++) {
+			String flightNumber = scheduledFlights.getFlightDesignator(i);
 
 			if (actualArrival.containsKey(flightNumber)) {
-				Double arrival = Double.parseDouble(entries[3]) + Double.parseDouble(entries[4]);
+				Double arrival = scheduledFlights.getDepartureTime(i) + scheduledFlights.getDuration(i);
 				scheduledArrival.put(flightNumber, arrival / 60);
 				Integer flightDelay = (int) Math.round(actualArrival.get(flightNumber)
 						- scheduledArrival.get(flightNumber));
@@ -127,7 +126,6 @@ public class SfFlightDelayAnalysis {
 			}
 		}
 
-		brScheduled.close();
 		bwDelaySingleFlights.close();
 
 		this.writeDelays(delay, delayOutput);
@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirConnectionLinks
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+
+/**
+ * Ids and speeds of the links that connect the airports. Either each flight gets its own link or the flights
+ * of a city pair share a link, in the latter case the number of links scales with the city pairs and the timing of
+ * each flight is only given by the transit schedule.
+ *
+ * The length of a link is the great circle distance of its airports if a {@link DgCityPairGeometry} is set, otherwise
+ * the distance of the OAG data. The speed of a flight is derived from the length of its link.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAirConnectionLinks {
+
+	public static enum Mode {
+		/**
+		 * one link per flight with the speed of the flight, the id is origin_destination_designator
+		 */
+		FLIGHT,
+		/**
+		 * one link per city pair with the mean speed of its flights, the id is origin_destination
+		 */
+		CITY_PAIR,
+		/**
+		 * one link per city pair and speed class, the id is origin_destination_s&lt;class&gt;
+		 */
+		SPEED_CLASS
+	};
+
+	/**
+	 * ratio of the speeds of two neighbouring speed classes, thus the speed of the link differs from the speed of the flight
+	 * by less than 2.5 %
+	 */
+	public static final double SPEED_CLASS_RATIO = 1.05;
+
+	private final Mode mode;
+
+	private final AirCodeDictionary codes;
+
+	private DgCityPairGeometry cityPairGeometry = null;
+
+	public DgAirConnectionLinks(Mode mode, AirCodeDictionary codes) {
+		this.mode = mode;
+		this.codes = codes;
+	}
+
+	/**
+	 * @param cityPairGeometry the great circle distances of the airports of the scenario, null to use the OAG distances
+	 */
+	public void setCityPairGeometry(DgCityPairGeometry cityPairGeometry) {
+		this.cityPairGeometry = cityPairGeometry;
+	}
+
+	public Mode getMode() {
+		return this.mode;
+	}
+
+	public Id<Link> getLinkId(DgOagFlight flight, SfMatsimAirport origin, SfMatsimAirport destination) {
+		switch (this.mode) {
+		case CITY_PAIR:
+			return Id.create(this.codes.getRouteCode(flight), Link.class);
+		case SPEED_CLASS:
+			int speedClass = getSpeedClass(this.getCruiseSpeed(flight, origin, destination));
+			return Id.create(this.codes.getRouteCode(flight) + "_s" + speedClass, Link.class);
+		default:
+			return Id.create(this.codes.getFlightCode(flight), Link.class);
+		}
+	}
+
+	/**
+	 * @return the scheduled duration without the time spent on the taxiways and runways of both airports
+	 */
+	public static double getCruiseTime(DgOagFlight flight, SfMatsimAirport origin, SfMatsimAirport destination) {
+		return flight.getScheduledDuration() - origin.getTaxiTimeOutbound() - destination.getTaxiTimeInbound();
+	}
+
+	/**
+	 * @return the length of the link of the flight in m, the OAG distance if one of the airports has no coordinates
+	 */
+	public double getLength(DgOagFlight flight) {
+		if (this.cityPairGeometry != null) {
+			double distance = this.cityPairGeometry.getDistanceKm(flight.getOriginCode(), flight.getDestinationCode());
+			if (! Double.isNaN(distance)) {
+				return distance * 1000.0;
+			}
+		}
+		return flight.getDistanceKm() * 1000.0;
+	}
+
+	public double getCruiseSpeed(DgOagFlight flight, SfMatsimAirport origin, SfMatsimAirport destination) {
+		return this.getLength(flight) / getCruiseTime(flight, origin, destination);
+	}
+
+	public static int getSpeedClass(double speed) {
+		return (int) Math.floor(Math.log(speed) / Math.log(SPEED_CLASS_RATIO));
+	}
+
+	/**
+	 * @return the geometric mean of the lowest and highest speed of the class
+	 */
+	public static double getSpeedClassFreespeed(int speedClass) {
+		return Math.pow(SPEED_CLASS_RATIO, speedClass + 0.5);
+	}
+
+}
@@ -19,22 +19,33 @@
  * *********************************************************************** */
 package org.matsim.air.scenario;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.log4j.Logger;
 import org.matsim.air.scenario.oag.DgOagFlight;
 import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagFlightsDelta;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.NetworkWriter;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
 //import org.matsim.core.network.NetworkImpl;
 //import org.matsim.core.network.NetworkWriter;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
@@ -53,6 +64,10 @@ public class DgAirNetworkBuilder {
 	private static final double MACH_2 = 686.0;
 	private static final double CAP_PERIOD = 3600.0;
 
+	private static final int FRAGMENTS_PER_THREAD = 4;
+
+	private static final int MIN_AIRPORTS_PER_FRAGMENT = 64;
+
 	private Scenario scenario;
 
 	private Map<Id<Node>, SfMatsimAirport> airportMap;
@@ -61,56 +76,225 @@ public class DgAirNetworkBuilder {
 
 	private DgFlightScenarioData modelConfig;
 
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
 	public DgAirNetworkBuilder(Scenario scenario, CoordinateTransformation transform, DgFlightScenarioData modelConfig) {
 		this.scenario = scenario;
 		this.transform = transform;
 		this.modelConfig = modelConfig;
 	}
 
-	private Map<Id<Node>, SfMatsimAirport> createAndAddAirports(Map<String, Coord> airports, Network network){
-		Map<Id<Node>, SfMatsimAirport> airportMap = new HashMap<>();
-		for (Entry<String, Coord> e : airports.entrySet()) {
-			Coord transformedCoord = this.transform.transform(e.getValue());
-			DgAirportCapacity capacityData = modelConfig.getAirportsCapacityData().getAirportCapacity(e.getKey());
-			SfMatsimAirport airport = new SfMatsimAirport(Id.create(e.getKey(), Node.class), transformedCoord, capacityData);
-			airportMap.put(airport.getId(), airport);
-			if (DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS == 2) {
-				airport.createTwoRunways(network);
+	/**
+	 * The number of threads used to create the nodes and links of the airports. The coordinates are transformed
+	 * before in the calling thread, thus the transformation is never used concurrently.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * The airports are created in fragment networks, with more than one thread the fragments are built concurrently.
+	 * The nodes and links of all fragments are then added to the network sorted by id, thus the network and the
+	 * order of its nodes and links do not depend on the number of threads.
+	 */
+	private Map<Id<Node>, SfMatsimAirport> createAndAddAirports(Map<String, Coord> airports, final Network network){
+		final List<String> codes = new ArrayList<String>(airports.keySet());
+		Collections.sort(codes);
+		final Map<String, Coord> transformedCoords = new HashMap<String, Coord>();
+		for (String code : codes) {
+			transformedCoords.put(code, this.transform.transform(airports.get(code)));
+		}
+		int numberOfFragments = Math.min(this.numberOfThreads * FRAGMENTS_PER_THREAD, codes.size() / MIN_AIRPORTS_PER_FRAGMENT);
+		List<AirportFragment> fragments = new ArrayList<AirportFragment>();
+		if (this.numberOfThreads <= 1 || numberOfFragments <= 1) {
+			fragments.add(this.createAirportFragment(codes, transformedCoords, createFragmentNetwork(network)));
+		}
+		else {
+			log.info("Creating " + codes.size() + " airports in " + numberOfFragments + " fragments with " + this.numberOfThreads + " threads...");
+			List<ForkJoinTask<AirportFragment>> tasks = new ArrayList<ForkJoinTask<AirportFragment>>();
+			ForkJoinPool pool = new ForkJoinPool(this.numberOfThreads);
+			try {
+				for (int i = 0; i < numberOfFragments; i++) {
+					final List<String> fragmentCodes = codes.subList(codes.size() * i / numberOfFragments, codes.size() * (i + 1) / numberOfFragments);
+					tasks.add(pool.submit(new Callable<AirportFragment>() {
+						@Override
+						public AirportFragment call() {
+							return createAirportFragment(fragmentCodes, transformedCoords, createFragmentNetwork(network));
+						}
+					}));
+				}
+				for (ForkJoinTask<AirportFragment> task : tasks) {
+					fragments.add(task.join());
+				}
 			}
-			else {
-				airport.createOneRunway(network);
+			finally {
+				pool.shutdownNow();
 			}
 		}
+		Map<Id<Node>, SfMatsimAirport> airportMap = new HashMap<>();
+		List<Network> fragmentNetworks = new ArrayList<Network>();
+		for (AirportFragment fragment : fragments) {
+			airportMap.putAll(fragment.airportMap);
+			fragmentNetworks.add(fragment.network);
+		}
+		mergeFragments(fragmentNetworks, network);
 		return airportMap;
 	}
+
+	private static Network createFragmentNetwork(Network network) {
+		Network fragment = NetworkUtils.createNetwork();
+		fragment.setCapacityPeriod(network.getCapacityPeriod());
+		return fragment;
+	}
+
+	/**
+	 * @param transformedCoords the coordinates of the airports in the coordinate system of the network
+	 */
+	private AirportFragment createAirportFragment(List<String> codes, Map<String, Coord> transformedCoords, Network network) {
+		AirportFragment fragment = new AirportFragment(network);
+		for (String code : codes) {
+			SfMatsimAirport airport = this.createAirport(code, transformedCoords.get(code), network);
+			fragment.airportMap.put(airport.getId(), airport);
+		}
+		return fragment;
+	}
+
+	/**
+	 * Copies the nodes and links of all fragments to the network, sorted by id.
+	 */
+	private static void mergeFragments(List<Network> fragments, Network network) {
+		List<Node> nodes = new ArrayList<Node>();
+		List<Link> links = new ArrayList<Link>();
+		for (Network fragment : fragments) {
+			nodes.addAll(fragment.getNodes().values());
+			links.addAll(fragment.getLinks().values());
+		}
+		Collections.sort(nodes, new Comparator<Node>() {
+			@Override
+			public int compare(Node n1, Node n2) {
+				return n1.getId().toString().compareTo(n2.getId().toString());
+			}
+		});
+		NetworkFactory factory = network.getFactory();
+		for (Node n : nodes) {
+			network.addNode(factory.createNode(n.getId(), n.getCoord()));
+		}
+		Collections.sort(links, new Comparator<Link>() {
+			@Override
+			public int compare(Link l1, Link l2) {
+				return l1.getId().toString().compareTo(l2.getId().toString());
+			}
+		});
+		for (Link l : links) {
+			Node fromNode = network.getNodes().get(l.getFromNode().getId());
+			Node toNode = network.getNodes().get(l.getToNode().getId());
+			Link link = factory.createLink(l.getId(), fromNode, toNode);
+			link.setAllowedModes(l.getAllowedModes());
+			link.setCapacity(l.getCapacity());
+			link.setLength(l.getLength());
+			link.setFreespeed(l.getFreespeed());
+			link.setNumberOfLanes(l.getNumberOfLanes());
+			network.addLink(link);
+		}
+	}
+
+	/**
+	 * @param transformedCoord the coordinate of the airport in the coordinate system of the network
+	 */
+	private SfMatsimAirport createAirport(String code, Coord transformedCoord, Network network){
+		DgAirportCapacity capacityData = modelConfig.getAirportsCapacityData().getAirportCapacity(code);
+		SfMatsimAirport airport = new SfMatsimAirport(Id.create(code, Node.class), transformedCoord, capacityData, modelConfig.getConfig());
+		if (modelConfig.isUseQueueAirports()) {
+			airport.createQueues(network);
+		}
+		else if (modelConfig.getConfig().getNumberOfRunways() == 2) {
+			airport.createTwoRunways(network);
+		}
+		else {
+			airport.createOneRunway(network);
+		}
+		return airport;
+	}
 	
-	private void createAndAddConnections(DgOagFlightsData flightsData, Map<Id<Node>, SfMatsimAirport> airportMap, Network network){
+	private static Set<String> createAllowedModes(){
 		Set<String> allowedModes = new HashSet<String>();
 		allowedModes.add("pt");
 		allowedModes.add("car");
+		return allowedModes;
+	}
 
+	/**
+	 * Creates the links between the airports. If the flights share links, i.e. in {@link DgAirConnectionLinks.Mode#CITY_PAIR}
+	 * or {@link DgAirConnectionLinks.Mode#SPEED_CLASS} mode, the freespeed of a link is derived from the mean cruise time of
+	 * its flights or from its speed class.
+	 */
+	private void createAndAddConnections(DgOagFlightsData flightsData, Map<Id<Node>, SfMatsimAirport> airportMap, Network network){
+		Set<String> allowedModes = createAllowedModes();
+		DgAirConnectionLinks connectionLinks = this.modelConfig.getConnectionLinks();
+		if (connectionLinks.getMode() == DgAirConnectionLinks.Mode.FLIGHT) {
+			for (DgOagFlight flight : flightsData.getFlightDesignatorFlightMap().values()){
+				this.createAndAddConnection(flight, airportMap, network, allowedModes);
+			}
+			return;
+		}
+		Map<Id<Link>, SharedConnection> connections = new LinkedHashMap<>();
 		for (DgOagFlight flight : flightsData.getFlightDesignatorFlightMap().values()){
 			SfMatsimAirport oa = airportMap.get(Id.create( flight.getOriginCode(), Node.class));
 			SfMatsimAirport da = airportMap.get(Id.create( flight.getDestinationCode(), Node.class));
-			
-			Node startNode = network.getNodes().get(oa.getOutgoingFlightsNodeId());
-			Node endNode = network.getNodes().get(da.getIncomingFlightsNodeId());
-			
-			Id<Link> linkId = Id.create(flight.getOriginCode() + "_" + flight.getDestinationCode() + "_" + flight.getFlightDesignator(), Link.class);
-			Link originToDestination = network.getFactory().createLink(linkId, startNode, endNode);
-			
+			Id<Link> linkId = connectionLinks.getLinkId(flight, oa, da);
+			SharedConnection connection = connections.get(linkId);
+			if (connection == null) {
+				connection = new SharedConnection(oa, da, connectionLinks.getLength(flight),
+						DgAirConnectionLinks.getSpeedClass(connectionLinks.getCruiseSpeed(flight, oa, da)));
+				connections.put(linkId, connection);
+			}
+			connection.cruiseTimeSum += DgAirConnectionLinks.getCruiseTime(flight, oa, da);
+			connection.numberOfFlights++;
+		}
+		for (Entry<Id<Link>, SharedConnection> e : connections.entrySet()) {
+			SharedConnection connection = e.getValue();
+			Node startNode = network.getNodes().get(connection.origin.getOutgoingFlightsNodeId());
+			Node endNode = network.getNodes().get(connection.destination.getIncomingFlightsNodeId());
+			Link originToDestination = network.getFactory().createLink(e.getKey(), startNode, endNode);
 			originToDestination.setAllowedModes(allowedModes);
 			originToDestination.setCapacity(1.0*CAP_PERIOD);
-			originToDestination.setLength(flight.getDistanceKm()  * 1000.0);
-			
-			double speed = flight.getDistanceKm() * 1000.0 / ( flight.getScheduledDuration() - oa.getTaxiTimeOutbound() - da.getTaxiTimeInbound());
-			originToDestination.setFreespeed(speed);
-			if (! network.getLinks().containsKey(linkId)) {
-				network.addLink(originToDestination);
+			originToDestination.setLength(connection.length);
+			if (connectionLinks.getMode() == DgAirConnectionLinks.Mode.SPEED_CLASS) {
+				originToDestination.setFreespeed(DgAirConnectionLinks.getSpeedClassFreespeed(connection.speedClass));
+			}
+			else {
+				originToDestination.setFreespeed(connection.length * connection.numberOfFlights / connection.cruiseTimeSum);
 			}
+			network.addLink(originToDestination);
 		}
-		
+		log.info("Created " + connections.size() + " " + connectionLinks.getMode() + " links for "
+				+ flightsData.getFlightDesignatorFlightMap().size() + " flights.");
+	}
 
+	private Id<Link> createLinkId(DgOagFlight flight){
+		return Id.create(this.modelConfig.getCodeDictionary().getFlightCode(flight), Link.class);
+	}
+
+	private void createAndAddConnection(DgOagFlight flight, Map<Id<Node>, SfMatsimAirport> airportMap, Network network, Set<String> allowedModes){
+		SfMatsimAirport oa = airportMap.get(Id.create( flight.getOriginCode(), Node.class));
+		SfMatsimAirport da = airportMap.get(Id.create( flight.getDestinationCode(), Node.class));
+		
+		Node startNode = network.getNodes().get(oa.getOutgoingFlightsNodeId());
+		Node endNode = network.getNodes().get(da.getIncomingFlightsNodeId());
+		
+		Id<Link> linkId = this.createLinkId(flight);
+		Link originToDestination = network.getFactory().createLink(linkId, startNode, endNode);
+		
+		originToDestination.setAllowedModes(allowedModes);
+		originToDestination.setCapacity(1.0*CAP_PERIOD);
+		DgAirConnectionLinks connectionLinks = this.modelConfig.getConnectionLinks();
+		originToDestination.setLength(connectionLinks.getLength(flight));
+		
+		double speed = connectionLinks.getCruiseSpeed(flight, oa, da);
+		originToDestination.setFreespeed(speed);
+		if (! network.getLinks().containsKey(linkId)) {
+			network.addLink(originToDestination);
+		}
 	}
 	
 	
@@ -130,7 +314,60 @@ public class DgAirNetworkBuilder {
 		
 		log.info("Anzahl Flughäfen: "+ airportMap.size());
 		log.info("Anzahl Links: "+ network.getLinks().size());
-		log.info("Anzahl Verbindungen: " + (network.getLinks().size() - (airportMap.size() * (DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS + 3))) );
+		int linksPerAirport = this.modelConfig.isUseQueueAirports() ? 3 : this.modelConfig.getConfig().getNumberOfRunways() + 3;
+		log.info("Anzahl Verbindungen: " + (network.getLinks().size() - (airportMap.size() * linksPerAirport)) );
+		return network;
+	}
+	
+	/**
+	 * Patches a network created by {@link #createNetwork(DgOagFlightsData, Map, String)} for the flights of a
+	 * previous build: the airports and connections that are no longer served are removed, those of new and
+	 * changed flights are added. The airports in the map must be the ones of the current build, none of
+	 * them must have moved. Only networks with one link per flight can be patched.
+	 */
+	public Network updateNetwork(DgOagFlightsDelta delta, Map<String, Coord> airports, String outputNetworkFilename) {
+		if (this.modelConfig.getConnectionMode() != DgAirConnectionLinks.Mode.FLIGHT) {
+			throw new IllegalStateException("Networks in " + this.modelConfig.getConnectionMode() + " mode cannot be updated, create a new one.");
+		}
+		Network network = (Network) this.scenario.getNetwork();
+		network.setCapacityPeriod(CAP_PERIOD);
+		// the airports that are already in the network are created in a scratch network to get the ids of their links
+		Network existingAirports = NetworkUtils.createNetwork();
+		existingAirports.setCapacityPeriod(CAP_PERIOD);
+		this.airportMap = new HashMap<>();
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			Network target = delta.getAddedAirports().contains(e.getKey()) ? network : existingAirports;
+			SfMatsimAirport airport = this.createAirport(e.getKey(), this.transform.transform(e.getValue()), target);
+			this.airportMap.put(airport.getId(), airport);
+		}
+
+		for (DgOagFlight flight : delta.getRemovedFlights()) {
+			network.removeLink(this.createLinkId(flight));
+		}
+		for (DgOagFlight flight : delta.getChangedPreviousFlights()) {
+			network.removeLink(this.createLinkId(flight));
+		}
+		Network removedAirports = NetworkUtils.createNetwork();
+		removedAirports.setCapacityPeriod(CAP_PERIOD);
+		for (String code : delta.getRemovedAirports()) {
+			this.createAirport(code, new Coord(0.0, 0.0), removedAirports);
+		}
+		for (Id<Node> nodeId : removedAirports.getNodes().keySet()) {
+			network.removeNode(nodeId);
+		}
+
+		Set<String> allowedModes = createAllowedModes();
+		for (DgOagFlight flight : delta.getChangedFlights()) {
+			this.createAndAddConnection(flight, this.airportMap, network, allowedModes);
+		}
+		for (DgOagFlight flight : delta.getAddedFlights()) {
+			this.createAndAddConnection(flight, this.airportMap, network, allowedModes);
+		}
+
+		new NetworkWriter(network).write(outputNetworkFilename);
+		log.info("Done! Updated MATSim Network saved as " + outputNetworkFilename);
+		log.info("Anzahl Flughäfen: "+ airportMap.size());
+		log.info("Anzahl Links: "+ network.getLinks().size());
 		return network;
 	}
 	
@@ -138,4 +375,43 @@ public class DgAirNetworkBuilder {
 		return this.airportMap;
 	}
 
+	/**
+	 * The airports created in a network, either in the network of the scenario or in a fragment.
+	 */
+	private static final class AirportFragment {
+
+		private final Network network;
+
+		private final Map<Id<Node>, SfMatsimAirport> airportMap = new HashMap<>();
+
+		AirportFragment(Network network) {
+			this.network = network;
+		}
+	}
+
+	/**
+	 * A link shared by the flights of a city pair.
+	 */
+	private static final class SharedConnection {
+
+		private final SfMatsimAirport origin;
+
+		private final SfMatsimAirport destination;
+
+		private final double length;
+
+		private final int speedClass;
+
+		private double cruiseTimeSum = 0.0;
+
+		private int numberOfFlights = 0;
+
+		SharedConnection(SfMatsimAirport origin, SfMatsimAirport destination, double length, int speedClass) {
+			this.origin = origin;
+			this.destination = destination;
+			this.length = length;
+			this.speedClass = speedClass;
+		}
+	}
+
 }
@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAircraftRotations
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.OagFlightTable.CodeIndex;
+
+
+/**
+ * Chains the flights of a schedule to aircraft rotations, thus one transit vehicle serves several flights.
+ * A flight can follow another one on the same aircraft if it departs at the airport the other one arrives at,
+ * if both are of the same group, e.g. carrier and aircraft type, and if the minimum turnaround time has
+ * elapsed since the arrival.
+ *
+ * The flights are assigned greedily in the order of their departure: each one takes the aircraft that is
+ * ready for the longest time at its origin airport or a new one if there is none. Per group and airport this
+ * needs the least number of aircraft. The schedule is not treated as periodic, i.e. the aircraft at the
+ * end of the period are not chained to the first flights.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAircraftRotations {
+
+	private static final Logger log = Logger.getLogger(DgAircraftRotations.class);
+
+	private final double minimumTurnaroundTime;
+
+	private final CodeIndex groups = new CodeIndex();
+
+	private final CodeIndex airports = new CodeIndex();
+
+	private int size = 0;
+
+	private int[] legGroups = new int[1024];
+
+	private int[] origins = new int[1024];
+
+	private int[] destinations = new int[1024];
+
+	private double[] departureTimes = new double[1024];
+
+	private double[] arrivalTimes = new double[1024];
+
+	private int[] vehicles = null;
+
+	private int[] vehicleGroups = null;
+
+	private int numberOfVehicles = 0;
+
+	public DgAircraftRotations(double minimumTurnaroundTime) {
+		this.minimumTurnaroundTime = minimumTurnaroundTime;
+	}
+
+	/**
+	 * @param group only flights of the same group are served by the same aircraft
+	 * @param arrivalTime on block at the destination airport
+	 * @return the index of the flight
+	 */
+	public int addFlight(String group, String originAirport, String destinationAirport, double departureTime, double arrivalTime) {
+		if (this.size == this.origins.length) {
+			int length = this.size * 2;
+			this.legGroups = Arrays.copyOf(this.legGroups, length);
+			this.origins = Arrays.copyOf(this.origins, length);
+			this.destinations = Arrays.copyOf(this.destinations, length);
+			this.departureTimes = Arrays.copyOf(this.departureTimes, length);
+			this.arrivalTimes = Arrays.copyOf(this.arrivalTimes, length);
+		}
+		this.legGroups[this.size] = this.groups.getId(group);
+		this.origins[this.size] = this.airports.getId(originAirport);
+		this.destinations[this.size] = this.airports.getId(destinationAirport);
+		this.departureTimes[this.size] = departureTime;
+		this.arrivalTimes[this.size] = arrivalTime;
+		this.vehicles = null;
+		return this.size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param speed the cruise speed of the flight in m/s
+	 * @return aircraftType_seats_carrier_s&lt;class&gt;, the group of a flight if the speed of the aircraft is given by its
+	 * vehicle type, thus only flights of the same speed class, see {@link DgAirConnectionLinks#getSpeedClass(double)}, can share it
+	 */
+	public static String createGroup(String aircraftType, int seatsAvailable, String carrier, double speed) {
+		return aircraftType + "_" + seatsAvailable + "_" + carrier + "_s" + DgAirConnectionLinks.getSpeedClass(speed);
+	}
+
+	/**
+	 * Assigns the flights added so far to aircraft.
+	 */
+	public void assign() {
+		Integer[] order = new Integer[this.size];
+		for (int i = 0; i < this.size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				int c = Double.compare(departureTimes[i], departureTimes[j]);
+				return c != 0 ? c : Integer.compare(i, j);
+			}
+		});
+		this.vehicles = new int[this.size];
+		this.vehicleGroups = new int[Math.max(this.size, 1)];
+		this.numberOfVehicles = 0;
+		// the aircraft waiting at an airport, by group and airport
+		Map<Long, PriorityQueue<ParkedAircraft>> parked = new HashMap<>();
+		for (Integer i : order) {
+			Long origin = createKey(this.legGroups[i], this.origins[i]);
+			PriorityQueue<ParkedAircraft> queue = parked.get(origin);
+			ParkedAircraft aircraft = null;
+			if (queue != null && ! queue.isEmpty() && queue.peek().readyTime <= this.departureTimes[i]) {
+				aircraft = queue.poll();
+			}
+			else {
+				aircraft = new ParkedAircraft(this.numberOfVehicles);
+				this.vehicleGroups[this.numberOfVehicles] = this.legGroups[i];
+				this.numberOfVehicles++;
+			}
+			this.vehicles[i] = aircraft.vehicle;
+			aircraft.readyTime = this.arrivalTimes[i] + this.minimumTurnaroundTime;
+			Long destination = createKey(this.legGroups[i], this.destinations[i]);
+			queue = parked.get(destination);
+			if (queue == null) {
+				queue = new PriorityQueue<>();
+				parked.put(destination, queue);
+			}
+			queue.add(aircraft);
+		}
+		log.info("Assigned " + this.size + " flights to " + this.numberOfVehicles + " aircraft with a minimum turnaround time of "
+				+ this.minimumTurnaroundTime + " s.");
+	}
+
+	private static Long createKey(int group, int airport) {
+		return ((long) group << 32) | (airport & 0xffffffffL);
+	}
+
+	/**
+	 * @return the index of the aircraft serving the flight, the aircraft are numbered from 0
+	 */
+	public int getVehicle(int flight) {
+		if (this.vehicles == null) {
+			throw new IllegalStateException("Flights are not assigned, call assign() first.");
+		}
+		return this.vehicles[flight];
+	}
+
+	public int getNumberOfVehicles() {
+		return this.numberOfVehicles;
+	}
+
+	public String getVehicleGroup(int vehicle) {
+		return this.groups.getCode(this.vehicleGroups[vehicle]);
+	}
+
+	private static final class ParkedAircraft implements Comparable<ParkedAircraft> {
+
+		private final int vehicle;
+
+		private double readyTime = Double.NEGATIVE_INFINITY;
+
+		ParkedAircraft(int vehicle) {
+			this.vehicle = vehicle;
+		}
+
+		@Override
+		public int compareTo(ParkedAircraft o) {
+			int c = Double.compare(this.readyTime, o.readyTime);
+			return c != 0 ? c : Integer.compare(this.vehicle, o.vehicle);
+		}
+	}
+
+}
@@ -0,0 +1,319 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirportIndex
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Static k-d tree of airports for nearest neighbour and radius queries.
+ *
+ * The index is either created for WGS84 coordinates, x is the longitude and y the latitude in degrees, then the
+ * distances are great circle distances in meters. Internally the airports are points on the unit sphere, the
+ * chord between two points grows with their great circle distance, thus the tree can be searched in three
+ * dimensional euclidean space without special cases at the poles or the date line. Or the index is created for
+ * a projected coordinate system, e.g. EPSG:3395, then the distances are euclidean distances in the units of the
+ * coordinate system.
+ *
+ * The results are the airport codes sorted by ascending distance.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgAirportIndex {
+
+	/**
+	 * mean earth radius in meters
+	 */
+	public static final double EARTH_RADIUS = 6371000.0;
+
+	private final boolean wgs84;
+
+	private final int dimensions;
+
+	private final String[] codes;
+
+	/**
+	 * the coordinates of the points in tree order, dimensions values per point
+	 */
+	private final double[] points;
+
+	/**
+	 * the split dimension of the subtree whose median is at the position
+	 */
+	private final byte[] splitDimensions;
+
+	private DgAirportIndex(Map<String, Coord> airports, boolean wgs84) {
+		this.wgs84 = wgs84;
+		this.dimensions = wgs84 ? 3 : 2;
+		int size = airports.size();
+		final double[][] coords = new double[size][];
+		String[] airportCodes = new String[size];
+		int i = 0;
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			airportCodes[i] = e.getKey();
+			coords[i] = this.toPoint(e.getValue());
+			i++;
+		}
+		Integer[] order = new Integer[size];
+		for (i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		this.splitDimensions = new byte[size];
+		this.build(order, coords, 0, size);
+		this.codes = new String[size];
+		this.points = new double[size * this.dimensions];
+		for (i = 0; i < size; i++) {
+			this.codes[i] = airportCodes[order[i]];
+			System.arraycopy(coords[order[i]], 0, this.points, i * this.dimensions, this.dimensions);
+		}
+	}
+
+	/**
+	 * @param airports the coordinates in WGS84, x longitude and y latitude in degrees
+	 */
+	public static DgAirportIndex createWgs84Index(Map<String, Coord> airports) {
+		return new DgAirportIndex(airports, true);
+	}
+
+	/**
+	 * @param airports the coordinates in a projected coordinate system, e.g. EPSG:3395
+	 */
+	public static DgAirportIndex createProjectedIndex(Map<String, Coord> airports) {
+		return new DgAirportIndex(airports, false);
+	}
+
+	public int size() {
+		return this.codes.length;
+	}
+
+	private double[] toPoint(Coord coord) {
+		if (! this.wgs84) {
+			return new double[] {coord.getX(), coord.getY()};
+		}
+		double lon = Math.toRadians(coord.getX());
+		double lat = Math.toRadians(coord.getY());
+		double cosLat = Math.cos(lat);
+		return new double[] {cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+	}
+
+	/**
+	 * Sorts the range by the dimension with the largest spread and recurses into both halves of the median.
+	 */
+	private void build(Integer[] order, final double[][] coords, int from, int to) {
+		if (to - from <= 1) {
+			return;
+		}
+		int splitDimension = 0;
+		double maxSpread = -1.0;
+		for (int d = 0; d < this.dimensions; d++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				double v = coords[order[i]][d];
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			if (max - min > maxSpread) {
+				maxSpread = max - min;
+				splitDimension = d;
+			}
+		}
+		final int dimension = splitDimension;
+		Arrays.sort(order, from, to, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				return Double.compare(coords[i][dimension], coords[j][dimension]);
+			}
+		});
+		int median = (from + to) >>> 1;
+		this.splitDimensions[median] = (byte) dimension;
+		this.build(order, coords, from, median);
+		this.build(order, coords, median + 1, to);
+	}
+
+	/**
+	 * @return the great circle distance in meters for a WGS84 index, else the euclidean distance
+	 */
+	public double getDistance(Coord from, Coord to) {
+		return this.toDistance(this.getSquaredDistance(this.toPoint(from), this.toPoint(to), 0));
+	}
+
+	private double getSquaredDistance(double[] query, double[] points, int offset) {
+		double sum = 0.0;
+		for (int d = 0; d < this.dimensions; d++) {
+			double delta = query[d] - points[offset + d];
+			sum += delta * delta;
+		}
+		return sum;
+	}
+
+	private double toDistance(double squaredDistance) {
+		if (! this.wgs84) {
+			return Math.sqrt(squaredDistance);
+		}
+		double halfChord = Math.min(1.0, Math.sqrt(squaredDistance) / 2.0);
+		return 2.0 * EARTH_RADIUS * Math.asin(halfChord);
+	}
+
+	private double toSquaredDistance(double distance) {
+		if (! this.wgs84) {
+			return distance * distance;
+		}
+		double chord = 2.0 * Math.sin(Math.min(distance / EARTH_RADIUS, Math.PI) / 2.0);
+		return chord * chord;
+	}
+
+	/**
+	 * @return the code of the nearest airport or null if the index is empty
+	 */
+	public String getNearest(Coord coord) {
+		List<String> nearest = this.getNearest(coord, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/**
+	 * @return the codes of the k nearest airports, sorted by distance
+	 */
+	public List<String> getNearest(Coord coord, int k) {
+		int n = Math.min(k, this.codes.length);
+		if (n <= 0) {
+			return Collections.emptyList();
+		}
+		Neighbours neighbours = new Neighbours(n);
+		this.searchNearest(this.toPoint(coord), 0, this.codes.length, neighbours);
+		List<String> result = new ArrayList<String>(neighbours.size);
+		for (int i = 0; i < neighbours.size; i++) {
+			result.add(this.codes[neighbours.positions[i]]);
+		}
+		return result;
+	}
+
+	private void searchNearest(double[] query, int from, int to, Neighbours neighbours) {
+		if (from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		neighbours.offer(median, this.getSquaredDistance(query, this.points, median * this.dimensions));
+		if (to - from == 1) {
+			return;
+		}
+		double delta = query[this.splitDimensions[median]] - this.points[median * this.dimensions + this.splitDimensions[median]];
+		if (delta < 0) {
+			this.searchNearest(query, from, median, neighbours);
+			if (delta * delta < neighbours.getMaxSquaredDistance()) {
+				this.searchNearest(query, median + 1, to, neighbours);
+			}
+		}
+		else {
+			this.searchNearest(query, median + 1, to, neighbours);
+			if (delta * delta < neighbours.getMaxSquaredDistance()) {
+				this.searchNearest(query, from, median, neighbours);
+			}
+		}
+	}
+
+	/**
+	 * @param radius in meters for a WGS84 index, else in the units of the coordinate system
+	 * @return the codes of the airports within the radius, sorted by distance
+	 */
+	public List<String> getWithinRadius(Coord coord, double radius) {
+		double[] query = this.toPoint(coord);
+		List<double[]> found = new ArrayList<double[]>();
+		this.searchRadius(query, this.toSquaredDistance(radius), 0, this.codes.length, found);
+		Collections.sort(found, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] o1, double[] o2) {
+				int c = Double.compare(o1[1], o2[1]);
+				return c != 0 ? c : codes[(int) o1[0]].compareTo(codes[(int) o2[0]]);
+			}
+		});
+		List<String> result = new ArrayList<String>(found.size());
+		for (double[] f : found) {
+			result.add(this.codes[(int) f[0]]);
+		}
+		return result;
+	}
+
+	private void searchRadius(double[] query, double squaredRadius, int from, int to, List<double[]> found) {
+		if (from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		double squaredDistance = this.getSquaredDistance(query, this.points, median * this.dimensions);
+		if (squaredDistance <= squaredRadius) {
+			found.add(new double[] {median, squaredDistance});
+		}
+		double delta = query[this.splitDimensions[median]] - this.points[median * this.dimensions + this.splitDimensions[median]];
+		if (delta <= 0 || delta * delta <= squaredRadius) {
+			this.searchRadius(query, squaredRadius, from, median, found);
+		}
+		if (delta >= 0 || delta * delta <= squaredRadius) {
+			this.searchRadius(query, squaredRadius, median + 1, to, found);
+		}
+	}
+
+	/**
+	 * The k nearest points found so far, sorted by distance.
+	 */
+	private static final class Neighbours {
+
+		private final int[] positions;
+
+		private final double[] squaredDistances;
+
+		private int size = 0;
+
+		Neighbours(int k) {
+			this.positions = new int[k];
+			this.squaredDistances = new double[k];
+		}
+
+		double getMaxSquaredDistance() {
+			return this.size < this.positions.length ? Double.POSITIVE_INFINITY : this.squaredDistances[this.size - 1];
+		}
+
+		void offer(int position, double squaredDistance) {
+			if (squaredDistance >= this.getMaxSquaredDistance()) {
+				return;
+			}
+			int i = Math.min(this.size, this.positions.length - 1);
+			while (i > 0 && this.squaredDistances[i - 1] > squaredDistance) {
+				this.positions[i] = this.positions[i - 1];
+				this.squaredDistances[i] = this.squaredDistances[i - 1];
+				i--;
+			}
+			this.positions[i] = position;
+			this.squaredDistances[i] = squaredDistance;
+			if (this.size < this.positions.length) {
+				this.size++;
+			}
+		}
+	}
+
+}
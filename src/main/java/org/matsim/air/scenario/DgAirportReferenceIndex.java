@@ -0,0 +1,228 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirportReferenceIndex
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Index of the airports of a reference file in the format of the airports.csv of OurAirports
+ * (http://ourairports.com/data/) by IATA and ICAO code.
+ *
+ * The columns are found by the names in the header line, the airports are indexed by the column "iata_code" and by the
+ * ICAO codes in the columns "ident", "gps_code" and, if present, "icao_code". If several airports have the same code,
+ * e.g. a closed and an open airport, the airport with scheduled service and the larger type is kept.
+ *
+ * The index can also be created from the airports extracted from OSM, see {@link #createIndex(Map)}.
+ *
+ * The coordinates are in WGS84, x is the longitude and y the latitude in degrees.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgAirportReferenceIndex {
+
+	private static final Logger log = Logger.getLogger(DgAirportReferenceIndex.class);
+
+	private static final String[] TYPES = {"closed", "balloonport", "heliport", "seaplane_base", "small_airport", "medium_airport", "large_airport"};
+
+	private final Map<String, Coord> iataCoords = new HashMap<String, Coord>();
+
+	private final Map<String, Coord> icaoCoords = new HashMap<String, Coord>();
+
+	private final Map<String, Integer> iataRanks = new HashMap<String, Integer>();
+
+	private final Map<String, Integer> icaoRanks = new HashMap<String, Integer>();
+
+	private int numberOfAirports = 0;
+
+	private DgAirportReferenceIndex() {
+	}
+
+	public static DgAirportReferenceIndex readOurAirportsFile(String filename) throws IOException {
+		log.info("Reading airports from " + filename);
+		DgAirportReferenceIndex index = new DgAirportReferenceIndex();
+		BufferedReader br = new BufferedReader(new FileReader(new File(filename)));
+		try {
+			List<String> fields = new ArrayList<String>();
+			String line = br.readLine();
+			if (line == null) {
+				throw new IOException("No header in airport file " + filename);
+			}
+			splitCsvLine(line, fields);
+			int ident = getColumn(fields, "ident", true, filename);
+			int type = getColumn(fields, "type", true, filename);
+			int latitude = getColumn(fields, "latitude_deg", true, filename);
+			int longitude = getColumn(fields, "longitude_deg", true, filename);
+			int scheduledService = getColumn(fields, "scheduled_service", false, filename);
+			int gpsCode = getColumn(fields, "gps_code", false, filename);
+			int iataCode = getColumn(fields, "iata_code", true, filename);
+			int icaoCode = getColumn(fields, "icao_code", false, filename);
+			int columns = fields.size();
+			int lineNumber = 1;
+			while ((line = br.readLine()) != null) {
+				lineNumber++;
+				splitCsvLine(line, fields);
+				if (fields.size() < columns) {
+					log.warn("Skipping line " + lineNumber + " of " + filename + " with " + fields.size() + " of " + columns + " columns.");
+					continue;
+				}
+				Coord coord;
+				try {
+					coord = new Coord(Double.parseDouble(fields.get(longitude)), Double.parseDouble(fields.get(latitude)));
+				} catch (RuntimeException e) {
+					log.warn("Skipping line " + lineNumber + " of " + filename + ": " + e.getMessage());
+					continue;
+				}
+				int rank = getRank(fields.get(type));
+				if (scheduledService >= 0 && "yes".equals(fields.get(scheduledService))) {
+					rank += TYPES.length;
+				}
+				put(index.iataCoords, index.iataRanks, fields.get(iataCode), coord, rank);
+				put(index.icaoCoords, index.icaoRanks, fields.get(ident), coord, rank);
+				if (gpsCode >= 0) {
+					put(index.icaoCoords, index.icaoRanks, fields.get(gpsCode), coord, rank);
+				}
+				if (icaoCode >= 0) {
+					put(index.icaoCoords, index.icaoRanks, fields.get(icaoCode), coord, rank);
+				}
+				index.numberOfAirports++;
+			}
+		} finally {
+			br.close();
+		}
+		index.iataRanks.clear();
+		index.icaoRanks.clear();
+		log.info("Read " + index.numberOfAirports + " airports with " + index.iataCoords.size() + " IATA and "
+				+ index.icaoCoords.size() + " ICAO codes.");
+		return index;
+	}
+
+	/**
+	 * Creates the index of the airports extracted from an OSM file, see {@link DgOsmAerowayExtractor#extractAirports(String)}.
+	 * OSM gives the IATA codes only, thus the ICAO codes are not known by the index.
+	 *
+	 * @param airports the WGS84 coordinates by IATA code
+	 */
+	public static DgAirportReferenceIndex createIndex(Map<String, Coord> airports) {
+		DgAirportReferenceIndex index = new DgAirportReferenceIndex();
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			put(index.iataCoords, index.iataRanks, e.getKey(), e.getValue(), 0);
+			index.numberOfAirports++;
+		}
+		index.iataRanks.clear();
+		log.info("Indexed " + index.numberOfAirports + " airports with " + index.iataCoords.size() + " IATA codes.");
+		return index;
+	}
+
+	private static int getColumn(List<String> header, String name, boolean required, String filename) throws IOException {
+		int column = header.indexOf(name);
+		if (column < 0 && required) {
+			throw new IOException("No column " + name + " in airport file " + filename);
+		}
+		return column;
+	}
+
+	private static int getRank(String type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(type)) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	private static void put(Map<String, Coord> coords, Map<String, Integer> ranks, String code, Coord coord, int rank) {
+		code = code.trim().toUpperCase();
+		if (code.isEmpty()) {
+			return;
+		}
+		Integer previousRank = ranks.get(code);
+		if (previousRank == null || previousRank < rank) {
+			coords.put(code, coord);
+			ranks.put(code, rank);
+		}
+	}
+
+	/**
+	 * Splits a line of comma separated values, values may be enclosed in double quotes that escape commas and doubled
+	 * quotes.
+	 */
+	static void splitCsvLine(String line, List<String> fields) {
+		fields.clear();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+	}
+
+	/**
+	 * @return the number of airports in the reference file
+	 */
+	public int size() {
+		return this.numberOfAirports;
+	}
+
+	/**
+	 * A code of three letters is an IATA code, a code of four letters an ICAO code.
+	 *
+	 * @return the coordinate of the airport or null if the code is not known
+	 */
+	public Coord getCoord(String code) {
+		code = code.trim().toUpperCase();
+		if (code.length() == 3) {
+			return this.iataCoords.get(code);
+		}
+		return this.icaoCoords.get(code);
+	}
+
+}
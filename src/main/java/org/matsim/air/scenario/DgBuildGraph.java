@@ -0,0 +1,390 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgBuildGraph
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.DgOagSnapshotCache;
+
+
+/**
+ * Builds the outputs of {@link DgBuildStage}s. Each stage gets a key that is the hash of its name, its parameters and
+ * the keys of its input stages, thus the key of a stage changes if anything changes that the stage depends on directly
+ * or indirectly. The outputs of cached stages are stored in a directory named by the key. A stage that is found in the
+ * cache is loaded without building its inputs, e.g. a cached scenario does not need the OAG table.
+ *
+ * The stages whose inputs are available are run in parallel, as are the parameters of all stages, that are mostly the
+ * hashes of the input files. The hash of a file is kept in the cache together with the length and the modification
+ * time of the file and only computed again if one of them changed.
+ *
+ * The outputs of the stages are kept by the graph, thus several builds, e.g. the scenarios of several regions, share
+ * the outputs of the same stage instances.
+ *
+ * @author dgrether
+ *
+ */
+public class DgBuildGraph {
+
+	private static final Logger log = Logger.getLogger(DgBuildGraph.class);
+
+	private static final String FILE_HASHES = "file_hashes.txt";
+
+	private static final Object NO_OUTPUT = new Object();
+
+	/**
+	 * null if no stage is cached
+	 */
+	private final File directory;
+
+	private final ExecutorService executor;
+
+	/**
+	 * canonical path to length, modification time and hash of the file
+	 */
+	private final Map<String, String> fileHashes = new ConcurrentHashMap<String, String>();
+
+	private final Map<DgBuildStage<?>, String> keys = new ConcurrentHashMap<DgBuildStage<?>, String>();
+
+	private final Map<DgBuildStage<?>, Object> outputs = new ConcurrentHashMap<DgBuildStage<?>, Object>();
+
+	/**
+	 * @param cacheDirectory the directory of the cached stages or null if the stages shall not be cached
+	 */
+	public DgBuildGraph(String cacheDirectory, int numberOfThreads) throws IOException {
+		this.executor = Executors.newFixedThreadPool(numberOfThreads);
+		if (cacheDirectory == null) {
+			this.directory = null;
+			return;
+		}
+		this.directory = new File(cacheDirectory);
+		if (! this.directory.exists() && ! this.directory.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + this.directory);
+		}
+		this.readFileHashes();
+	}
+
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * @return the SHA-256 of the file content, see {@link DgOagSnapshotCache#hashFile(String)}
+	 */
+	public String hashFile(String filename) throws IOException {
+		File file = new File(filename).getCanonicalFile();
+		String stamp = file.length() + "\t" + file.lastModified() + "\t";
+		String entry = this.fileHashes.get(file.getPath());
+		if (entry != null && entry.startsWith(stamp)) {
+			return entry.substring(stamp.length());
+		}
+		String hash = DgOagSnapshotCache.hashFile(file.getPath());
+		this.fileHashes.put(file.getPath(), stamp + hash);
+		return hash;
+	}
+
+	/**
+	 * @return the key of a stage of the last build
+	 */
+	public String getKey(DgBuildStage<?> stage) {
+		String key = this.keys.get(stage);
+		if (key == null) {
+			throw new IllegalStateException("Stage " + stage + " is not part of a build");
+		}
+		return key;
+	}
+
+	/**
+	 * @return the output of a stage that was built
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getOutput(DgBuildStage<T> stage) {
+		Object output = this.outputs.get(stage);
+		if (output == null) {
+			throw new IllegalStateException("Stage " + stage + " was not built");
+		}
+		return output == NO_OUTPUT ? null : (T) output;
+	}
+
+	/**
+	 * Builds the outputs of the stages and of all stages they depend on that are not yet built or cached.
+	 */
+	public void build(DgBuildStage<?>... targets) throws Exception {
+		List<DgBuildStage<?>> stages = new ArrayList<DgBuildStage<?>>();
+		Set<DgBuildStage<?>> visited = new HashSet<DgBuildStage<?>>();
+		for (DgBuildStage<?> target : targets) {
+			this.collect(target, visited, stages);
+		}
+		this.createKeys(stages);
+
+		Set<DgBuildStage<?>> pending = new LinkedHashSet<DgBuildStage<?>>();
+		Set<DgBuildStage<?>> loadable = new HashSet<DgBuildStage<?>>();
+		for (DgBuildStage<?> target : targets) {
+			this.plan(target, pending, loadable);
+		}
+		while (! pending.isEmpty()) {
+			List<DgBuildStage<?>> ready = new ArrayList<DgBuildStage<?>>();
+			for (DgBuildStage<?> stage : pending) {
+				if (loadable.contains(stage) || this.isBuilt(stage.getInputs())) {
+					ready.add(stage);
+				}
+			}
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (final DgBuildStage<?> stage : ready) {
+				final boolean load = loadable.contains(stage);
+				futures.add(this.executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						return runStage(stage, load);
+					}
+				}));
+			}
+			for (int i = 0; i < ready.size(); i++) {
+				DgBuildStage<?> stage = ready.get(i);
+				pending.remove(stage);
+				if (! get(futures.get(i))) {
+					// the cached output cannot be read, thus the stage and its inputs are built
+					loadable.remove(stage);
+					for (DgBuildStage<?> input : stage.getInputs()) {
+						this.plan(input, pending, loadable);
+					}
+					pending.add(stage);
+				}
+			}
+		}
+		this.writeFileHashes();
+	}
+
+	private void collect(DgBuildStage<?> stage, Set<DgBuildStage<?>> visited, List<DgBuildStage<?>> stages) {
+		if (! visited.add(stage)) {
+			return;
+		}
+		for (DgBuildStage<?> input : stage.getInputs()) {
+			this.collect(input, visited, stages);
+		}
+		stages.add(stage);
+	}
+
+	/**
+	 * @param stages in the order of their dependencies
+	 */
+	private void createKeys(List<DgBuildStage<?>> stages) throws Exception {
+		List<DgBuildStage<?>> newStages = new ArrayList<DgBuildStage<?>>();
+		List<Future<String>> parameters = new ArrayList<Future<String>>();
+		for (final DgBuildStage<?> stage : stages) {
+			if (this.keys.containsKey(stage)) {
+				continue;
+			}
+			newStages.add(stage);
+			parameters.add(this.executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return stage.getParameters(DgBuildGraph.this);
+				}
+			}));
+		}
+		for (int i = 0; i < newStages.size(); i++) {
+			DgBuildStage<?> stage = newStages.get(i);
+			List<DgBuildStage<?>> inputs = stage.getInputs();
+			String[] parts = new String[inputs.size() + 2];
+			parts[0] = stage.getName();
+			parts[1] = get(parameters.get(i));
+			for (int j = 0; j < inputs.size(); j++) {
+				parts[j + 2] = this.keys.get(inputs.get(j));
+			}
+			this.keys.put(stage, DgOagSnapshotCache.createKey(parts));
+		}
+	}
+
+	private void plan(DgBuildStage<?> stage, Set<DgBuildStage<?>> pending, Set<DgBuildStage<?>> loadable) {
+		if (this.outputs.containsKey(stage) || pending.contains(stage)) {
+			return;
+		}
+		if (this.isInCache(stage)) {
+			loadable.add(stage);
+		}
+		else {
+			for (DgBuildStage<?> input : stage.getInputs()) {
+				this.plan(input, pending, loadable);
+			}
+		}
+		pending.add(stage);
+	}
+
+	private boolean isBuilt(List<DgBuildStage<?>> stages) {
+		for (DgBuildStage<?> stage : stages) {
+			if (! this.outputs.containsKey(stage)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isInCache(DgBuildStage<?> stage) {
+		return this.directory != null && stage.isCached() && this.getStageDirectory(stage).isDirectory();
+	}
+
+	private File getStageDirectory(DgBuildStage<?> stage) {
+		return new File(this.directory, stage.getName() + "_" + this.getKey(stage));
+	}
+
+	/**
+	 * @return false if the stage should be loaded from the cache but cannot be read
+	 */
+	private <T> boolean runStage(DgBuildStage<T> stage, boolean load) throws Exception {
+		long start = System.currentTimeMillis();
+		if (load) {
+			File stageDirectory = this.getStageDirectory(stage);
+			T output = stage.load(stageDirectory);
+			if (output == null) {
+				log.warn("Cannot load stage " + stage + " from " + stageDirectory + ", building it...");
+				return false;
+			}
+			this.outputs.put(stage, output);
+			log.info("Loaded stage " + stage + " from " + stageDirectory + " in " + (System.currentTimeMillis() - start) + " ms");
+			return true;
+		}
+		log.info("Building stage " + stage + "...");
+		T output = stage.compute(this);
+		if (this.directory != null && stage.isCached()) {
+			this.store(stage, output);
+		}
+		this.outputs.put(stage, output == null ? NO_OUTPUT : output);
+		log.info("Built stage " + stage + " in " + (System.currentTimeMillis() - start) + " ms");
+		return true;
+	}
+
+	/**
+	 * The output is written to a temporary directory that is renamed when complete, thus a broken run never
+	 * leaves a partial stage in the cache.
+	 */
+	private <T> void store(DgBuildStage<T> stage, T output) throws Exception {
+		File stageDirectory = this.getStageDirectory(stage);
+		File tmpDirectory = Files.createTempDirectory(this.directory.toPath(), stageDirectory.getName() + ".tmp").toFile();
+		stage.store(output, tmpDirectory);
+		if (stageDirectory.exists()) {
+			delete(stageDirectory);
+		}
+		Files.move(tmpDirectory.toPath(), stageDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		log.info("Stored stage " + stage + " in " + stageDirectory);
+	}
+
+	private void readFileHashes() throws IOException {
+		File file = new File(this.directory, FILE_HASHES);
+		if (! file.exists()) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int separator = line.indexOf('\t');
+				if (separator > 0) {
+					this.fileHashes.put(line.substring(0, separator), line.substring(separator + 1));
+				}
+			}
+		}
+	}
+
+	private synchronized void writeFileHashes() throws IOException {
+		if (this.directory == null) {
+			return;
+		}
+		File file = new File(this.directory, FILE_HASHES);
+		File tmpFile = File.createTempFile(FILE_HASHES, ".tmp", this.directory);
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+			for (Entry<String, String> e : this.fileHashes.entrySet()) {
+				writer.write(e.getKey());
+				writer.write('\t');
+				writer.write(e.getValue());
+				writer.newLine();
+			}
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static <V> V get(Future<V> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Copies the files or directories with the names from the source to the target directory, names that do not
+	 * exist in the source directory are skipped.
+	 */
+	public static void copyFiles(File sourceDirectory, File targetDirectory, String... names) throws IOException {
+		for (String name : names) {
+			File source = new File(sourceDirectory, name);
+			if (source.exists()) {
+				copy(source, new File(targetDirectory, name));
+			}
+		}
+	}
+
+	private static void copy(File source, File target) throws IOException {
+		if (source.isDirectory()) {
+			if (! target.exists() && ! target.mkdirs()) {
+				throw new IOException("Cannot create directory " + target);
+			}
+			for (File file : source.listFiles()) {
+				copy(file, new File(target, file.getName()));
+			}
+		}
+		else {
+			Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void delete(File file) throws IOException {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		if (! file.delete()) {
+			throw new IOException("Cannot delete " + file);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgBuildStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A step of the scenario build, e.g. parsing the OAG file or filtering the flights. A stage declares the stages whose
+ * outputs it needs and the parameters that change its output, i.e. settings and the hashes of the files it reads.
+ * Together with the keys of the input stages they form the key of the stage in {@link DgBuildGraph}, thus a stage is
+ * only computed again if one of its parameters or of the parameters of the stages it depends on changed.
+ *
+ * Stages that override {@link #isCached()} write their output to a directory of the cache that is named by the key
+ * and load it from there in later builds.
+ *
+ * @author dgrether
+ *
+ */
+public abstract class DgBuildStage<T> {
+
+	private final String name;
+
+	private final List<DgBuildStage<?>> inputs;
+
+	public DgBuildStage(String name, DgBuildStage<?>... inputs) {
+		this.name = name;
+		this.inputs = Collections.unmodifiableList(Arrays.asList(inputs));
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public List<DgBuildStage<?>> getInputs() {
+		return this.inputs;
+	}
+
+	/**
+	 * @return a description of all settings and input files that change the output, files should be given by their hash
+	 * {@link DgBuildGraph#hashFile(String)}
+	 */
+	public abstract String getParameters(DgBuildGraph graph) throws Exception;
+
+	/**
+	 * The outputs of the input stages are available by {@link DgBuildGraph#getOutput(DgBuildStage)}.
+	 */
+	public abstract T compute(DgBuildGraph graph) throws Exception;
+
+	/**
+	 * @return true if the output is stored in the cache of the graph
+	 */
+	public boolean isCached() {
+		return false;
+	}
+
+	/**
+	 * Writes the output to the empty directory of the stage in the cache.
+	 */
+	public void store(T output, File directory) throws Exception {
+	}
+
+	/**
+	 * @return the output read from the directory of the stage in the cache or null if it cannot be read,
+	 * then the stage is computed
+	 */
+	public T load(File directory) throws Exception {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+}
@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCityPairGeometry
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Great circle distances between the airports of a scenario. The coordinates are kept in primitive arrays by the
+ * dense airport ids of the {@link AirCodeDictionary}, the distances are computed in batches and cached by the
+ * dense city pair ids, thus a lookup is an array access once the city pairs are known.
+ *
+ * The OAG data contains a distance for each flight. {@link #validateDistances(DgOagFlightsData, double)} compares
+ * them to the great circle distance of the airport coordinates, large deviations usually indicate wrong coordinates.
+ * The links between the airports get the great circle distance as length, see {@link DgAirConnectionLinks#getLength(DgOagFlight)},
+ * thus the speeds of the flights are consistent with the coordinates of their airports.
+ *
+ * @author dgrether
+ *
+ */
+public class DgCityPairGeometry {
+
+	private static final Logger log = Logger.getLogger(DgCityPairGeometry.class);
+
+	private static final double EARTH_RADIUS_KM = DgAirportIndex.EARTH_RADIUS / 1000.0;
+
+	private static final int MAX_WARNINGS = 20;
+
+	private final AirCodeDictionary codes;
+
+	private double[] latitudes = new double[0];
+
+	private double[] longitudes = new double[0];
+
+	private double[] cosLatitudes = new double[0];
+
+	private double[] cityPairDistances = new double[256];
+
+	private int numberOfComputedCityPairs = 0;
+
+	/**
+	 * @param airports the WGS84 coordinates of the airports, x longitude and y latitude in degrees
+	 */
+	public DgCityPairGeometry(AirCodeDictionary codes, Map<String, Coord> airports) {
+		this.codes = codes;
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			int id = codes.getAirportId(e.getKey());
+			this.ensureAirportCapacity(id + 1);
+			double lat = Math.toRadians(e.getValue().getY());
+			this.latitudes[id] = lat;
+			this.longitudes[id] = Math.toRadians(e.getValue().getX());
+			this.cosLatitudes[id] = Math.cos(lat);
+		}
+	}
+
+	/**
+	 * airports without coordinates have NaN coordinates, thus all their distances are NaN
+	 */
+	private void ensureAirportCapacity(int size) {
+		if (size > this.latitudes.length) {
+			int oldLength = this.latitudes.length;
+			int length = Math.max(size, oldLength * 2);
+			this.latitudes = Arrays.copyOf(this.latitudes, length);
+			this.longitudes = Arrays.copyOf(this.longitudes, length);
+			this.cosLatitudes = Arrays.copyOf(this.cosLatitudes, length);
+			Arrays.fill(this.latitudes, oldLength, length, Double.NaN);
+			Arrays.fill(this.longitudes, oldLength, length, Double.NaN);
+			Arrays.fill(this.cosLatitudes, oldLength, length, Double.NaN);
+		}
+	}
+
+	/**
+	 * Computes the great circle distances of n pairs of airports by the haversine formula.
+	 * @param originIds dense airport ids
+	 * @param destinationIds dense airport ids
+	 * @param distancesKm filled with the distances in km, NaN if an airport has no coordinates
+	 */
+	public void computeDistancesKm(int[] originIds, int[] destinationIds, double[] distancesKm, int n) {
+		this.ensureAirportCapacity(this.codes.getNumberOfAirports());
+		double[] lat = this.latitudes;
+		double[] lon = this.longitudes;
+		double[] cosLat = this.cosLatitudes;
+		for (int i = 0; i < n; i++) {
+			int o = originIds[i];
+			int d = destinationIds[i];
+			double sinHalfDeltaLat = Math.sin((lat[d] - lat[o]) * 0.5);
+			double sinHalfDeltaLon = Math.sin((lon[d] - lon[o]) * 0.5);
+			double h = sinHalfDeltaLat * sinHalfDeltaLat + cosLat[o] * cosLat[d] * sinHalfDeltaLon * sinHalfDeltaLon;
+			distancesKm[i] = 2.0 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, h)));
+		}
+	}
+
+	/**
+	 * Computes the distances of all city pairs of the dictionary that are not cached yet in one batch.
+	 */
+	public void computeCityPairDistances() {
+		int numberOfCityPairs = this.codes.getNumberOfCityPairs();
+		int n = numberOfCityPairs - this.numberOfComputedCityPairs;
+		if (n <= 0) {
+			return;
+		}
+		int[] originIds = new int[n];
+		int[] destinationIds = new int[n];
+		for (int i = 0; i < n; i++) {
+			long key = this.codes.getCityPairKey(this.numberOfComputedCityPairs + i);
+			originIds[i] = AirCodeDictionary.getOriginAirportId(key);
+			destinationIds[i] = AirCodeDictionary.getDestinationAirportId(key);
+		}
+		double[] distances = new double[n];
+		this.computeDistancesKm(originIds, destinationIds, distances, n);
+		if (numberOfCityPairs > this.cityPairDistances.length) {
+			this.cityPairDistances = Arrays.copyOf(this.cityPairDistances, Math.max(numberOfCityPairs, this.cityPairDistances.length * 2));
+		}
+		System.arraycopy(distances, 0, this.cityPairDistances, this.numberOfComputedCityPairs, n);
+		this.numberOfComputedCityPairs = numberOfCityPairs;
+	}
+
+	/**
+	 * @return the great circle distance in km, NaN if one of the airports has no coordinates
+	 */
+	public double getDistanceKm(int cityPairId) {
+		if (cityPairId >= this.numberOfComputedCityPairs) {
+			this.computeCityPairDistances();
+		}
+		return this.cityPairDistances[cityPairId];
+	}
+
+	public double getDistanceKm(String originAirport, String destinationAirport) {
+		return this.getDistanceKm(this.codes.getCityPairId(this.codes.getCityPairKey(originAirport, destinationAirport)));
+	}
+
+	/**
+	 * Compares the OAG distance of each flight to the great circle distance of its city pair and logs the deviations.
+	 * @param relativeTolerance e.g. 0.05 for 5 %
+	 * @return the number of flights whose distance deviates more than the tolerance or whose airports have no coordinates
+	 */
+	public int validateDistances(DgOagFlightsData flights, double relativeTolerance) {
+		int deviations = 0;
+		for (DgOagFlight flight : flights.getFlightDesignatorFlightMap().values()) {
+			double distance = this.getDistanceKm(flight.getOriginCode(), flight.getDestinationCode());
+			double deviation = Math.abs(flight.getDistanceKm() - distance);
+			if (Double.isNaN(distance) || deviation > relativeTolerance * distance) {
+				if (deviations < MAX_WARNINGS) {
+					log.warn("Flight " + flight.getFlightDesignator() + " from " + flight.getOriginCode() + " to " + flight.getDestinationCode()
+							+ " has an OAG distance of " + flight.getDistanceKm() + " km, the great circle distance is " + distance + " km.");
+				}
+				deviations++;
+			}
+		}
+		log.info(deviations + " of " + flights.getFlightDesignatorFlightMap().size() + " flights deviate more than "
+				+ (relativeTolerance * 100.0) + " % from the great circle distance.");
+		return deviations;
+	}
+
+}
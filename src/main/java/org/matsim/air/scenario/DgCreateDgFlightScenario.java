@@ -20,16 +20,20 @@
 package org.matsim.air.scenario;
 
 import java.io.File;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.air.analysis.DgNet2Shape;
+import org.matsim.air.scenario.countryfilter.DgCountryFilter;
 import org.matsim.air.scenario.countryfilter.DgEuropeCountryFilter;
 import org.matsim.air.scenario.countryfilter.DgGermanyCountryFilter;
 import org.matsim.air.scenario.oag.DgOagFlightsData;
-import org.matsim.air.scenario.oag.DgOagLine;
+import org.matsim.air.scenario.oag.DgOagFlightsDelta;
 import org.matsim.air.scenario.oag.DgOagReader;
+import org.matsim.air.scenario.oag.DgOagSnapshotCache;
+import org.matsim.air.scenario.oag.OagFlightTable;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -38,10 +42,13 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.OutputDirectoryLogging;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.vehicles.VehicleReaderV1;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 //import air.analysis.DgNet2Shape;
@@ -62,10 +69,23 @@ public class DgCreateDgFlightScenario {
 	
 	private static final double CAPACITY_PERIOD = 3600.0;
 	
-	private static final String OAG_FLIGHTS_OUTPUT_FILENAME = "oag_flights.txt";
+	private static final String OAG_FLIGHTS_OUTPUT_FILENAME = "oag_flights.bin";
 	private static final String FLIGHT_TRANSIT_SCHEDULE = "flight_transit_schedule.xml";
 	private static final String FLIGHT_TRANSIT_VEHICLES = "flight_transit_vehicles.xml";
 	private static final String MODEL_STATISTICS_TABLE = "model_statistics.txt";
+	private static final String BUILD_FLIGHTS_SNAPSHOT = "build_flights.bin";
+	private static final String SHAPE_FILE_DIRECTORY = "shape_epsg_3395";
+	/**
+	 * key of the snapshots in the directories of the cached build stages
+	 */
+	private static final String STAGE_SNAPSHOT = "stage";
+	private static final String WORLD = "world";
+	private static final String EUROPE = "eu";
+	private static final String GERMANY = "de";
+	/**
+	 * relative deviation of the OAG distances from the great circle distances that is logged
+	 */
+	private static final double DISTANCE_TOLERANCE = 0.05;
 
 	private static String dataBaseDirectory = "../";
 	private static String utcOffsetfile = dataBaseDirectory + "shared-svn/studies/countries/world/flight/sf_oag_flight_model/utc_offsets.txt";
@@ -76,11 +96,37 @@ public class DgCreateDgFlightScenario {
 //	private String flightScenarioDirectoryName = "dg_oag_tuesday_flight_model_2_runways_airport_capacities_www_storage_restriction/";
 	private String flightScenarioDirectoryName ="dg_oag_tuesday_flight_model_2_runways_60vph/";
 //	private String flightScenarioDirectoryName = "dg_oag_tuesday_flight_model_2_runways_3600vph_storage_restriction/";
-	private CoordinateTransformation transform = TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84, "EPSG:3395");
-	private DgFlightScenarioData flightScenarioData = new DgFlightScenarioData(CAPACITY_PERIOD);
+	/**
+	 * the settings of the schedule, network and transit builders, the intermediate files of the schedule are written
+	 */
+	private DgFlightScenarioConfig config = DgCreateSfFlightScenario.createConfig().withWriteIntermediateFiles(true);
+	/**
+	 * how the flights are mapped to the links between the airports, see {@link DgAirConnectionLinks.Mode}
+	 */
+	private DgAirConnectionLinks.Mode connectionMode = DgAirConnectionLinks.Mode.FLIGHT;
+	/**
+	 * airports with one departure and one arrival queue instead of taxiways and runways
+	 */
+	private boolean useQueueAirports = false;
 	private boolean useAirportCapacities = true;
-	public static final boolean useSingleDayOfOperation = true;
 	private String airportCapacityFile = dataBaseDirectory + "shared-svn/projects/throughFlightData/airportCapacityData/2012-08-14_airport_capacity_from_www.csv";
+	/**
+	 * cache the outputs of the build stages in the snapshot directory, off by default as a stale or foreign
+	 * snapshot directory would silently replace the inputs
+	 */
+	private boolean useSnapshots = false;
+	/**
+	 * patch the scenario of the previous build instead of creating it from scratch, only
+	 * if the previous build was made with the same build configuration
+	 */
+	private boolean useDeltaUpdate = false;
+	/**
+	 * one transit route with many departures per city pair, carrier, connection link and flight duration
+	 */
+	private boolean poolDepartures = false;
+	private String snapshotDirectory = dataBaseDirectory + "shared-svn/projects/throughFlightData/oag_snapshots/";
+	private DgBuildGraph buildGraph = null;
+	private DgBuildStage<DgAirportsCapacityData> airportCapacitiesStage = null;
 	
 	private Scenario initScenario(){
 		Config conf = ConfigUtils.createConfig();
@@ -91,38 +137,292 @@ public class DgCreateDgFlightScenario {
 		return scenario;
 	}
 
+	/**
+	 * Each scenario gets its own data, thus the scenarios can be built concurrently.
+	 */
+	private DgFlightScenarioData createFlightScenarioData(){
+		DgFlightScenarioData scenarioData = new DgFlightScenarioData(CAPACITY_PERIOD, this.config);
+		scenarioData.setConnectionMode(this.connectionMode);
+		scenarioData.setUseQueueAirports(this.useQueueAirports);
+		return scenarioData;
+	}
+
+	private CoordinateTransformation createTransformation(){
+		return TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84, "EPSG:3395");
+	}
+
 	
 	public void createFlightScenarios() throws Exception {
-		List<DgOagLine> flightData = new DgOagReader().readOagLines(inputOagFilename);
-		//WORLD WIDE AIR TRAFFIC
-		createWorldFlightScenario(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, flightData);
+		this.buildGraph = new DgBuildGraph(this.useSnapshots ? this.snapshotDirectory : null, Runtime.getRuntime().availableProcessors());
+		try {
+			DgBuildStage<OagFlightTable> oagTable = this.createOagTableStage();
+			//WORLD WIDE AIR TRAFFIC
+			createWorldFlightScenario(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, oagTable);
+
+			//	//EUROPEAN AIR TRAFFIC
+//			createEuropeanFlightScenario(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, oagTable);
 
-		//	//EUROPEAN AIR TRAFFIC
-//		createEuropeanFlightScenario(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, flightData);
+		// GERMAN AIR TRAFFIC
+//			createGermanFlightScenario(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, oagTable);
 
-	// GERMAN AIR TRAFFIC
-//		createGermanFlightScenario(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, flightData);
+			// ALL OF THEM CONCURRENTLY
+//			createAllFlightScenarios(DgCreateDgFlightScenario.inputAirportsCoordinatesFilename, oagTable);
+		} finally {
+			this.buildGraph.shutdown();
+		}
 	}
 	
-	private void readAirportCapacities(DgFlightScenarioData scenarioData){
-		new DgAirportCapacityReader(scenarioData.getAirportsCapacityData()).readFile(airportCapacityFile);
+	private DgBuildStage<OagFlightTable> createOagTableStage() {
+		return new DgBuildStage<OagFlightTable>("oag_table") {
+			@Override
+			public String getParameters(DgBuildGraph graph) throws Exception {
+				return graph.hashFile(inputOagFilename);
+			}
+
+			@Override
+			public OagFlightTable compute(DgBuildGraph graph) throws Exception {
+				return new DgOagReader().readOagTable(inputOagFilename);
+			}
+
+			@Override
+			public boolean isCached() {
+				return true;
+			}
+
+			@Override
+			public void store(OagFlightTable output, File directory) throws Exception {
+				new DgOagSnapshotCache(directory.getPath()).storeTable(STAGE_SNAPSHOT, output);
+			}
+
+			@Override
+			public OagFlightTable load(File directory) throws Exception {
+				return new DgOagSnapshotCache(directory.getPath()).loadTable(STAGE_SNAPSHOT);
+			}
+		};
 	}
-	
 
-	private void createScenario(String baseDirectory, DgOagFlightsData flightsData, Map<String, Coord> airports){
+	/**
+	 * Filters the flights of the oag table. The model statistics are written to the base directory and kept with the
+	 * flights in the cache.
+	 */
+	private DgBuildStage<FilteredFlights> createFlightsStage(String variant, final SfAirScheduleBuilder airScheduleBuilder,
+			final String inputOsmFilename, final String baseDirectory, final DgBuildStage<OagFlightTable> oagTable) {
+		return new DgBuildStage<FilteredFlights>("flights_" + variant, oagTable) {
+			@Override
+			public String getParameters(DgBuildGraph graph) throws Exception {
+				return graph.hashFile(inputOsmFilename) + ";" + graph.hashFile(utcOffsetfile) + ";"
+						+ airScheduleBuilder.getFilterConfiguration();
+			}
+
+			@Override
+			public FilteredFlights compute(DgBuildGraph graph) throws Exception {
+				String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
+				DgOagFlightsData flightsData = airScheduleBuilder.readDataAndFilter(inputOsmFilename, graph.getOutput(oagTable),
+						baseDirectory, utcOffsetfile, oagFlightsFilename);
+				Map<String, Coord> airports = new HashMap<String, Coord>(airScheduleBuilder.getAirportCoordMap());
+				airScheduleBuilder.writeModelStatisticsTable(baseDirectory + MODEL_STATISTICS_TABLE);
+				return new FilteredFlights(flightsData, airports);
+			}
+
+			@Override
+			public boolean isCached() {
+				return true;
+			}
+
+			@Override
+			public void store(FilteredFlights output, File directory) throws Exception {
+				new DgOagSnapshotCache(directory.getPath()).storeFlights(STAGE_SNAPSHOT, output.flightsData, output.airports);
+				DgBuildGraph.copyFiles(new File(baseDirectory), directory, MODEL_STATISTICS_TABLE);
+			}
+
+			@Override
+			public FilteredFlights load(File directory) throws Exception {
+				Map<String, Coord> airports = new HashMap<String, Coord>();
+				DgOagFlightsData flightsData = new DgOagSnapshotCache(directory.getPath()).loadFlights(STAGE_SNAPSHOT, airports);
+				if (flightsData == null) {
+					return null;
+				}
+				DgBuildGraph.copyFiles(directory, new File(baseDirectory), MODEL_STATISTICS_TABLE);
+				return new FilteredFlights(flightsData, airports);
+			}
+		};
+	}
+
+	/**
+	 * The capacities are read once for all scenarios and in parallel to the flights, the scenarios share them.
+	 */
+	private DgBuildStage<DgAirportsCapacityData> getAirportCapacitiesStage() {
+		if (this.airportCapacitiesStage == null) {
+			this.airportCapacitiesStage = new DgBuildStage<DgAirportsCapacityData>("airport_capacities") {
+				@Override
+				public String getParameters(DgBuildGraph graph) throws Exception {
+					return graph.hashFile(airportCapacityFile);
+				}
+
+				@Override
+				public DgAirportsCapacityData compute(DgBuildGraph graph) throws Exception {
+					DgAirportsCapacityData capacityData = new DgAirportsCapacityData(CAPACITY_PERIOD);
+					new DgAirportCapacityReader(capacityData).readFile(airportCapacityFile);
+					return capacityData;
+				}
+			};
+		}
+		return this.airportCapacitiesStage;
+	}
+
+	/**
+	 * Creates or patches the network, schedule and vehicles in the base directory. They are kept in the cache together with
+	 * the shape file and the flights of the build that are the reference of the next delta update, thus a scenario that was
+	 * built before with the same flights and build configuration is copied to the base directory.
+	 */
+	private DgBuildStage<File> createScenarioStage(String variant, final String baseDirectory,
+			final DgFlightScenarioData scenarioData, final DgBuildStage<FilteredFlights> flights) {
+		DgBuildStage<?>[] inputs = this.useAirportCapacities ?
+				new DgBuildStage<?>[] {flights, this.getAirportCapacitiesStage()} : new DgBuildStage<?>[] {flights};
+		final String[] outputFiles = {SfAirNetworkBuilder.NETWORK_FILENAME, FLIGHT_TRANSIT_SCHEDULE, FLIGHT_TRANSIT_VEHICLES, BUILD_FLIGHTS_SNAPSHOT,
+				SHAPE_FILE_DIRECTORY};
+		return new DgBuildStage<File>("scenario_" + variant, inputs) {
+			@Override
+			public String getParameters(DgBuildGraph graph) throws Exception {
+				return getBuildConfiguration(graph, scenarioData);
+			}
+
+			@Override
+			public File compute(DgBuildGraph graph) throws Exception {
+				if (useAirportCapacities) {
+					scenarioData.setAirportsCapacityData(graph.getOutput(getAirportCapacitiesStage()));
+				}
+				FilteredFlights filteredFlights = graph.getOutput(flights);
+				createScenario(baseDirectory, scenarioData, filteredFlights.flightsData, filteredFlights.airports,
+						getBuildConfiguration(graph, scenarioData));
+				return new File(baseDirectory);
+			}
+
+			@Override
+			public boolean isCached() {
+				return true;
+			}
+
+			@Override
+			public void store(File output, File directory) throws Exception {
+				DgBuildGraph.copyFiles(output, directory, outputFiles);
+			}
+
+			@Override
+			public File load(File directory) throws Exception {
+				for (String name : outputFiles) {
+					if (! new File(directory, name).exists()) {
+						return null;
+					}
+				}
+				File output = new File(baseDirectory);
+				DgBuildGraph.copyFiles(directory, output, outputFiles);
+				return output;
+			}
+		};
+	}
+
+	/**
+	 * @return a description of all settings that change the network, schedule or vehicles for the same flights
+	 */
+	private String getBuildConfiguration(DgBuildGraph graph, DgFlightScenarioData scenarioData) throws Exception {
+		DgFlightScenarioConfig config = scenarioData.getConfig();
+		StringBuilder sb = new StringBuilder();
+		sb.append("crs=").append(targetCrs.getName());
+		sb.append(";runways=").append(scenarioData.isUseQueueAirports() ? "queues" : Integer.toString(config.getNumberOfRunways()));
+		sb.append(";stars=").append(config.isCreateStars());
+		if (config.isCreateStars()) {
+			for (DgStarinfo star : new TreeMap<String, DgStarinfo>(config.getStars()).values()) {
+				sb.append(",").append(star.getId()).append(":").append(star.getLength()).append(":")
+					.append(star.getCapacity()).append(":").append(star.getFreespeed());
+			}
+		}
+		sb.append(";connections=").append(scenarioData.getConnectionMode());
+		sb.append(";pooled=").append(this.poolDepartures);
+		sb.append(";seatBuckets=").append(config.getSeatBucketSize());
+		sb.append(";rotations=").append(config.isCreateAircraftRotations() ? Double.toString(config.getMinimumTurnaroundTime()) : "none");
+		sb.append(";capacities=").append(this.useAirportCapacities ? graph.hashFile(airportCapacityFile) : "none");
+		return sb.toString();
+	}
+
+	/**
+	 * Patches the network, schedule and vehicles in the base directory if they were built by a previous
+	 * run with the same build configuration, otherwise the scenario is created from scratch. The flights of the build
+	 * are stored in the base directory as reference for the next delta.
+	 */
+	private void createScenario(String baseDirectory, DgFlightScenarioData scenarioData, DgOagFlightsData flightsData,
+			Map<String, Coord> airports, String buildConfiguration) throws Exception {
+		DgCityPairGeometry geometry = scenarioData.createCityPairGeometry(airports);
+		geometry.computeCityPairDistances();
+		geometry.validateDistances(flightsData, DISTANCE_TOLERANCE);
+		File buildFlightsFile = new File(baseDirectory + BUILD_FLIGHTS_SNAPSHOT);
+		boolean updated = false;
+		// networks with shared connection links and schedules with rotations are always created from scratch
+		if (this.useDeltaUpdate && scenarioData.getConnectionMode() == DgAirConnectionLinks.Mode.FLIGHT
+				&& ! scenarioData.getConfig().isCreateAircraftRotations()) {
+			updated = this.updateScenario(baseDirectory, scenarioData, buildFlightsFile, buildConfiguration, flightsData, airports);
+		}
+		if (! updated) {
+			buildFlightsFile.delete();
+			this.createScenario(baseDirectory, scenarioData, flightsData, airports, initScenario());
+		}
+		DgOagSnapshotCache.storeFlights(buildFlightsFile, buildConfiguration, flightsData, airports);
+	}
+
+	/**
+	 * @return false if there is no previous build with the same configuration to patch
+	 */
+	private boolean updateScenario(String baseDirectory, DgFlightScenarioData scenarioData, File buildFlightsFile,
+			String buildConfiguration, DgOagFlightsData flightsData, Map<String, Coord> airports) throws Exception {
+		String networkFilename = baseDirectory + SfAirNetworkBuilder.NETWORK_FILENAME;
+		String scheduleFilename = baseDirectory + FLIGHT_TRANSIT_SCHEDULE;
+		String vehiclesFilename = baseDirectory + FLIGHT_TRANSIT_VEHICLES;
+		if (! (new File(networkFilename).exists() && new File(scheduleFilename).exists() && new File(vehiclesFilename).exists())) {
+			return false;
+		}
+		Map<String, Coord> previousAirports = new HashMap<String, Coord>();
+		DgOagFlightsData previousFlights = DgOagSnapshotCache.loadFlights(buildFlightsFile, buildConfiguration, previousAirports);
+		if (previousFlights == null) {
+			return false;
+		}
+		DgOagFlightsDelta delta = DgOagFlightsDelta.create(previousFlights, previousAirports, flightsData, airports);
+		delta.logStatistics();
+		if (! delta.getMovedAirports().isEmpty()) {
+			log.info("Coordinates of " + delta.getMovedAirports().size() + " airports changed, creating the scenario from scratch...");
+			return false;
+		}
+		if (delta.isEmpty()) {
+			log.info("Flights did not change, keeping the scenario in " + baseDirectory);
+			return true;
+		}
+		Scenario scenario = initScenario();
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(networkFilename);
+		new TransitScheduleReader(scenario).readFile(scheduleFilename);
+		new VehicleReaderV1(scenario.getTransitVehicles()).readFile(vehiclesFilename);
+
+		DgAirNetworkBuilder networkBuilder = new DgAirNetworkBuilder(scenario, createTransformation(), scenarioData);
+		networkBuilder.updateNetwork(delta, airports, networkFilename);
+		DgTransitBuilder transitBuilder = new DgTransitBuilder(scenario, scenarioData);
+		transitBuilder.setPoolDepartures(this.poolDepartures);
+		transitBuilder.updateSchedule(delta, networkBuilder.getAirportMap());
+		transitBuilder.writeTransitFile(scheduleFilename, vehiclesFilename);
+
+		writeConnectionData(baseDirectory, scenario, airports, flightsData, targetCrs);
+		return true;
+	}
+
+	private void createScenario(String baseDirectory, DgFlightScenarioData scenarioData, DgOagFlightsData flightsData,
+			Map<String, Coord> airports, Scenario scenario){
 		log.info("Coordinate system is: "); 
 		log.info(targetCrs.getCoordinateSystem().getRemarks());
-		String outputNetworkFilename = baseDirectory + "air_network.xml";
-		Scenario scenario = initScenario();
-		if (this.useAirportCapacities){
-			this.readAirportCapacities(flightScenarioData);
-		}
+		String outputNetworkFilename = baseDirectory + SfAirNetworkBuilder.NETWORK_FILENAME;
 		
-		DgAirNetworkBuilder networkBuilder = new DgAirNetworkBuilder(scenario, transform, flightScenarioData);
+		DgAirNetworkBuilder networkBuilder = new DgAirNetworkBuilder(scenario, createTransformation(), scenarioData);
 		networkBuilder.createNetwork(flightsData, airports, outputNetworkFilename);
 		Map<Id<Node>, SfMatsimAirport> airportMap = networkBuilder.getAirportMap();
 		//
-		DgTransitBuilder transitBuilder = new DgTransitBuilder(scenario);
+		DgTransitBuilder transitBuilder = new DgTransitBuilder(scenario, scenarioData);
+		transitBuilder.setPoolDepartures(this.poolDepartures);
 		transitBuilder.createSchedule(flightsData, airportMap);
 		transitBuilder.writeTransitFile(baseDirectory + FLIGHT_TRANSIT_SCHEDULE, baseDirectory + FLIGHT_TRANSIT_VEHICLES);
 //
@@ -133,61 +433,81 @@ public class DgCreateDgFlightScenario {
 
 
 	public void createWorldFlightScenario(String inputOsmFilename,
-			List<DgOagLine> flightData) throws Exception {
-		String baseDirectory = dataBaseDirectory + "shared-svn/studies/countries/world/flight/" + flightScenarioDirectoryName;
-		OutputDirectoryLogging.initLoggingWithOutputDirectory(baseDirectory);
-		String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
-		
-		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder();
-		DgOagFlightsData flightsData = airScheduleBuilder.readDataAndFilter(inputOsmFilename, flightData, baseDirectory, utcOffsetfile, oagFlightsFilename);
-		Map<String, Coord> airports = airScheduleBuilder.getAirportCoordMap();
-
-		createScenario(baseDirectory, flightsData, airports);
-		airScheduleBuilder.writeModelStatisticsTable(baseDirectory + MODEL_STATISTICS_TABLE);
-		
-		OutputDirectoryLogging.closeOutputDirLogging();
+			DgBuildStage<OagFlightTable> oagTable) throws Exception {
+		this.buildScenarios(WORLD, this.createWorldScenarioStage(inputOsmFilename, oagTable));
 	}	
 
 	
-	public void createEuropeanFlightScenario(String inputOsmFilename, List<DgOagLine> flightData) throws Exception{
-		String baseDirectory = dataBaseDirectory + "shared-svn/studies/countries/eu/flight/" + flightScenarioDirectoryName;
-		OutputDirectoryLogging.initLoggingWithOutputDirectory(baseDirectory);
-		String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
-
-		
-		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder();
-		airScheduleBuilder.setCountryFilter(new DgEuropeCountryFilter(false));
-//		airScheduleBuilder.setCountryFilter(new SfEuropeCountryFilter());
-		DgOagFlightsData flightsData = airScheduleBuilder.readDataAndFilter(inputOsmFilename, flightData, baseDirectory,
-				 utcOffsetfile, oagFlightsFilename);
-		Map<String, Coord> airports = airScheduleBuilder.getAirportCoordMap();
-
-		createScenario(baseDirectory, flightsData, airports);
-		airScheduleBuilder.writeModelStatisticsTable(baseDirectory + MODEL_STATISTICS_TABLE);
-		
-		OutputDirectoryLogging.closeOutputDirLogging();
+	public void createEuropeanFlightScenario(String inputOsmFilename, DgBuildStage<OagFlightTable> oagTable) throws Exception{
+		this.buildScenarios(EUROPE, this.createEuropeanScenarioStage(inputOsmFilename, oagTable));
 	}
 
 	
-	public void createGermanFlightScenario(String inputOsmFilename, List<DgOagLine> flightData) throws Exception{
-		String baseDirectory = dataBaseDirectory + "shared-svn/studies/countries/de/flight/" + flightScenarioDirectoryName;
-		OutputDirectoryLogging.initLoggingWithOutputDirectory(baseDirectory);
-		String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
+	public void createGermanFlightScenario(String inputOsmFilename, DgBuildStage<OagFlightTable> oagTable) throws Exception{
+		this.buildScenarios(GERMANY, this.createGermanScenarioStage(inputOsmFilename, oagTable));
+	}
+
+	/**
+	 * Builds the world, European and German scenario concurrently from the same oag table. The log of all scenarios is
+	 * written to the directory of the world scenario.
+	 */
+	public void createAllFlightScenarios(String inputOsmFilename, DgBuildStage<OagFlightTable> oagTable) throws Exception{
+		this.buildScenarios(WORLD, this.createWorldScenarioStage(inputOsmFilename, oagTable),
+				this.createEuropeanScenarioStage(inputOsmFilename, oagTable),
+				this.createGermanScenarioStage(inputOsmFilename, oagTable));
+	}
 
-		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder();
-		airScheduleBuilder.setCountryFilter(new DgGermanyCountryFilter(false));
-		DgOagFlightsData flightsData = airScheduleBuilder.readDataAndFilter(inputOsmFilename, flightData, baseDirectory, utcOffsetfile, oagFlightsFilename);
-		Map<String, Coord> airports = airScheduleBuilder.getAirportCoordMap();
+	private DgBuildStage<File> createWorldScenarioStage(String inputOsmFilename, DgBuildStage<OagFlightTable> oagTable) {
+		return this.createScenarioStages(WORLD, null, inputOsmFilename, oagTable);
+	}
 
-		createScenario(baseDirectory, flightsData, airports);
-		airScheduleBuilder.writeModelStatisticsTable(baseDirectory + MODEL_STATISTICS_TABLE);
+	private DgBuildStage<File> createEuropeanScenarioStage(String inputOsmFilename, DgBuildStage<OagFlightTable> oagTable) {
+//		return this.createScenarioStages(EUROPE, new SfEuropeCountryFilter(), inputOsmFilename, oagTable);
+		return this.createScenarioStages(EUROPE, new DgEuropeCountryFilter(false), inputOsmFilename, oagTable);
+	}
+
+	private DgBuildStage<File> createGermanScenarioStage(String inputOsmFilename, DgBuildStage<OagFlightTable> oagTable) {
+		return this.createScenarioStages(GERMANY, new DgGermanyCountryFilter(false), inputOsmFilename, oagTable);
+	}
+
+	private String getBaseDirectory(String region) {
+		return dataBaseDirectory + "shared-svn/studies/countries/" + region + "/flight/" + flightScenarioDirectoryName;
+	}
+
+	/**
+	 * @param countryFilter null for all countries
+	 */
+	private DgBuildStage<File> createScenarioStages(String region, DgCountryFilter countryFilter, String inputOsmFilename,
+			DgBuildStage<OagFlightTable> oagTable) {
+		String baseDirectory = this.getBaseDirectory(region);
+		new File(baseDirectory).mkdirs();
+		DgFlightScenarioData scenarioData = this.createFlightScenarioData();
+		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder(this.config);
+		airScheduleBuilder.setCodeDictionary(scenarioData.getCodeDictionary());
+		if (countryFilter != null) {
+			airScheduleBuilder.setCountryFilter(countryFilter);
+		}
+		DgBuildStage<FilteredFlights> flights = this.createFlightsStage(region, airScheduleBuilder, inputOsmFilename,
+				baseDirectory, oagTable);
+		return this.createScenarioStage(region, baseDirectory, scenarioData, flights);
+	}
 
-		OutputDirectoryLogging.closeOutputDirLogging();
+	/**
+	 * Builds the stages of the scenarios that are not cached, e.g. if only the airport capacities changed the oag table
+	 * and the flights are neither read nor filtered.
+	 */
+	private void buildScenarios(String logRegion, DgBuildStage<?>... scenarios) throws Exception {
+		OutputDirectoryLogging.initLoggingWithOutputDirectory(this.getBaseDirectory(logRegion));
+		try {
+			this.buildGraph.build(scenarios);
+		} finally {
+			OutputDirectoryLogging.closeOutputDirLogging();
+		}
 	}
 
 	private void writeConnectionData(String baseDirectory, Scenario scenario, Map<String, Coord> airports,
 			DgOagFlightsData flightsData, CoordinateReferenceSystem crs) {
-		String shapeFileDirectoryname = baseDirectory + "shape_epsg_3395/";
+		String shapeFileDirectoryname = baseDirectory + SHAPE_FILE_DIRECTORY + "/";
 		File shapeFileDirectory = new File(shapeFileDirectoryname);
 		if (shapeFileDirectory.exists()){
 			shapeFileDirectory.delete();
@@ -197,4 +517,20 @@ public class DgCreateDgFlightScenario {
 		DgNet2Shape.writeNetwork2Shape(scenario.getNetwork(), crs, shapeFileDirectoryname + SfAirNetworkBuilder.NETWORK_FILENAME + ".shp");
 	}
 
+	/**
+	 * The flights of a scenario and the coordinates of their airports.
+	 */
+	private static final class FilteredFlights {
+
+		private final DgOagFlightsData flightsData;
+
+		private final Map<String, Coord> airports;
+
+		FilteredFlights(DgOagFlightsData flightsData, Map<String, Coord> airports) {
+			this.flightsData = flightsData;
+			this.airports = airports;
+		}
+
+	}
+
 }
@@ -21,9 +21,24 @@
 package org.matsim.air.scenario;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagFlightsFile;
+import org.matsim.air.scenario.oag.DgOagReader;
+import org.matsim.air.scenario.oag.OagFlightTable;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkWriter;
 import org.matsim.core.controler.OutputDirectoryLogging;
 import org.matsim.core.utils.geometry.geotools.MGC;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -37,29 +52,23 @@ import air.scenario.countryfilter.DgGermanyCountryFilter;
 
 public class DgCreateSfFlightScenario {
 	
-	public static final boolean doApplyAirportFilter = false;
-	public static enum Direction {INBOUND, OUTBOUND, BOTH};
-	public static final Map<String, Direction> filter = new HashMap<String, Direction>();
-	static {
-		filter.put("MUC", Direction.BOTH);
-	}
-	
-	public static final int NUMBER_OF_RUNWAYS = 2;
+	private static final Logger log = Logger.getLogger(DgCreateSfFlightScenario.class);
 	
+	public static enum Direction {INBOUND, OUTBOUND, BOTH};
 	
-	public static final boolean doCreateStars = false;
-	public static final DgStarinfo DEFAULTSTAR = new DgStarinfo("default", 100000.0, 1./60., 463./3.6);	//default speed below FL100: 250 knots = 463km/h 
-	public static final Map<String, DgStarinfo> stars = new HashMap<String, DgStarinfo>();	
-	static {
-		stars.put("default", DEFAULTSTAR);
-		stars.put("MUC", new DgStarinfo("MUC", 134270.0, 58/3600., 463./3.6));	// v = s/t    s = t*v 
-	}
-	
-	public static final Map<String, Double> STARoffset = new HashMap<String, Double>();
-	static {
-		double defaultduration = DEFAULTSTAR.getLength()/DEFAULTSTAR.getFreespeed();
-		STARoffset.put("default", defaultduration);
-		STARoffset.put("MUC", stars.get("MUC").getLength()/stars.get("MUC").getFreespeed());
+	/**
+	 * @return the config of the scenarios built by {@link #main(String[])}
+	 */
+	public static DgFlightScenarioConfig createConfig() {
+		return new DgFlightScenarioConfig()
+//				.withAirportFilter(Collections.singletonMap("MUC", Direction.BOTH))
+				.withNumberOfRunways(2)
+				.withWriteIntermediateFiles(false)
+				.withWriteOagFlightsText(false)
+				.withAircraftRotations(false, 45.0 * 60.0)
+				.withSeatBucketSize(1)
+				.withCreateStars(false)
+				.withStar(new DgStarinfo("MUC", 134270.0, 58/3600., 463./3.6));	// v = s/t    s = t*v 
 	}
 	
 	private static String utcOffsetfile = "/media/data/work/repos/shared-svn/studies/countries/world/flight/sf_oag_flight_model/utc_offsets.txt";
@@ -68,90 +77,125 @@ public class DgCreateSfFlightScenario {
 	private static String inputOagFilename = dataBaseDirectory + "shared-svn/projects/throughFlightData/oag_rohdaten/OAGSEP09.CSV";
 //	private static String inputAirportsFilename = "Z:\\WinHome\\shared-svn\\studies\\countries\\world\\flight\\sf_oag_flight_model\\worldwide_airports_with_coords.csv";
 //	private static String inputOagFilename = "Z:\\WinHome\\shared-svn\\projects\\throughFlightData\\oag_rohdaten\\OAGSEP09.CSV";
-	private static final String OAG_FLIGHTS_OUTPUT_FILENAME = "oag_flights.txt";
+	private static final String OAG_FLIGHTS_OUTPUT_FILENAME = "oag_flights.bin";
+	private static final String WORLD_DIRECTORY = "/media/data/work/repos/shared-svn/studies/countries/world/flight/sf_oag_flight_model/";
+	private static final String EUROPE_DIRECTORY = "/media/data/work/repos/shared-svn/studies/countries/eu/flight/sf_oag_flight_model/";
+	private static final String GERMANY_DIRECTORY = "/media/data/work/repos/shared-svn/studies/countries/de/flight/sf_oag_flight_model/";
 
 	
 	
-	public static void createWorldFlightScenario(String inputOsmFilename, String inputOagFilename) throws Exception {
+	public static void createWorldFlightScenario(DgFlightScenarioConfig config, String inputOsmFilename, String inputOagFilename) throws Exception {
 //		String baseDirectory = "/media/data/work/repos/"
 //				+ "shared-svn/studies/countries/world/flight/sf_oag_flight_model/";
 //		String utcOffsetfile = "/media/data/work/repos/"
 //		+ "shared-svn/studies/countries/world/flight/sf_oag_flight_model/utc_offsets.txt";
 		
-		String baseDirectory = "/media/data/work/repos/shared-svn/studies/countries/world/flight/sf_oag_flight_model/";
-		OutputDirectoryLogging.initLoggingWithOutputDirectory(baseDirectory);
-		String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
-
-		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder();
-		airScheduleBuilder.readDataAndFilter(inputOsmFilename, inputOagFilename, baseDirectory, utcOffsetfile, oagFlightsFilename);
-
-		String outputNetworkFilename = baseDirectory + "air_network.xml";
-		String outputAirportsFilename = baseDirectory + SfAirScheduleBuilder.AIRPORTS_OUTPUT_FILE;
-		String outputCityPairsFilename = baseDirectory + SfAirScheduleBuilder.CITY_PAIRS_OUTPUT_FILENAME;
-		
-		SfAirNetworkBuilder networkBuilder = new SfAirNetworkBuilder();
-		networkBuilder.createNetwork(outputAirportsFilename, outputCityPairsFilename, outputNetworkFilename);
-
-		SfTransitBuilder transitBuilder = new SfTransitBuilder();
-		String inputNetworkFile = baseDirectory + SfAirNetworkBuilder.NETWORK_FILENAME;
-		transitBuilder.createSchedule(oagFlightsFilename, inputNetworkFile, baseDirectory);
+		createFlightScenario(WORLD_DIRECTORY, new SfAirScheduleBuilder(config), config, inputOsmFilename, inputOagFilename);
+	}
 	
-		writeShape(baseDirectory, inputNetworkFile);
-		OutputDirectoryLogging.closeOutputDirLogging();
+	public static void createEuropeanFlightScenario(DgFlightScenarioConfig config, String inputOsmFilename, String inputOagFilename) throws Exception{
+		createFlightScenario(EUROPE_DIRECTORY, createEuropeanScheduleBuilder(config), config, inputOsmFilename, inputOagFilename);
 	}
 	
-	public static void createEuropeanFlightScenario(String inputOsmFilename, String inputOagFilename) throws Exception{
-		String baseDirectory = "/media/data/work/repos/shared-svn/studies/countries/eu/flight/sf_oag_flight_model/";
-		OutputDirectoryLogging.initLoggingWithOutputDirectory(baseDirectory);
-		String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
-
-		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder();
+	public static void createGermanFlightScenario(DgFlightScenarioConfig config, String inputOsmFilename, String inputOagFilename) throws Exception{
+		createFlightScenario(GERMANY_DIRECTORY, createGermanScheduleBuilder(config), config, inputOsmFilename, inputOagFilename);
+	}
+	
+	private static SfAirScheduleBuilder createEuropeanScheduleBuilder(DgFlightScenarioConfig config) {
+		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder(config);
 		airScheduleBuilder.setCountryFilter(new SfEuropeCountryFilter());
-		airScheduleBuilder.readDataAndFilter(inputOsmFilename, inputOagFilename, baseDirectory, utcOffsetfile, oagFlightsFilename);
-
-		String outputNetworkFilename = baseDirectory + "air_network.xml";
-		String outputOsmAirportsFilename = baseDirectory + SfAirScheduleBuilder.AIRPORTS_OUTPUT_FILE;
-		String outputCityPairsFilename = baseDirectory + SfAirScheduleBuilder.CITY_PAIRS_OUTPUT_FILENAME;
-		
-		SfAirNetworkBuilder networkBuilder = new SfAirNetworkBuilder();
-		networkBuilder.createNetwork(outputOsmAirportsFilename, outputCityPairsFilename, outputNetworkFilename);
-
-		SfTransitBuilder transitBuilder = new SfTransitBuilder();
-		String inputNetworkFile = baseDirectory + SfAirNetworkBuilder.NETWORK_FILENAME;
-		transitBuilder.createSchedule(oagFlightsFilename, inputNetworkFile, baseDirectory);
-
-		writeShape(baseDirectory, inputNetworkFile);
-		OutputDirectoryLogging.closeOutputDirLogging();
+		return airScheduleBuilder;
 	}
 	
-	public static void createGermanFlightScenario(String inputOsmFilename, String inputOagFilename) throws Exception{
-		
-		String baseDirectory = "/media/data/work/repos/shared-svn/studies/countries/de/flight/sf_oag_flight_model/";
+	private static SfAirScheduleBuilder createGermanScheduleBuilder(DgFlightScenarioConfig config) {
+		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder(config);
+		airScheduleBuilder.setCountryFilter(new DgGermanyCountryFilter(false));
+		return airScheduleBuilder;
+	}
+	
+	/**
+	 * Builds the world, European and German scenario concurrently from one parsed OAG table, each with its own schedule
+	 * builder. The log of all scenarios is written to the directory of the world scenario.
+	 */
+	public static void createFlightScenarios(final DgFlightScenarioConfig config, final String inputOsmFilename, String inputOagFilename) throws Exception {
+		OutputDirectoryLogging.initLoggingWithOutputDirectory(WORLD_DIRECTORY);
+		final OagFlightTable table = new DgOagReader().readOagTable(inputOagFilename);
+		final Map<String, SfAirScheduleBuilder> variants = new LinkedHashMap<String, SfAirScheduleBuilder>();
+		variants.put(WORLD_DIRECTORY, new SfAirScheduleBuilder(config));
+		variants.put(EUROPE_DIRECTORY, createEuropeanScheduleBuilder(config));
+		variants.put(GERMANY_DIRECTORY, createGermanScheduleBuilder(config));
+		ExecutorService executor = Executors.newFixedThreadPool(variants.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (final Entry<String, SfAirScheduleBuilder> e : variants.entrySet()) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						String baseDirectory = e.getKey();
+						DgOagFlightsData flights = e.getValue().readDataAndFilter(inputOsmFilename, table, baseDirectory,
+								utcOffsetfile, baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME);
+						createNetworkAndSchedule(baseDirectory, e.getValue(), config, flights);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			executor.shutdown();
+			OutputDirectoryLogging.closeOutputDirLogging();
+		}
+	}
+	
+	/**
+	 * The stages of the build pass the flights, airports, city pairs and the network in memory, only the network,
+	 * the transit schedule and vehicles and the shape file are written to the base directory. The intermediate files
+	 * of the stages are written if {@link DgFlightScenarioConfig#isWriteIntermediateFiles()} is set.
+	 */
+	private static void createFlightScenario(String baseDirectory, SfAirScheduleBuilder airScheduleBuilder, DgFlightScenarioConfig config,
+			String inputOsmFilename, String inputOagFilename) throws Exception {
 		OutputDirectoryLogging.initLoggingWithOutputDirectory(baseDirectory);
 		String oagFlightsFilename = baseDirectory + OAG_FLIGHTS_OUTPUT_FILENAME;
-		
-		SfAirScheduleBuilder airScheduleBuilder = new SfAirScheduleBuilder();
-		airScheduleBuilder.setCountryFilter(new DgGermanyCountryFilter(false));
-		airScheduleBuilder.readDataAndFilter(inputOsmFilename, inputOagFilename, baseDirectory,
+
+		DgOagFlightsData flights = airScheduleBuilder.readDataAndFilter(inputOsmFilename, inputOagFilename, baseDirectory,
 				utcOffsetfile, oagFlightsFilename);
+		createNetworkAndSchedule(baseDirectory, airScheduleBuilder, config, flights);
+		OutputDirectoryLogging.closeOutputDirLogging();
+	}
 
-		String outputNetworkFilename = baseDirectory + "air_network.xml";
-		String outputOsmAirportsFilename = baseDirectory + SfAirScheduleBuilder.AIRPORTS_OUTPUT_FILE;
-		String outputCityPairsFilename = baseDirectory + SfAirScheduleBuilder.CITY_PAIRS_OUTPUT_FILENAME;
-		
-		SfAirNetworkBuilder networkBuilder = new SfAirNetworkBuilder();
-		networkBuilder.createNetwork(outputOsmAirportsFilename, outputCityPairsFilename, outputNetworkFilename);
+	static void createNetworkAndSchedule(String baseDirectory, SfAirScheduleBuilder airScheduleBuilder,
+			DgFlightScenarioConfig config, DgOagFlightsData flights) {
+		String outputNetworkFilename = baseDirectory + SfAirNetworkBuilder.NETWORK_FILENAME;
+		SfAirNetworkBuilder networkBuilder = new SfAirNetworkBuilder(config);
+		Network network = networkBuilder.createNetwork(airScheduleBuilder.getAirportCoordMap(), airScheduleBuilder.getCityPairDistances());
+		new NetworkWriter(network).write(outputNetworkFilename);
+		log.info("Done! Unprocessed MATSim Network saved as " + outputNetworkFilename);
 
-		SfTransitBuilder transitBuilder = new SfTransitBuilder();
-		String inputNetworkFile = baseDirectory + SfAirNetworkBuilder.NETWORK_FILENAME;
-		transitBuilder.createSchedule(oagFlightsFilename, inputNetworkFile, baseDirectory);
+		SfTransitBuilder transitBuilder = new SfTransitBuilder(config);
+		transitBuilder.createSchedule(DgOagFlightsFile.create(flights), network, baseDirectory);
 	
-		writeShape(baseDirectory, inputNetworkFile);
-		OutputDirectoryLogging.closeOutputDirLogging();
+		writeShape(baseDirectory, network);
+	}
+
+	public static void writeShape(String baseDirectory, Network network){
+		CoordinateReferenceSystem crs = MGC.getCRS("EPSG:3395");
+		DgNet2Shape.writeNetwork2Shape(network, crs, createShapeFileDirectory(baseDirectory) + SfAirNetworkBuilder.NETWORK_FILENAME + ".shp");
 	}
 
 	public static void writeShape(String baseDirectory, String networkFilename){
-		
+		CoordinateReferenceSystem crs = MGC.getCRS("EPSG:3395");
+		DgNet2Shape.writeNetwork2Shape(networkFilename, crs, createShapeFileDirectory(baseDirectory) + SfAirNetworkBuilder.NETWORK_FILENAME + ".shp");
+	}
+
+	private static String createShapeFileDirectory(String baseDirectory){
 //		String shapeFileDirectoryname = baseDirectory + "shape_epsg_3395\\"; //for windows file systems
 		String shapeFileDirectoryname = baseDirectory + "shape_epsg_3395/";
 		File shapeFileDirectory = new File(shapeFileDirectoryname);
@@ -159,22 +203,25 @@ public class DgCreateSfFlightScenario {
 			shapeFileDirectory.delete();
 		}
 		shapeFileDirectory.mkdir();
-		CoordinateReferenceSystem crs = MGC.getCRS("EPSG:3395");
-		DgNet2Shape.writeNetwork2Shape(networkFilename, crs, shapeFileDirectoryname + SfAirNetworkBuilder.NETWORK_FILENAME + ".shp");
+		return shapeFileDirectoryname;
 	}
 
 	/**
 	 * @param args
 	 */
 	public static void main(String[] args) throws Exception {
+		DgFlightScenarioConfig config = createConfig();
 		//WORLD WIDE AIR TRAFFIC
-//		createWorldFlightScenario(inputAirportsFilename, inputOagFilename);
+//		createWorldFlightScenario(config, inputAirportsFilename, inputOagFilename);
 		
 		//EUROPEAN AIR TRAFFIC
-//		createEuropeanFlightScenario(inputAirportsFilename, inputOagFilename);
+//		createEuropeanFlightScenario(config, inputAirportsFilename, inputOagFilename);
 		
 		// GERMAN AIR TRAFFIC
-		createGermanFlightScenario(inputAirportsFilename, inputOagFilename);
+		createGermanFlightScenario(config, inputAirportsFilename, inputOagFilename);
+		
+		// ALL OF THEM CONCURRENTLY
+//		createFlightScenarios(config, inputAirportsFilename, inputOagFilename);
 		
 	}
 
@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgFlightScenarioConfig
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.matsim.air.scenario.DgCreateSfFlightScenario.Direction;
+
+
+/**
+ * The settings of a flight scenario build that are read by the builders of the schedule, the network and the transit
+ * schedule. A config is immutable, the with methods return a modified copy. Thus several scenarios, e.g. the world,
+ * Europe and Germany, can be built concurrently with different settings.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgFlightScenarioConfig {
+
+	/**
+	 * id of the star that is used for airports without an own star
+	 */
+	public static final String DEFAULT_STAR_ID = "default";
+
+	public static final DgStarinfo DEFAULT_STAR = new DgStarinfo(DEFAULT_STAR_ID, 100000.0, 1./60., 463./3.6);	//default speed below FL100: 250 knots = 463km/h
+
+	private final Map<String, Direction> airportFilter;
+
+	private final int numberOfRunways;
+
+	private final boolean createStars;
+
+	private final Map<String, DgStarinfo> stars;
+
+	private final boolean writeIntermediateFiles;
+
+	private final boolean writeOagFlightsText;
+
+	private final boolean createAircraftRotations;
+
+	private final double minimumTurnaroundTime;
+
+	private final int seatBucketSize;
+
+	private final boolean singleDayOfOperation;
+
+	/**
+	 * Creates the default config: two runways per airport, no stars, no airport filter, no intermediate files,
+	 * one vehicle per flight with the seats of the flight and the flights of a single day.
+	 */
+	public DgFlightScenarioConfig() {
+		this(Collections.<String, Direction>emptyMap(), 2, false, Collections.singletonMap(DEFAULT_STAR_ID, DEFAULT_STAR),
+				false, false, false, 45.0 * 60.0, 1, true);
+	}
+
+	/**
+	 * used by the with methods, each of them returns a copy with one setting changed
+	 */
+	private DgFlightScenarioConfig(Map<String, Direction> airportFilter, int numberOfRunways, boolean createStars,
+			Map<String, DgStarinfo> stars, boolean writeIntermediateFiles, boolean writeOagFlightsText,
+			boolean createAircraftRotations, double minimumTurnaroundTime, int seatBucketSize, boolean singleDayOfOperation) {
+		this.airportFilter = airportFilter;
+		this.numberOfRunways = numberOfRunways;
+		this.createStars = createStars;
+		this.stars = stars;
+		this.writeIntermediateFiles = writeIntermediateFiles;
+		this.writeOagFlightsText = writeOagFlightsText;
+		this.createAircraftRotations = createAircraftRotations;
+		this.minimumTurnaroundTime = minimumTurnaroundTime;
+		this.seatBucketSize = seatBucketSize;
+		this.singleDayOfOperation = singleDayOfOperation;
+	}
+
+	/**
+	 * @param filter the airports whose inbound, outbound or both flights are kept, all flights are kept if empty
+	 */
+	public DgFlightScenarioConfig withAirportFilter(Map<String, Direction> filter) {
+		Map<String, Direction> airportFilter = Collections.unmodifiableMap(new TreeMap<String, Direction>(filter));
+		return new DgFlightScenarioConfig(airportFilter, this.numberOfRunways, this.createStars, this.stars,
+				this.writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public boolean isApplyAirportFilter() {
+		return ! this.airportFilter.isEmpty();
+	}
+
+	public Map<String, Direction> getAirportFilter() {
+		return this.airportFilter;
+	}
+
+	public DgFlightScenarioConfig withNumberOfRunways(int numberOfRunways) {
+		if (numberOfRunways != 1 && numberOfRunways != 2) {
+			throw new IllegalArgumentException("Airports can be built with 1 or 2 runways but not with " + numberOfRunways);
+		}
+		return new DgFlightScenarioConfig(this.airportFilter, numberOfRunways, this.createStars, this.stars,
+				this.writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public int getNumberOfRunways() {
+		return this.numberOfRunways;
+	}
+
+	/**
+	 * If set each flight passes the star of its destination airport, the duration of the star is subtracted from the
+	 * duration of the flight.
+	 */
+	public DgFlightScenarioConfig withCreateStars(boolean createStars) {
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, createStars, this.stars,
+				this.writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public boolean isCreateStars() {
+		return this.createStars;
+	}
+
+	/**
+	 * Adds the star of the airport with the id of the star, the star with id {@link #DEFAULT_STAR_ID} replaces the default star.
+	 */
+	public DgFlightScenarioConfig withStar(DgStarinfo star) {
+		Map<String, DgStarinfo> stars = new HashMap<String, DgStarinfo>(this.stars);
+		stars.put(star.getId(), star);
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, this.createStars, Collections.unmodifiableMap(stars),
+				this.writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	/**
+	 * @return the stars by airport code including the default star
+	 */
+	public Map<String, DgStarinfo> getStars() {
+		return this.stars;
+	}
+
+	/**
+	 * @return the star of the airport or the default star
+	 */
+	public DgStarinfo getStar(String airportCode) {
+		DgStarinfo star = this.stars.get(airportCode);
+		if (star == null) {
+			star = this.stars.get(DEFAULT_STAR_ID);
+		}
+		return star;
+	}
+
+	/**
+	 * @return the time in seconds to pass the star of the airport at free speed
+	 */
+	public double getStarDuration(String airportCode) {
+		DgStarinfo star = this.getStar(airportCode);
+		return star.getLength() / star.getFreespeed();
+	}
+
+	/**
+	 * If not set the flights, airports and city pairs are only kept in memory for the next stages of the build.
+	 */
+	public DgFlightScenarioConfig withWriteIntermediateFiles(boolean writeIntermediateFiles) {
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, this.createStars, this.stars,
+				writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public boolean isWriteIntermediateFiles() {
+		return this.writeIntermediateFiles;
+	}
+
+	/**
+	 * If set oag_flights.txt is written in addition to the binary flights file.
+	 */
+	public DgFlightScenarioConfig withWriteOagFlightsText(boolean writeOagFlightsText) {
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, this.createStars, this.stars,
+				this.writeIntermediateFiles, writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public boolean isWriteOagFlightsText() {
+		return this.writeOagFlightsText;
+	}
+
+	/**
+	 * If set the flights of a carrier and aircraft type are chained to rotations that share one transit vehicle.
+	 */
+	public DgFlightScenarioConfig withAircraftRotations(boolean createAircraftRotations, double minimumTurnaroundTime) {
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, this.createStars, this.stars,
+				this.writeIntermediateFiles, this.writeOagFlightsText, createAircraftRotations, minimumTurnaroundTime,
+				this.seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public boolean isCreateAircraftRotations() {
+		return this.createAircraftRotations;
+	}
+
+	public double getMinimumTurnaroundTime() {
+		return this.minimumTurnaroundTime;
+	}
+
+	/**
+	 * The seats of the pooled vehicle types are rounded up to multiples of the bucket size, 1 keeps the seats of the flights.
+	 */
+	public DgFlightScenarioConfig withSeatBucketSize(int seatBucketSize) {
+		if (seatBucketSize < 1) {
+			throw new IllegalArgumentException("The seat bucket size must be positive but is " + seatBucketSize);
+		}
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, this.createStars, this.stars,
+				this.writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				seatBucketSize, this.singleDayOfOperation);
+	}
+
+	public int getSeatBucketSize() {
+		return this.seatBucketSize;
+	}
+
+	/**
+	 * If set only the flights of a tuesday are in the schedule, otherwise the flights of the whole week.
+	 */
+	public DgFlightScenarioConfig withSingleDayOfOperation(boolean singleDayOfOperation) {
+		return new DgFlightScenarioConfig(this.airportFilter, this.numberOfRunways, this.createStars, this.stars,
+				this.writeIntermediateFiles, this.writeOagFlightsText, this.createAircraftRotations, this.minimumTurnaroundTime,
+				this.seatBucketSize, singleDayOfOperation);
+	}
+
+	public boolean isSingleDayOfOperation() {
+		return this.singleDayOfOperation;
+	}
+
+}
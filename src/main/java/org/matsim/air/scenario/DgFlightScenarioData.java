@@ -19,6 +19,10 @@
  * *********************************************************************** */
 package org.matsim.air.scenario;
 
+import java.util.Map;
+
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.api.core.v01.Coord;
 
 /**
  * @author dgrether
@@ -26,14 +30,94 @@ package org.matsim.air.scenario;
  */
 public class DgFlightScenarioData {
 	
+	private final DgFlightScenarioConfig config;
+
 	private DgAirportsCapacityData airportsCapacity;
 
+	private final AirCodeDictionary codeDictionary = new AirCodeDictionary();
+
+	private DgAirConnectionLinks connectionLinks = new DgAirConnectionLinks(DgAirConnectionLinks.Mode.FLIGHT, this.codeDictionary);
+
+	private DgCityPairGeometry cityPairGeometry = null;
+
+	private boolean useQueueAirports = false;
+
 	public DgFlightScenarioData(double capacityPeriod){
+		this(capacityPeriod, new DgFlightScenarioConfig());
+	}
+
+	public DgFlightScenarioData(double capacityPeriod, DgFlightScenarioConfig config){
+		this.config = config;
 		this.airportsCapacity = new DgAirportsCapacityData(capacityPeriod);
 	}
+
+	public DgFlightScenarioConfig getConfig(){
+		return this.config;
+	}
+	
 	
 	public DgAirportsCapacityData getAirportsCapacityData(){
 		return this.airportsCapacity;
 	}
-	
+
+	/**
+	 * The capacities are only read, thus the data of several scenarios can share them.
+	 */
+	public void setAirportsCapacityData(DgAirportsCapacityData airportsCapacity){
+		this.airportsCapacity = airportsCapacity;
+	}
+
+	/**
+	 * @return the dictionary of this scenario, it is shared by the builders of the scenario but not with other
+	 * scenarios, thus scenarios with their own data can be built concurrently
+	 */
+	public AirCodeDictionary getCodeDictionary(){
+		return this.codeDictionary;
+	}
+
+	/**
+	 * Sets how the flights are mapped to the links between the airports, the default is one link per flight.
+	 */
+	public void setConnectionMode(DgAirConnectionLinks.Mode mode){
+		this.connectionLinks = new DgAirConnectionLinks(mode, this.codeDictionary);
+		this.connectionLinks.setCityPairGeometry(this.cityPairGeometry);
+	}
+
+	public DgAirConnectionLinks.Mode getConnectionMode(){
+		return this.connectionLinks.getMode();
+	}
+
+	public DgAirConnectionLinks getConnectionLinks(){
+		return this.connectionLinks;
+	}
+
+	/**
+	 * If set the airports are created by {@link SfMatsimAirport#createQueues(org.matsim.api.core.v01.network.Network)} with one departure and one
+	 * arrival queue, otherwise with taxiways and runways.
+	 */
+	public void setUseQueueAirports(boolean useQueueAirports){
+		this.useQueueAirports = useQueueAirports;
+	}
+
+	public boolean isUseQueueAirports(){
+		return this.useQueueAirports;
+	}
+
+	/**
+	 * The links between the airports created after this call get the great circle distances as length.
+	 * @param airports the WGS84 coordinates of the airports of the scenario
+	 */
+	public DgCityPairGeometry createCityPairGeometry(Map<String, Coord> airports){
+		this.cityPairGeometry = new DgCityPairGeometry(this.codeDictionary, airports);
+		this.connectionLinks.setCityPairGeometry(this.cityPairGeometry);
+		return this.cityPairGeometry;
+	}
+
+	/**
+	 * @return the great circle distances of the city pairs or null if not created yet
+	 */
+	public DgCityPairGeometry getCityPairGeometry(){
+		return this.cityPairGeometry;
+	}
+
 }
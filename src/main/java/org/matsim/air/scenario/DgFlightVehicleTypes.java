@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgFlightVehicleTypes
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+
+/**
+ * Pools the vehicle types of the flights: all aircraft with the same seat bucket, speed class and passenger car
+ * units share one type, the id is &lt;seats&gt;seats_s&lt;speed class&gt;_pcu&lt;pcu&gt;. The seats are rounded up to a
+ * multiple of the bucket size, i.e. a bucket size of 1 keeps the exact seats. The maximum velocity of a type is the
+ * speed of its class, see {@link DgAirConnectionLinks#getSpeedClassFreespeed(int)}.
+ *
+ * @author dgrether
+ *
+ */
+public class DgFlightVehicleTypes {
+
+	public static final double DEFAULT_PCU = 1.0;
+
+	private final Vehicles vehicles;
+
+	private final int seatBucketSize;
+
+	/**
+	 * @param vehicles the container the types are looked up in and added to
+	 */
+	public DgFlightVehicleTypes(Vehicles vehicles, int seatBucketSize) {
+		if (seatBucketSize < 1) {
+			throw new IllegalArgumentException("Seat bucket size must be at least 1 but is " + seatBucketSize);
+		}
+		this.vehicles = vehicles;
+		this.seatBucketSize = seatBucketSize;
+	}
+
+	public int getSeatBucket(int seats) {
+		return (seats + this.seatBucketSize - 1) / this.seatBucketSize * this.seatBucketSize;
+	}
+
+	public VehicleType getVehicleType(int seats, double maximumVelocity) {
+		return this.getVehicleType(seats, maximumVelocity, DEFAULT_PCU);
+	}
+
+	/**
+	 * @return the pooled type, created and added to the vehicles if it does not exist yet
+	 */
+	public VehicleType getVehicleType(int seats, double maximumVelocity, double pcuEquivalents) {
+		int seatBucket = this.getSeatBucket(seats);
+		int speedClass = DgAirConnectionLinks.getSpeedClass(maximumVelocity);
+		Id<VehicleType> typeId = Id.create(seatBucket + "seats_s" + speedClass + "_pcu" + pcuEquivalents, VehicleType.class);
+		VehicleType type = this.vehicles.getVehicleTypes().get(typeId);
+		if (type == null) {
+			type = this.vehicles.getFactory().createVehicleType(typeId);
+			VehicleCapacity cap = this.vehicles.getFactory().createVehicleCapacity();
+			cap.setSeats(seatBucket);
+			type.setCapacity(cap);
+			type.setMaximumVelocity(DgAirConnectionLinks.getSpeedClassFreespeed(speedClass));
+			type.setPcuEquivalents(pcuEquivalents);
+			this.vehicles.addVehicleType(type);
+		}
+		return type;
+	}
+
+}
@@ -0,0 +1,928 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOsmAerowayExtractor
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+
+
+/**
+ * Extracts the coordinates of the OSM nodes with an "iata" tag from an OSM file, either in the PBF format (*.pbf) or
+ * uncompressed XML (*.osm). The result maps the first three letters of the tag value to the transformed coordinate of
+ * the first node in the file with this code and can be written as airport file by
+ * {@link SfAirportCoordGetter#writeToFile(Map, String)}.
+ *
+ * The file is processed in blocks that are decoded concurrently on a ForkJoinPool, the results of the blocks are
+ * merged in the order of the file:
+ * <ul>
+ * <li>A PBF file is read blob by blob, a blob is decoded only if its string table contains "iata", then only the nodes
+ * with this key are decoded.</li>
+ * <li>A XML file is mapped in line aligned chunks like the OAG file by the
+ * {@link org.matsim.air.scenario.oag.DgOagMappedReader}. The lines are scanned as bytes, the attributes of a node line
+ * are decoded only if a following tag line of the node has the key "iata". As in a file written by osmosis each element
+ * must start on a new line.</li>
+ * </ul>
+ * Airports mapped as ways or relations are not extracted.
+ *
+ * @author sfuerbas
+ * @author dgrether
+ *
+ */
+public class DgOsmAerowayExtractor {
+
+	private static final Logger log = Logger.getLogger(DgOsmAerowayExtractor.class);
+
+	private static final String IATA_KEY = "iata";
+
+	private static final int MAX_WINDOW_SIZE = 1 << 30;
+
+	private static final int MIN_PARALLEL_CHUNK_SIZE = 1 << 22;
+
+	/**
+	 * number of bytes a chunk of a XML file is read beyond its end to finish its last node
+	 */
+	private static final int MAX_OVERHANG = 1 << 20;
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+	private final CoordinateTransformation transform;
+
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * the size of the chunks of a XML file, 0 if the size is derived from the file size
+	 */
+	private long chunkSize = 0;
+
+	public DgOsmAerowayExtractor(final CoordinateTransformation transform) {
+		this.transform = transform;
+	}
+
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * Sets the size of the chunks of a XML file, small values are used in tests to get many chunks of a small file.
+	 * A line must not be longer than a chunk, 0 derives the size from the file size.
+	 */
+	void setChunkSize(long chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return the coordinates by airport code
+	 */
+	public SortedMap<String, Coord> extractAirports(String osmFilename) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(this.numberOfThreads);
+		SortedMap<String, Coord> airports = new TreeMap<String, Coord>();
+		try {
+			if (osmFilename.endsWith(".pbf")) {
+				this.readPbf(osmFilename, pool, airports);
+			}
+			else if (osmFilename.endsWith(".osm")) {
+				this.readXml(osmFilename, pool, airports);
+			}
+			else {
+				throw new IllegalArgumentException("Unsupported OSM file " + osmFilename + ", use *.osm.pbf or uncompressed *.osm files.");
+			}
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		log.info("Extracted " + airports.size() + " airports from " + osmFilename);
+		return airports;
+	}
+
+	private void readPbf(String osmFilename, ForkJoinPool pool, Map<String, Coord> airports) throws IOException {
+		log.info("Reading " + osmFilename + " with " + this.numberOfThreads + " threads...");
+		int readAhead = this.numberOfThreads * 2;
+		List<BlockTask> tasks = new ArrayList<BlockTask>();
+		int blocks = 0;
+		int next = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(osmFilename), 1 << 16))) {
+			while (true) {
+				int headerSize;
+				try {
+					headerSize = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+					throw new IOException("Invalid blob header size " + headerSize + " in " + osmFilename);
+				}
+				byte[] header = new byte[headerSize];
+				in.readFully(header);
+				PbfInput headerInput = new PbfInput(header, 0, headerSize);
+				String type = null;
+				int blobSize = -1;
+				while (headerInput.hasMore()) {
+					int tag = headerInput.readTag();
+					if (tag >>> 3 == 1) {
+						type = headerInput.readString();
+					} else if (tag >>> 3 == 3) {
+						blobSize = (int) headerInput.readVarint();
+					} else {
+						headerInput.skipField(tag);
+					}
+				}
+				if (blobSize < 0 || blobSize > MAX_BLOB_SIZE) {
+					throw new IOException("Invalid blob size " + blobSize + " in " + osmFilename);
+				}
+				byte[] blob = new byte[blobSize];
+				in.readFully(blob);
+				if (! "OSMData".equals(type)) {
+					continue;
+				}
+				BlockTask task = new PbfBlockTask(blob);
+				tasks.add(task);
+				pool.execute(task);
+				blocks++;
+				while (tasks.size() - next >= readAhead) {
+					this.merge(tasks.get(next).join(), airports);
+					tasks.set(next++, null);
+				}
+			}
+		}
+		while (next < tasks.size()) {
+			this.merge(tasks.get(next).join(), airports);
+			tasks.set(next++, null);
+		}
+		log.info("Read " + blocks + " data blocks.");
+	}
+
+	private void readXml(String osmFilename, ForkJoinPool pool, Map<String, Coord> airports) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(osmFilename, "r");
+				FileChannel channel = file.getChannel()) {
+			long size = channel.size();
+			long chunkSize = this.chunkSize;
+			if (chunkSize <= 0) {
+				chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, size / (this.numberOfThreads * CHUNKS_PER_THREAD) + 1);
+				chunkSize = Math.min(chunkSize, MAX_WINDOW_SIZE - MAX_OVERHANG);
+			}
+			List<BlockTask> tasks = new ArrayList<BlockTask>();
+			long start = 0;
+			while (start < size) {
+				long end = start + chunkSize >= size ? size : nextLineStart(channel, start, start + chunkSize);
+				tasks.add(new XmlChunkTask(channel, start, end, size));
+				start = end;
+			}
+			log.info("Reading " + osmFilename + " in " + tasks.size() + " chunks with " + this.numberOfThreads + " threads...");
+			int readAhead = this.numberOfThreads * 2;
+			for (int i = 0; i < Math.min(readAhead, tasks.size()); i++) {
+				pool.execute(tasks.get(i));
+			}
+			for (int i = 0; i < tasks.size(); i++) {
+				BlockTask task = tasks.get(i);
+				this.merge(task.join(), airports);
+				tasks.set(i, null);
+				if (i + readAhead < tasks.size()) {
+					pool.execute(tasks.get(i + readAhead));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the position after the last line feed in [start, end)
+	 */
+	private static long nextLineStart(FileChannel channel, long start, long end) throws IOException {
+		int windowSize = (int) (end - start);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, windowSize);
+		for (int i = windowSize - 1; i >= 0; i--){
+			if (buffer.get(i) == '\n') {
+				return start + i + 1;
+			}
+		}
+		throw new IOException("Line starting at byte " + start + " is longer than " + windowSize + " bytes.");
+	}
+
+	/**
+	 * Keeps the airports of earlier blocks.
+	 */
+	private void merge(Map<String, Coord> blockAirports, Map<String, Coord> airports) {
+		for (Entry<String, Coord> e : blockAirports.entrySet()) {
+			if (! airports.containsKey(e.getKey())) {
+				airports.put(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	private void addAirport(Map<String, Coord> airports, String iataCode, double lon, double lat) {
+		iataCode = iataCode.trim();
+		if (iataCode.length() >= 3) {
+			iataCode = iataCode.substring(0, 3);
+		}
+		if (! iataCode.isEmpty() && ! airports.containsKey(iataCode)) {
+			airports.put(iataCode, this.transform.transform(new Coord(lon, lat)));
+		}
+	}
+
+	private abstract static class BlockTask extends RecursiveTask<Map<String, Coord>> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected Map<String, Coord> compute() {
+			Map<String, Coord> airports = new LinkedHashMap<String, Coord>();
+			try {
+				this.read(airports);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return airports;
+		}
+
+		abstract void read(Map<String, Coord> airports) throws IOException;
+
+	}
+
+	/**
+	 * Decodes a blob of a PBF file, see http://wiki.openstreetmap.org/wiki/PBF_Format
+	 */
+	private final class PbfBlockTask extends BlockTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] blob;
+
+		PbfBlockTask(byte[] blob) {
+			this.blob = blob;
+		}
+
+		@Override
+		void read(Map<String, Coord> airports) throws IOException {
+			byte[] block = this.inflate();
+			PbfInput in = new PbfInput(block, 0, block.length);
+			int stringTableStart = -1;
+			int stringTableEnd = -1;
+			List<int[]> groups = new ArrayList<int[]>();
+			long granularity = 100;
+			long latOffset = 0;
+			long lonOffset = 0;
+			while (in.hasMore()) {
+				int tag = in.readTag();
+				switch (tag >>> 3) {
+				case 1:
+					stringTableEnd = in.readLength();
+					stringTableStart = in.getPosition();
+					stringTableEnd += stringTableStart;
+					in.setPosition(stringTableEnd);
+					break;
+				case 2:
+					int groupEnd = in.readLength();
+					int groupStart = in.getPosition();
+					groupEnd += groupStart;
+					groups.add(new int[] {groupStart, groupEnd});
+					in.setPosition(groupEnd);
+					break;
+				case 17:
+					granularity = in.readVarint();
+					break;
+				case 19:
+					latOffset = in.readVarint();
+					break;
+				case 20:
+					lonOffset = in.readVarint();
+					break;
+				default:
+					in.skipField(tag);
+				}
+			}
+			if (stringTableStart < 0) {
+				return;
+			}
+			StringTable strings = new StringTable(block, stringTableStart, stringTableEnd);
+			int iata = strings.indexOf(IATA_KEY);
+			if (iata < 0) {
+				return;
+			}
+			Coordinates coordinates = new Coordinates(granularity, latOffset, lonOffset);
+			for (int[] group : groups) {
+				PbfInput groupInput = new PbfInput(block, group[0], group[1]);
+				while (groupInput.hasMore()) {
+					int tag = groupInput.readTag();
+					if (tag >>> 3 == 1) {
+						int end = groupInput.readLength() + groupInput.getPosition();
+						this.readNode(new PbfInput(block, groupInput.getPosition(), end), iata, strings, coordinates, airports);
+						groupInput.setPosition(end);
+					}
+					else if (tag >>> 3 == 2) {
+						int end = groupInput.readLength() + groupInput.getPosition();
+						this.readDenseNodes(new PbfInput(block, groupInput.getPosition(), end), iata, strings, coordinates, airports);
+						groupInput.setPosition(end);
+					}
+					else {
+						// ways, relations and changesets
+						groupInput.skipField(tag);
+					}
+				}
+			}
+		}
+
+		private byte[] inflate() throws IOException {
+			PbfInput in = new PbfInput(this.blob, 0, this.blob.length);
+			byte[] raw = null;
+			int rawSize = -1;
+			int zlibStart = -1;
+			int zlibEnd = -1;
+			while (in.hasMore()) {
+				int tag = in.readTag();
+				switch (tag >>> 3) {
+				case 1:
+					int length = in.readLength();
+					raw = new byte[length];
+					System.arraycopy(this.blob, in.getPosition(), raw, 0, length);
+					in.setPosition(in.getPosition() + length);
+					break;
+				case 2:
+					rawSize = (int) in.readVarint();
+					break;
+				case 3:
+					zlibEnd = in.readLength();
+					zlibStart = in.getPosition();
+					zlibEnd += zlibStart;
+					in.setPosition(zlibEnd);
+					break;
+				default:
+					if ((tag & 7) == 2) {
+						throw new IOException("Unsupported compression of a blob with field number " + (tag >>> 3));
+					}
+					in.skipField(tag);
+				}
+			}
+			if (raw != null) {
+				return raw;
+			}
+			if (zlibStart < 0 || rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+				throw new IOException("Blob without data or with invalid size " + rawSize);
+			}
+			byte[] data = new byte[rawSize];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(this.blob, zlibStart, zlibEnd - zlibStart);
+				int size = 0;
+				while (size < rawSize && ! inflater.finished()) {
+					int inflated = inflater.inflate(data, size, rawSize - size);
+					if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					size += inflated;
+				}
+				if (size != rawSize) {
+					throw new IOException("Inflated " + size + " instead of " + rawSize + " bytes of a blob");
+				}
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			} finally {
+				inflater.end();
+			}
+			return data;
+		}
+
+		private void readNode(PbfInput in, int iata, StringTable strings, Coordinates coordinates, Map<String, Coord> airports) throws IOException {
+			int keysStart = -1;
+			int keysEnd = -1;
+			int valsStart = -1;
+			int valsEnd = -1;
+			long lat = 0;
+			long lon = 0;
+			while (in.hasMore()) {
+				int tag = in.readTag();
+				switch (tag >>> 3) {
+				case 2:
+					keysEnd = in.readLength();
+					keysStart = in.getPosition();
+					keysEnd += keysStart;
+					in.setPosition(keysEnd);
+					break;
+				case 3:
+					valsEnd = in.readLength();
+					valsStart = in.getPosition();
+					valsEnd += valsStart;
+					in.setPosition(valsEnd);
+					break;
+				case 8:
+					lat = PbfInput.decodeZigZag(in.readVarint());
+					break;
+				case 9:
+					lon = PbfInput.decodeZigZag(in.readVarint());
+					break;
+				default:
+					in.skipField(tag);
+				}
+			}
+			if (keysStart < 0 || valsStart < 0) {
+				return;
+			}
+			PbfInput keys = new PbfInput(in.getBuffer(), keysStart, keysEnd);
+			PbfInput vals = new PbfInput(in.getBuffer(), valsStart, valsEnd);
+			while (keys.hasMore() && vals.hasMore()) {
+				int key = (int) keys.readVarint();
+				int val = (int) vals.readVarint();
+				if (key == iata) {
+					addAirport(airports, strings.getString(val), coordinates.getLon(lon), coordinates.getLat(lat));
+				}
+			}
+		}
+
+		/**
+		 * The ids and coordinates of dense nodes are delta coded, they are decoded only if the keys of a node contain
+		 * the iata key.
+		 */
+		private void readDenseNodes(PbfInput in, int iata, StringTable strings, Coordinates coordinates, Map<String, Coord> airports) throws IOException {
+			int[] lats = null;
+			int[] lons = null;
+			int[] keysVals = null;
+			while (in.hasMore()) {
+				int tag = in.readTag();
+				switch (tag >>> 3) {
+				case 8:
+					lats = in.readRange();
+					break;
+				case 9:
+					lons = in.readRange();
+					break;
+				case 10:
+					keysVals = in.readRange();
+					break;
+				default:
+					in.skipField(tag);
+				}
+			}
+			if (keysVals == null || lats == null || lons == null || ! containsKey(in.getBuffer(), keysVals, iata)) {
+				return;
+			}
+			PbfInput latInput = new PbfInput(in.getBuffer(), lats[0], lats[1]);
+			PbfInput lonInput = new PbfInput(in.getBuffer(), lons[0], lons[1]);
+			PbfInput tags = new PbfInput(in.getBuffer(), keysVals[0], keysVals[1]);
+			long lat = 0;
+			long lon = 0;
+			while (tags.hasMore() && latInput.hasMore() && lonInput.hasMore()) {
+				lat += PbfInput.decodeZigZag(latInput.readVarint());
+				lon += PbfInput.decodeZigZag(lonInput.readVarint());
+				int key;
+				while (tags.hasMore() && (key = (int) tags.readVarint()) != 0) {
+					int val = (int) tags.readVarint();
+					if (key == iata) {
+						addAirport(airports, strings.getString(val), coordinates.getLon(lon), coordinates.getLat(lat));
+					}
+				}
+			}
+		}
+
+		private boolean containsKey(byte[] buffer, int[] keysVals, int key) throws IOException {
+			PbfInput tags = new PbfInput(buffer, keysVals[0], keysVals[1]);
+			while (tags.hasMore()) {
+				int k = (int) tags.readVarint();
+				if (k == 0) {
+					continue;
+				}
+				if (k == key) {
+					return true;
+				}
+				tags.readVarint();
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Scans a line aligned chunk of a XML file. The lines before the first node, way or relation line of the chunk belong
+	 * to the last node of the previous chunk, the last node of the chunk is read beyond the end of the chunk.
+	 */
+	private final class XmlChunkTask extends BlockTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final long size;
+
+		XmlChunkTask(FileChannel channel, long start, long end, long size) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.size = size;
+		}
+
+		@Override
+		void read(Map<String, Coord> airports) throws IOException {
+			int windowSize = (int) (Math.min(this.size, this.end + MAX_OVERHANG) - this.start);
+			MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.start, windowSize);
+			int chunkEnd = (int) (this.end - this.start);
+			XmlLine line = new XmlLine(buffer);
+			int lineStart = 0;
+			boolean started = this.start == 0;
+			boolean inNode = false;
+			int nodeStart = -1;
+			int nodeEnd = -1;
+			while (lineStart < windowSize) {
+				int lineEnd = lineStart;
+				while (lineEnd < windowSize && buffer.get(lineEnd) != '\n') {
+					lineEnd++;
+				}
+				line.set(lineStart, lineEnd);
+				boolean elementStart = line.startsWith(XmlLine.NODE) || line.startsWith(XmlLine.WAY)
+						|| line.startsWith(XmlLine.RELATION) || line.startsWith(XmlLine.OSM_END);
+				if (elementStart && lineStart >= chunkEnd) {
+					return;
+				}
+				if (elementStart) {
+					started = true;
+				}
+				if (started) {
+					if (line.startsWith(XmlLine.NODE)) {
+						inNode = ! line.endsWith(XmlLine.EMPTY_ELEMENT_END);
+						nodeStart = lineStart;
+						nodeEnd = lineEnd;
+					}
+					else if (elementStart || line.startsWith(XmlLine.NODE_END)) {
+						inNode = false;
+					}
+					else if (inNode && line.startsWith(XmlLine.TAG) && line.hasKey(XmlLine.IATA)) {
+						String iataCode = line.getAttribute(XmlLine.V);
+						XmlLine node = new XmlLine(buffer);
+						node.set(nodeStart, nodeEnd);
+						String lat = node.getAttribute(XmlLine.LAT);
+						String lon = node.getAttribute(XmlLine.LON);
+						if (iataCode != null && lat != null && lon != null) {
+							addAirport(airports, iataCode, Double.parseDouble(lon), Double.parseDouble(lat));
+						}
+					}
+				}
+				lineStart = lineEnd + 1;
+			}
+			if (this.start + windowSize < this.size) {
+				throw new IOException("Element at byte " + this.end + " is not finished within " + MAX_OVERHANG + " bytes.");
+			}
+		}
+
+	}
+
+	/**
+	 * A line of a OSM XML file in a mapped buffer, compared as bytes.
+	 */
+	private static final class XmlLine {
+
+		static final byte[] NODE = bytes("<node");
+		static final byte[] NODE_END = bytes("</node");
+		static final byte[] WAY = bytes("<way");
+		static final byte[] RELATION = bytes("<relation");
+		static final byte[] OSM_END = bytes("</osm");
+		static final byte[] TAG = bytes("<tag");
+		static final byte[] EMPTY_ELEMENT_END = bytes("/>");
+		static final byte[] IATA = bytes(IATA_KEY);
+		static final byte[] K = bytes("k");
+		static final byte[] V = bytes("v");
+		static final byte[] LAT = bytes("lat");
+		static final byte[] LON = bytes("lon");
+
+		private final MappedByteBuffer buffer;
+
+		private int start;
+
+		private int end;
+
+		XmlLine(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private static byte[] bytes(String s) {
+			return s.getBytes(StandardCharsets.US_ASCII);
+		}
+
+		void set(int lineStart, int lineEnd) {
+			while (lineStart < lineEnd && isWhitespace(this.buffer.get(lineStart))) {
+				lineStart++;
+			}
+			while (lineEnd > lineStart && isWhitespace(this.buffer.get(lineEnd - 1))) {
+				lineEnd--;
+			}
+			this.start = lineStart;
+			this.end = lineEnd;
+		}
+
+		private static boolean isWhitespace(byte b) {
+			return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+		}
+
+		boolean startsWith(byte[] prefix) {
+			if (this.end - this.start < prefix.length) {
+				return false;
+			}
+			if (! this.matches(this.start, prefix)) {
+				return false;
+			}
+			// the element name must end, e.g. <node but not <nodes
+			return this.end - this.start == prefix.length || ! Character.isLetterOrDigit(this.buffer.get(this.start + prefix.length));
+		}
+
+		boolean endsWith(byte[] suffix) {
+			return this.end - this.start >= suffix.length && this.matches(this.end - suffix.length, suffix);
+		}
+
+		boolean hasKey(byte[] key) {
+			int value = this.findAttribute(K);
+			if (value < 0 || this.end - value < key.length + 1) {
+				return false;
+			}
+			return this.matches(value, key) && this.buffer.get(value + key.length) == this.buffer.get(value - 1);
+		}
+
+		/**
+		 * @return the value of the attribute or null if the line has no such attribute
+		 */
+		String getAttribute(byte[] name) {
+			int value = this.findAttribute(name);
+			if (value < 0) {
+				return null;
+			}
+			byte quote = this.buffer.get(value - 1);
+			int valueEnd = value;
+			while (valueEnd < this.end && this.buffer.get(valueEnd) != quote) {
+				valueEnd++;
+			}
+			byte[] bytes = new byte[valueEnd - value];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = this.buffer.get(value + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * @return the position after the opening quote of the attribute value or -1
+		 */
+		private int findAttribute(byte[] name) {
+			for (int i = this.start + 1; i + name.length + 2 <= this.end; i++) {
+				if (isWhitespace(this.buffer.get(i - 1)) && this.matches(i, name)) {
+					int j = i + name.length;
+					while (j < this.end && isWhitespace(this.buffer.get(j))) {
+						j++;
+					}
+					if (j < this.end && this.buffer.get(j) == '=') {
+						j++;
+						while (j < this.end && isWhitespace(this.buffer.get(j))) {
+							j++;
+						}
+						if (j < this.end && (this.buffer.get(j) == '"' || this.buffer.get(j) == '\'')) {
+							return j + 1;
+						}
+					}
+				}
+			}
+			return -1;
+		}
+
+		private boolean matches(int position, byte[] bytes) {
+			for (int i = 0; i < bytes.length; i++) {
+				if (this.buffer.get(position + i) != bytes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * The strings of a PBF block, decoded only if they are looked up.
+	 */
+	private static final class StringTable {
+
+		private final byte[] buffer;
+
+		private final int[] starts;
+
+		private final int[] ends;
+
+		StringTable(byte[] buffer, int start, int end) throws IOException {
+			this.buffer = buffer;
+			List<int[]> ranges = new ArrayList<int[]>();
+			PbfInput in = new PbfInput(buffer, start, end);
+			while (in.hasMore()) {
+				int tag = in.readTag();
+				if (tag >>> 3 == 1) {
+					ranges.add(in.readRange());
+				}
+				else {
+					in.skipField(tag);
+				}
+			}
+			this.starts = new int[ranges.size()];
+			this.ends = new int[ranges.size()];
+			for (int i = 0; i < ranges.size(); i++) {
+				this.starts[i] = ranges.get(i)[0];
+				this.ends[i] = ranges.get(i)[1];
+			}
+		}
+
+		/**
+		 * @return the index of the string or -1
+		 */
+		int indexOf(String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			for (int i = 0; i < this.starts.length; i++) {
+				if (this.ends[i] - this.starts[i] != bytes.length) {
+					continue;
+				}
+				int j = 0;
+				while (j < bytes.length && this.buffer[this.starts[i] + j] == bytes[j]) {
+					j++;
+				}
+				if (j == bytes.length) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		String getString(int index) throws IOException {
+			if (index < 0 || index >= this.starts.length) {
+				throw new IOException("No string " + index + " in a string table of " + this.starts.length + " strings");
+			}
+			return new String(this.buffer, this.starts[index], this.ends[index] - this.starts[index], StandardCharsets.UTF_8);
+		}
+
+	}
+
+	private static final class Coordinates {
+
+		private final double granularity;
+
+		private final long latOffset;
+
+		private final long lonOffset;
+
+		Coordinates(long granularity, long latOffset, long lonOffset) {
+			this.granularity = granularity;
+			this.latOffset = latOffset;
+			this.lonOffset = lonOffset;
+		}
+
+		double getLat(long lat) {
+			return 1e-9 * (this.latOffset + this.granularity * lat);
+		}
+
+		double getLon(long lon) {
+			return 1e-9 * (this.lonOffset + this.granularity * lon);
+		}
+
+	}
+
+	/**
+	 * Reads the protocol buffer encoding of a byte range.
+	 */
+	private static final class PbfInput {
+
+		private final byte[] buffer;
+
+		private final int limit;
+
+		private int position;
+
+		PbfInput(byte[] buffer, int start, int end) {
+			this.buffer = buffer;
+			this.position = start;
+			this.limit = end;
+		}
+
+		static long decodeZigZag(long n) {
+			return (n >>> 1) ^ -(n & 1);
+		}
+
+		byte[] getBuffer() {
+			return this.buffer;
+		}
+
+		int getPosition() {
+			return this.position;
+		}
+
+		void setPosition(int position) throws IOException {
+			if (position > this.limit) {
+				throw new IOException("Truncated protocol buffer message");
+			}
+			this.position = position;
+		}
+
+		boolean hasMore() {
+			return this.position < this.limit;
+		}
+
+		int readTag() throws IOException {
+			return (int) this.readVarint();
+		}
+
+		long readVarint() throws IOException {
+			long result = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				if (this.position >= this.limit) {
+					throw new IOException("Truncated protocol buffer message");
+				}
+				byte b = this.buffer[this.position++];
+				result |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+			}
+			throw new IOException("Malformed varint in protocol buffer message");
+		}
+
+		int readLength() throws IOException {
+			long length = this.readVarint();
+			if (length < 0 || this.position + length > this.limit) {
+				throw new IOException("Truncated protocol buffer message");
+			}
+			return (int) length;
+		}
+
+		/**
+		 * @return the start and end of a length delimited field
+		 */
+		int[] readRange() throws IOException {
+			int length = this.readLength();
+			int[] range = new int[] {this.position, this.position + length};
+			this.position += length;
+			return range;
+		}
+
+		String readString() throws IOException {
+			int length = this.readLength();
+			String s = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return s;
+		}
+
+		void skipField(int tag) throws IOException {
+			switch (tag & 7) {
+			case 0:
+				this.readVarint();
+				break;
+			case 1:
+				this.setPosition(this.position + 8);
+				break;
+			case 2:
+				int length = this.readLength();
+				this.setPosition(this.position + length);
+				break;
+			case 5:
+				this.setPosition(this.position + 4);
+				break;
+			default:
+				throw new IOException("Unsupported wire type " + (tag & 7) + " in protocol buffer message");
+			}
+		}
+
+	}
+
+}
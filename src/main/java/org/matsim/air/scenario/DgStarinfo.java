@@ -28,10 +28,10 @@ package org.matsim.air.scenario;
  */
 public class DgStarinfo {
 
-	private String id;
-	private double length;
-	private double capacity;
-	private double freespeed;
+	private final String id;
+	private final double length;
+	private final double capacity;
+	private final double freespeed;
 
 	public DgStarinfo(String id, double length, double capacity, double freespeed) {
 		this.id = id;
@@ -20,11 +20,15 @@
 package org.matsim.air.scenario;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.matsim.air.scenario.oag.AirCodeDictionary;
 import org.matsim.air.scenario.oag.DgOagFlight;
 import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagFlightsDelta;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
@@ -44,7 +48,6 @@ import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
-import org.matsim.vehicles.VehicleCapacity;
 import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleWriterV1;
 import org.matsim.vehicles.Vehicles;
@@ -59,8 +62,70 @@ public class DgTransitBuilder {
 	
 	private Scenario scenario;
 
+	private AirCodeDictionary codes;
+
+	private DgAirConnectionLinks connectionLinks;
+
+	private boolean poolDepartures = false;
+
+	private boolean useAircraftRotations = false;
+
+	private double minimumTurnaroundTime = 0.0;
+
+	private DgFlightVehicleTypes vehicleTypes;
+
 	public DgTransitBuilder(Scenario scenario) {
+		this(scenario, new AirCodeDictionary());
+	}
+
+	public DgTransitBuilder(Scenario scenario, AirCodeDictionary codes) {
+		this(scenario, codes, new DgAirConnectionLinks(DgAirConnectionLinks.Mode.FLIGHT, codes));
+	}
+
+	/**
+	 * Routes the flights over the connection links of the network built with the same flight scenario data, the
+	 * seat buckets and aircraft rotations are taken from the config of the data.
+	 */
+	public DgTransitBuilder(Scenario scenario, DgFlightScenarioData flightScenarioData) {
+		this(scenario, flightScenarioData.getCodeDictionary(), flightScenarioData.getConnectionLinks());
+		DgFlightScenarioConfig config = flightScenarioData.getConfig();
+		this.setSeatBucketSize(config.getSeatBucketSize());
+		this.setAircraftRotations(config.isCreateAircraftRotations(), config.getMinimumTurnaroundTime());
+	}
+
+	private DgTransitBuilder(Scenario scenario, AirCodeDictionary codes, DgAirConnectionLinks connectionLinks) {
 		this.scenario = scenario;
+		this.codes = codes;
+		this.connectionLinks = connectionLinks;
+		this.vehicleTypes = new DgFlightVehicleTypes(scenario.getTransitVehicles(), 1);
+	}
+
+	/**
+	 * The seats of the pooled vehicle types are rounded up to multiples of the bucket size, the default of 1 keeps
+	 * the seats of the flights.
+	 */
+	public void setSeatBucketSize(int seatBucketSize) {
+		this.vehicleTypes = new DgFlightVehicleTypes(this.scenario.getTransitVehicles(), seatBucketSize);
+	}
+
+	/**
+	 * If set, the flights with the same origin, destination, carrier, connection link and scheduled duration
+	 * are departures of one transit route, otherwise each flight gets its own route. Pooling pays off if the
+	 * flights share the connection links, see {@link DgAirConnectionLinks.Mode}, with one link per flight each route
+	 * still has a single departure.
+	 */
+	public void setPoolDepartures(boolean poolDepartures) {
+		this.poolDepartures = poolDepartures;
+	}
+
+	/**
+	 * If set, flights of the same carrier, aircraft type and seats are chained to rotations that share one
+	 * transit vehicle, see {@link DgAircraftRotations}, otherwise each flight designator gets its own vehicle.
+	 * A schedule with rotations cannot be patched by {@link #updateSchedule(DgOagFlightsDelta, Map)}.
+	 */
+	public void setAircraftRotations(boolean useAircraftRotations, double minimumTurnaroundTime) {
+		this.useAircraftRotations = useAircraftRotations;
+		this.minimumTurnaroundTime = minimumTurnaroundTime;
 	}
 
 	public void createFacilities(Map<Id<Node>, SfMatsimAirport> airportMap){
@@ -68,46 +133,151 @@ public class DgTransitBuilder {
 		TransitScheduleFactory sf = schedule.getFactory();
 		
 		for (SfMatsimAirport airport : airportMap.values()){
-			TransitStopFacility transitStopFacility = sf.createTransitStopFacility(Id.create(airport.getId(), TransitStopFacility.class), airport.coordApronEnd, false);
-			transitStopFacility.setLinkId(airport.getStopFacilityLinkId());
-			schedule.addStopFacility(transitStopFacility);
+			this.createFacility(airport, schedule, sf);
 		}
 	}
+
+	private void createFacility(SfMatsimAirport airport, TransitSchedule schedule, TransitScheduleFactory sf){
+		TransitStopFacility transitStopFacility = sf.createTransitStopFacility(Id.create(airport.getId(), TransitStopFacility.class), airport.coordApronEnd, false);
+		transitStopFacility.setLinkId(airport.getStopFacilityLinkId());
+		schedule.addStopFacility(transitStopFacility);
+	}
 	
 	public void createSchedule(DgOagFlightsData flightsData, Map<Id<Node>, SfMatsimAirport> airportMap) {
 		this.createFacilities(airportMap);
 		
+//		Network network = this.scenario.getNetwork();
+		
+		if (! this.useAircraftRotations) {
+			for (DgOagFlight flight : flightsData.getFlightDesignatorFlightMap().values()){
+				this.createFlight(flight, airportMap, Id.create(flight.getFlightDesignator(), Vehicle.class));
+			}
+			return;
+		}
+		List<DgOagFlight> flights = new ArrayList<DgOagFlight>(flightsData.getFlightDesignatorFlightMap().values());
+		DgAircraftRotations rotations = new DgAircraftRotations(this.minimumTurnaroundTime);
+		for (DgOagFlight flight : flights) {
+			rotations.addFlight(this.createRotationGroup(flight), flight.getOriginCode(), flight.getDestinationCode(),
+					flight.getDepartureTime(), flight.getDepartureTime() + flight.getScheduledDuration());
+		}
+		rotations.assign();
+		for (int i = 0; i < flights.size(); i++) {
+			int vehicle = rotations.getVehicle(i);
+			Id<Vehicle> vehicleId = Id.create(rotations.getVehicleGroup(vehicle) + "_" + vehicle, Vehicle.class);
+			this.createFlight(flights.get(i), airportMap, vehicleId);
+		}
+	}
+
+	/**
+	 * Patches a schedule and vehicles created by {@link #createSchedule(DgOagFlightsData, Map)} for the flights of a
+	 * previous build. The airport map must contain the airports of the current build.
+	 */
+	public void updateSchedule(DgOagFlightsDelta delta, Map<Id<Node>, SfMatsimAirport> airportMap) {
+		if (this.useAircraftRotations) {
+			throw new IllegalStateException("Schedules with aircraft rotations cannot be updated, create a new one.");
+		}
+		TransitSchedule schedule = this.scenario.getTransitSchedule();
+		Set<Id<VehicleType>> vehicleTypes = new HashSet<Id<VehicleType>>();
+		for (DgOagFlight flight : delta.getRemovedFlights()) {
+			this.removeFlight(flight, airportMap, vehicleTypes);
+		}
+		for (DgOagFlight flight : delta.getChangedPreviousFlights()) {
+			this.removeFlight(flight, airportMap, vehicleTypes);
+		}
+		for (String code : delta.getRemovedAirports()) {
+			TransitStopFacility facility = schedule.getFacilities().get(Id.create(code, TransitStopFacility.class));
+			if (facility != null) {
+				schedule.removeStopFacility(facility);
+			}
+		}
+		for (String code : delta.getAddedAirports()) {
+			this.createFacility(airportMap.get(Id.create(code, Node.class)), schedule, schedule.getFactory());
+		}
+		for (DgOagFlight flight : delta.getChangedFlights()) {
+			this.createFlight(flight, airportMap, Id.create(flight.getFlightDesignator(), Vehicle.class));
+		}
+		for (DgOagFlight flight : delta.getAddedFlights()) {
+			this.createFlight(flight, airportMap, Id.create(flight.getFlightDesignator(), Vehicle.class));
+		}
+		// remove the types of the removed vehicles that are not used any longer
+		Vehicles veh = this.scenario.getTransitVehicles();
+		for (Vehicle vehicle : veh.getVehicles().values()) {
+			vehicleTypes.remove(vehicle.getType().getId());
+		}
+		for (Id<VehicleType> typeId : vehicleTypes) {
+			veh.removeVehicleType(typeId);
+		}
+	}
+
+	/**
+	 * The airports of removed flights may not be in the airport map any longer, this is only supported with one
+	 * connection link per flight.
+	 */
+	private void removeFlight(DgOagFlight flight, Map<Id<Node>, SfMatsimAirport> airportMap, Set<Id<VehicleType>> vehicleTypes) {
+		TransitSchedule schedule = this.scenario.getTransitSchedule();
+		Id<TransitLine> lineId = Id.create(this.codes.getLineCode(flight), TransitLine.class);
+		TransitLine line = schedule.getTransitLines().get(lineId);
+		if (line != null) {
+			SfMatsimAirport fromAirport = airportMap.get(Id.create(flight.getOriginCode(), Node.class));
+			SfMatsimAirport toAirport = airportMap.get(Id.create(flight.getDestinationCode(), Node.class));
+			Id<Link> connectionLinkId = this.connectionLinks.getLinkId(flight, fromAirport, toAirport);
+			TransitRoute transitRoute = line.getRoutes().get(this.createTransitRouteId(flight, connectionLinkId));
+			if (transitRoute != null) {
+				Departure departure = transitRoute.getDepartures().get(Id.create(this.codes.getFlightCode(flight), Departure.class));
+				if (departure != null) {
+					transitRoute.removeDeparture(departure);
+				}
+				if (transitRoute.getDepartures().isEmpty()) {
+					line.removeRoute(transitRoute);
+				}
+			}
+			if (line.getRoutes().isEmpty()) {
+				schedule.removeTransitLine(line);
+			}
+		}
+		Vehicles veh = this.scenario.getTransitVehicles();
+		Id<Vehicle> vehicleId = Id.create(flight.getFlightDesignator(), Vehicle.class);
+		Vehicle vehicle = veh.getVehicles().get(vehicleId);
+		if (vehicle != null) {
+			vehicleTypes.add(vehicle.getType().getId());
+			veh.removeVehicle(vehicleId);
+		}
+	}
+
+	private void createFlight(DgOagFlight flight, Map<Id<Node>, SfMatsimAirport> airportMap, Id<Vehicle> vehicleId) {
 		Vehicles veh = this.scenario.getTransitVehicles();
 		TransitSchedule schedule = this.scenario.getTransitSchedule();
 		TransitScheduleFactory sf = schedule.getFactory();
-//		Network network = this.scenario.getNetwork();
+		Id<TransitLine> lineId = Id.create(this.codes.getLineCode(flight), TransitLine.class);
+		TransitLine line = schedule.getTransitLines().get(lineId);
+		if (line == null) {
+			line = sf.createTransitLine(lineId);
+			schedule.addTransitLine(line);
+		}
+		Id<Link> id = Id.create(this.codes.getFlightCode(flight), Link.class);
+
+		Id<Link> fromId = Id.create(flight.getOriginCode(), Link.class);
+		Id<Link> toId = Id.create(flight.getDestinationCode(), Link.class);
+		TransitStopFacility fromFacility = schedule.getFacilities().get(fromId);
+		TransitStopFacility toFacility = schedule.getFacilities().get(toId);
+		TransitRouteStop fromStop = sf.createTransitRouteStop(fromFacility, 0.0, 0.0);
+		TransitRouteStop toStop = sf.createTransitRouteStop(toFacility, flight.getScheduledDuration(), flight.getScheduledDuration());
+		List<TransitRouteStop> stopList = new ArrayList<TransitRouteStop>();
+		stopList.add(fromStop);
+		stopList.add(toStop);
+		
 		
-		for (DgOagFlight flight : flightsData.getFlightDesignatorFlightMap().values()){
-			Id<TransitLine> lineId = Id.create(flight.getOriginCode() + "_" + flight.getDestinationCode() + "_" + flight.getCarrier(), TransitLine.class);
-			TransitLine line = schedule.getTransitLines().get(lineId);
-			if (line == null) {
-				line = sf.createTransitLine(lineId);
-				schedule.addTransitLine(line);
-			}
-			Id<Link> id = Id.create(flight.getOriginCode() + "_" + flight.getDestinationCode() + "_" + flight.getFlightDesignator(), Link.class);
-
-			Id<Link> fromId = Id.create(flight.getOriginCode(), Link.class);
-			Id<Link> toId = Id.create(flight.getDestinationCode(), Link.class);
-			TransitStopFacility fromFacility = schedule.getFacilities().get(fromId);
-			TransitStopFacility toFacility = schedule.getFacilities().get(toId);
-			TransitRouteStop fromStop = sf.createTransitRouteStop(fromFacility, 0.0, 0.0);
-			TransitRouteStop toStop = sf.createTransitRouteStop(toFacility, flight.getScheduledDuration(), flight.getScheduledDuration());
-			List<TransitRouteStop> stopList = new ArrayList<TransitRouteStop>();
-			stopList.add(fromStop);
-			stopList.add(toStop);
-			
-			
 //			NetworkRoute route = new NetworkRoute(fromId, toId);
-			SfMatsimAirport fromAirport = airportMap.get(fromId);
-			SfMatsimAirport toAirport = airportMap.get(toId);
+		SfMatsimAirport fromAirport = airportMap.get(fromId);
+		SfMatsimAirport toAirport = airportMap.get(toId);
+		// the link may be shared with other flights, the timing of the flight is given by the stop offsets
+		Id<Link> connectionLinkId = this.connectionLinks.getLinkId(flight, fromAirport, toAirport);
+		Id<TransitRoute> transitRouteId = this.createTransitRouteId(flight, connectionLinkId);
+		TransitRoute transitRoute = line.getRoutes().get(transitRouteId);
+		if (transitRoute == null) {
 			List<Id<Link>> routeLinkIds = new ArrayList<Id<Link>>();
 			routeLinkIds.addAll(fromAirport.getDepartureLinkIdList());
-			routeLinkIds.add(id);
+			routeLinkIds.add(connectionLinkId);
 			routeLinkIds.addAll(toAirport.getArrivalLinkIdList());
 			
 //			route.setLinkIds(fromId, routeLinkIds, toId);
@@ -115,32 +285,40 @@ public class DgTransitBuilder {
 			NetworkRoute route = RouteUtils.createNetworkRoute(routeLinkIds, this.scenario.getNetwork());
 			route.setLinkIds(fromId, routeLinkIds, toId);
 			
-			TransitRoute transitRoute = sf.createTransitRoute(Id.create(id, TransitRoute.class), route, stopList, TransportMode.pt);
+			transitRoute = sf.createTransitRoute(transitRouteId, route, stopList, TransportMode.pt);
 //			transitRoute.getRoute().setLinkIds(fromId, routeLinkIds, toId);
 			
-			
-			
 			line.addRoute(transitRoute);
+		}
 
-			Departure departure = sf.createDeparture(Id.create(id, Departure.class), flight.getDepartureTime());
-			Id<Vehicle> vehicleId = Id.create(flight.getFlightDesignator(), Vehicle.class);
-			departure.setVehicleId(vehicleId);
-			transitRoute.addDeparture(departure);
-			
-			Id<VehicleType> typeId = Id.create(flight.getAircraftType() + "_" + flight.getCarrier() + "_" + flight.getSeatsAvailable(), VehicleType.class);
-			VehicleType vehType = veh.getVehicleTypes().get(typeId);
-			if ( vehType == null ){
-				vehType = veh.getFactory().createVehicleType(typeId);
-				VehicleCapacity cap = veh.getFactory().createVehicleCapacity();
-				cap.setSeats(flight.getSeatsAvailable());
-				vehType.setCapacity( cap);
-				vehType.setMaximumVelocity(MACH_2);
-				veh.addVehicleType(vehType);
-			}
-			Vehicle vehicle = veh.getFactory().createVehicle(vehicleId, vehType);
-			veh.addVehicle( vehicle);
+		Departure departure = sf.createDeparture(Id.create(id, Departure.class), flight.getDepartureTime());
+		departure.setVehicleId(vehicleId);
+		transitRoute.addDeparture(departure);
+		if (veh.getVehicles().containsKey(vehicleId)) {
+			return;
 		}
 		
+		VehicleType vehType = this.vehicleTypes.getVehicleType(flight.getSeatsAvailable(), MACH_2);
+		Vehicle vehicle = veh.getFactory().createVehicle(vehicleId, vehType);
+		veh.addVehicle( vehicle);
+	}
+
+	/**
+	 * @return aircraft_carrier_seats, the flights of a group can share an aircraft
+	 */
+	private String createRotationGroup(DgOagFlight flight) {
+		return flight.getAircraftType() + "_" + flight.getCarrier() + "_" + flight.getSeatsAvailable();
+	}
+
+	/**
+	 * @return the id of the flight, origin_destination_designator, or if the departures are pooled
+	 * connectionlink_carrier_duration
+	 */
+	private Id<TransitRoute> createTransitRouteId(DgOagFlight flight, Id<Link> connectionLinkId) {
+		if (! this.poolDepartures) {
+			return Id.create(this.codes.getFlightCode(flight), TransitRoute.class);
+		}
+		return Id.create(connectionLinkId + "_" + flight.getCarrier() + "_" + (long) flight.getScheduledDuration(), TransitRoute.class);
 	}
 
 	public void writeTransitFile(String scheduleFilename, String vehicleFilename) {
@@ -7,12 +7,14 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.network.NetworkImpl;
 import org.matsim.core.network.NetworkWriter;
@@ -31,7 +33,48 @@ public class SfAirNetworkBuilder {
 	
 	public final Map<String, Double> STARoffset = new HashMap<String, Double>();
 
+	private final DgFlightScenarioConfig config;
+
+	public SfAirNetworkBuilder(DgFlightScenarioConfig config) {
+		this.config = config;
+	}
+
 	public void createNetwork(String Airports, String cityPairs, String networkOutputFilename) throws IOException {
+		Map<String, Coord> airports = new HashMap<String, Coord>();
+		Map<String, Double> cityPairDistances = new HashMap<String, Double>();
+		
+		BufferedReader brAirports = new BufferedReader(new FileReader(new File(Airports)));
+		BufferedReader brRoutes = new BufferedReader(new FileReader(new File(cityPairs)));
+		
+		while (brAirports.ready()) {
+			String oneLine = brAirports.readLine();
+			String[] lineEntries = oneLine.split("\t");
+			String airportCode = lineEntries[0];
+			double xValue = Double.parseDouble(lineEntries[1]);
+			double yValue = Double.parseDouble(lineEntries[2]);		
+			airports.put(airportCode, new CoordImpl(xValue, yValue));
+		}
+		
+		while (brRoutes.ready()) {
+			String oneLine = brRoutes.readLine();
+			String[] lineEntries = oneLine.split("\t");
+			cityPairDistances.put(lineEntries[0], Double.parseDouble(lineEntries[1]));
+		}
+		brAirports.close();
+		brRoutes.close();
+		
+		Network network = this.createNetwork(airports, cityPairDistances);
+		new NetworkWriter(network).write(networkOutputFilename);
+		
+		log.info("Done! Unprocessed MATSim Network saved as " + networkOutputFilename);
+	}
+
+	/**
+	 * Creates the network in memory.
+	 * @param airports the WGS84 coordinates of the airports by IATA code
+	 * @param cityPairDistances the distance in km by origin_destination
+	 */
+	public Network createNetwork(Map<String, Coord> airports, Map<String, Double> cityPairDistances) {
 		int airportcounter = 0;
 		int linkcounter = 0;
 		
@@ -42,32 +85,22 @@ public class SfAirNetworkBuilder {
 		NetworkImpl network = NetworkImpl.createNetwork();
 		network.setCapacityPeriod(CAP_PERIOD);	
 		
-		BufferedReader brAirports = new BufferedReader(new FileReader(new File(Airports)));
-		BufferedReader brRoutes = new BufferedReader(new FileReader(new File(cityPairs)));
-		
 		CoordinateTransformation coordtransform =
 			TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84, "EPSG:3395");
 		
-		while (brAirports.ready()) {
-			String oneLine = brAirports.readLine();
-			String[] lineEntries = oneLine.split("\t");
-			String airportCode = lineEntries[0];
-			double xValue = Double.parseDouble(lineEntries[1]);
-			double yValue = Double.parseDouble(lineEntries[2]);		
-			Coord coord = new CoordImpl(xValue, yValue);
-			Coord airportCoord = coordtransform.transform(coord);
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			String airportCode = e.getKey();
+			Coord airportCoord = coordtransform.transform(e.getValue());
 			airportcounter++;
-			if (DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS==2)
-				new SfMatsimAirport(Id.create(airportCode, Node.class), airportCoord, null).createTwoRunways(network);
+			if (this.config.getNumberOfRunways()==2)
+				new SfMatsimAirport(Id.create(airportCode, Node.class), airportCoord, null, this.config).createTwoRunways(network);
 			else
-				new SfMatsimAirport(Id.create(airportCode, Node.class), airportCoord, null).createOneRunway(network);
+				new SfMatsimAirport(Id.create(airportCode, Node.class), airportCoord, null, this.config).createOneRunway(network);
 		}
 		
-		while (brRoutes.ready()) {
-			String oneLine = brRoutes.readLine();
-			String[] lineEntries = oneLine.split("\t");
-			String[] airportCodes = lineEntries[0].split("_");
-			double length = Double.parseDouble(lineEntries[1])*1000;	//distance between O&D in meters
+		for (Entry<String, Double> e : cityPairDistances.entrySet()) {
+			String[] airportCodes = e.getKey().split("_");
+			double length = e.getValue()*1000;	//distance between O&D in meters
 			double groundSpeed = MACH_2;	
 //			double duration = Double.parseDouble(lineEntries[2]);
 //			groundSpeed = Math.round(100*length/(duration-SfMatsimAirport.TAXI_TOL_TIME))/100.;	//set for older MATSim version, where max. speed in VehicleType ist not supported
@@ -75,7 +108,7 @@ public class SfAirNetworkBuilder {
 			String destination = airportCodes[1];
 			
 			Id originRunwayOutNodeId;
-			if (DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS==2) {
+			if (this.config.getNumberOfRunways()==2) {
 				originRunwayOutNodeId = Id.create(origin+"runwayOutbound", Node.class);
 			}
 			else {
@@ -83,12 +116,12 @@ public class SfAirNetworkBuilder {
 			}
 			
 			Node destinationNode = null;
-			if (DgCreateSfFlightScenario.doCreateStars) {
+			if (this.config.isCreateStars()) {
 				Id<Node> destinationStar = Id.create(destination+"star", Node.class);
 				destinationNode = network.getNodes().get(destinationStar);
 			}
 			else {
-				if (DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS == 2){
+				if (this.config.getNumberOfRunways() == 2){
 					destinationNode = network.getNodes().get(Id.create(destination + "runwayInbound", Node.class));
 				}
 				else {
@@ -107,15 +140,9 @@ public class SfAirNetworkBuilder {
 			linkcounter++;
 		}
 			
-		new NetworkWriter(network).write(networkOutputFilename);
-		
-		log.info("Done! Unprocessed MATSim Network saved as " + networkOutputFilename);
-		
 		log.info("Anzahl Flughäfen: "+airportcounter);
 		log.info("Anzahl Links: "+linkcounter);
-		
-		brAirports.close();
-		brRoutes.close();
+		return network;
 	}
 
 	/**
@@ -128,7 +155,7 @@ public class SfAirNetworkBuilder {
 		String output = baseDirectory + NETWORK_FILENAME;
 		String osmAirports = baseDirectory + SfAirScheduleBuilder.AIRPORTS_OUTPUT_FILE;
 		String cityPairs = baseDirectory + SfAirScheduleBuilder.CITY_PAIRS_OUTPUT_FILENAME;
-		SfAirNetworkBuilder builder = new SfAirNetworkBuilder();
+		SfAirNetworkBuilder builder = new SfAirNetworkBuilder(new DgFlightScenarioConfig());
 		builder.createNetwork(osmAirports, cityPairs, output);
 	}
 
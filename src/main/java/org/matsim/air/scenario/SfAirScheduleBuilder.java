@@ -24,19 +24,36 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 import org.matsim.air.scenario.countryfilter.DgCountryFilter;
 import org.matsim.air.scenario.countryfilter.DgWorldCountryFilter;
+import org.matsim.air.scenario.filter.DgAirportCoordinatesFilterStage;
+import org.matsim.air.scenario.filter.DgAirportFilterStage;
+import org.matsim.air.scenario.filter.DgBadDataFilterStage;
+import org.matsim.air.scenario.filter.DgBusOrTrainFilterStage;
+import org.matsim.air.scenario.filter.DgCodeshareFilterStage;
+import org.matsim.air.scenario.filter.DgCountryFilterStage;
+import org.matsim.air.scenario.filter.DgDuplicateFlightFilterStage;
+import org.matsim.air.scenario.filter.DgOagFilterPipeline;
+import org.matsim.air.scenario.filter.DgOagRowConsumer;
+import org.matsim.air.scenario.filter.DgUtcOffsetFilterStage;
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.air.scenario.oag.DgOagDepartures;
 import org.matsim.air.scenario.oag.DgOagFlight;
 import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagFlightsFile;
 import org.matsim.air.scenario.oag.DgOagLine;
+import org.matsim.air.scenario.oag.DgOagReader;
+import org.matsim.air.scenario.oag.DgOagWeekScheduleExpander;
+import org.matsim.air.scenario.oag.OagFlightTable;
 import org.matsim.air.scenario.utcoffsets.DgUTCOffsetsReader;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.core.utils.io.IOUtils;
@@ -63,86 +80,167 @@ public class SfAirScheduleBuilder {
 
 	public static final String UTC_OFFSET_FILE = "utc_offsets.txt";
 
+	public static final String OAG_FLIGHTS_TEXT_OUTPUT_FILENAME = "oag_flights.txt";
+
 	private static final String MISSING_AIRPORTS = "missing_airports.txt";
 
-	private static final char two = '2';
+	private static final int TUESDAY = 2;
 
 	private Map<String, Coord> airportsInModel = new HashMap<String, Coord>();
 	private Map<String, Double> routeDurationMap = new HashMap<String, Double>();
 	private Map<String, Double> cityPairDistance = new HashMap<String, Double>();
 	private Map<String, Double> utcOffset = new HashMap<String, Double>();
-	private Set<String> missingAirportCodes = new HashSet<String>();
 
 	private DgCountryFilter countryFilter = new DgWorldCountryFilter();
 
-	private int ignoredBusOrTrainFlights = 0;
-
-	private int ignoredFlightsDueToCountryFilter = 0;
-	private int ignoredDueMissingAirportCoordinates = 0;
-
-	private int ignoredDueToBadData = 0;
-
-	private int ignoredCodeshareFlights = 0;
-	
-	private int ignoredDueToUTCOffsetMissing = 0;
+	private AirCodeDictionary codes = new AirCodeDictionary();
 
 	private Map<String, Coord> availableAirportCoordinates;
 
-
-	private int ignoredDueDuplicatedEntry = 0;
-
-	private int ignoredDueAirportFilter = 0;
+	private DgCityPairGeometry cityPairGeometry;
 
 	private DgOagFlightsData flights;
 
+	private DgOagFilterPipeline pipeline;
+
+	private DgCountryFilterStage countryStage;
+	private DgCodeshareFilterStage codeshareStage;
+	private DgBusOrTrainFilterStage busOrTrainStage;
+	private DgDuplicateFlightFilterStage duplicateStage;
+	private DgAirportFilterStage airportFilterStage;
+	private DgAirportCoordinatesFilterStage coordinatesStage;
+	private DgUtcOffsetFilterStage utcOffsetStage;
+	private DgBadDataFilterStage badDataStage;
+
+	private DgOagWeekScheduleExpander expander;
+	private int[] acceptedRows = new int[1024];
+	private int[] acceptedUtcOffsets = new int[1024];
+	private double[] acceptedDurations = new double[1024];
+	private int acceptedRowCount = 0;
+
+	private final DgFlightScenarioConfig config;
+
+	/**
+	 * If {@link DgFlightScenarioConfig#isWriteIntermediateFiles()} is not set the flights, airports and city pairs are only
+	 * kept in memory for the next stages of the build, see {@link #getAirportCoordMap()} and {@link #getCityPairDistances()},
+	 * the output filename of the flights may be null then.
+	 */
+	public SfAirScheduleBuilder(DgFlightScenarioConfig config) {
+		this.config = config;
+	}
+
 	public void setCountryFilter(DgCountryFilter filter) {
 		this.countryFilter = filter;
 	}
 
-	public void readDataAndFilter(String inputOsmFilename, String inputOagFilename,
-			String baseDirectory, String utcOffsetfile, String oagFlightsFilename) {
-		throw new UnsupportedOperationException("load data in this method or change to new interface");
+	/**
+	 * @param codes the dictionary of the scenario the flights are built for, the builder of each scenario needs its own
+	 * dictionary if the scenarios are built concurrently
+	 */
+	public void setCodeDictionary(AirCodeDictionary codes) {
+		this.codes = codes;
 	}
 
+	/**
+	 * @return a description of all settings that change the result of the filter for the same input files
+	 */
+	public String getFilterConfiguration() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("countryFilter=").append(this.countryFilter);
+		sb.append(";singleDay=").append(this.config.isSingleDayOfOperation());
+		sb.append(";stars=").append(this.config.isCreateStars());
+		if (this.config.isCreateStars()) {
+			Map<String, Double> starDurations = new TreeMap<String, Double>();
+			for (String airportCode : this.config.getStars().keySet()) {
+				starDurations.put(airportCode, this.config.getStarDuration(airportCode));
+			}
+			sb.append(starDurations);
+		}
+		sb.append(";airportFilter=").append(this.config.isApplyAirportFilter());
+		if (this.config.isApplyAirportFilter()) {
+			sb.append(this.config.getAirportFilter());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Streams the OAG file through the filters, the rows are not kept in memory.
+	 */
+	public DgOagFlightsData readDataAndFilter(String inputAirportListFile, String inputOagFilename,
+			String outputDirectory, String utcOffsetInputfile, String oagFlightsOutputFilename) throws Exception {
+		this.loadAirportData(inputAirportListFile, utcOffsetInputfile);
+		final DgOagFlightsData data = new DgOagFlightsData();
+		this.pipeline = this.createPipeline();
+		new DgOagReader().readOagTable(inputOagFilename, new Consumer<OagFlightTable>() {
+			@Override
+			public void accept(OagFlightTable table) {
+				processTable(data, table);
+			}
+		});
+		this.flights = data;
+		this.writeOutput(outputDirectory, oagFlightsOutputFilename);
+		return this.flights;
+	}
 
-	@SuppressWarnings("rawtypes")
 	public DgOagFlightsData readDataAndFilter(String inputAirportListFile, List<DgOagLine> oagLines,
 			String outputDirectory, String utcOffsetInputfile, String oagFlightsOutputFilename) throws Exception {
-		
+		OagFlightTable oagTable = new OagFlightTable(oagLines.size());
+		for (DgOagLine l : oagLines) {
+			oagTable.addLine(l);
+		}
+		return this.readDataAndFilter(inputAirportListFile, oagTable, outputDirectory, utcOffsetInputfile, oagFlightsOutputFilename);
+	}
+
+	public DgOagFlightsData readDataAndFilter(String inputAirportListFile, OagFlightTable oagTable,
+			String outputDirectory, String utcOffsetInputfile, String oagFlightsOutputFilename) throws Exception {
+		this.loadAirportData(inputAirportListFile, utcOffsetInputfile);
+		DgOagFlightsData data = new DgOagFlightsData();
+		this.pipeline = this.createPipeline();
+		this.processTable(data, oagTable);
+		this.flights = data;
+		this.writeOutput(outputDirectory, oagFlightsOutputFilename);
+		return this.flights;
+	}
+
+	private void loadAirportData(String inputAirportListFile, String utcOffsetInputfile) throws Exception {
 		this.availableAirportCoordinates = new DgAirportsReader()
 				.loadAirportCoordinates(inputAirportListFile);
+		// own dictionary, the airports without flights are not added to the one of the scenario
+		this.cityPairGeometry = new DgCityPairGeometry(new AirCodeDictionary(), this.availableAirportCoordinates);
 		this.utcOffset = new DgUTCOffsetsReader().loadUtcOffsets(utcOffsetInputfile);
-		
-		flights = this.filter(oagLines, outputDirectory, oagFlightsOutputFilename);
-		
-		this.writeFlightsToFile(flights, oagFlightsOutputFilename);
-		
-		// produce some more output
-		this.writeAirportsInModel(outputDirectory);
+	}
 
-		this.writeRouteDurations(outputDirectory);
+	private void writeOutput(String outputDirectory, String oagFlightsOutputFilename) throws Exception {
+		if (this.config.isWriteIntermediateFiles()) {
+			this.writeFlightsToFile(flights, oagFlightsOutputFilename, outputDirectory);
+			
+			// produce some more output
+			this.writeAirportsInModel(outputDirectory);
+
+			this.writeRouteDurations(outputDirectory);
+		}
 
 		this.writeMissingAirports(outputDirectory);
 
-		log.info("Anzahl der Zeilen/Flüge im OAG file: " + oagLines.size());
+		this.pipeline.logStatistics();
+		log.info("Anzahl der Zeilen/Flüge im OAG file: " + this.pipeline.getRows());
 		log.info("Anzahl der Flüge im Modell: " + flights.getFlightDesignatorFlightMap().size());
-		log.info("Anzahl der gefilterten Flüge: " + (this.ignoredFlightsDueToCountryFilter + this.ignoredBusOrTrainFlights + this.ignoredCodeshareFlights + 
-				this.ignoredDueMissingAirportCoordinates + this.ignoredDueToBadData + this.ignoredDueToUTCOffsetMissing));
+		log.info("Anzahl der gefilterten Flüge: " + this.pipeline.getRejectedRows());
 		log.info("Anzahl der Airports: " + this.airportsInModel.size());
 		log.info("Anzahl der Coordinaten für Airports: " + this.availableAirportCoordinates.size());
-		log.info("Anzahl der Airports ohne Coordinaten: " + this.missingAirportCodes.size());
-		log.info("Anzahl der Flüge, die aufgrund fehlender UTC Offsets weggelassen wurden: " + this.ignoredDueToUTCOffsetMissing);
-		log.info("Anzahl der Flüge, die aufgrund fehlender Coordinaten weggelassen wurden: " + this.ignoredDueMissingAirportCoordinates);
-		log.info("Anzahl an Bus/Zug Flügen " + this.ignoredBusOrTrainFlights);
-		log.info("Anzahl der Codeshare-Flüge: " + this.ignoredCodeshareFlights);
-		log.info("Anzahl schlechte Daten: " + this.ignoredDueToBadData);
-		log.info("Anzahl der doppelten Flugnummern: " + this.ignoredDueDuplicatedEntry);
-		log.info("Anzahl der durch den AirportFilter entfernten Flüge: " + this.ignoredDueAirportFilter);
+		log.info("Anzahl der Airports ohne Coordinaten: " + this.coordinatesStage.getMissingAirportCodes().size());
+		log.info("Anzahl der Flüge, die aufgrund fehlender UTC Offsets weggelassen wurden: " + this.pipeline.getRejectedRows(this.utcOffsetStage));
+		log.info("Anzahl der Flüge, die aufgrund fehlender Coordinaten weggelassen wurden: " + this.pipeline.getRejectedRows(this.coordinatesStage));
+		log.info("Anzahl an Bus/Zug Flügen " + this.pipeline.getRejectedRows(this.busOrTrainStage));
+		log.info("Anzahl der Codeshare-Flüge: " + this.pipeline.getRejectedRows(this.codeshareStage));
+		log.info("Anzahl schlechte Daten: " + this.pipeline.getRejectedRows(this.badDataStage));
+		log.info("Anzahl der doppelten Flugnummern: " + this.pipeline.getRejectedRows(this.duplicateStage));
+		if (this.airportFilterStage != null) {
+			log.info("Anzahl der durch den AirportFilter entfernten Flüge: " + this.pipeline.getRejectedRows(this.airportFilterStage));
+		}
 		log.info("Anzahl der City Pairs: " + this.routeDurationMap.size());
 		log.info("Anzahl der Zeilen die durch den Länderfilter gefiltert wurden: "
-				+ this.ignoredFlightsDueToCountryFilter);
-		
-		return flights;
+				+ this.pipeline.getRejectedRows(this.countryStage));
 	}
 	
 	public void writeModelStatisticsTable(String outputFile) throws Exception {
@@ -150,118 +248,68 @@ public class SfAirScheduleBuilder {
 		BufferedWriter writer = IOUtils.getBufferedWriter(outputFile);
 		writer.write(header);
 		writer.newLine();
-		String line = Integer.toString(this.airportsInModel.size()) + " & " + Integer.toString(this.missingAirportCodes.size()) + " & " 
-		+ this.routeDurationMap.size() + " & " + flights.getFlightDesignatorFlightMap().size() +  " & " + this.ignoredDueMissingAirportCoordinates;
+		String line = Integer.toString(this.airportsInModel.size()) + " & " + Integer.toString(this.coordinatesStage.getMissingAirportCodes().size()) + " & " 
+		+ this.routeDurationMap.size() + " & " + flights.getFlightDesignatorFlightMap().size() +  " & " + this.pipeline.getRejectedRows(this.coordinatesStage);
 		writer.write(line);
 		writer.newLine();
 		writer.close();
 	}
 
-
-	private boolean airportCoordinatesAvailable(String originAirport, String destinationAirport,
-			Map<String, Coord> availableAirportCoordinates) {
-		if (!availableAirportCoordinates.containsKey(originAirport)) {
-			log.warn("No coordinates for Airport: " + originAirport);
-			this.missingAirportCodes.add(originAirport);
-			this.ignoredDueMissingAirportCoordinates++;
-			return false;
-		}
-		if (!availableAirportCoordinates.containsKey(destinationAirport)) {
-			log.warn("No coordinates for Airport: " + destinationAirport);
-			this.missingAirportCodes.add(destinationAirport);
-			this.ignoredDueMissingAirportCoordinates++;
-			return false;
-		}
-		return true;
-	}
-
-	private boolean isCountryOfInterest(String originCountry, String destinationCountry) {
-		if (this.countryFilter.isCountryOfInterest(originCountry, destinationCountry)) {
-			return true;
-		}
-		// log.info("skipping flight from " + originAirport + " to " + destinationAirport);
-		ignoredFlightsDueToCountryFilter++;
-		return false;
-	}
-	
-	private boolean isUTCOffsetAvailable(String originAirport, String destinationAirport) {
-		if ( this.utcOffset.containsKey(originAirport) && this.utcOffset.containsKey(destinationAirport)) {
-			return true;
+	/**
+	 * The stages up to the airport filter drop flights that are not of interest for the model, the remaining ones
+	 * detect data errors for data that is not provided by oag, thus all of them are checked for each row.
+	 */
+	private DgOagFilterPipeline createPipeline() {
+		if (this.config.isSingleDayOfOperation()) {
+			this.expander = DgOagWeekScheduleExpander.createSingleDayExpander(TUESDAY);
 		}
-		this.ignoredDueToUTCOffsetMissing++;
-		log.warn("No UTC Offset found for airport " + originAirport + " or " + destinationAirport);
-		return false;
-	}
-
-	private boolean isCodeshareFlight(DgOagLine line) {
-		if (line.isCodeshareFlight()){
-			this.ignoredCodeshareFlights++;
-			return true;
-		}
-		return false;
-	}
-
-	private boolean isBusOrTrainFlight(DgOagLine line) {
-		String aircraftType = line.getAircraftType();
-		if (aircraftType.equalsIgnoreCase("BUS") // filter busses
-				|| aircraftType.equalsIgnoreCase("RFS") // filter bus/train
-				|| aircraftType.equalsIgnoreCase("TRN")) { // filter trains
-			this.ignoredBusOrTrainFlights ++;
-			return true;
-		}
-		return false;
-	}
-
-	private boolean hasOtherBadData(DgOagLine line) {
-		// && seatsAvail > 0 // filter for flights with 1 PAX or more only
-		// && !originAirport.equalsIgnoreCase(destinationAirport)
-		// && (stops < 1) && (duration > 0.) && (fullRouting.length() <= 6)) {
-		if (line.getSeatsAvailable() <= 0
-				|| line.getOriginAirport().equalsIgnoreCase(line.getDestinationAirport())
-				|| line.getStops() > 1 || line.getFlightDurationSeconds() <= 0.0
-				|| line.getFullRouting().length() > 6) {
-			this.ignoredDueToBadData++;
-			return true;
+		else {
+			this.expander = DgOagWeekScheduleExpander.createWeekExpander();
 		}
-		return false;
-	}
-
-	private boolean isAiportFilterApplying(String originAirport, String destinationAirport) {
-		if ((DgCreateSfFlightScenario.filter.containsKey(destinationAirport) && DgCreateSfFlightScenario.filter
-				.get(destinationAirport).equals(DgCreateSfFlightScenario.Direction.INBOUND))
-				|| (DgCreateSfFlightScenario.filter.containsKey(originAirport) && DgCreateSfFlightScenario.filter
-						.get(originAirport).equals(DgCreateSfFlightScenario.Direction.OUTBOUND))
-				|| (DgCreateSfFlightScenario.filter.containsKey(originAirport) && DgCreateSfFlightScenario.filter
-						.get(originAirport).equals(DgCreateSfFlightScenario.Direction.BOTH))
-				|| (DgCreateSfFlightScenario.filter.containsKey(destinationAirport) && DgCreateSfFlightScenario.filter
-						.get(destinationAirport).equals(DgCreateSfFlightScenario.Direction.BOTH))) {
-			return true;
+		DgOagFilterPipeline p = new DgOagFilterPipeline(new DgOagRowConsumer() {
+			@Override
+			public void consume(OagFlightTable table, int row) {
+				acceptRow(table, row);
+			}
+		});
+		this.countryStage = new DgCountryFilterStage(this.countryFilter);
+		p.addStage(this.countryStage);
+		this.codeshareStage = new DgCodeshareFilterStage();
+		p.addStage(this.codeshareStage);
+		this.busOrTrainStage = new DgBusOrTrainFilterStage();
+		p.addStage(this.busOrTrainStage);
+		this.duplicateStage = new DgDuplicateFlightFilterStage();
+		p.addStage(this.duplicateStage);
+		this.airportFilterStage = null;
+		if (this.config.isApplyAirportFilter()) {
+			this.airportFilterStage = new DgAirportFilterStage(this.config.getAirportFilter());
+			p.addStage(this.airportFilterStage);
 		}
-		return false;
+		this.coordinatesStage = new DgAirportCoordinatesFilterStage(this.availableAirportCoordinates);
+		p.addNonTerminatingStage(this.coordinatesStage);
+		this.utcOffsetStage = new DgUtcOffsetFilterStage(this.utcOffset);
+		p.addNonTerminatingStage(this.utcOffsetStage);
+		this.badDataStage = new DgBadDataFilterStage();
+		p.addNonTerminatingStage(this.badDataStage);
+		return p;
 	}
 	
 	private double calculateFlightDurationWithStar(String destinationAirport, double duration){
-		// desired values for STARs can be defined in DgCreateFlightScenario, otherwise default values will be
+		// desired values for STARs can be defined in the config, otherwise default values will be
 		// used
-		if (DgCreateSfFlightScenario.STARoffset.containsKey(destinationAirport)) {
-			duration = duration - (DgCreateSfFlightScenario.STARoffset.get(destinationAirport));
-		}
-		else {
-			duration = duration - DgCreateSfFlightScenario.STARoffset.get("default");
-		}
-		return duration;
+		return duration - this.config.getStarDuration(destinationAirport);
 	}
 	
-	private double calculateFlightDuration(DgOagLine l, String route){
-		double duration = l.getFlightDurationSeconds();
+	private double calculateFlightDuration(OagFlightTable table, int row, String route){
+		double duration = table.getFlightDurationSeconds(row);
 		if (duration > 24.0 * 3600) {
-			log.warn("Flight " + l.getFlightNumber() + " has a duration of " + Time.writeTime(duration)
+			log.warn("Flight " + table.getFlightNumber(row) + " has a duration of " + Time.writeTime(duration)
 					+ " hh:mm:ss that is considered as not realistic, substracting 24 h...");
 			duration -= (24.0 * 3600.0);
 		}
 
-		if (DgCreateSfFlightScenario.doCreateStars) {
-			duration = this.calculateFlightDurationWithStar(l.getDestinationAirport(), duration);
+		if (this.config.isCreateStars()) {
+			duration = this.calculateFlightDurationWithStar(table.getDestinationAirport(row), duration);
 		}
 
 		if (! this.routeDurationMap.containsKey(route)) {
@@ -270,136 +318,101 @@ public class SfAirScheduleBuilder {
 		return duration;
 	}
 	
-	private void writeFlightsToFile(DgOagFlightsData flightsData, String oagFlightsOutputFilename) throws Exception {
-		BufferedWriter bwOag = new BufferedWriter(new FileWriter(new File(oagFlightsOutputFilename)));
-		for (DgOagFlight flight : flightsData.getFlightDesignatorFlightMap().values()){
-			this.writeFlight(flight, bwOag);
+	private void writeFlightsToFile(DgOagFlightsData flightsData, String oagFlightsOutputFilename, String outputDirectory) throws Exception {
+		DgOagFlightsFile flightsFile = DgOagFlightsFile.create(flightsData);
+		flightsFile.write(oagFlightsOutputFilename);
+		if (this.config.isWriteOagFlightsText()) {
+			flightsFile.writeText(outputDirectory + OAG_FLIGHTS_TEXT_OUTPUT_FILENAME);
 		}
-		bwOag.flush();
-		bwOag.close();
-
 	}
 
-	private DgOagFlightsData filter(List<DgOagLine> oagLines, String outputDirectory,
-			String oagFlightsOutputFilename) throws Exception {
-		DgOagFlightsData data = new DgOagFlightsData();
-
-		for (DgOagLine l : oagLines) {
-			boolean skipLine = false;
-			if (!isCountryOfInterest(l.getOriginCountry(), l.getDestinationCountry())) {
-				continue;
-//				skipLine = true;
-			}
-			if (isCodeshareFlight(l)) {
-//				skipLine = true;
-				continue;
-			}
-			if (isBusOrTrainFlight(l)) {
-//				skipLine = true;
-				continue;
-			}
-			String flightDesignator = l.getCarrier() + l.getFlightNumber();
-			if (data.getFlightDesignatorFlightMap().containsKey(flightDesignator)) {
-				log.warn("Flight already exists: " + flightDesignator);
-				this.ignoredDueDuplicatedEntry++;
-//				skipLine = true;
-				continue;
-			}
-
-			if (DgCreateSfFlightScenario.doApplyAirportFilter) {
-				if (! isAiportFilterApplying(l.getOriginAirport(), l.getDestinationAirport())) {
-					this.ignoredDueAirportFilter++;
-//					skipLine = true;
-					continue;
-				}
-			}
-			//the filters below are relevant for detection of data accuracy for data that is not provided by oag
-			//--> skipLine instead of continue
-			if (! airportCoordinatesAvailable(l.getOriginAirport(), l.getDestinationAirport(),
-					availableAirportCoordinates)) {
-				skipLine = true;
-			}
-			if (!isUTCOffsetAvailable(l.getOriginAirport(), l.getDestinationAirport())) {
-				skipLine = true;
-			}
-			if (hasOtherBadData(l)) {
-				skipLine = true;
-			}
-			if (skipLine){
-				continue;
-			}
-			
+	/**
+	 * Collects the accepted rows of the table that is currently processed by the pipeline, the departures
+	 * are created for all of them when the table is done.
+	 */
+	private void acceptRow(OagFlightTable table, int row) {
+		String originAirport = table.getOriginAirport(row);
+		String destinationAirport = table.getDestinationAirport(row);
+		String route = this.codes.getRouteCode(originAirport, destinationAirport);
+		// log.debug("route:  " + route);
+		double duration = this.calculateFlightDuration(table, row, route);
+
+		this.cityPairDistance.put(route, this.getCityPairDistanceKm(originAirport, destinationAirport, table.getFlightDistanceKm(row)));
+		if ((table.getFlightDistanceKm(row) * 1000 / duration) <= 40.) {
+			log.debug("too low speed :" + table.getCarrier(row) + table.getFlightNumber(row));
+		}
 
-			String route = l.getOriginAirport() + "_" + l.getDestinationAirport();
-			// log.debug("route:  " + route);
-			double departureInSec = l.getDepartureTimeSeconds();
-			double utcOffset = this.utcOffset.get(l.getOriginAirport());
-			departureInSec = departureInSec - utcOffset;
-			if (departureInSec < 0) {
-				departureInSec += (24.0 * 3600.0); // shifting flights with departure on previous day in UTC time +24 hours
-			}
+		int operatingDays = this.expander.getOperatingDays(table, row);
+		if (operatingDays == 0) {
+			return;
+		}
+		this.duplicateStage.addFlight(table, row, operatingDays);
+		if (this.acceptedRowCount == this.acceptedRows.length) {
+			int length = this.acceptedRowCount * 2;
+			this.acceptedRows = Arrays.copyOf(this.acceptedRows, length);
+			this.acceptedUtcOffsets = Arrays.copyOf(this.acceptedUtcOffsets, length);
+			this.acceptedDurations = Arrays.copyOf(this.acceptedDurations, length);
+		}
+		this.acceptedRows[this.acceptedRowCount] = row;
+		this.acceptedUtcOffsets[this.acceptedRowCount] = DgOagWeekScheduleExpander.getUtcOffsetSeconds(this.utcOffset.get(originAirport));
+		this.acceptedDurations[this.acceptedRowCount] = duration;
+		this.acceptedRowCount++;
+		this.airportsInModel.put(originAirport, availableAirportCoordinates.get(originAirport));
+		this.airportsInModel.put(destinationAirport, 	availableAirportCoordinates.get(destinationAirport));
+	}
 
-			
-			double duration = this.calculateFlightDuration(l, route);
+	/**
+	 * @return the great circle distance of the airports, the OAG distance if one of them has no coordinates
+	 */
+	private double getCityPairDistanceKm(String originAirport, String destinationAirport, double oagDistanceKm) {
+		double distance = this.cityPairGeometry.getDistanceKm(originAirport, destinationAirport);
+		if (Double.isNaN(distance)) {
+			return oagDistanceKm;
+		}
+		return distance;
+	}
 
-			this.cityPairDistance.put(route, l.getFlightDistanceKm());
-			if ((l.getFlightDistanceKm() * 1000 / duration) <= 40.) {
-				log.debug("too low speed :" + flightDesignator);
-			}
+		private void processTable(DgOagFlightsData data, OagFlightTable table) {
+		this.acceptedRowCount = 0;
+		this.pipeline.process(table);
+		this.addDepartures(data, table);
+	}
 
-			// used to generate Tuesday flights only, for other days change the daysOfOperation filter below to desired
-			// day
-			DgOagFlight dgOagFlight = null;
-			if (DgCreateDgFlightScenario.useSingleDayOfOperation) {
-				if (this.operatesTuesdays(l.getDaysOfOperation())){
-					dgOagFlight = this.createFlight(flightDesignator, departureInSec, duration, route, l);
-					data.addFlight(dgOagFlight);
-					this.airportsInModel.put(l.getOriginAirport(), availableAirportCoordinates.get(l.getOriginAirport()));
-					this.airportsInModel.put(l.getDestinationAirport(), 	availableAirportCoordinates.get(l.getDestinationAirport()));
-				}
-			}
-			// used to generate air traffic of an entire week with departures being shifted 24 hours for each day
-			else {
-				char[] opsDays = l.getDaysOfOperation();
-				for (int dayCount = 0; dayCount <= opsDays.length; dayCount++) {
-					flightDesignator = flightDesignator + "_" + opsDays[dayCount];
-					int opsDay = Integer.parseInt(String.valueOf(opsDays[dayCount]));
-					departureInSec = (departureInSec + opsDay * 24 * 3600.) - 24 * 3600.0;
-					
-					dgOagFlight = this.createFlight(flightDesignator, departureInSec, duration, route, l);
-					data.addFlight(dgOagFlight);
-					this.airportsInModel.put(l.getOriginAirport(), availableAirportCoordinates.get(l.getOriginAirport()));
-					this.airportsInModel.put(l.getDestinationAirport(), 	availableAirportCoordinates.get(l.getDestinationAirport()));
-	
-				}
+	/**
+	 * Creates a flight for each departure of the accepted rows of the table. Only Tuesday flights are created if
+	 * a single day of operation is used, otherwise the entire week with departures being shifted 24 hours for each day
+	 * and the day of operation appended to the flight designator.
+	 */
+	private void addDepartures(DgOagFlightsData data, OagFlightTable table) {
+		DgOagDepartures departures = this.expander.expand(table, this.acceptedRows, this.acceptedUtcOffsets, this.acceptedRowCount);
+		int acceptedRow = -1;
+		int previousRow = -1;
+		for (int i = 0; i < departures.size(); i++) {
+			int row = departures.getRow(i);
+			if (row != previousRow) {
+				acceptedRow++;
+				previousRow = row;
 			}
+			String flightDesignator = this.expander.getFlightDesignator(table.getCarrier(row) + table.getFlightNumber(row), departures.getDay(i));
+			String route = this.codes.getRouteCode(table.getOriginAirport(row), table.getDestinationAirport(row));
+			DgOagFlight dgOagFlight = this.createFlight(flightDesignator, departures.getDepartureSeconds(i),
+					this.acceptedDurations[acceptedRow], route, table, row);
+			data.addFlight(dgOagFlight);
 		}
-		return data;
+		this.acceptedRowCount = 0;
 	}
 	
-	private void writeFlight(DgOagFlight dgOagFlight, BufferedWriter bwOag) throws Exception{
-		bwOag.write(dgOagFlight.getRoute() + "\t" + // TransitRoute
-				dgOagFlight.getRoute() + "_" + dgOagFlight.getCarrier() + "\t" + // TransitLine
-				dgOagFlight.getFlightDesignator() + "\t" + // vehicleId
-				dgOagFlight.getDepartureTime() + "\t" + // departure time in seconds
-				dgOagFlight.getScheduledDuration() + "\t" + // journey time in seconds
-				 dgOagFlight.getAircraftType() + "\t" + // aircraft type
-				 dgOagFlight.getSeatsAvailable() + "\t" + // seats avail
-				 dgOagFlight.getDistanceKm()); // distance in km
-		bwOag.newLine();
-	}
-	
-	private DgOagFlight createFlight(String flightDesignator, double departureInSec, double duration, String route, DgOagLine l){
+	private DgOagFlight createFlight(String flightDesignator, double departureInSec, double duration, String route, OagFlightTable table, int row){
 		DgOagFlight dgf = new DgOagFlight(flightDesignator);
-		dgf.setAircraftType( l.getAircraftType());
-		dgf.setCarrier(l.getCarrier());
+		dgf.setAircraftType( table.getAircraftType(row));
+		dgf.setCarrier(table.getCarrier(row));
 		dgf.setDepartureTime(departureInSec);
 		dgf.setDuration(duration);
-		dgf.setSeatsAvailable( l.getSeatsAvailable());
+		dgf.setSeatsAvailable( table.getSeatsAvailable(row));
 		dgf.setRoute(route);
-		dgf.setDistanceKm(l.getFlightDistanceKm());
-		dgf.setOriginCode(l.getOriginAirport());
-		dgf.setDestinationCode(l.getDestinationAirport());
+		dgf.setDistanceKm(table.getFlightDistanceKm(row));
+		dgf.setOriginCode(table.getOriginAirport(row));
+		dgf.setDestinationCode(table.getDestinationAirport(row));
 		return dgf;
 	}
 
@@ -416,21 +429,12 @@ public class SfAirScheduleBuilder {
 		bwcityPairs.close();
 	}
 
-	private boolean operatesTuesdays(char[] opsDays) {
-		for (Character c : opsDays) {
-			if (two == c) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	private void writeMissingAirports(String outputDirectory) throws IOException {
 		String filename = outputDirectory + MISSING_AIRPORTS;
 		BufferedWriter bw = IOUtils.getBufferedWriter(filename);
 		bw.write("Airports without coordinates");
 		bw.newLine();
-		for (String s : this.missingAirportCodes) {
+		for (String s : this.coordinatesStage.getMissingAirportCodes()) {
 			bw.write(s);
 			bw.newLine();
 		}
@@ -455,9 +459,17 @@ public class SfAirScheduleBuilder {
 		return this.airportsInModel;
 	}
 
+	/**
+	 * @return the great circle distance in km by origin_destination of all city pairs served by the flights, the length of
+	 * the links between the airports
+	 */
+	public Map<String, Double> getCityPairDistances() {
+		return this.cityPairDistance;
+	}
+
 	public static void main(String[] args) throws Exception {
 
-		SfAirScheduleBuilder builder = new SfAirScheduleBuilder();
+		SfAirScheduleBuilder builder = new SfAirScheduleBuilder(new DgFlightScenarioConfig());
 
 		String osmFile = "/home/dgrether/shared-svn/projects/throughFlightData/osm_daten/2010-12-28_aeroway_nodes.osm";
 		String oagFile = "/media/data/work/repos/"
@@ -471,7 +483,7 @@ public class SfAirScheduleBuilder {
 
 		outputDirectory = "/media/data/work/repos/"
 				+ "shared-svn/studies/countries/de/flight/sf_oag_flight_model/";
-		builder = new SfAirScheduleBuilder();
+		builder = new SfAirScheduleBuilder(new DgFlightScenarioConfig());
 		// builder.filter(osmFile, oagFile, outputDirectory, GERMAN_COUNTRIES, UTC_OFFSET_FILE);
 
 	}
@@ -19,10 +19,9 @@
  * *********************************************************************** */
 package org.matsim.air.scenario;
 
-import java.util.HashSet;
-import java.util.Set;
-
-import air.scenario.countryfilter.DgCountryFilter;
+import org.matsim.air.scenario.countryfilter.DgCountryCodes;
+import org.matsim.air.scenario.countryfilter.DgCountryFilter;
+import org.matsim.air.scenario.countryfilter.DgCountrySet;
 
 /**
  * @author dgrether
@@ -36,21 +35,24 @@ public class SfEuropeCountryFilter implements DgCountryFilter {
 			"MD", "ME", "MK", "MT", "NL", "NO", "PL", "PT", "RO", "RS", "RU", "SE", "SI", "SJ", "SK",
 			"SM", "TR", "UA", "VA" };
 
-	private Set<String> countryFilter;
+	private static final DgCountrySet countryFilter = new DgCountrySet(EURO_COUNTRIES);
 
-	public SfEuropeCountryFilter() {
-		countryFilter = new HashSet<String>();
-		for (String s : EURO_COUNTRIES) {
-			this.countryFilter.add(s.toUpperCase());
-		}
+	@Override
+	public boolean isCountryOfInterest(String originCountry, String destinationCountry) {
+		return this.isCountryOfInterest(DgCountryCodes.getId(originCountry), DgCountryCodes.getId(destinationCountry));
 	}
 
 	@Override
-	public boolean isCountryOfInterest(String originCountry, String destinationCountry) {
-		if (countryFilter.contains(originCountry) && countryFilter.contains(destinationCountry)) {
-			return true;
-		}
-		return false;
+	public boolean isCountryOfInterest(int originCountryId, int destinationCountryId) {
+		return countryFilter.contains(originCountryId) && countryFilter.contains(destinationCountryId);
+	}
+
+	/**
+	 * used as part of the key of cached flight data
+	 */
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName();
 	}
 
 }
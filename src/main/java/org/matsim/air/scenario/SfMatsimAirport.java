@@ -78,11 +78,13 @@ public class SfMatsimAirport {
 	private Link linkRunwayInbound;
 	private Coord coord;
 	private DgAirportCapacity capacityData;
+	private final DgFlightScenarioConfig config;
 
-	public SfMatsimAirport(Id<Node> id, Coord coord, DgAirportCapacity capacityData) {
+	public SfMatsimAirport(Id<Node> id, Coord coord, DgAirportCapacity capacityData, DgFlightScenarioConfig config) {
 		this.id = id;
 		this.coord = coord;
 		this.capacityData = capacityData;
+		this.config = config;
 		allowedModes = new HashSet<String>();
 		allowedModes.add("pt");
 		allowedModes.add("car");
@@ -139,10 +141,7 @@ public class SfMatsimAirport {
 		Id<Link> idStar = Id.create(this.id.toString() + "star", Link.class); // Id for STAR route
 		this.arrivalLinkIdList.add(0, idStar);
 		Link linkStarIn = null;
-		DgStarinfo starInfo = DgCreateSfFlightScenario.stars.get(this.id.toString());
-		if (starInfo == null) {
-			starInfo = DgCreateSfFlightScenario.DEFAULTSTAR;
-		}
+		DgStarinfo starInfo = this.config.getStar(this.id.toString());
 		Coord coordStar = new Coord(coordRunwayInboundStart.getX() - starInfo.getLength(),
 				coordRunwayInboundStart.getY());
 		Node nodeStar = network.getFactory().createNode(Id.create(idStar, Node.class), coordStar); // start of STAR
@@ -246,7 +245,7 @@ public class SfMatsimAirport {
 		this.createTaxiWays(network);
 		this.create2Runways(network);
 		this.createDepartureLinkIdList();
-		if (DgCreateSfFlightScenario.doCreateStars) {
+		if (this.config.isCreateStars()) {
 			this.createStar(network);
 		}
 	}
@@ -257,7 +256,54 @@ public class SfMatsimAirport {
 		this.createTaxiWays(network);
 		this.create1Runway(network);
 		this.createDepartureLinkIdList();
-		if (DgCreateSfFlightScenario.doCreateStars) {
+		if (this.config.isCreateStars()) {
+			this.createStar(network);
+		}
+	}
+
+	/**
+	 * Creates a compact airport of three links: the apron with the transit stop, one departure queue and one
+	 * arrival queue. The flow capacity of each queue is the bottleneck of the taxiway and runway it replaces, its storage
+	 * capacity is the sum of their storage capacities and its freespeed gives the same taxi time, thus the runway capacity
+	 * does not need the freespeed restriction of {@link #createTwoRunways(Network)}.
+	 */
+	public void createQueues(Network network) {
+		this.createCoordsTwoRunways();
+		this.createApron(network);
+		Id<Node> idDeparture = Id.create(this.id + "departure", Node.class);
+		Id<Node> idArrival = Id.create(this.id + "arrival", Node.class);
+		nodeRunwayOutboundEnd = network.getFactory().createNode(idDeparture, coordRunwayOutboundEnd);
+		nodeRunwayInboundStart = network.getFactory().createNode(idArrival, coordRunwayInboundStart);
+		network.addNode(nodeRunwayOutboundEnd);
+		network.addNode(nodeRunwayInboundStart);
+		double length = taxiwayLength + runwayLength;
+		// c_s = link_length * nr_lanes / 7.5 -> nr_lanes = c_s /link_length * 7.5, using c_s of taxiway and runway
+		double lanes = (taxiwayLength / 7.5 + 1.0) / length * 7.5;
+
+		linkTaxiOutbound = network.getFactory().createLink(Id.create(idDeparture, Link.class), nodeApronEnd, nodeRunwayOutboundEnd);
+		linkTaxiOutbound.setAllowedModes(allowedModes);
+		linkTaxiOutbound.setLength(length);
+		linkTaxiOutbound.setFreespeed(length / this.taxiOutboundTime);
+		linkTaxiOutbound.setCapacity(Math.min(this.capacityData.getOutboundTaxiwayFlowCapacityCarEquivPerHour(),
+				this.capacityData.getRunwayOutboundFlowCapacity_CarEquivPerHour()));
+		linkTaxiOutbound.setNumberOfLanes(lanes);
+		network.addLink(linkTaxiOutbound);
+
+		linkTaxiInbound = network.getFactory().createLink(Id.create(idArrival, Link.class), nodeRunwayInboundStart, nodeApronStart);
+		linkTaxiInbound.setAllowedModes(allowedModes);
+		linkTaxiInbound.setLength(length);
+		// the inbound taxi time includes the apron at the end of the arrival route
+		linkTaxiInbound.setFreespeed(length / (this.taxiInboundTime - taxiwayLength / taxiwayFreespeed));
+		linkTaxiInbound.setCapacity(Math.min(this.capacityData.getInboundTaxiwayFlowCapacityCarEquivPerHour(),
+				this.capacityData.getRunwayInboundFlowCapacityCarEquivPerHour()));
+		linkTaxiInbound.setNumberOfLanes(lanes);
+		network.addLink(linkTaxiInbound);
+
+		this.departureLinkIdList.add(linkTaxiOutbound.getId());
+		this.arrivalLinkIdList.add(linkTaxiInbound.getId());
+		this.incomingFlightsNodeId = nodeRunwayInboundStart.getId();
+		this.outgoingFlightsNodeId = nodeRunwayOutboundEnd.getId();
+		if (this.config.isCreateStars()) {
 			this.createStar(network);
 		}
 	}
@@ -20,21 +20,45 @@
 
 package org.matsim.air.scenario;
 
+import java.util.SortedMap;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.DgOagReader;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 
 /**
+ * Extracts the airports of an OSM file and writes their coordinates as read by {@link DgAirportsReader}. If an OAG file
+ * is given only the airports of its flights are written, the airports that are not in the OSM file are logged.
+ *
+ * Arguments: the OSM input file (*.osm or *.osm.pbf), the output file and optionally the OAG file.
  * 
  * @deprecated use DgCreateFlightScenario to create a flight scenario
  */
 @Deprecated
 public class SfOsm2Matsim {
 
-	public static void main(String[] args) {
-		SfOsmAerowayParser osmReader = new SfOsmAerowayParser(TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84,
+	private static final Logger log = Logger.getLogger(SfOsm2Matsim.class);
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("Usage: SfOsm2Matsim <osm input file> <output file> [<oag file>]");
+		}
+		String input = args[0];
+		String output = args[1];
+		DgOsmAerowayExtractor osmReader = new DgOsmAerowayExtractor(TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84,
 						TransformationFactory.WGS84));
-		String input = "Z:\\world_air.osm";				// OSM Input File
-		osmReader.parse(input);
-		osmReader.writeToFile("Z:\\world_air_16apr2012.xml");
+		SortedMap<String, Coord> airports = osmReader.extractAirports(input);
+		if (args.length > 2) {
+			SfAirportCoordGetter getter = new SfAirportCoordGetter(DgAirportReferenceIndex.createIndex(airports));
+			getter.fillAirportMap(new DgOagReader().readOagTable(args[2]));
+			if (! getter.getMissingAirports().isEmpty()) {
+				log.warn("No coordinates for the airports: " + getter.getMissingAirports());
+			}
+			airports = getter.getAirportCoordinates();
+		}
+		SfAirportCoordGetter.writeToFile(airports, output);
+		log.info("Coordinates of " + airports.size() + " airports written to " + output);
 	}
 
 }
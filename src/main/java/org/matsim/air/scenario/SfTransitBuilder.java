@@ -20,9 +20,6 @@
 
 package org.matsim.air.scenario;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -30,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.DgOagFlightsFile;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
@@ -50,7 +48,6 @@ import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
-import org.matsim.vehicles.VehicleCapacity;
 import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleUtils;
 import org.matsim.vehicles.VehicleWriterV1;
@@ -66,6 +63,12 @@ public class SfTransitBuilder {
 	
 	private static final double TAXI_TOL_TIME = SfMatsimAirport.TAXI_TOL_TIME;
 	
+	private final DgFlightScenarioConfig config;
+	
+	public SfTransitBuilder(DgFlightScenarioConfig config) {
+		this.config = config;
+	}
+	
 	private Scenario loadScenario(String inputNetworkFile){
 		Scenario scen = ScenarioUtils.createScenario(ConfigUtils.createConfig());	
 		Config config = scen.getConfig();
@@ -81,8 +84,14 @@ public class SfTransitBuilder {
 		scen.getConfig().transit().setUseTransit(true);
 		scen.getConfig().scenario().setUseVehicles(true);
 		
-		BufferedReader br = new BufferedReader(new FileReader(new File(inputOagFlights)));
-		
+		DgOagFlightsFile flights = DgOagFlightsFile.read(inputOagFlights);
+		this.createSchedule(flights, network, outputDirectory);
+	}
+	
+	/**
+	 * Creates the schedule and vehicles for the flights on a network in memory and writes them to the output directory.
+	 */
+	public void createSchedule(DgOagFlightsFile flights, Network network, String outputDirectory) {
 		TransitScheduleFactory sf = new TransitScheduleFactoryImpl();
 		TransitSchedule schedule = sf.createTransitSchedule();
 		
@@ -93,27 +102,29 @@ public class SfTransitBuilder {
 		Map<Id, NetworkRoute> netRouteMap = new HashMap<Id, NetworkRoute>();
 		Map<Id, TransitRoute> transRouteMap = new HashMap<Id, TransitRoute>();
 		
-		while (br.ready()) {
+		DgFlightVehicleTypes vehicleTypes = new DgFlightVehicleTypes(veh, this.config.getSeatBucketSize());
+		DgAircraftRotations rotations = null;
+		if (this.config.isCreateAircraftRotations()) {
+			rotations = this.createRotations(flights, network);
+		}
+		
+		for (int i = 0; i < flights.size(); i++) {
 			
-			String oneLine = br.readLine();
-			String[] lineEntries = oneLine.split("\t");
-			String[] airportCodes = lineEntries[0].split("_");
-			String origin = airportCodes[0];
-			String destination = airportCodes[1];
-			String transitRoute = lineEntries[0];
-			String transitLine = lineEntries[1];
-			double departureTime = Double.parseDouble(lineEntries[3]);
-			double duration = Double.parseDouble(lineEntries[4]);
-			double distance = 1000.0 * (Double.parseDouble(lineEntries[7])); //km to m
+			String origin = flights.getOrigin(i);
+			String destination = flights.getDestination(i);
+			String transitRoute = flights.getRoute(i);
+			String transitLine = flights.getTransitLine(i);
+			double departureTime = flights.getDepartureTime(i);
+			double duration = flights.getDuration(i);
+			double distance = getConnectionLength(network, origin, destination);
 //			double vehicleSpeed =(100*Math.round(distance/(duration-TAXI_TOL_TIME)))/100.;
 			double vehicleSpeed = distance / (duration - TAXI_TOL_TIME);
 			Id<TransitStopFacility> originId = Id.create(origin, TransitStopFacility.class);
 			Id<TransitStopFacility> destinationId = Id.create(destination, TransitStopFacility.class);
 			Id<TransitRoute> routeId = Id.create(transitRoute, TransitRoute.class);	//origin IATA code + destination IATA code
 			Id<TransitLine> transitLineId = Id.create(transitLine, TransitLine.class);		//origin IATA code + destination IATA code + airline IATA code
-			Id<Departure> flightNumber = Id.create(lineEntries[2], Departure.class);	//flight number
-			Id<VehicleType> vehTypeId = Id.create(lineEntries[5]+"_"+lineEntries[6]+"_"+flightNumber, VehicleType.class);	//IATA aircraft code + seats avail
-			int aircraftCapacity = Integer.parseInt(lineEntries[6]);
+			Id<Departure> flightNumber = Id.create(flights.getFlightDesignator(i), Departure.class);	//flight number
+			int aircraftCapacity = flights.getSeatsAvailable(i);
 			List<Id<Link>> linkList = new ArrayList<Id<Link>>();	//evtl in Map mit Route als key verpacken
 			List<TransitRouteStop> stopList = new ArrayList<TransitRouteStop>();	//evtl in Map mit Route als key verpacken
 			
@@ -135,11 +146,11 @@ public class SfTransitBuilder {
 				
 			//nur ausführen, wenn linkListMap noch keinen entsprechenden key enthält
 			
-			if (!linkListMap.containsKey(routeId) && DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS==2) {
+			if (!linkListMap.containsKey(routeId) && this.config.getNumberOfRunways()==2) {
 				linkList.add(Id.create(origin+"taxiOutbound", Link.class));
 				linkList.add(Id.create(origin+"runwayOutbound", Link.class));
 				linkList.add(Id.create(origin+destination, Link.class));
-				if (DgCreateSfFlightScenario.doCreateStars) {
+				if (this.config.isCreateStars()) {
 					linkList.add(Id.create(destination+"star", Link.class));
 				}
 				linkList.add(Id.create(destination+"runwayInbound", Link.class));
@@ -147,11 +158,11 @@ public class SfTransitBuilder {
 				linkListMap.put(routeId, linkList);
 			}
 			
-			if (!linkListMap.containsKey(routeId) && DgCreateSfFlightScenario.NUMBER_OF_RUNWAYS==1) {
+			if (!linkListMap.containsKey(routeId) && this.config.getNumberOfRunways()==1) {
 				linkList.add(Id.create(origin+"taxiOutbound", Link.class));
 				linkList.add(Id.create(origin+"runway", Link.class));
 				linkList.add(Id.create(origin+destination, Link.class));
-				if (DgCreateSfFlightScenario.doCreateStars) {
+				if (this.config.isCreateStars()) {
 					linkList.add(Id.create(destination+"star", Link.class));
 				}
 				linkList.add(Id.create(destination+"runway", Link.class));
@@ -171,7 +182,12 @@ public class SfTransitBuilder {
 			}
 						
 			Departure departure = sf.createDeparture(flightNumber, departureTime);
-			departure.setVehicleId(Id.create(flightNumber, Vehicle.class));
+			Id<Vehicle> vehicleId = Id.create(flightNumber, Vehicle.class);
+			if (rotations != null) {
+				int vehicleIndex = rotations.getVehicle(i);
+				vehicleId = Id.create(rotations.getVehicleGroup(vehicleIndex) + "_" + vehicleIndex, Vehicle.class);
+			}
+			departure.setVehicleId(vehicleId);
 			transRouteMap.get(transitLineId).addDeparture(departure);
 						
 			if (!schedule.getTransitLines().containsKey(transitLineId)) {
@@ -180,17 +196,12 @@ public class SfTransitBuilder {
 				schedule.addTransitLine(transLine);
 			}
 			
-			VehicleType type = veh.getVehicleTypes().get(vehTypeId);
-			if (type == null) {
-				type = veh.getFactory().createVehicleType(vehTypeId);
-				VehicleCapacity cap = veh.getFactory().createVehicleCapacity();
-				cap.setSeats(aircraftCapacity);
-				type.setCapacity(cap);
-				type.setMaximumVelocity(vehicleSpeed);
-				veh.addVehicleType(type); 
+			// Fahrzeugtypen nach Sitzplätzen und Geschwindigkeitsklasse zusammengefasst
+			VehicleType type = vehicleTypes.getVehicleType(aircraftCapacity, vehicleSpeed);
+			if (!veh.getVehicles().containsKey(vehicleId)) {
+				Vehicle vehicle = veh.getFactory().createVehicle(vehicleId, type); 
+				veh.addVehicle( vehicle);
 			}
-			Vehicle vehicle = veh.getFactory().createVehicle(Id.create(flightNumber, Vehicle.class), type); 
-			veh.addVehicle( vehicle);
 			
 		}
 		
@@ -202,4 +213,29 @@ public class SfTransitBuilder {
 		
 		log.info("Created transit schedule and vehicles.");
 	}
+	
+	/**
+	 * The speed of an aircraft is given by its pooled vehicle type, thus only flights of the same carrier, aircraft type,
+	 * seats and speed class can share an aircraft.
+	 */
+	private DgAircraftRotations createRotations(DgOagFlightsFile flights, Network network) {
+		DgAircraftRotations rotations = new DgAircraftRotations(this.config.getMinimumTurnaroundTime());
+		for (int i = 0; i < flights.size(); i++) {
+			double duration = flights.getDuration(i);
+			double vehicleSpeed = getConnectionLength(network, flights.getOrigin(i), flights.getDestination(i)) / (duration - TAXI_TOL_TIME);
+			String group = DgAircraftRotations.createGroup(flights.getAircraftType(i), flights.getSeatsAvailable(i), flights.getCarrier(i), vehicleSpeed);
+			rotations.addFlight(group, flights.getOrigin(i), flights.getDestination(i),
+					flights.getDepartureTime(i), flights.getDepartureTime(i) + duration);
+		}
+		rotations.assign();
+		return rotations;
+	}
+	
+	/**
+	 * @return the length of the link between the airports in m, i.e. the great circle distance of the city pair, see
+	 * {@link SfAirScheduleBuilder#getCityPairDistances()}
+	 */
+	private static double getConnectionLength(Network network, String origin, String destination) {
+		return network.getLinks().get(Id.create(origin + destination, Link.class)).getLength();
+	}
 }
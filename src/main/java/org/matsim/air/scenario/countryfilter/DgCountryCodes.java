@@ -0,0 +1,77 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCountryCodes
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.countryfilter;
+
+
+/**
+ * Dense ids of the two letter country codes of ISO 3166-1 alpha-2 as used by OAG. The id is computed from the
+ * letters of the code, thus it needs neither a hash lookup nor a dictionary that is filled while reading and the ids
+ * are the same for all tables. Codes that are not assigned by ISO but are used by some sources, e.g. UK and EL, get
+ * an id as well.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgCountryCodes {
+
+	/**
+	 * the ids are in [0, NUMBER_OF_IDS)
+	 */
+	public static final int NUMBER_OF_IDS = 26 * 26;
+
+	private DgCountryCodes() {
+	}
+
+	/**
+	 * @return the id of the code ignoring the case or -1 if the code does not consist of two letters
+	 */
+	public static int getId(String code) {
+		if (code == null || code.length() != 2) {
+			return -1;
+		}
+		int first = getLetter(code.charAt(0));
+		int second = getLetter(code.charAt(1));
+		if (first < 0 || second < 0) {
+			return -1;
+		}
+		return first * 26 + second;
+	}
+
+	/**
+	 * @return the upper case code of the id
+	 */
+	public static String getCode(int id) {
+		if (id < 0 || id >= NUMBER_OF_IDS) {
+			throw new IllegalArgumentException("No country code with id " + id);
+		}
+		return new String(new char[] {(char) ('A' + id / 26), (char) ('A' + id % 26)});
+	}
+
+	private static int getLetter(char c) {
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		}
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a';
+		}
+		return -1;
+	}
+
+}
@@ -27,5 +27,16 @@ package org.matsim.air.scenario.countryfilter;
 public interface DgCountryFilter {
 
 	public boolean isCountryOfInterest(String originCountry, String destinationCountry);
+
+	/**
+	 * Same as {@link #isCountryOfInterest(String, String)} for the ids of {@link DgCountryCodes}, called per row by the filter.
+	 * The default maps the ids back to the codes, filters that look up the ids directly should override it.
+	 * @param originCountryId the id of the code or -1 if the code has no id, then the code is an empty String
+	 */
+	public default boolean isCountryOfInterest(int originCountryId, int destinationCountryId) {
+		String originCountry = originCountryId < 0 ? "" : DgCountryCodes.getCode(originCountryId);
+		String destinationCountry = destinationCountryId < 0 ? "" : DgCountryCodes.getCode(destinationCountryId);
+		return this.isCountryOfInterest(originCountry, destinationCountry);
+	}
 	
 }
@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCountrySet
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.countryfilter;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable set of countries as bitset over the ids of {@link DgCountryCodes}.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgCountrySet {
+
+	private final long[] bits = new long[(DgCountryCodes.NUMBER_OF_IDS + 63) / 64];
+
+	/**
+	 * @param codes two letter country codes, the case is ignored
+	 */
+	public DgCountrySet(String... codes) {
+		for (String code : codes) {
+			int id = DgCountryCodes.getId(code);
+			if (id < 0) {
+				throw new IllegalArgumentException("Not a two letter country code: " + code);
+			}
+			this.bits[id >>> 6] |= 1L << id;
+		}
+	}
+
+	/**
+	 * @param countryId an id of {@link DgCountryCodes} or -1
+	 */
+	public boolean contains(int countryId) {
+		return countryId >= 0 && (this.bits[countryId >>> 6] & (1L << countryId)) != 0;
+	}
+
+	public boolean contains(String code) {
+		return this.contains(DgCountryCodes.getId(code));
+	}
+
+	public int size() {
+		int size = 0;
+		for (long word : this.bits) {
+			size += Long.bitCount(word);
+		}
+		return size;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof DgCountrySet && Arrays.equals(this.bits, ((DgCountrySet) o).bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.bits);
+	}
+
+	/**
+	 * @return the codes in the order of their ids
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int id = 0; id < DgCountryCodes.NUMBER_OF_IDS; id++) {
+			if (this.contains(id)) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(DgCountryCodes.getCode(id));
+			}
+		}
+		return sb.append("]").toString();
+	}
+
+}
@@ -19,9 +19,6 @@
  * *********************************************************************** */
 package org.matsim.air.scenario.countryfilter;
 
-import java.util.HashSet;
-import java.util.Set;
-
 
 /**
  * @author dgrether
@@ -66,26 +63,35 @@ public class DgEuropeCountryFilter implements DgCountryFilter {
 		"TR"
 	}; 
 	
-	private Set<String> countryFilter;
+	private static final DgCountrySet countryFilter = new DgCountrySet(EURO_COUNTRIES);
 
 	private boolean doAndFilter = false;
 	
 	public DgEuropeCountryFilter(boolean doAndfilter) {
 		this.doAndFilter  = doAndfilter;
-		countryFilter = new HashSet<String>();
-		for (String s : EURO_COUNTRIES){
-			this.countryFilter.add(s.toUpperCase());
-		}
 	}
 
 	@Override
 	public boolean isCountryOfInterest(String originCountry, String destinationCountry) {
+		return this.isCountryOfInterest(DgCountryCodes.getId(originCountry), DgCountryCodes.getId(destinationCountry));
+	}
+
+	@Override
+	public boolean isCountryOfInterest(int originCountryId, int destinationCountryId) {
 		if (doAndFilter){
-			return countryFilter.contains(originCountry) && countryFilter.contains(destinationCountry);
+			return countryFilter.contains(originCountryId) && countryFilter.contains(destinationCountryId);
 		}
 		else {
-			return countryFilter.contains(originCountry) || countryFilter.contains(destinationCountry);
+			return countryFilter.contains(originCountryId) || countryFilter.contains(destinationCountryId);
 		}
 	}
 
+	/**
+	 * used as part of the key of cached flight data
+	 */
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[doAndFilter=" + this.doAndFilter + "]";
+	}
+
 }
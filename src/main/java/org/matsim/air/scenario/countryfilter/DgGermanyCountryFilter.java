@@ -26,7 +26,7 @@ package org.matsim.air.scenario.countryfilter;
  */
 public class DgGermanyCountryFilter implements DgCountryFilter{
 
-	private static final String de = "DE";
+	private static final int de = DgCountryCodes.getId("DE");
 	
 	private boolean doAndFilter = false;
 	
@@ -36,12 +36,25 @@ public class DgGermanyCountryFilter implements DgCountryFilter{
 
 	@Override
 	public boolean isCountryOfInterest(String originCountry, String destinationCountry) {
+		return this.isCountryOfInterest(DgCountryCodes.getId(originCountry), DgCountryCodes.getId(destinationCountry));
+	}
+
+	@Override
+	public boolean isCountryOfInterest(int originCountryId, int destinationCountryId) {
 		if (doAndFilter){
-			return de.equalsIgnoreCase(originCountry) && de.equalsIgnoreCase(destinationCountry);
+			return de == originCountryId && de == destinationCountryId;
 		}
 		else {
-			return de.equalsIgnoreCase(originCountry) || de.equalsIgnoreCase(destinationCountry);
+			return de == originCountryId || de == destinationCountryId;
 		}
 	}
 
+	/**
+	 * used as part of the key of cached flight data
+	 */
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[doAndFilter=" + this.doAndFilter + "]";
+	}
+
 }
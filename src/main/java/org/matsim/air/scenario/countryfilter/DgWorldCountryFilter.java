@@ -31,4 +31,17 @@ public class DgWorldCountryFilter implements DgCountryFilter {
 		return true;
 	}
 
+	@Override
+	public boolean isCountryOfInterest(int originCountryId, int destinationCountryId) {
+		return true;
+	}
+
+	/**
+	 * used as part of the key of cached flight data
+	 */
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName();
+	}
+
 }
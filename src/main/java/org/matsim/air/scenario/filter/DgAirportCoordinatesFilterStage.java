@@ -0,0 +1,75 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirportCoordinatesFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.OagFlightTable;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Removes flights from or to airports without coordinates, the codes of these airports are collected.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAirportCoordinatesFilterStage implements DgOagFilterStage {
+
+	private static final Logger log = Logger.getLogger(DgAirportCoordinatesFilterStage.class);
+
+	private final Map<String, Coord> availableAirportCoordinates;
+
+	private final Set<String> missingAirportCodes = new HashSet<String>();
+
+	public DgAirportCoordinatesFilterStage(Map<String, Coord> availableAirportCoordinates) {
+		this.availableAirportCoordinates = availableAirportCoordinates;
+	}
+
+	@Override
+	public String getName() {
+		return "airport coordinates";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		String originAirport = table.getOriginAirport(row);
+		if (!this.availableAirportCoordinates.containsKey(originAirport)) {
+			log.warn("No coordinates for Airport: " + originAirport);
+			this.missingAirportCodes.add(originAirport);
+			return false;
+		}
+		String destinationAirport = table.getDestinationAirport(row);
+		if (!this.availableAirportCoordinates.containsKey(destinationAirport)) {
+			log.warn("No coordinates for Airport: " + destinationAirport);
+			this.missingAirportCodes.add(destinationAirport);
+			return false;
+		}
+		return true;
+	}
+
+	public Set<String> getMissingAirportCodes() {
+		return this.missingAirportCodes;
+	}
+
+}
@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirportFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import java.util.Map;
+
+import org.matsim.air.scenario.DgCreateSfFlightScenario.Direction;
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Keeps only the flights of the given airports in the given direction.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAirportFilterStage implements DgOagFilterStage {
+
+	private final Map<String, Direction> airportFilter;
+
+	public DgAirportFilterStage(Map<String, Direction> airportFilter) {
+		this.airportFilter = airportFilter;
+	}
+
+	@Override
+	public String getName() {
+		return "airport filter";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		Direction origin = this.airportFilter.get(table.getOriginAirport(row));
+		Direction destination = this.airportFilter.get(table.getDestinationAirport(row));
+		return Direction.INBOUND.equals(destination) || Direction.OUTBOUND.equals(origin)
+				|| Direction.BOTH.equals(origin) || Direction.BOTH.equals(destination);
+	}
+
+}
@@ -0,0 +1,47 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgBadDataFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Removes flights without seats, with the same origin and destination, with more than one stop,
+ * without duration or with a routing over more than two airports.
+ *
+ * @author dgrether
+ *
+ */
+public class DgBadDataFilterStage implements DgOagFilterStage {
+
+	@Override
+	public String getName() {
+		return "bad data";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		return ! (table.getSeatsAvailable(row) <= 0
+				|| table.getOriginAirport(row).equalsIgnoreCase(table.getDestinationAirport(row))
+				|| table.getStops(row) > 1 || table.getFlightDurationSeconds(row) <= 0
+				|| table.getFullRoutingLength(row) > 6);
+	}
+
+}
@@ -0,0 +1,46 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgBusOrTrainFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Removes bus and train services that are published as flights.
+ *
+ * @author dgrether
+ *
+ */
+public class DgBusOrTrainFilterStage implements DgOagFilterStage {
+
+	@Override
+	public String getName() {
+		return "bus or train";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		String aircraftType = table.getAircraftType(row);
+		return ! (aircraftType.equalsIgnoreCase("BUS") // filter busses
+				|| aircraftType.equalsIgnoreCase("RFS") // filter bus/train
+				|| aircraftType.equalsIgnoreCase("TRN")); // filter trains
+	}
+
+}
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCodeshareFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Removes codeshare flights, only the operating flight is kept.
+ *
+ * @author dgrether
+ *
+ */
+public class DgCodeshareFilterStage implements DgOagFilterStage {
+
+	@Override
+	public String getName() {
+		return "codeshare";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		return ! table.isCodeshareFlight(row);
+	}
+
+}
@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCountryFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import org.matsim.air.scenario.countryfilter.DgCountryCodes;
+import org.matsim.air.scenario.countryfilter.DgCountryFilter;
+import org.matsim.air.scenario.oag.OagFlightTable;
+import org.matsim.air.scenario.oag.OagFlightTable.CodeIndex;
+
+
+/**
+ * Keeps flights between the countries of interest of a {@link DgCountryFilter}. The country ids of a table are mapped
+ * once per table to the ids of {@link DgCountryCodes}, thus a row is checked without any string comparison.
+ *
+ * @author dgrether
+ *
+ */
+public class DgCountryFilterStage implements DgOagFilterStage {
+
+	private final DgCountryFilter countryFilter;
+
+	private CodeIndex countryCodes = null;
+
+	/**
+	 * the ids of {@link DgCountryCodes} by the country ids of the current table
+	 */
+	private int[] countryIds = new int[0];
+
+	public DgCountryFilterStage(DgCountryFilter countryFilter) {
+		this.countryFilter = countryFilter;
+	}
+
+	@Override
+	public String getName() {
+		return "country filter";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		CodeIndex codes = table.getCountryCodes();
+		if (codes != this.countryCodes || codes.size() != this.countryIds.length) {
+			this.mapCountryIds(codes);
+		}
+		return this.countryFilter.isCountryOfInterest(this.countryIds[table.getOriginCountryId(row)],
+				this.countryIds[table.getDestinationCountryId(row)]);
+	}
+
+	private void mapCountryIds(CodeIndex codes) {
+		this.countryCodes = codes;
+		this.countryIds = new int[codes.size()];
+		for (int id = 0; id < this.countryIds.length; id++) {
+			this.countryIds[id] = DgCountryCodes.getId(codes.getCode(id));
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgDuplicateFlightFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Removes a flight if a flight with the same designator is already in the output data on one of its days
+ * of operation, i.e. the first flight of a designator and day that passes all stages wins. The flights are
+ * registered by the consumer of the pipeline.
+ *
+ * @author dgrether
+ *
+ */
+public class DgDuplicateFlightFilterStage implements DgOagFilterStage {
+
+	private static final Logger log = Logger.getLogger(DgDuplicateFlightFilterStage.class);
+
+	private final Map<String, Integer> designatorDaysOfOperation = new HashMap<String, Integer>();
+
+	/**
+	 * @param daysOfOperation the days the flight is used in the output, see {@link OagFlightTable#getDaysOfOperationMask(int)}
+	 */
+	public void addFlight(OagFlightTable table, int row, int daysOfOperation) {
+		String flightDesignator = table.getCarrier(row) + table.getFlightNumber(row);
+		Integer days = this.designatorDaysOfOperation.get(flightDesignator);
+		if (days != null) {
+			daysOfOperation |= days;
+		}
+		this.designatorDaysOfOperation.put(flightDesignator, daysOfOperation);
+	}
+
+	@Override
+	public String getName() {
+		return "duplicate flight designator";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		String flightDesignator = table.getCarrier(row) + table.getFlightNumber(row);
+		Integer days = this.designatorDaysOfOperation.get(flightDesignator);
+		if (days != null && (days & table.getDaysOfOperationMask(row)) != 0) {
+			log.warn("Flight already exists: " + flightDesignator);
+			return false;
+		}
+		return true;
+	}
+
+}
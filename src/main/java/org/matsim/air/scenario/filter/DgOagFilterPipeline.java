@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagFilterPipeline
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Passes the rows of OAG tables through a chain of filter stages, the rows that are accepted by all stages are
+ * handed to the consumer. The tables are processed in the order they are given to the pipeline, thus
+ * the pipeline can be fed with the chunks of a file while it is still read, without keeping all rows in memory.
+ *
+ * A stage can be added as a check that does not stop the evaluation: a row rejected by such a stage is still
+ * offered to the following stages, but never to the consumer. This is used to count data errors
+ * of all kinds for the same row.
+ *
+ * For each stage the number of rows seen and rejected and the time spent is recorded.
+ *
+ * @author dgrether
+ *
+ */
+public class DgOagFilterPipeline implements Consumer<OagFlightTable> {
+
+	private static final Logger log = Logger.getLogger(DgOagFilterPipeline.class);
+
+	private final DgOagRowConsumer consumer;
+
+	private final List<Stage> stages = new ArrayList<Stage>();
+
+	private long rows = 0;
+
+	private long acceptedRows = 0;
+
+	public DgOagFilterPipeline(DgOagRowConsumer consumer) {
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Rows rejected by the stage are not seen by any following stage.
+	 */
+	public void addStage(DgOagFilterStage stage) {
+		this.stages.add(new Stage(stage, false));
+	}
+
+	/**
+	 * Rows rejected by the stage are still seen by the following stages but not by the consumer.
+	 */
+	public void addNonTerminatingStage(DgOagFilterStage stage) {
+		this.stages.add(new Stage(stage, true));
+	}
+
+	@Override
+	public void accept(OagFlightTable table) {
+		this.process(table);
+	}
+
+	public void process(OagFlightTable table) {
+		for (int row = 0; row < table.size(); row++){
+			this.rows++;
+			boolean accepted = true;
+			for (Stage s : this.stages) {
+				if (! (accepted || s.nonTerminating)) {
+					break;
+				}
+				s.rows++;
+				long start = System.nanoTime();
+				boolean stageAccepted = s.stage.accept(table, row);
+				s.nanos += System.nanoTime() - start;
+				if (! stageAccepted) {
+					s.rejectedRows++;
+					accepted = false;
+					if (! s.nonTerminating) {
+						break;
+					}
+				}
+			}
+			if (accepted) {
+				this.acceptedRows++;
+				this.consumer.consume(table, row);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of rows the stage rejected
+	 */
+	public long getRejectedRows(DgOagFilterStage stage) {
+		for (Stage s : this.stages) {
+			if (s.stage == stage) {
+				return s.rejectedRows;
+			}
+		}
+		return 0;
+	}
+
+	public long getRows() {
+		return this.rows;
+	}
+
+	public long getAcceptedRows() {
+		return this.acceptedRows;
+	}
+
+	public long getRejectedRows() {
+		return this.rows - this.acceptedRows;
+	}
+
+	public void logStatistics() {
+		log.info("Filtered " + this.rows + " rows, " + this.acceptedRows + " rows accepted.");
+		for (Stage s : this.stages) {
+			log.info("  Stage " + s.stage.getName() + ": rows " + s.rows + " rejected " + s.rejectedRows
+					+ " time " + (s.nanos / 1000000) + " ms");
+		}
+	}
+
+	private static final class Stage {
+
+		private final DgOagFilterStage stage;
+		private final boolean nonTerminating;
+		private long rows = 0;
+		private long rejectedRows = 0;
+		private long nanos = 0;
+
+		Stage(DgOagFilterStage stage, boolean nonTerminating){
+			this.stage = stage;
+			this.nonTerminating = nonTerminating;
+		}
+	}
+
+}
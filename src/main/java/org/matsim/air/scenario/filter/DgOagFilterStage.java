@@ -0,0 +1,40 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * One check of the {@link DgOagFilterPipeline}.
+ *
+ * @author dgrether
+ *
+ */
+public interface DgOagFilterStage {
+
+	public String getName();
+
+	/**
+	 * @return true if the row shall be kept
+	 */
+	public boolean accept(OagFlightTable table, int row);
+
+}
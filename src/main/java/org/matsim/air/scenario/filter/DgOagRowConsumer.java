@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagRowConsumer
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Receives the rows that passed all stages of a {@link DgOagFilterPipeline}.
+ *
+ * If the pipeline is fed with the chunks of a streamed read, see
+ * {@link org.matsim.air.scenario.oag.DgOagReader#readOagTable(String, java.util.function.Consumer)}, each chunk is
+ * a table of its own with its own code ids: the same airport, carrier or country code may have another id in the next
+ * table, and one id may stand for different codes. Thus a consumer must not compare or keep ids of rows of different
+ * tables, it has to use the codes, e.g. {@link OagFlightTable#getOriginAirport(int)}, or map the ids of each table on
+ * its own.
+ *
+ * @author dgrether
+ *
+ */
+public interface DgOagRowConsumer {
+
+	public void consume(OagFlightTable table, int row);
+
+}
@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgUtcOffsetFilterStage
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.filter;
+
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.OagFlightTable;
+
+
+/**
+ * Removes flights from or to airports without utc offset.
+ *
+ * @author dgrether
+ *
+ */
+public class DgUtcOffsetFilterStage implements DgOagFilterStage {
+
+	private static final Logger log = Logger.getLogger(DgUtcOffsetFilterStage.class);
+
+	private final Map<String, Double> utcOffsets;
+
+	public DgUtcOffsetFilterStage(Map<String, Double> utcOffsets) {
+		this.utcOffsets = utcOffsets;
+	}
+
+	@Override
+	public String getName() {
+		return "utc offset";
+	}
+
+	@Override
+	public boolean accept(OagFlightTable table, int row) {
+		String originAirport = table.getOriginAirport(row);
+		String destinationAirport = table.getDestinationAirport(row);
+		if (this.utcOffsets.containsKey(originAirport) && this.utcOffsets.containsKey(destinationAirport)) {
+			return true;
+		}
+		log.warn("No UTC Offset found for airport " + originAirport + " or " + destinationAirport);
+		return false;
+	}
+
+}
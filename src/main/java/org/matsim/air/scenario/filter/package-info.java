@@ -0,0 +1,26 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * package-info
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+/**
+ * Filter stages that select the OAG lines that become flights of the model. The rows
+ * of the OAG data are passed through a {@link org.matsim.air.scenario.filter.DgOagFilterPipeline}.
+ * @author dgrether
+ *
+ */
+package org.matsim.air.scenario.filter;
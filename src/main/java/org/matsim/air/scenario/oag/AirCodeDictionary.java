@@ -0,0 +1,324 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AirCodeDictionary
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.util.Arrays;
+
+import org.matsim.air.scenario.oag.OagFlightTable.CodeIndex;
+
+
+/**
+ * Dense int ids for the IATA airport, carrier and aircraft codes and the flight designators of an air
+ * scenario. City pairs are addressed by a long key that packs the ids of origin and destination airport.
+ *
+ * The dictionary also creates the composed keys that are used as ids in the network, the transit schedule
+ * and the analysis, i.e. origin_destination for routes, origin_destination_carrier for transit lines and
+ * origin_destination_designator for flight links and transit routes. Each of them is created only once
+ * and then looked up by ids, thus the same String instance is returned for the same key.
+ *
+ * The dictionary is not thread safe. The builders and handlers of one scenario share its dictionary, see
+ * {@link org.matsim.air.scenario.DgFlightScenarioData#getCodeDictionary()}, scenarios that are built concurrently
+ * must each have their own dictionary. The ids of different dictionaries must not be mixed.
+ *
+ * @author dgrether
+ *
+ */
+public final class AirCodeDictionary {
+
+	private final CodeIndex airports = new CodeIndex();
+	private final CodeIndex carriers = new CodeIndex();
+	private final CodeIndex aircraftTypes = new CodeIndex();
+	private final CodeIndex flightDesignators = new CodeIndex();
+
+	private final LongIntMap cityPairs = new LongIntMap();
+	private String[] cityPairCodes = new String[256];
+	private long[] cityPairKeys = new long[256];
+
+	private final LongStringMap lineCodes = new LongStringMap();
+
+	private String[] flightCodes = new String[1024];
+	private int[] flightCodeCityPairs = new int[1024];
+
+	public static long createCityPairKey(int originAirportId, int destinationAirportId) {
+		return ((long) originAirportId << 32) | (destinationAirportId & 0xffffffffL);
+	}
+
+	public static int getOriginAirportId(long cityPairKey) {
+		return (int) (cityPairKey >>> 32);
+	}
+
+	public static int getDestinationAirportId(long cityPairKey) {
+		return (int) cityPairKey;
+	}
+
+	public int getAirportId(String code) {
+		return this.airports.getId(code);
+	}
+
+	public String getAirportCode(int id) {
+		return this.airports.getCode(id);
+	}
+
+	public int getCarrierId(String code) {
+		return this.carriers.getId(code);
+	}
+
+	public String getCarrierCode(int id) {
+		return this.carriers.getCode(id);
+	}
+
+	public int getAircraftTypeId(String code) {
+		return this.aircraftTypes.getId(code);
+	}
+
+	public String getAircraftTypeCode(int id) {
+		return this.aircraftTypes.getCode(id);
+	}
+
+	public int getFlightDesignatorId(String designator) {
+		return this.flightDesignators.getId(designator);
+	}
+
+	public String getFlightDesignator(int id) {
+		return this.flightDesignators.getCode(id);
+	}
+
+	public int getNumberOfAirports() {
+		return this.airports.size();
+	}
+
+	public long getCityPairKey(String originAirport, String destinationAirport) {
+		return createCityPairKey(this.airports.getId(originAirport), this.airports.getId(destinationAirport));
+	}
+
+	/**
+	 * @return the dense id of the city pair, a new id is assigned if the pair is not known yet
+	 */
+	public int getCityPairId(long cityPairKey) {
+		int id = this.cityPairs.get(cityPairKey);
+		if (id == -1) {
+			id = this.cityPairs.size();
+			this.cityPairs.put(cityPairKey, id);
+			if (id == this.cityPairCodes.length) {
+				this.cityPairCodes = Arrays.copyOf(this.cityPairCodes, id * 2);
+				this.cityPairKeys = Arrays.copyOf(this.cityPairKeys, id * 2);
+			}
+			this.cityPairKeys[id] = cityPairKey;
+			this.cityPairCodes[id] = this.airports.getCode(getOriginAirportId(cityPairKey)) + "_"
+					+ this.airports.getCode(getDestinationAirportId(cityPairKey));
+		}
+		return id;
+	}
+
+	/**
+	 * @return the key of a city pair id, see {@link #getOriginAirportId(long)} and {@link #getDestinationAirportId(long)}
+	 */
+	public long getCityPairKey(int cityPairId) {
+		return this.cityPairKeys[cityPairId];
+	}
+
+	public int getNumberOfCityPairs() {
+		return this.cityPairs.size();
+	}
+
+	/**
+	 * @return origin_destination
+	 */
+	public String getRouteCode(String originAirport, String destinationAirport) {
+		int cityPair = this.getCityPairId(this.getCityPairKey(originAirport, destinationAirport));
+		return this.cityPairCodes[cityPair];
+	}
+
+	public String getRouteCode(int cityPairId) {
+		return this.cityPairCodes[cityPairId];
+	}
+
+	/**
+	 * @return origin_destination_carrier
+	 */
+	public String getLineCode(String originAirport, String destinationAirport, String carrier) {
+		int cityPair = this.getCityPairId(this.getCityPairKey(originAirport, destinationAirport));
+		int carrierId = this.carriers.getId(carrier);
+		long key = ((long) cityPair << 32) | (carrierId & 0xffffffffL);
+		String code = this.lineCodes.get(key);
+		if (code == null) {
+			code = this.cityPairCodes[cityPair] + "_" + carrier;
+			this.lineCodes.put(key, code);
+		}
+		return code;
+	}
+
+	/**
+	 * @return origin_destination_designator, the id of the link and transit route of the flight
+	 */
+	public String getFlightCode(String originAirport, String destinationAirport, String flightDesignator) {
+		int cityPair = this.getCityPairId(this.getCityPairKey(originAirport, destinationAirport));
+		int flight = this.flightDesignators.getId(flightDesignator);
+		if (flight >= this.flightCodes.length) {
+			int length = Math.max(flight + 1, this.flightCodes.length * 2);
+			this.flightCodes = Arrays.copyOf(this.flightCodes, length);
+			this.flightCodeCityPairs = Arrays.copyOf(this.flightCodeCityPairs, length);
+		}
+		String code = this.flightCodes[flight];
+		// the same designator may serve another city pair in another build
+		if (code == null || this.flightCodeCityPairs[flight] != cityPair) {
+			code = this.cityPairCodes[cityPair] + "_" + flightDesignator;
+			this.flightCodes[flight] = code;
+			this.flightCodeCityPairs[flight] = cityPair;
+		}
+		return code;
+	}
+
+	public String getRouteCode(DgOagFlight flight) {
+		return this.getRouteCode(flight.getOriginCode(), flight.getDestinationCode());
+	}
+
+	public String getLineCode(DgOagFlight flight) {
+		return this.getLineCode(flight.getOriginCode(), flight.getDestinationCode(), flight.getCarrier());
+	}
+
+	public String getFlightCode(DgOagFlight flight) {
+		return this.getFlightCode(flight.getOriginCode(), flight.getDestinationCode(), flight.getFlightDesignator());
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Open addressing map from long keys to non negative int values.
+	 */
+	private static final class LongIntMap {
+
+		private long[] keys = new long[256];
+		private int[] values = new int[256];
+		private int size = 0;
+
+		LongIntMap() {
+			Arrays.fill(this.values, -1);
+		}
+
+		/**
+		 * @return the value or -1
+		 */
+		int get(long key) {
+			int mask = this.keys.length - 1;
+			int index = mix(key) & mask;
+			while (this.values[index] != -1) {
+				if (this.keys[index] == key) {
+					return this.values[index];
+				}
+				index = (index + 1) & mask;
+			}
+			return -1;
+		}
+
+		void put(long key, int value) {
+			if ((this.size + 1) * 2 > this.keys.length) {
+				this.rehash();
+			}
+			int mask = this.keys.length - 1;
+			int index = mix(key) & mask;
+			while (this.values[index] != -1) {
+				if (this.keys[index] == key) {
+					this.values[index] = value;
+					return;
+				}
+				index = (index + 1) & mask;
+			}
+			this.keys[index] = key;
+			this.values[index] = value;
+			this.size++;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		private void rehash() {
+			long[] oldKeys = this.keys;
+			int[] oldValues = this.values;
+			this.keys = new long[oldKeys.length * 2];
+			this.values = new int[oldValues.length * 2];
+			Arrays.fill(this.values, -1);
+			this.size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldValues[i] != -1) {
+					this.put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Open addressing map from long keys to Strings.
+	 */
+	private static final class LongStringMap {
+
+		private long[] keys = new long[256];
+		private String[] values = new String[256];
+		private int size = 0;
+
+		String get(long key) {
+			int mask = this.keys.length - 1;
+			int index = mix(key) & mask;
+			while (this.values[index] != null) {
+				if (this.keys[index] == key) {
+					return this.values[index];
+				}
+				index = (index + 1) & mask;
+			}
+			return null;
+		}
+
+		void put(long key, String value) {
+			if ((this.size + 1) * 2 > this.keys.length) {
+				this.rehash();
+			}
+			int mask = this.keys.length - 1;
+			int index = mix(key) & mask;
+			while (this.values[index] != null) {
+				if (this.keys[index] == key) {
+					this.values[index] = value;
+					return;
+				}
+				index = (index + 1) & mask;
+			}
+			this.keys[index] = key;
+			this.values[index] = value;
+			this.size++;
+		}
+
+		private void rehash() {
+			long[] oldKeys = this.keys;
+			String[] oldValues = this.values;
+			this.keys = new long[oldKeys.length * 2];
+			this.values = new String[oldValues.length * 2];
+			this.size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldValues[i] != null) {
+					this.put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+	}
+
+}
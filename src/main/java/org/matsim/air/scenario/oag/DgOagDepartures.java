@@ -0,0 +1,67 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagDepartures
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+
+/**
+ * Compact records of the departures created by the {@link DgOagWeekScheduleExpander} for the rows of an
+ * {@link OagFlightTable}. A departure is stored as the row of the flight, the day of the week, 1 for monday,
+ * and the departure time in UTC seconds after 00:00 of the first day of the expanded period.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgOagDepartures {
+
+	private final int[] rows;
+	private final byte[] days;
+	private final int[] departureSeconds;
+	private int size = 0;
+
+	DgOagDepartures(int capacity) {
+		this.rows = new int[capacity];
+		this.days = new byte[capacity];
+		this.departureSeconds = new int[capacity];
+	}
+
+	void add(int row, int day, int departureSeconds) {
+		this.rows[this.size] = row;
+		this.days[this.size] = (byte) day;
+		this.departureSeconds[this.size] = departureSeconds;
+		this.size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int getRow(int departure) {
+		return this.rows[departure];
+	}
+
+	public int getDay(int departure) {
+		return this.days[departure];
+	}
+
+	public int getDepartureSeconds(int departure) {
+		return this.departureSeconds[departure];
+	}
+
+}
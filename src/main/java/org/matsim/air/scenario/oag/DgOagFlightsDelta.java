@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagFlightsDelta
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Difference between the flights and airports of two builds, e.g. of two monthly OAG releases. Flights are
+ * matched by their designator, a flight is changed if any of its attributes differs. City pairs are compared by
+ * the routes of the flights.
+ *
+ * @author dgrether
+ *
+ */
+public class DgOagFlightsDelta {
+
+	private static final Logger log = Logger.getLogger(DgOagFlightsDelta.class);
+
+	private final List<DgOagFlight> addedFlights = new ArrayList<DgOagFlight>();
+	private final List<DgOagFlight> removedFlights = new ArrayList<DgOagFlight>();
+	private final List<DgOagFlight> changedFlights = new ArrayList<DgOagFlight>();
+	private final List<DgOagFlight> changedPreviousFlights = new ArrayList<DgOagFlight>();
+	private final Set<String> addedCityPairs = new HashSet<String>();
+	private final Set<String> removedCityPairs = new HashSet<String>();
+	private final Set<String> addedAirports = new HashSet<String>();
+	private final Set<String> removedAirports = new HashSet<String>();
+	private final Set<String> movedAirports = new HashSet<String>();
+
+	public static DgOagFlightsDelta create(DgOagFlightsData previous, Map<String, Coord> previousAirports,
+			DgOagFlightsData current, Map<String, Coord> currentAirports) {
+		DgOagFlightsDelta delta = new DgOagFlightsDelta();
+		Map<String, DgOagFlight> previousFlights = previous.getFlightDesignatorFlightMap();
+		Map<String, DgOagFlight> currentFlights = current.getFlightDesignatorFlightMap();
+		Set<String> previousCityPairs = new HashSet<String>();
+		for (DgOagFlight flight : previousFlights.values()) {
+			previousCityPairs.add(flight.getRoute());
+			DgOagFlight currentFlight = currentFlights.get(flight.getFlightDesignator());
+			if (currentFlight == null) {
+				delta.removedFlights.add(flight);
+			}
+			else if (! isSameFlight(flight, currentFlight)) {
+				delta.changedPreviousFlights.add(flight);
+				delta.changedFlights.add(currentFlight);
+			}
+		}
+		Set<String> currentCityPairs = new HashSet<String>();
+		for (DgOagFlight flight : currentFlights.values()) {
+			currentCityPairs.add(flight.getRoute());
+			if (! previousFlights.containsKey(flight.getFlightDesignator())) {
+				delta.addedFlights.add(flight);
+			}
+		}
+		for (String cityPair : currentCityPairs) {
+			if (! previousCityPairs.contains(cityPair)) {
+				delta.addedCityPairs.add(cityPair);
+			}
+		}
+		for (String cityPair : previousCityPairs) {
+			if (! currentCityPairs.contains(cityPair)) {
+				delta.removedCityPairs.add(cityPair);
+			}
+		}
+		for (Entry<String, Coord> e : currentAirports.entrySet()) {
+			Coord previousCoord = previousAirports.get(e.getKey());
+			if (previousCoord == null) {
+				delta.addedAirports.add(e.getKey());
+			}
+			else if (previousCoord.getX() != e.getValue().getX() || previousCoord.getY() != e.getValue().getY()) {
+				delta.movedAirports.add(e.getKey());
+			}
+		}
+		for (String airport : previousAirports.keySet()) {
+			if (! currentAirports.containsKey(airport)) {
+				delta.removedAirports.add(airport);
+			}
+		}
+		return delta;
+	}
+
+	private static boolean isSameFlight(DgOagFlight a, DgOagFlight b) {
+		return a.getRoute().equals(b.getRoute())
+				&& a.getCarrier().equals(b.getCarrier())
+				&& a.getAircraftType().equals(b.getAircraftType())
+				&& a.getOriginCode().equals(b.getOriginCode())
+				&& a.getDestinationCode().equals(b.getDestinationCode())
+				&& a.getDepartureTime() == b.getDepartureTime()
+				&& a.getScheduledDuration() == b.getScheduledDuration()
+				&& a.getSeatsAvailable() == b.getSeatsAvailable()
+				&& a.getDistanceKm() == b.getDistanceKm();
+	}
+
+	public boolean isEmpty() {
+		return this.addedFlights.isEmpty() && this.removedFlights.isEmpty() && this.changedFlights.isEmpty()
+				&& this.addedAirports.isEmpty() && this.removedAirports.isEmpty() && this.movedAirports.isEmpty();
+	}
+
+	public List<DgOagFlight> getAddedFlights() {
+		return this.addedFlights;
+	}
+
+	public List<DgOagFlight> getRemovedFlights() {
+		return this.removedFlights;
+	}
+
+	/**
+	 * @return the current version of the changed flights
+	 */
+	public List<DgOagFlight> getChangedFlights() {
+		return this.changedFlights;
+	}
+
+	/**
+	 * @return the previous version of the changed flights
+	 */
+	public List<DgOagFlight> getChangedPreviousFlights() {
+		return this.changedPreviousFlights;
+	}
+
+	public Set<String> getAddedCityPairs() {
+		return this.addedCityPairs;
+	}
+
+	public Set<String> getRemovedCityPairs() {
+		return this.removedCityPairs;
+	}
+
+	public Set<String> getAddedAirports() {
+		return this.addedAirports;
+	}
+
+	public Set<String> getRemovedAirports() {
+		return this.removedAirports;
+	}
+
+	/**
+	 * @return the airports that are used by both builds but have other coordinates
+	 */
+	public Set<String> getMovedAirports() {
+		return this.movedAirports;
+	}
+
+	public void logStatistics() {
+		log.info("Flights added: " + this.addedFlights.size() + " removed: " + this.removedFlights.size()
+				+ " changed: " + this.changedFlights.size());
+		log.info("City pairs added: " + this.addedCityPairs.size() + " removed: " + this.removedCityPairs.size());
+		log.info("Airports added: " + this.addedAirports.size() + " removed: " + this.removedAirports.size()
+				+ " moved: " + this.movedAirports.size());
+	}
+
+}
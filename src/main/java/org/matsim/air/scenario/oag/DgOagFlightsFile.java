@@ -0,0 +1,422 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagFlightsFile
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.air.scenario.oag.OagFlightTable.CodeIndex;
+import org.matsim.core.utils.io.IOUtils;
+
+
+/**
+ * Columnar form of the flights of a scenario, i.e. of the data exchanged between the schedule builder and the
+ * transit builders and analyses.
+ *
+ * The binary file starts with a header, followed by a dictionary of all codes and the columns. Each column is
+ * stored with its name and type, codes as int ids of the dictionary, thus a reader can skip columns it does not know.
+ * The file is read through a memory mapping.
+ *
+ * The tab separated text format of oag_flights.txt can still be written as export and is read if a file
+ * does not start with the header of the binary format. A file in neither format is rejected.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgOagFlightsFile {
+
+	private static final Logger log = Logger.getLogger(DgOagFlightsFile.class);
+
+	private static final int MAGIC = 0x4f414746;
+
+	/**
+	 * increase if columns are removed or their semantics change, added columns are skipped by older readers
+	 */
+	public static final int VERSION = 1;
+
+	private static final int NUMBER_OF_COLUMNS = 11;
+
+	private static final byte TYPE_CODE = 1;
+	private static final byte TYPE_INT = 2;
+	private static final byte TYPE_DOUBLE = 3;
+
+	public static final String ROUTE = "route";
+	public static final String TRANSIT_LINE = "transitLine";
+	public static final String FLIGHT_DESIGNATOR = "flightDesignator";
+	public static final String DEPARTURE_TIME = "departureTime";
+	public static final String DURATION = "duration";
+	public static final String AIRCRAFT_TYPE = "aircraftType";
+	public static final String SEATS_AVAILABLE = "seatsAvailable";
+	public static final String DISTANCE_KM = "distanceKm";
+	public static final String CARRIER = "carrier";
+	public static final String ORIGIN = "origin";
+	public static final String DESTINATION = "destination";
+
+	private final CodeIndex codes;
+	private int size = 0;
+
+	private int[] route;
+	private int[] transitLine;
+	private int[] flightDesignator;
+	private double[] departureTime;
+	private double[] duration;
+	private int[] aircraftType;
+	private int[] seatsAvailable;
+	private double[] distanceKm;
+	private int[] carrier;
+	private int[] origin;
+	private int[] destination;
+
+	private DgOagFlightsFile(CodeIndex codes, int capacity) {
+		this.codes = codes;
+		this.route = new int[capacity];
+		this.transitLine = new int[capacity];
+		this.flightDesignator = new int[capacity];
+		this.departureTime = new double[capacity];
+		this.duration = new double[capacity];
+		this.aircraftType = new int[capacity];
+		this.seatsAvailable = new int[capacity];
+		this.distanceKm = new double[capacity];
+		this.carrier = new int[capacity];
+		this.origin = new int[capacity];
+		this.destination = new int[capacity];
+	}
+
+	public static DgOagFlightsFile create(DgOagFlightsData data) {
+		DgOagFlightsFile file = new DgOagFlightsFile(new CodeIndex(), data.getFlightDesignatorFlightMap().size());
+		for (DgOagFlight flight : data.getFlightDesignatorFlightMap().values()) {
+			file.add(flight.getRoute(), flight.getRoute() + "_" + flight.getCarrier(), flight.getFlightDesignator(),
+					flight.getDepartureTime(), flight.getScheduledDuration(), flight.getAircraftType(),
+					flight.getSeatsAvailable(), flight.getDistanceKm(), flight.getCarrier(),
+					flight.getOriginCode(), flight.getDestinationCode());
+		}
+		return file;
+	}
+
+	private void add(String route, String transitLine, String flightDesignator, double departureTime, double duration,
+			String aircraftType, int seatsAvailable, double distanceKm, String carrier, String origin, String destination) {
+		if (this.size == this.route.length) {
+			this.resize(Math.max(16, this.size * 2));
+		}
+		int i = this.size;
+		this.route[i] = this.codes.getId(route);
+		this.transitLine[i] = this.codes.getId(transitLine);
+		this.flightDesignator[i] = this.codes.getId(flightDesignator);
+		this.departureTime[i] = departureTime;
+		this.duration[i] = duration;
+		this.aircraftType[i] = this.codes.getId(aircraftType);
+		this.seatsAvailable[i] = seatsAvailable;
+		this.distanceKm[i] = distanceKm;
+		this.carrier[i] = this.codes.getId(carrier);
+		this.origin[i] = this.codes.getId(origin);
+		this.destination[i] = this.codes.getId(destination);
+		this.size++;
+	}
+
+	private void resize(int capacity) {
+		this.route = Arrays.copyOf(this.route, capacity);
+		this.transitLine = Arrays.copyOf(this.transitLine, capacity);
+		this.flightDesignator = Arrays.copyOf(this.flightDesignator, capacity);
+		this.departureTime = Arrays.copyOf(this.departureTime, capacity);
+		this.duration = Arrays.copyOf(this.duration, capacity);
+		this.aircraftType = Arrays.copyOf(this.aircraftType, capacity);
+		this.seatsAvailable = Arrays.copyOf(this.seatsAvailable, capacity);
+		this.distanceKm = Arrays.copyOf(this.distanceKm, capacity);
+		this.carrier = Arrays.copyOf(this.carrier, capacity);
+		this.origin = Arrays.copyOf(this.origin, capacity);
+		this.destination = Arrays.copyOf(this.destination, capacity);
+	}
+
+	/**
+	 * Reads the binary or the text format.
+	 */
+	public static DgOagFlightsFile read(String filename) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(filename, "r");
+				FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Flights file " + filename + " is too large to be mapped.");
+			}
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.remaining() < 8 || in.getInt() != MAGIC) {
+				return readText(filename);
+			}
+			int version = in.getInt();
+			if (version != VERSION) {
+				throw new IOException("Flights file " + filename + " has version " + version + ", expected " + VERSION);
+			}
+			try {
+				DgOagFlightsFile file = readBinary(in);
+				log.info("Read " + file.size() + " flights from " + filename);
+				return file;
+			}
+			catch (BufferUnderflowException e) {
+				throw new IOException("Flights file " + filename + " is truncated.", e);
+			}
+		}
+	}
+
+	private static DgOagFlightsFile readBinary(ByteBuffer in) throws IOException {
+		int size = in.getInt();
+		CodeIndex codes = new CodeIndex();
+		codes.readSnapshot(in);
+		DgOagFlightsFile file = new DgOagFlightsFile(codes, 0);
+		file.size = size;
+		int numberOfColumns = in.getInt();
+		int found = 0;
+		for (int c = 0; c < numberOfColumns; c++) {
+			String name = DgOagSnapshotOutput.getString(in);
+			byte type = in.get();
+			if (file.readColumn(in, name, type, size)) {
+				found++;
+			}
+		}
+		if (found != NUMBER_OF_COLUMNS) {
+			throw new IOException("Flights file misses columns, found " + found + " of " + NUMBER_OF_COLUMNS);
+		}
+		return file;
+	}
+
+	/**
+	 * @return false if the column is not known, it is skipped
+	 */
+	private boolean readColumn(ByteBuffer in, String name, byte type, int size) throws IOException {
+		if (type == TYPE_DOUBLE) {
+			if (DEPARTURE_TIME.equals(name)) {
+				this.departureTime = DgOagSnapshotOutput.getDoubles(in, size);
+			}
+			else if (DURATION.equals(name)) {
+				this.duration = DgOagSnapshotOutput.getDoubles(in, size);
+			}
+			else if (DISTANCE_KM.equals(name)) {
+				this.distanceKm = DgOagSnapshotOutput.getDoubles(in, size);
+			}
+			else {
+				in.position(in.position() + size * 8);
+				return false;
+			}
+			return true;
+		}
+		if (type != TYPE_CODE && type != TYPE_INT) {
+			throw new IOException("Unknown type " + type + " of column " + name);
+		}
+		int[] values = DgOagSnapshotOutput.getInts(in, size);
+		if (type == TYPE_INT && SEATS_AVAILABLE.equals(name)) {
+			this.seatsAvailable = values;
+		}
+		else if (type == TYPE_INT) {
+			return false;
+		}
+		else if (ROUTE.equals(name)) {
+			this.route = values;
+		}
+		else if (TRANSIT_LINE.equals(name)) {
+			this.transitLine = values;
+		}
+		else if (FLIGHT_DESIGNATOR.equals(name)) {
+			this.flightDesignator = values;
+		}
+		else if (AIRCRAFT_TYPE.equals(name)) {
+			this.aircraftType = values;
+		}
+		else if (CARRIER.equals(name)) {
+			this.carrier = values;
+		}
+		else if (ORIGIN.equals(name)) {
+			this.origin = values;
+		}
+		else if (DESTINATION.equals(name)) {
+			this.destination = values;
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+
+	private static DgOagFlightsFile readText(String filename) throws IOException {
+		DgOagFlightsFile file = new DgOagFlightsFile(new CodeIndex(), 1024);
+		BufferedReader reader = IOUtils.getBufferedReader(filename);
+		try {
+			String line = reader.readLine();
+			int lineNumber = 1;
+			while (line != null) {
+				String[] e = line.split("\t");
+				try {
+					String[] airports = e[0].split("_");
+					String carrier = e[1].split("_")[2];
+					file.add(e[0], e[1], e[2], Double.parseDouble(e[3]), Double.parseDouble(e[4]), e[5],
+							Integer.parseInt(e[6]), Double.parseDouble(e[7]), carrier, airports[0], airports[1]);
+				}
+				catch (RuntimeException ex) {
+					// e.g. a binary file with a wrong header
+					throw new IOException("Line " + lineNumber + " of flights file " + filename + " is neither in the text nor in the binary format.", ex);
+				}
+				line = reader.readLine();
+				lineNumber++;
+			}
+		}
+		finally {
+			reader.close();
+		}
+		log.info("Read " + file.size() + " flights from text file " + filename);
+		return file;
+	}
+
+	public void write(String filename) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(filename, "rw");
+				DgOagSnapshotOutput out = new DgOagSnapshotOutput(raf.getChannel())) {
+			raf.setLength(0);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(this.size);
+			this.codes.writeSnapshot(out);
+			out.putInt(NUMBER_OF_COLUMNS);
+			this.writeColumn(out, ROUTE, TYPE_CODE, this.route);
+			this.writeColumn(out, TRANSIT_LINE, TYPE_CODE, this.transitLine);
+			this.writeColumn(out, FLIGHT_DESIGNATOR, TYPE_CODE, this.flightDesignator);
+			this.writeColumn(out, DEPARTURE_TIME, this.departureTime);
+			this.writeColumn(out, DURATION, this.duration);
+			this.writeColumn(out, AIRCRAFT_TYPE, TYPE_CODE, this.aircraftType);
+			this.writeColumn(out, SEATS_AVAILABLE, TYPE_INT, this.seatsAvailable);
+			this.writeColumn(out, DISTANCE_KM, this.distanceKm);
+			this.writeColumn(out, CARRIER, TYPE_CODE, this.carrier);
+			this.writeColumn(out, ORIGIN, TYPE_CODE, this.origin);
+			this.writeColumn(out, DESTINATION, TYPE_CODE, this.destination);
+		}
+		log.info("Wrote " + this.size + " flights to " + filename);
+	}
+
+	private void writeColumn(DgOagSnapshotOutput out, String name, byte type, int[] values) throws IOException {
+		out.putString(name);
+		out.putByte(type);
+		out.putInts(values, this.size);
+	}
+
+	private void writeColumn(DgOagSnapshotOutput out, String name, double[] values) throws IOException {
+		out.putString(name);
+		out.putByte(TYPE_DOUBLE);
+		out.putDoubles(values, this.size);
+	}
+
+	/**
+	 * Writes the tab separated format of oag_flights.txt.
+	 */
+	public void writeText(String filename) throws IOException {
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename);
+		try {
+			for (int i = 0; i < this.size; i++) {
+				writer.write(this.getRoute(i) + "\t" + // TransitRoute
+						this.getTransitLine(i) + "\t" + // TransitLine
+						this.getFlightDesignator(i) + "\t" + // vehicleId
+						this.getDepartureTime(i) + "\t" + // departure time in seconds
+						this.getDuration(i) + "\t" + // journey time in seconds
+						this.getAircraftType(i) + "\t" + // aircraft type
+						this.getSeatsAvailable(i) + "\t" + // seats avail
+						this.getDistanceKm(i)); // distance in km
+				writer.newLine();
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Adds a flight for each row to the data.
+	 */
+	public void addFlights(DgOagFlightsData data) {
+		for (int i = 0; i < this.size; i++) {
+			DgOagFlight flight = new DgOagFlight(this.getFlightDesignator(i));
+			flight.setRoute(this.getRoute(i));
+			flight.setOriginCode(this.getOrigin(i));
+			flight.setDestinationCode(this.getDestination(i));
+			flight.setCarrier(this.getCarrier(i));
+			flight.setDepartureTime(this.departureTime[i]);
+			flight.setDuration(this.duration[i]);
+			flight.setAircraftType(this.getAircraftType(i));
+			flight.setSeatsAvailable(this.seatsAvailable[i]);
+			flight.setDistanceKm(this.distanceKm[i]);
+			data.addFlight(flight);
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return origin_destination
+	 */
+	public String getRoute(int i) {
+		return this.codes.getCode(this.route[i]);
+	}
+
+	/**
+	 * @return origin_destination_carrier
+	 */
+	public String getTransitLine(int i) {
+		return this.codes.getCode(this.transitLine[i]);
+	}
+
+	public String getFlightDesignator(int i) {
+		return this.codes.getCode(this.flightDesignator[i]);
+	}
+
+	public double getDepartureTime(int i) {
+		return this.departureTime[i];
+	}
+
+	public double getDuration(int i) {
+		return this.duration[i];
+	}
+
+	public String getAircraftType(int i) {
+		return this.codes.getCode(this.aircraftType[i]);
+	}
+
+	public int getSeatsAvailable(int i) {
+		return this.seatsAvailable[i];
+	}
+
+	public double getDistanceKm(int i) {
+		return this.distanceKm[i];
+	}
+
+	public String getCarrier(int i) {
+		return this.codes.getCode(this.carrier[i]);
+	}
+
+	public String getOrigin(int i) {
+		return this.codes.getCode(this.origin[i]);
+	}
+
+	public String getDestination(int i) {
+		return this.codes.getCode(this.destination[i]);
+	}
+
+}
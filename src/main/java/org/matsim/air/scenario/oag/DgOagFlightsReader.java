@@ -19,11 +19,8 @@
  * *********************************************************************** */
 package org.matsim.air.scenario.oag;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 
-import org.matsim.core.utils.io.IOUtils;
-
 
 /**
  * @author dgrether
@@ -37,36 +34,15 @@ public class DgOagFlightsReader {
 		this.data = data;
 	}
 
+	/**
+	 * Reads the binary flights file or the text format of oag_flights.txt, see {@link DgOagFlightsFile}.
+	 */
 	public void readFile(String filename){
-		BufferedReader reader = IOUtils.getBufferedReader(filename);
 		try {
-			String line = reader.readLine();
-			while (line != null) {
-				String[] e = line.split("\t"); //rename to entries
-				DgOagFlight flight = new DgOagFlight(e[2]);
-				String routeString = e[0];
-				String[] lineStringArray = routeString.split("_");
-				flight.setRoute(routeString);
-				flight.setOriginCode(lineStringArray[0]);
-				flight.setDestinationCode(lineStringArray[1]);
-				
-				String carrier = e[1].split("_")[2];
-				flight.setCarrier(carrier);
-				flight.setDepartureTime(Double.parseDouble(e[3]));
-				flight.setDuration(Double.parseDouble(e[4]));
-				flight.setAircraftType(e[5]);
-				flight.setSeatsAvailable(Integer.parseInt(e[6]));
-				flight.setDistanceKm(Double.parseDouble(e[7]));
-				this.data.addFlight(flight);
-				line = reader.readLine();
-			}
-		
+			DgOagFlightsFile.read(filename).addFlights(this.data);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		
-		
-		
 	}
 	
 }
@@ -59,6 +59,30 @@ public class DgOagLine{
 		this.daysOfOperation = this.createDaysOfOperation(lineEntries[14]);
 		this.codeShareFlight  = this.createIsCodeshareFlight(lineEntries);
 	}
+
+	/**
+	 * Creates the line from the bytes of the OAG file, decodes only the columns that are used.
+	 */
+	DgOagLine(DgOagRecord r) {
+		this.originCountry = r.getTrimmedUpperCaseString(DgOagRecord.ORIGIN_COUNTRY);
+		this.destinationCountry = r.getTrimmedUpperCaseString(DgOagRecord.DESTINATION_COUNTRY);
+		this.originAirport = r.getTrimmedString(DgOagRecord.ORIGIN_AIRPORT);
+		this.destinationAirport = r.getTrimmedString(DgOagRecord.DESTINATION_AIRPORT);
+		this.carrier = r.getTrimmedString(DgOagRecord.CARRIER);
+		this.flightNumber = r.getStringReplaceSpaces(DgOagRecord.FLIGHT_NUMBER, '0');
+		this.flightDistanceMiles = r.getDouble(DgOagRecord.DISTANCE_MILES);
+		int elapsedTime = r.getElapsedTimeSeconds(DgOagRecord.ELAPSED_TIME);
+		this.hours = elapsedTime / 3600;
+		this.minutes = (elapsedTime % 3600) / 60;
+		this.departureTime = r.getTimeOfDaySeconds(DgOagRecord.DEPARTURE_TIME);
+		this.stops = r.getDouble(DgOagRecord.STOPS);
+		this.fullRouting = r.getString(DgOagRecord.FULL_ROUTING);
+		this.aircraftType = r.getTrimmedString(DgOagRecord.AIRCRAFT_TYPE);
+		this.seats = r.getInt(DgOagRecord.SEATS);
+		this.daysOfOperation = r.getCharsWithoutSpaces(DgOagRecord.DAYS_OF_OPERATION);
+		this.codeShareFlight = ! (r.contains(DgOagRecord.OPERATING_MARKER, 'O') || r.isEmpty(DgOagRecord.SHARED_AIRLINE_DESIGNATOR)
+				|| r.isEmpty(DgOagRecord.DUPLICATE));
+	}
 	
 	private boolean createIsCodeshareFlight(String[] lineEntries){
 		// filter codeshare flights (see WW_DBF_With_Frequency.DOC from OAG input data)
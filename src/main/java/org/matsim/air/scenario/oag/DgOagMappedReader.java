@@ -0,0 +1,274 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagMappedReader
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Reads the OAG csv dump through a memory mapped FileChannel. Lines and field boundaries
+ * are found by scanning the bytes of the mapping, the fields are decoded by the {@link DgOagRecord}
+ * only if a handler asks for them.
+ *
+ * The file is processed in chunks, i.e. byte ranges that start and end at a line boundary and are
+ * not larger than the maximal size of a single mapping. The chunks are either read one after the other
+ * by a single handler or concurrently on a ForkJoinPool, each chunk with an own handler. The handlers of
+ * concurrently read chunks are always returned in the order of the file.
+ *
+ * @author dgrether
+ *
+ */
+public class DgOagMappedReader {
+
+	private static final Logger log = Logger.getLogger(DgOagMappedReader.class);
+
+	private static final int MAX_WINDOW_SIZE = 1 << 30;
+
+	private static final int MIN_PARALLEL_CHUNK_SIZE = 1 << 22;
+
+	/**
+	 * number of chunks per thread, more than one to balance the load if chunks take different time
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	private final AtomicLong lines = new AtomicLong();
+
+	private final AtomicLong records = new AtomicLong();
+
+	private final AtomicLong skippedLines = new AtomicLong();
+
+	/**
+	 * Calls the handler for each line of the file except the header line, in the order of the file.
+	 */
+	public void readFile(String inputOagFile, DgOagRecordHandler handler) throws IOException {
+		this.resetCounts();
+		try (RandomAccessFile file = new RandomAccessFile(inputOagFile, "r");
+				FileChannel channel = file.getChannel()) {
+			List<long[]> chunks = createChunks(channel, MAX_WINDOW_SIZE);
+			DgOagRecord record = new DgOagRecord(new DgOagStringCache());
+			for (long[] chunk : chunks) {
+				this.readChunk(channel, chunk[0], chunk[1], record, handler);
+			}
+		}
+		this.logCounts();
+	}
+
+	/**
+	 * Splits the file into line aligned chunks that are parsed concurrently, the handlers for the chunks are
+	 * created by the factory. The header line is skipped.
+	 *
+	 * @return the handlers of the chunks in the order of the file, i.e. the lines seen by the first handler are
+	 * followed by the lines seen by the second handler etc.
+	 */
+	public <H extends DgOagRecordHandler> List<H> readFileParallel(String inputOagFile, int numberOfThreads,
+			Supplier<H> handlerFactory) throws IOException {
+		final List<H> handlers = new ArrayList<H>();
+		this.readFileParallel(inputOagFile, numberOfThreads, handlerFactory, new Consumer<H>() {
+			@Override
+			public void accept(H handler) {
+				handlers.add(handler);
+			}
+		});
+		return handlers;
+	}
+
+	/**
+	 * Splits the file into line aligned chunks that are parsed concurrently, the handlers for the chunks are
+	 * created by the factory. The header line is skipped. Each handler is passed to the consumer as soon as its chunk
+	 * and all chunks before are read, in the order of the file and always in the calling thread. Only a limited
+	 * number of chunks is read ahead, thus the handlers that are not used by the consumer any longer can be garbage
+	 * collected while the file is read.
+	 */
+	public <H extends DgOagRecordHandler> void readFileParallel(String inputOagFile, int numberOfThreads,
+			Supplier<H> handlerFactory, Consumer<H> consumer) throws IOException {
+		long fileSize = new File(inputOagFile).length();
+		long chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, fileSize / (numberOfThreads * CHUNKS_PER_THREAD) + 1);
+		this.readFileParallel(inputOagFile, numberOfThreads, Math.min(chunkSize, MAX_WINDOW_SIZE), handlerFactory, consumer);
+	}
+
+	/**
+	 * Reads the file in chunks of at most the given size, a line must not be longer than a chunk.
+	 */
+	<H extends DgOagRecordHandler> void readFileParallel(String inputOagFile, int numberOfThreads, long chunkSize,
+			Supplier<H> handlerFactory, Consumer<H> consumer) throws IOException {
+		this.resetCounts();
+		ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+		try (RandomAccessFile file = new RandomAccessFile(inputOagFile, "r");
+				FileChannel channel = file.getChannel()) {
+			List<long[]> chunks = createChunks(channel, chunkSize);
+			log.info("Reading " + inputOagFile + " in " + chunks.size() + " chunks with " + numberOfThreads + " threads...");
+			int readAhead = numberOfThreads * 2;
+			List<ChunkTask<H>> tasks = new ArrayList<ChunkTask<H>>(chunks.size());
+			for (int i = 0; i < chunks.size(); i++){
+				long[] chunk = chunks.get(i);
+				tasks.add(new ChunkTask<H>(channel, chunk[0], chunk[1], handlerFactory.get()));
+			}
+			for (int i = 0; i < Math.min(readAhead, tasks.size()); i++){
+				pool.execute(tasks.get(i));
+			}
+			for (int i = 0; i < tasks.size(); i++){
+				ChunkTask<H> task = tasks.get(i);
+				task.join();
+				tasks.set(i, null);
+				if (i + readAhead < tasks.size()) {
+					pool.execute(tasks.get(i + readAhead));
+				}
+				consumer.accept(task.handler);
+			}
+			this.logCounts();
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void resetCounts(){
+		this.lines.set(0);
+		this.records.set(0);
+		this.skippedLines.set(0);
+	}
+
+	private void logCounts(){
+		if (this.skippedLines.get() > 0) {
+			log.warn("Skipped " + this.skippedLines.get() + " lines with less than " + DgOagRecord.NUMBER_OF_COLUMNS + " columns.");
+		}
+		log.info("Anzahl der Zeilen mit Flügen: " + this.records.get());
+	}
+
+	/**
+	 * @return the chunks as {start, end} byte positions, each chunk ends after a line feed or at the end of the file.
+	 */
+	static List<long[]> createChunks(FileChannel channel, long chunkSize) throws IOException {
+		List<long[]> chunks = new ArrayList<long[]>();
+		long size = channel.size();
+		long start = 0;
+		while (start < size) {
+			long end = start + chunkSize;
+			if (end >= size) {
+				end = size;
+			}
+			else {
+				end = nextLineStart(channel, start, end);
+			}
+			chunks.add(new long[] {start, end});
+			start = end;
+		}
+		return chunks;
+	}
+
+	/**
+	 * @return the position after the last line feed in [start, end)
+	 */
+	private static long nextLineStart(FileChannel channel, long start, long end) throws IOException {
+		int windowSize = (int) (end - start);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, windowSize);
+		for (int i = windowSize - 1; i >= 0; i--){
+			if (buffer.get(i) == LF) {
+				return start + i + 1;
+			}
+		}
+		throw new IOException("Line starting at byte " + start + " is longer than " + windowSize + " bytes.");
+	}
+
+	private void readChunk(FileChannel channel, long start, long end, DgOagRecord record, DgOagRecordHandler handler) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		int limit = (int) (end - start);
+		long chunkLines = 0;
+		long chunkRecords = 0;
+		long chunkSkipped = 0;
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = lineStart;
+			while (lineEnd < limit && buffer.get(lineEnd) != LF) {
+				lineEnd++;
+			}
+			int next = lineEnd + 1;
+			if (lineEnd > lineStart && buffer.get(lineEnd - 1) == CR) {
+				lineEnd--;
+			}
+			boolean header = start == 0 && chunkLines == 0;
+			chunkLines++;
+			if (! header && lineEnd > lineStart) {
+				if (record.setLine(buffer, lineStart, lineEnd)) {
+					handler.handleRecord(record);
+					chunkRecords++;
+				}
+				else {
+					chunkSkipped++;
+				}
+			}
+			lineStart = next;
+		}
+		long total = this.lines.addAndGet(chunkLines);
+		this.records.addAndGet(chunkRecords);
+		this.skippedLines.addAndGet(chunkSkipped);
+		log.info("Read " + total +  " lines of oag data...");
+	}
+
+	/**
+	 * Reads a single chunk with its own handler.
+	 */
+	private final class ChunkTask<H extends DgOagRecordHandler> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final H handler;
+
+		ChunkTask(FileChannel channel, long start, long end, H handler){
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.handler = handler;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				readChunk(this.channel, this.start, this.end, new DgOagRecord(new DgOagStringCache()), this.handler);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+}
@@ -19,49 +19,185 @@
  * *********************************************************************** */
 package org.matsim.air.scenario.oag;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.List;
-
-import org.apache.log4j.Logger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
+ * Reads the lines of the OAG csv dump, the file is parsed by the {@link DgOagMappedReader}.
+ * By default the file is parsed concurrently by as many threads as processors are available,
+ * the result is always in the order of the lines in the file.
+ * 
  * @author dgrether
  *
  */
 public class DgOagReader {
 
-	private static final Logger log = Logger.getLogger(DgOagReader.class);
-	
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * bytes per chunk of a parallel streamed read, 0 to derive it from the file size
+	 */
+	private long chunkSize = 0;
+
+	/**
+	 * rows per table of a sequential streamed read
+	 */
+	private int batchSize = BatchHandler.BATCH_SIZE;
+
+	/**
+	 * @param numberOfThreads 1 to parse the file in the calling thread
+	 */
+	public void setNumberOfThreads(int numberOfThreads){
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Sets the size of the chunks of a streamed read, small values are used in tests to get many chunks of a small file.
+	 */
+	void setChunkSize(long chunkSize, int batchSize){
+		this.chunkSize = chunkSize;
+		this.batchSize = batchSize;
+	}
+
 	public List<DgOagLine> readOagLines(String inputOagFile) throws Exception {
-		List<DgOagLine> ret = new ArrayList<DgOagLine>();
-		BufferedReader br = new BufferedReader(new FileReader(new File(inputOagFile)));
-		int lines = 0;
-		while (br.ready()) {
-			String oneLine = br.readLine();
-			lines++;
-			String[] lineEntries = new String[81];
-			lineEntries = oneLine.split(",");
-			if (lines > 1) {
-				for (int jj = 0; jj < 81; jj++) {
-					lineEntries[jj] = lineEntries[jj].replaceAll("\"", "");
-				}
-
-				DgOagLine l = new DgOagLine(lineEntries);
-				ret.add(l);
-			}
-			if (lines % 50000 == 0){
-				log.info("Read " + lines +  " lines of oag data...");
+		if (this.numberOfThreads <= 1) {
+			LinesHandler handler = new LinesHandler();
+			new DgOagMappedReader().readFile(inputOagFile, handler);
+			return handler.lines;
+		}
+		List<LinesHandler> chunks = new DgOagMappedReader().readFileParallel(inputOagFile, this.numberOfThreads, new Supplier<LinesHandler>() {
+			@Override
+			public LinesHandler get() {
+				return new LinesHandler();
 			}
+		});
+		int size = 0;
+		for (LinesHandler chunk : chunks) {
+			size += chunk.lines.size();
+		}
+		List<DgOagLine> ret = new ArrayList<DgOagLine>(size);
+		for (LinesHandler chunk : chunks) {
+			ret.addAll(chunk.lines);
 		}
-		log.info("Anzahl der Zeilen mit Flügen: " + (lines - 1));
 		return ret;
 	}
 
-	
-}
+	/**
+	 * Reads the OAG file into a column store without creating a DgOagLine per line.
+	 */
+	public OagFlightTable readOagTable(String inputOagFile) throws Exception {
+		if (this.numberOfThreads <= 1) {
+			TableHandler handler = new TableHandler();
+			new DgOagMappedReader().readFile(inputOagFile, handler);
+			handler.table.trimToSize();
+			return handler.table;
+		}
+		List<TableHandler> chunks = new DgOagMappedReader().readFileParallel(inputOagFile, this.numberOfThreads, new Supplier<TableHandler>() {
+			@Override
+			public TableHandler get() {
+				return new TableHandler();
+			}
+		});
+		int size = 0;
+		for (TableHandler chunk : chunks) {
+			size += chunk.table.size();
+		}
+		// merging in the order of the chunks keeps the row order and the code ids of the sequential read
+		OagFlightTable table = new OagFlightTable(size);
+		for (TableHandler chunk : chunks) {
+			table.addAll(chunk.table);
+		}
+		return table;
+	}
+
+	/**
+	 * Streams the OAG file in tables of consecutive rows to the consumer, in the order of the file. The tables are not
+	 * referenced by the reader after they are passed to the consumer, thus the whole file is never in memory at once.
+	 * 
+	 * Each table has its own code ids, see {@link OagFlightTable.CodeIndex}: the same code may have different ids in two
+	 * tables and the same id may stand for different codes. A consumer must not compare or keep ids across tables but
+	 * use the codes, or merge the tables with {@link OagFlightTable#addAll(OagFlightTable)}, which maps the ids.
+	 */
+	public void readOagTable(String inputOagFile, final Consumer<OagFlightTable> consumer) throws Exception {
+		if (this.numberOfThreads <= 1) {
+			BatchHandler handler = new BatchHandler(consumer, this.batchSize);
+			new DgOagMappedReader().readFile(inputOagFile, handler);
+			handler.flush();
+			return;
+		}
+		Supplier<TableHandler> handlerFactory = new Supplier<TableHandler>() {
+			@Override
+			public TableHandler get() {
+				return new TableHandler();
+			}
+		};
+		Consumer<TableHandler> chunkConsumer = new Consumer<TableHandler>() {
+			@Override
+			public void accept(TableHandler chunk) {
+				consumer.accept(chunk.table);
+			}
+		};
+		if (this.chunkSize > 0) {
+			new DgOagMappedReader().readFileParallel(inputOagFile, this.numberOfThreads, this.chunkSize, handlerFactory, chunkConsumer);
+		}
+		else {
+			new DgOagMappedReader().readFileParallel(inputOagFile, this.numberOfThreads, handlerFactory, chunkConsumer);
+		}
+	}
 
+	private static final class LinesHandler implements DgOagRecordHandler {
 
+		private final List<DgOagLine> lines = new ArrayList<DgOagLine>();
+
+		@Override
+		public void handleRecord(DgOagRecord record) {
+			this.lines.add(new DgOagLine(record));
+		}
+	}
+
+	private static final class TableHandler implements DgOagRecordHandler {
+
+		private final OagFlightTable table = new OagFlightTable();
+
+		@Override
+		public void handleRecord(DgOagRecord record) {
+			this.table.addRecord(record);
+		}
+	}
+
+	private static final class BatchHandler implements DgOagRecordHandler {
+
+		private static final int BATCH_SIZE = 1 << 16;
+
+		private final Consumer<OagFlightTable> consumer;
+
+		private final int batchSize;
+
+		private OagFlightTable table;
+
+		BatchHandler(Consumer<OagFlightTable> consumer, int batchSize){
+			this.consumer = consumer;
+			this.batchSize = batchSize;
+			this.table = new OagFlightTable(batchSize);
+		}
+
+		@Override
+		public void handleRecord(DgOagRecord record) {
+			this.table.addRecord(record);
+			if (this.table.size() == this.batchSize) {
+				this.flush();
+			}
+		}
+
+		void flush(){
+			if (this.table.size() > 0) {
+				this.consumer.accept(this.table);
+				this.table = new OagFlightTable(this.batchSize);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagRecord
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * View on a single line of the OAG csv dump that is backed by the bytes of the file.
+ * Only the field boundaries are determined when a line is set, the columns that are
+ * actually used are decoded on request without creating intermediate Strings.
+ * Surrounding quotes of a field are never part of the field content.
+ *
+ * The column semantics are the ones of the former String[] based parsing in DgOagLine, see
+ * WW_DBF_With_Frequency.DOC from OAG input data for a description of all 81 columns.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgOagRecord {
+
+	public static final int NUMBER_OF_COLUMNS = 81;
+
+	public static final int CARRIER = 0;
+	public static final int FLIGHT_NUMBER = 1;
+	public static final int ORIGIN_AIRPORT = 4;
+	public static final int ORIGIN_COUNTRY = 6;
+	public static final int DESTINATION_AIRPORT = 7;
+	public static final int DESTINATION_COUNTRY = 9;
+	public static final int DEPARTURE_TIME = 10;
+	public static final int ELAPSED_TIME = 13;
+	public static final int DAYS_OF_OPERATION = 14;
+	public static final int STOPS = 15;
+	public static final int AIRCRAFT_TYPE = 21;
+	public static final int SEATS = 23;
+	public static final int FULL_ROUTING = 40;
+	public static final int DISTANCE_MILES = 42;
+	public static final int SHARED_AIRLINE_DESIGNATOR = 43;
+	public static final int OPERATING_MARKER = 47;
+	public static final int DUPLICATE = 49;
+
+	private static final byte COMMA = ',';
+	private static final byte QUOTE = '"';
+	private static final byte SPACE = ' ';
+
+	private final DgOagStringCache strings;
+	private ByteBuffer buffer;
+	private final int[] fieldStart = new int[NUMBER_OF_COLUMNS];
+	private final int[] fieldEnd = new int[NUMBER_OF_COLUMNS];
+
+	public DgOagRecord(DgOagStringCache strings){
+		this.strings = strings;
+	}
+
+	/**
+	 * Determines the field boundaries of the line [lineStart, lineEnd) in the buffer, the line
+	 * must not contain the line terminator.
+	 * @return false if the line has less than {@link #NUMBER_OF_COLUMNS} columns.
+	 */
+	public boolean setLine(ByteBuffer buffer, int lineStart, int lineEnd){
+		this.buffer = buffer;
+		int column = 0;
+		int start = lineStart;
+		for (int i = lineStart; i < lineEnd && column < NUMBER_OF_COLUMNS; i++){
+			if (buffer.get(i) == COMMA) {
+				this.setField(column, start, i);
+				column++;
+				start = i + 1;
+			}
+		}
+		if (column < NUMBER_OF_COLUMNS) {
+			this.setField(column, start, lineEnd);
+			column++;
+		}
+		return column == NUMBER_OF_COLUMNS;
+	}
+
+	private void setField(int column, int start, int end){
+		while (start < end && this.buffer.get(start) == QUOTE) {
+			start++;
+		}
+		while (end > start && this.buffer.get(end - 1) == QUOTE) {
+			end--;
+		}
+		this.fieldStart[column] = start;
+		this.fieldEnd[column] = end;
+	}
+
+	public int getFieldLength(int column){
+		return this.fieldEnd[column] - this.fieldStart[column];
+	}
+
+	public boolean isEmpty(int column){
+		return this.getFieldLength(column) == 0;
+	}
+
+	public boolean contains(int column, char c){
+		for (int i = this.fieldStart[column]; i < this.fieldEnd[column]; i++){
+			if (this.buffer.get(i) == c) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the content of the column without leading and trailing spaces
+	 */
+	public String getTrimmedString(int column) {
+		int start = this.fieldStart[column];
+		int end = this.fieldEnd[column];
+		while (start < end && this.buffer.get(start) <= SPACE) {
+			start++;
+		}
+		while (end > start && this.buffer.get(end - 1) <= SPACE) {
+			end--;
+		}
+		return this.strings.get(this.buffer, start, end, false, (char) 0);
+	}
+
+	/**
+	 * @return the trimmed content of the column in upper case
+	 */
+	public String getTrimmedUpperCaseString(int column) {
+		int start = this.fieldStart[column];
+		int end = this.fieldEnd[column];
+		while (start < end && this.buffer.get(start) <= SPACE) {
+			start++;
+		}
+		while (end > start && this.buffer.get(end - 1) <= SPACE) {
+			end--;
+		}
+		return this.strings.get(this.buffer, start, end, true, (char) 0);
+	}
+
+	/**
+	 * @return the untrimmed content of the column with all spaces replaced by the given char
+	 */
+	public String getStringReplaceSpaces(int column, char replacement){
+		return this.strings.get(this.buffer, this.fieldStart[column], this.fieldEnd[column], false, replacement);
+	}
+
+	public String getString(int column){
+		return this.strings.get(this.buffer, this.fieldStart[column], this.fieldEnd[column], false, (char) 0);
+	}
+
+	public int getInt(int column){
+		return this.parseInt(this.fieldStart[column], this.fieldEnd[column], column);
+	}
+
+	/**
+	 * Parses decimal numbers of the form [-]digits[.digits] directly from the bytes, anything else
+	 * falls back to Double.parseDouble.
+	 */
+	public double getDouble(int column){
+		int start = this.fieldStart[column];
+		int end = this.fieldEnd[column];
+		while (start < end && this.buffer.get(start) <= SPACE) {
+			start++;
+		}
+		while (end > start && this.buffer.get(end - 1) <= SPACE) {
+			end--;
+		}
+		boolean negative = false;
+		int i = start;
+		if (i < end && (this.buffer.get(i) == '-' || this.buffer.get(i) == '+')) {
+			negative = this.buffer.get(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			byte b = this.buffer.get(i);
+			if (b >= '0' && b <= '9' && digits < 18) {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (fraction) {
+					fractionDigits++;
+				}
+			}
+			else if (b == '.' && ! fraction) {
+				fraction = true;
+			}
+			else {
+				return Double.parseDouble(this.getString(column));
+			}
+		}
+		if (digits == 0) {
+			return Double.parseDouble(this.getString(column));
+		}
+		double value = mantissa;
+		if (fractionDigits > 0) {
+			value = value / Math.pow(10, fractionDigits);
+		}
+		return negative ? - value : value;
+	}
+
+	/**
+	 * @return the seconds of a time given as HHMM
+	 */
+	public int getTimeOfDaySeconds(int column){
+		int start = this.fieldStart[column];
+		int end = this.fieldEnd[column];
+		return this.parseInt(start, start + 2, column) * 3600 + this.parseInt(start + 2, end, column) * 60;
+	}
+
+	/**
+	 * @return the seconds of an elapsed time given as HHHMM
+	 */
+	public int getElapsedTimeSeconds(int column){
+		int start = this.fieldStart[column];
+		int end = this.fieldEnd[column];
+		return this.parseInt(start, start + 3, column) * 3600 + this.parseInt(start + 3, end, column) * 60;
+	}
+
+	/**
+	 * @return the non space characters of the column, i.e. the days of operation "1 3 5 7" as {'1','3','5','7'}
+	 */
+	public char[] getCharsWithoutSpaces(int column){
+		int count = 0;
+		for (int i = this.fieldStart[column]; i < this.fieldEnd[column]; i++){
+			if (this.buffer.get(i) != SPACE) {
+				count++;
+			}
+		}
+		char[] chars = new char[count];
+		count = 0;
+		for (int i = this.fieldStart[column]; i < this.fieldEnd[column]; i++){
+			byte b = this.buffer.get(i);
+			if (b != SPACE) {
+				chars[count] = (char) (b & 0xff);
+				count++;
+			}
+		}
+		return chars;
+	}
+
+	private int parseInt(int start, int end, int column){
+		while (start < end && this.buffer.get(start) <= SPACE) {
+			start++;
+		}
+		while (end > start && this.buffer.get(end - 1) <= SPACE) {
+			end--;
+		}
+		if (start >= end || end > this.fieldEnd[column]) {
+			throw new NumberFormatException("Cannot parse number in column " + column + ": '" + this.getString(column) + "'");
+		}
+		boolean negative = false;
+		if (this.buffer.get(start) == '-' || this.buffer.get(start) == '+') {
+			negative = this.buffer.get(start) == '-';
+			start++;
+		}
+		int value = 0;
+		for (int i = start; i < end; i++){
+			byte b = this.buffer.get(i);
+			if (b < '0' || b > '9') {
+				throw new NumberFormatException("Cannot parse number in column " + column + ": '" + this.getString(column) + "'");
+			}
+			value = value * 10 + (b - '0');
+		}
+		return negative ? - value : value;
+	}
+
+}
@@ -0,0 +1,34 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagRecordHandler
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+
+/**
+ * Receives the lines of an OAG file from the {@link DgOagMappedReader}. The record is reused
+ * for the next line, thus it must not be stored.
+ *
+ * @author dgrether
+ *
+ */
+public interface DgOagRecordHandler {
+
+	public void handleRecord(DgOagRecord record);
+
+}
@@ -0,0 +1,314 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagSnapshotCache
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Directory of binary snapshots of parsed OAG tables and of filtered flight data. The snapshots are
+ * addressed by a key that is derived from the content of the input files and the configuration that was used
+ * to create them, e.g. the hash of the OAG file for the table or the hash of the OAG file, the airport and UTC offset
+ * files and the filter settings for the flights. If one of them changes the key changes as well, thus a
+ * snapshot never needs to be invalidated.
+ *
+ * Snapshots are loaded through a memory mapping of the file. A snapshot written with another version of
+ * the format is ignored and overwritten by the next store. Snapshots are written to a temporary file that is
+ * renamed when complete, thus a broken run never leaves a partial snapshot.
+ *
+ * @author dgrether
+ *
+ */
+public class DgOagSnapshotCache {
+
+	private static final Logger log = Logger.getLogger(DgOagSnapshotCache.class);
+
+	private static final int MAGIC = 0x4f414753;
+
+	/**
+	 * increase if the format of the snapshots or the semantics of the parser or filter change
+	 */
+	public static final int VERSION = 3;
+
+	private static final byte KIND_TABLE = 1;
+
+	private static final byte KIND_FLIGHTS = 2;
+
+	private static final int HASH_WINDOW_SIZE = 1 << 26;
+
+	private final File directory;
+
+	public DgOagSnapshotCache(String cacheDirectory) {
+		this.directory = new File(cacheDirectory);
+	}
+
+	/**
+	 * @return the SHA-256 of the file content as hex string
+	 */
+	public static String hashFile(String filename) throws IOException {
+		MessageDigest digest = createDigest();
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+				FileChannel channel = file.getChannel()) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += HASH_WINDOW_SIZE) {
+				long length = Math.min(HASH_WINDOW_SIZE, size - position);
+				digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @return the SHA-256 of the parts and the snapshot version as hex string
+	 */
+	public static String createKey(String... parts) {
+		MessageDigest digest = createDigest();
+		digest.update(Integer.toString(VERSION).getBytes(StandardCharsets.UTF_8));
+		for (String part : parts) {
+			digest.update((byte) 0);
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the table or null if there is no valid snapshot for the key
+	 */
+	public OagFlightTable loadTable(String key) throws IOException {
+		File file = this.getTableFile(key);
+		ByteBuffer in = map(file, KIND_TABLE);
+		if (in == null) {
+			return null;
+		}
+		try {
+			OagFlightTable table = OagFlightTable.readSnapshot(in);
+			if (in.hasRemaining()) {
+				throw new IllegalStateException(in.remaining() + " bytes after the end of the table");
+			}
+			log.info("Loaded " + table.size() + " OAG rows from snapshot " + file);
+			return table;
+		}
+		catch (RuntimeException e) {
+			// a truncated or otherwise corrupt file is a cache miss, the data is created again
+			log.warn("Snapshot " + file + " is corrupt, ignoring it: " + e);
+			return null;
+		}
+	}
+
+	public void storeTable(String key, OagFlightTable table) throws IOException {
+		File file = this.getTableFile(key);
+		File tmpFile = createTempFile(file);
+		try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+				DgOagSnapshotOutput out = new DgOagSnapshotOutput(raf.getChannel())) {
+			writeHeader(out, KIND_TABLE);
+			table.writeSnapshot(out);
+		}
+		commit(tmpFile, file);
+	}
+
+	/**
+	 * @param airports filled with the coordinates of the airports used by the flights
+	 * @return the flights or null if there is no valid snapshot for the key
+	 */
+	public DgOagFlightsData loadFlights(String key, Map<String, Coord> airports) throws IOException {
+		return loadFlights(this.getFlightsFile(key), key, airports);
+	}
+
+	public void storeFlights(String key, DgOagFlightsData data, Map<String, Coord> airports) throws IOException {
+		storeFlights(this.getFlightsFile(key), key, data, airports);
+	}
+
+	/**
+	 * Loads flights from a snapshot file outside of the cache directory, e.g. the flights a scenario was built from.
+	 * @param configuration the configuration the snapshot must have been stored with
+	 * @param airports filled with the coordinates of the airports used by the flights
+	 * @return the flights or null if the file does not exist or was stored with another version or configuration
+	 */
+	public static DgOagFlightsData loadFlights(File file, String configuration, Map<String, Coord> airports) throws IOException {
+		ByteBuffer in = map(file, KIND_FLIGHTS);
+		if (in == null) {
+			return null;
+		}
+		try {
+			if (! configuration.equals(DgOagSnapshotOutput.getString(in))) {
+				log.info("Snapshot " + file + " was stored with another configuration, ignoring it.");
+				return null;
+			}
+			OagFlightTable.CodeIndex codes = new OagFlightTable.CodeIndex();
+			codes.readSnapshot(in);
+			int numberOfAirports = in.getInt();
+			for (int i = 0; i < numberOfAirports; i++){
+				String code = codes.getCode(in.getInt());
+				double x = in.getDouble();
+				double y = in.getDouble();
+				airports.put(code, new Coord(x, y));
+			}
+			DgOagFlightsData data = new DgOagFlightsData();
+			int numberOfFlights = in.getInt();
+			for (int i = 0; i < numberOfFlights; i++){
+				DgOagFlight flight = new DgOagFlight(DgOagSnapshotOutput.getString(in));
+				flight.setRoute(codes.getCode(in.getInt()));
+				flight.setCarrier(codes.getCode(in.getInt()));
+				flight.setAircraftType(codes.getCode(in.getInt()));
+				flight.setOriginCode(codes.getCode(in.getInt()));
+				flight.setDestinationCode(codes.getCode(in.getInt()));
+				flight.setDepartureTime(in.getDouble());
+				flight.setDuration(in.getDouble());
+				flight.setSeatsAvailable(in.getInt());
+				flight.setDistanceKm(in.getDouble());
+				data.addFlight(flight);
+			}
+			if (in.hasRemaining()) {
+				throw new IllegalStateException(in.remaining() + " bytes after the end of the flights");
+			}
+			log.info("Loaded " + numberOfFlights + " flights and " + numberOfAirports + " airports from snapshot " + file);
+			return data;
+		}
+		catch (RuntimeException e) {
+			// a truncated or otherwise corrupt file is a cache miss, the data is created again
+			log.warn("Snapshot " + file + " is corrupt, ignoring it: " + e);
+			return null;
+		}
+	}
+
+	public static void storeFlights(File file, String configuration, DgOagFlightsData data, Map<String, Coord> airports) throws IOException {
+		OagFlightTable.CodeIndex codes = new OagFlightTable.CodeIndex();
+		for (String airport : airports.keySet()) {
+			codes.getId(airport);
+		}
+		for (DgOagFlight flight : data.getFlightDesignatorFlightMap().values()) {
+			codes.getId(flight.getRoute());
+			codes.getId(flight.getCarrier());
+			codes.getId(flight.getAircraftType());
+			codes.getId(flight.getOriginCode());
+			codes.getId(flight.getDestinationCode());
+		}
+		File tmpFile = createTempFile(file);
+		try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+				DgOagSnapshotOutput out = new DgOagSnapshotOutput(raf.getChannel())) {
+			writeHeader(out, KIND_FLIGHTS);
+			out.putString(configuration);
+			codes.writeSnapshot(out);
+			out.putInt(airports.size());
+			for (Entry<String, Coord> e : airports.entrySet()) {
+				out.putInt(codes.lookupId(e.getKey()));
+				out.putDouble(e.getValue().getX());
+				out.putDouble(e.getValue().getY());
+			}
+			out.putInt(data.getFlightDesignatorFlightMap().size());
+			for (DgOagFlight flight : data.getFlightDesignatorFlightMap().values()) {
+				out.putString(flight.getFlightDesignator());
+				out.putInt(codes.lookupId(flight.getRoute()));
+				out.putInt(codes.lookupId(flight.getCarrier()));
+				out.putInt(codes.lookupId(flight.getAircraftType()));
+				out.putInt(codes.lookupId(flight.getOriginCode()));
+				out.putInt(codes.lookupId(flight.getDestinationCode()));
+				out.putDouble(flight.getDepartureTime());
+				out.putDouble(flight.getScheduledDuration());
+				out.putInt(flight.getSeatsAvailable());
+				out.putDouble(flight.getDistanceKm());
+			}
+		}
+		commit(tmpFile, file);
+	}
+
+	private File getTableFile(String key) {
+		return new File(this.directory, "oag_table_" + key + ".bin");
+	}
+
+	private File getFlightsFile(String key) {
+		return new File(this.directory, "oag_flights_" + key + ".bin");
+	}
+
+	private static File createTempFile(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (! directory.exists() && ! directory.mkdirs()) {
+			throw new IOException("Cannot create snapshot directory " + directory);
+		}
+		return File.createTempFile(file.getName(), ".tmp", directory);
+	}
+
+	private static void commit(File tmpFile, File file) throws IOException {
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log.info("Wrote snapshot " + file);
+	}
+
+	private static void writeHeader(DgOagSnapshotOutput out, byte kind) throws IOException {
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putByte(kind);
+	}
+
+	/**
+	 * @return the mapped file positioned after the header or null if the file does not exist or has
+	 * another format
+	 */
+	private static ByteBuffer map(File file, byte kind) throws IOException {
+		if (! file.exists()) {
+			return null;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				log.warn("Snapshot " + file + " is too large to be mapped, ignoring it.");
+				return null;
+			}
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.remaining() < 9 || in.getInt() != MAGIC || in.getInt() != VERSION || in.get() != kind) {
+				log.warn("Snapshot " + file + " has another format or version, ignoring it.");
+				return null;
+			}
+			return in;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagSnapshotOutput
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Writes the primitive values of a snapshot in big endian byte order through a buffer to a FileChannel.
+ * The static methods read the values back from a (mapped) ByteBuffer.
+ *
+ * @author dgrether
+ *
+ */
+final class DgOagSnapshotOutput implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	DgOagSnapshotOutput(FileChannel channel){
+		this.channel = channel;
+	}
+
+	private void ensureRemaining(int bytes) throws IOException {
+		if (this.buffer.remaining() < bytes) {
+			this.flush();
+		}
+	}
+
+	void putByte(byte value) throws IOException {
+		this.ensureRemaining(1);
+		this.buffer.put(value);
+	}
+
+	void putInt(int value) throws IOException {
+		this.ensureRemaining(4);
+		this.buffer.putInt(value);
+	}
+
+	void putLong(long value) throws IOException {
+		this.ensureRemaining(8);
+		this.buffer.putLong(value);
+	}
+
+	void putDouble(double value) throws IOException {
+		this.ensureRemaining(8);
+		this.buffer.putDouble(value);
+	}
+
+	void putString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.putInt(bytes.length);
+		for (int i = 0; i < bytes.length; i += BUFFER_SIZE) {
+			int length = Math.min(BUFFER_SIZE, bytes.length - i);
+			this.ensureRemaining(length);
+			this.buffer.put(bytes, i, length);
+		}
+	}
+
+	void putInts(int[] values, int length) throws IOException {
+		for (int i = 0; i < length; i++){
+			this.putInt(values[i]);
+		}
+	}
+
+	void putShorts(short[] values, int length) throws IOException {
+		for (int i = 0; i < length; i++){
+			this.ensureRemaining(2);
+			this.buffer.putShort(values[i]);
+		}
+	}
+
+	void putBytes(byte[] values, int length) throws IOException {
+		for (int i = 0; i < length; i += BUFFER_SIZE) {
+			int l = Math.min(BUFFER_SIZE, length - i);
+			this.ensureRemaining(l);
+			this.buffer.put(values, i, l);
+		}
+	}
+
+	void putDoubles(double[] values, int length) throws IOException {
+		for (int i = 0; i < length; i++){
+			this.putDouble(values[i]);
+		}
+	}
+
+	void flush() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.flush();
+	}
+
+	static String getString(ByteBuffer in){
+		byte[] bytes = new byte[checkLength(in, in.getInt(), 1)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static int[] getInts(ByteBuffer in, int length){
+		int[] values = new int[checkLength(in, length, 4)];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + length * 4);
+		return values;
+	}
+
+	static short[] getShorts(ByteBuffer in, int length){
+		short[] values = new short[checkLength(in, length, 2)];
+		in.asShortBuffer().get(values);
+		in.position(in.position() + length * 2);
+		return values;
+	}
+
+	static byte[] getBytes(ByteBuffer in, int length){
+		byte[] values = new byte[checkLength(in, length, 1)];
+		in.get(values);
+		return values;
+	}
+
+	static double[] getDoubles(ByteBuffer in, int length){
+		double[] values = new double[checkLength(in, length, 8)];
+		in.asDoubleBuffer().get(values);
+		in.position(in.position() + length * 8);
+		return values;
+	}
+
+	/**
+	 * Checks a length read from a snapshot before an array is allocated for it, thus a corrupt file can not
+	 * request arrays larger than the file.
+	 */
+	private static int checkLength(ByteBuffer in, int length, int bytesPerElement){
+		if (length < 0 || (long) length * bytesPerElement > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		return length;
+	}
+
+}
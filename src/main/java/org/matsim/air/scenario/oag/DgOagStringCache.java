@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagStringCache
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Returns the same String instance for the same sequence of (single byte) characters in a buffer.
+ * The OAG data repeats the same few thousand airport, country, carrier and aircraft codes millions of times,
+ * thus looking them up by their bytes avoids to create a new String for each field of each line.
+ *
+ * The cache only shares String instances, it does not number the codes: the ids of the codes are given by the
+ * {@link OagFlightTable} a record is added to. The tables of a streamed read
+ * ({@link DgOagReader#readOagTable(String, java.util.function.Consumer)}) share the cache of their reading thread but
+ * each has its own code ids, thus the ids of different tables must not be compared.
+ *
+ * Not thread safe, use one instance per reading thread.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgOagStringCache {
+
+	private static final int MAX_CACHED_LENGTH = 16;
+
+	private static final int MAX_CAPACITY = 1 << 20;
+
+	private String[] table = new String[1 << 12];
+
+	private int size = 0;
+
+	public String get(ByteBuffer buffer, int start, int end, boolean upperCase, char spaceReplacement){
+		int length = end - start;
+		if (length > MAX_CACHED_LENGTH) {
+			return this.createString(buffer, start, end, upperCase, spaceReplacement);
+		}
+		int hash = 0;
+		for (int i = start; i < end; i++){
+			hash = 31 * hash + convert(buffer.get(i), upperCase, spaceReplacement);
+		}
+		int mask = this.table.length - 1;
+		int index = mix(hash) & mask;
+		String s = this.table[index];
+		while (s != null) {
+			if (equals(s, buffer, start, end, upperCase, spaceReplacement)) {
+				return s;
+			}
+			index = (index + 1) & mask;
+			s = this.table[index];
+		}
+		s = this.createString(buffer, start, end, upperCase, spaceReplacement);
+		if (this.size * 2 >= this.table.length) {
+			if (this.table.length >= MAX_CAPACITY) {
+				return s;
+			}
+			this.grow();
+			mask = this.table.length - 1;
+			index = mix(hash) & mask;
+			while (this.table[index] != null) {
+				index = (index + 1) & mask;
+			}
+		}
+		this.table[index] = s;
+		this.size++;
+		return s;
+	}
+
+	public int size(){
+		return this.size;
+	}
+
+	private void grow(){
+		String[] old = this.table;
+		this.table = new String[old.length * 2];
+		int mask = this.table.length - 1;
+		for (String s : old){
+			if (s != null) {
+				int index = mix(s.hashCode()) & mask;
+				while (this.table[index] != null) {
+					index = (index + 1) & mask;
+				}
+				this.table[index] = s;
+			}
+		}
+	}
+
+	private String createString(ByteBuffer buffer, int start, int end, boolean upperCase, char spaceReplacement){
+		char[] chars = new char[end - start];
+		for (int i = start; i < end; i++){
+			chars[i - start] = convert(buffer.get(i), upperCase, spaceReplacement);
+		}
+		return new String(chars);
+	}
+
+	private static boolean equals(String s, ByteBuffer buffer, int start, int end, boolean upperCase, char spaceReplacement){
+		if (s.length() != end - start) {
+			return false;
+		}
+		for (int i = start; i < end; i++){
+			if (s.charAt(i - start) != convert(buffer.get(i), upperCase, spaceReplacement)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char convert(byte b, boolean upperCase, char spaceReplacement){
+		char c = (char) (b & 0xff);
+		if (upperCase && c >= 'a' && c <= 'z') {
+			c = (char) (c - ('a' - 'A'));
+		}
+		else if (spaceReplacement != 0 && c == ' ') {
+			c = spaceReplacement;
+		}
+		return c;
+	}
+
+	/**
+	 * the hash of the chars is the one of String.hashCode(), spread it as the table is indexed by the low bits
+	 */
+	private static int mix(int hash){
+		return hash ^ (hash >>> 16);
+	}
+
+}
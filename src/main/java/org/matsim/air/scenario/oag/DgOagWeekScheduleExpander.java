@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagWeekScheduleExpander
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+
+/**
+ * Expands the days of operation of OAG flights into single departures.
+ *
+ * The departure time of the OAG data is given in local time of the origin airport. For each day of operation
+ * that is selected for expansion the local departure is shifted by the day and converted to UTC. All departures
+ * are relative to 00:00 UTC of the first selected day and wrapped into the period from the first to the last selected day,
+ * i.e. the schedule is assumed to repeat: a monday flight that departs before midnight UTC on sunday is moved to the
+ * end of the week, a flight of a single day model that departs on the previous day in UTC is moved to the end of the day.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgOagWeekScheduleExpander {
+
+	public static final int SECONDS_PER_DAY = 24 * 3600;
+
+	public static final int ALL_DAYS = 0x7f;
+
+	private final int selectedDays;
+
+	private final int firstDay;
+
+	private final int periodSeconds;
+
+	/**
+	 * @param selectedDays bit i is set if day i + 1 of the week is expanded, see {@link OagFlightTable#getDaysOfOperationMask(int)}
+	 */
+	public DgOagWeekScheduleExpander(int selectedDays) {
+		if ((selectedDays & ALL_DAYS) == 0 || (selectedDays & ~ALL_DAYS) != 0) {
+			throw new IllegalArgumentException("Invalid days of operation mask: " + Integer.toBinaryString(selectedDays));
+		}
+		this.selectedDays = selectedDays;
+		this.firstDay = Integer.numberOfTrailingZeros(selectedDays) + 1;
+		int lastDay = 32 - Integer.numberOfLeadingZeros(selectedDays);
+		this.periodSeconds = (lastDay - this.firstDay + 1) * SECONDS_PER_DAY;
+	}
+
+	public static DgOagWeekScheduleExpander createSingleDayExpander(int dayOfWeek) {
+		return new DgOagWeekScheduleExpander(1 << (dayOfWeek - 1));
+	}
+
+	public static DgOagWeekScheduleExpander createWeekExpander() {
+		return new DgOagWeekScheduleExpander(ALL_DAYS);
+	}
+
+	public boolean isSingleDay() {
+		return Integer.bitCount(this.selectedDays) == 1;
+	}
+
+	/**
+	 * @return the selected days the row operates on as mask
+	 */
+	public int getOperatingDays(OagFlightTable table, int row) {
+		return table.getDaysOfOperationMask(row) & this.selectedDays;
+	}
+
+	/**
+	 * Creates the departures of the given rows of the table in a single pass. The departures of a row
+	 * are consecutive and ordered by day, the rows are in the given order.
+	 *
+	 * @param rows the rows to expand, only the first numberOfRows entries are used
+	 * @param utcOffsetSeconds the UTC offset of the origin airport for each of the rows
+	 */
+	public DgOagDepartures expand(OagFlightTable table, int[] rows, int[] utcOffsetSeconds, int numberOfRows) {
+		int numberOfDepartures = 0;
+		for (int i = 0; i < numberOfRows; i++) {
+			numberOfDepartures += Integer.bitCount(this.getOperatingDays(table, rows[i]));
+		}
+		DgOagDepartures departures = new DgOagDepartures(numberOfDepartures);
+		for (int i = 0; i < numberOfRows; i++) {
+			int row = rows[i];
+			int utcDeparture = table.getDepartureTimeSeconds(row) - utcOffsetSeconds[i];
+			int mask = this.getOperatingDays(table, row);
+			while (mask != 0) {
+				int day = Integer.numberOfTrailingZeros(mask) + 1;
+				mask &= mask - 1;
+				departures.add(row, day, this.getDepartureSeconds(day, utcDeparture));
+			}
+		}
+		return departures;
+	}
+
+	/**
+	 * @param utcDeparture the local departure time minus the UTC offset in seconds, may be negative
+	 * @return the departure in seconds after 00:00 UTC of the first selected day
+	 */
+	int getDepartureSeconds(int day, int utcDeparture) {
+		int departure = (day - this.firstDay) * SECONDS_PER_DAY + utcDeparture;
+		departure %= this.periodSeconds;
+		if (departure < 0) {
+			departure += this.periodSeconds;
+		}
+		return departure;
+	}
+
+	/**
+	 * @return the designator of the departure on the day, in a schedule of several days the day is appended, e.g. LH00400_3
+	 * for the wednesday departure, as the flight departs on each of its days
+	 */
+	public String getFlightDesignator(String flightDesignator, int day) {
+		if (this.isSingleDay()) {
+			return flightDesignator;
+		}
+		return flightDesignator + "_" + day;
+	}
+
+	/**
+	 * @param utcOffsetHours the offset as given in the utc offsets file
+	 */
+	public static int getUtcOffsetSeconds(double utcOffsetHours) {
+		return (int) Math.round(utcOffsetHours * 3600.0);
+	}
+
+}
@@ -0,0 +1,562 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OagFlightTable
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Column store of the OAG lines. Holds the same information as a List of {@link DgOagLine} in primitive
+ * arrays: codes of airports, countries, carriers, flight numbers and aircraft types are stored as int ids
+ * of a {@link CodeIndex}, times in seconds, the days of operation as bit mask (bit 0 for monday, i.e. '1',
+ * up to bit 6 for sunday, i.e. '7'). The full routing is only kept with its length.
+ *
+ * Rows are addressed by their index in the order they were added, i.e. the order of the OAG file.
+ *
+ * @author dgrether
+ *
+ */
+public final class OagFlightTable {
+
+	public interface RowFilter {
+		public boolean accept(OagFlightTable table, int row);
+	}
+
+	private static final int FLAG_CODESHARE = 1;
+
+	private final CodeIndex airports = new CodeIndex();
+	private final CodeIndex countries = new CodeIndex();
+	private final CodeIndex carriers = new CodeIndex();
+	private final CodeIndex flightNumbers = new CodeIndex();
+	private final CodeIndex aircraftTypes = new CodeIndex();
+
+	private int size = 0;
+
+	private int[] carrier;
+	private int[] flightNumber;
+	private int[] originAirport;
+	private int[] destinationAirport;
+	private int[] originCountry;
+	private int[] destinationCountry;
+	private int[] aircraftType;
+	private int[] departureSeconds;
+	private int[] durationSeconds;
+	private int[] seats;
+	private double[] distanceMiles;
+	private byte[] stops;
+	private short[] fullRoutingLength;
+	private byte[] daysOfOperation;
+	private byte[] flags;
+
+	public OagFlightTable(){
+		this(1024);
+	}
+
+	public OagFlightTable(int initialCapacity){
+		this.allocate(Math.max(initialCapacity, 16));
+	}
+
+	private void allocate(int capacity){
+		this.carrier = resize(this.carrier, capacity);
+		this.flightNumber = resize(this.flightNumber, capacity);
+		this.originAirport = resize(this.originAirport, capacity);
+		this.destinationAirport = resize(this.destinationAirport, capacity);
+		this.originCountry = resize(this.originCountry, capacity);
+		this.destinationCountry = resize(this.destinationCountry, capacity);
+		this.aircraftType = resize(this.aircraftType, capacity);
+		this.departureSeconds = resize(this.departureSeconds, capacity);
+		this.durationSeconds = resize(this.durationSeconds, capacity);
+		this.seats = resize(this.seats, capacity);
+		this.distanceMiles = this.distanceMiles == null ? new double[capacity] : Arrays.copyOf(this.distanceMiles, capacity);
+		this.stops = resize(this.stops, capacity);
+		this.fullRoutingLength = this.fullRoutingLength == null ? new short[capacity] : Arrays.copyOf(this.fullRoutingLength, capacity);
+		this.daysOfOperation = resize(this.daysOfOperation, capacity);
+		this.flags = resize(this.flags, capacity);
+	}
+
+	private static int[] resize(int[] a, int capacity){
+		return a == null ? new int[capacity] : Arrays.copyOf(a, capacity);
+	}
+
+	private static byte[] resize(byte[] a, int capacity){
+		return a == null ? new byte[capacity] : Arrays.copyOf(a, capacity);
+	}
+
+	private int nextRow(){
+		if (this.size == this.carrier.length) {
+			this.allocate(this.carrier.length * 2);
+		}
+		return this.size++;
+	}
+
+	/**
+	 * Releases the unused capacity of the columns.
+	 */
+	public void trimToSize(){
+		if (this.size < this.carrier.length) {
+			this.allocate(Math.max(this.size, 16));
+		}
+	}
+
+	/**
+	 * Adds a row decoded from the bytes of the OAG file, same semantics as the DgOagLine constructor.
+	 * @return the row index
+	 */
+	public int addRecord(DgOagRecord r){
+		int row = this.nextRow();
+		this.carrier[row] = this.carriers.getId(r.getTrimmedString(DgOagRecord.CARRIER));
+		this.flightNumber[row] = this.flightNumbers.getId(r.getStringReplaceSpaces(DgOagRecord.FLIGHT_NUMBER, '0'));
+		this.originAirport[row] = this.airports.getId(r.getTrimmedString(DgOagRecord.ORIGIN_AIRPORT));
+		this.destinationAirport[row] = this.airports.getId(r.getTrimmedString(DgOagRecord.DESTINATION_AIRPORT));
+		this.originCountry[row] = this.countries.getId(r.getTrimmedUpperCaseString(DgOagRecord.ORIGIN_COUNTRY));
+		this.destinationCountry[row] = this.countries.getId(r.getTrimmedUpperCaseString(DgOagRecord.DESTINATION_COUNTRY));
+		this.aircraftType[row] = this.aircraftTypes.getId(r.getTrimmedString(DgOagRecord.AIRCRAFT_TYPE));
+		this.departureSeconds[row] = r.getTimeOfDaySeconds(DgOagRecord.DEPARTURE_TIME);
+		this.durationSeconds[row] = r.getElapsedTimeSeconds(DgOagRecord.ELAPSED_TIME);
+		this.seats[row] = r.getInt(DgOagRecord.SEATS);
+		this.distanceMiles[row] = r.getDouble(DgOagRecord.DISTANCE_MILES);
+		this.stops[row] = toByte(r.getDouble(DgOagRecord.STOPS));
+		this.fullRoutingLength[row] = (short) Math.min(r.getFieldLength(DgOagRecord.FULL_ROUTING), Short.MAX_VALUE);
+		this.daysOfOperation[row] = createDaysOfOperationMask(r.getCharsWithoutSpaces(DgOagRecord.DAYS_OF_OPERATION));
+		boolean codeshare = ! (r.contains(DgOagRecord.OPERATING_MARKER, 'O') || r.isEmpty(DgOagRecord.SHARED_AIRLINE_DESIGNATOR)
+				|| r.isEmpty(DgOagRecord.DUPLICATE));
+		this.flags[row] = (byte) (codeshare ? FLAG_CODESHARE : 0);
+		return row;
+	}
+
+	/**
+	 * Appends all rows of the other table, the codes of the other table are mapped to the ids of this table.
+	 */
+	public void addAll(OagFlightTable other){
+		int[] carrierMap = this.carriers.addAll(other.carriers);
+		int[] flightNumberMap = this.flightNumbers.addAll(other.flightNumbers);
+		int[] airportMap = this.airports.addAll(other.airports);
+		int[] countryMap = this.countries.addAll(other.countries);
+		int[] aircraftTypeMap = this.aircraftTypes.addAll(other.aircraftTypes);
+		if (this.size + other.size > this.carrier.length) {
+			this.allocate(Math.max(this.size + other.size, this.carrier.length * 2));
+		}
+		for (int i = 0; i < other.size; i++){
+			int row = this.size + i;
+			this.carrier[row] = carrierMap[other.carrier[i]];
+			this.flightNumber[row] = flightNumberMap[other.flightNumber[i]];
+			this.originAirport[row] = airportMap[other.originAirport[i]];
+			this.destinationAirport[row] = airportMap[other.destinationAirport[i]];
+			this.originCountry[row] = countryMap[other.originCountry[i]];
+			this.destinationCountry[row] = countryMap[other.destinationCountry[i]];
+			this.aircraftType[row] = aircraftTypeMap[other.aircraftType[i]];
+		}
+		System.arraycopy(other.departureSeconds, 0, this.departureSeconds, this.size, other.size);
+		System.arraycopy(other.durationSeconds, 0, this.durationSeconds, this.size, other.size);
+		System.arraycopy(other.seats, 0, this.seats, this.size, other.size);
+		System.arraycopy(other.distanceMiles, 0, this.distanceMiles, this.size, other.size);
+		System.arraycopy(other.stops, 0, this.stops, this.size, other.size);
+		System.arraycopy(other.fullRoutingLength, 0, this.fullRoutingLength, this.size, other.size);
+		System.arraycopy(other.daysOfOperation, 0, this.daysOfOperation, this.size, other.size);
+		System.arraycopy(other.flags, 0, this.flags, this.size, other.size);
+		this.size += other.size;
+	}
+
+	/**
+	 * @return the row index
+	 */
+	public int addLine(DgOagLine l){
+		int row = this.nextRow();
+		this.carrier[row] = this.carriers.getId(l.getCarrier());
+		this.flightNumber[row] = this.flightNumbers.getId(l.getFlightNumber());
+		this.originAirport[row] = this.airports.getId(l.getOriginAirport());
+		this.destinationAirport[row] = this.airports.getId(l.getDestinationAirport());
+		this.originCountry[row] = this.countries.getId(l.getOriginCountry());
+		this.destinationCountry[row] = this.countries.getId(l.getDestinationCountry());
+		this.aircraftType[row] = this.aircraftTypes.getId(l.getAircraftType());
+		this.departureSeconds[row] = (int) l.getDepartureTimeSeconds();
+		this.durationSeconds[row] = (int) l.getFlightDurationSeconds();
+		this.seats[row] = l.getSeatsAvailable();
+		this.distanceMiles[row] = l.getFlightDistanceMiles();
+		this.stops[row] = toByte(l.getStops());
+		this.fullRoutingLength[row] = (short) Math.min(l.getFullRouting().length(), Short.MAX_VALUE);
+		this.daysOfOperation[row] = createDaysOfOperationMask(l.getDaysOfOperation());
+		this.flags[row] = (byte) (l.isCodeshareFlight() ? FLAG_CODESHARE : 0);
+		return row;
+	}
+
+	/**
+	 * Writes the code indices and the used part of the columns.
+	 */
+	void writeSnapshot(DgOagSnapshotOutput out) throws IOException {
+		this.airports.writeSnapshot(out);
+		this.countries.writeSnapshot(out);
+		this.carriers.writeSnapshot(out);
+		this.flightNumbers.writeSnapshot(out);
+		this.aircraftTypes.writeSnapshot(out);
+		out.putInt(this.size);
+		out.putInts(this.carrier, this.size);
+		out.putInts(this.flightNumber, this.size);
+		out.putInts(this.originAirport, this.size);
+		out.putInts(this.destinationAirport, this.size);
+		out.putInts(this.originCountry, this.size);
+		out.putInts(this.destinationCountry, this.size);
+		out.putInts(this.aircraftType, this.size);
+		out.putInts(this.departureSeconds, this.size);
+		out.putInts(this.durationSeconds, this.size);
+		out.putInts(this.seats, this.size);
+		out.putDoubles(this.distanceMiles, this.size);
+		out.putBytes(this.stops, this.size);
+		out.putShorts(this.fullRoutingLength, this.size);
+		out.putBytes(this.daysOfOperation, this.size);
+		out.putBytes(this.flags, this.size);
+	}
+
+	/**
+	 * Reads a table written by {@link #writeSnapshot(DgOagSnapshotOutput)}, the ids of the codes are the same
+	 * as in the written table.
+	 */
+	static OagFlightTable readSnapshot(ByteBuffer in){
+		OagFlightTable table = new OagFlightTable(16);
+		table.airports.readSnapshot(in);
+		table.countries.readSnapshot(in);
+		table.carriers.readSnapshot(in);
+		table.flightNumbers.readSnapshot(in);
+		table.aircraftTypes.readSnapshot(in);
+		int size = in.getInt();
+		table.size = size;
+		table.carrier = DgOagSnapshotOutput.getInts(in, size);
+		table.flightNumber = DgOagSnapshotOutput.getInts(in, size);
+		table.originAirport = DgOagSnapshotOutput.getInts(in, size);
+		table.destinationAirport = DgOagSnapshotOutput.getInts(in, size);
+		table.originCountry = DgOagSnapshotOutput.getInts(in, size);
+		table.destinationCountry = DgOagSnapshotOutput.getInts(in, size);
+		table.aircraftType = DgOagSnapshotOutput.getInts(in, size);
+		table.departureSeconds = DgOagSnapshotOutput.getInts(in, size);
+		table.durationSeconds = DgOagSnapshotOutput.getInts(in, size);
+		table.seats = DgOagSnapshotOutput.getInts(in, size);
+		table.distanceMiles = DgOagSnapshotOutput.getDoubles(in, size);
+		table.stops = DgOagSnapshotOutput.getBytes(in, size);
+		table.fullRoutingLength = DgOagSnapshotOutput.getShorts(in, size);
+		table.daysOfOperation = DgOagSnapshotOutput.getBytes(in, size);
+		table.flags = DgOagSnapshotOutput.getBytes(in, size);
+		checkIds(table.carrier, size, table.carriers);
+		checkIds(table.flightNumber, size, table.flightNumbers);
+		checkIds(table.originAirport, size, table.airports);
+		checkIds(table.destinationAirport, size, table.airports);
+		checkIds(table.originCountry, size, table.countries);
+		checkIds(table.destinationCountry, size, table.countries);
+		checkIds(table.aircraftType, size, table.aircraftTypes);
+		if (size < 16) {
+			table.allocate(16);
+		}
+		return table;
+	}
+
+	private static void checkIds(int[] ids, int size, CodeIndex codes){
+		for (int row = 0; row < size; row++){
+			if (ids[row] < 0 || ids[row] >= codes.size()) {
+				throw new IllegalStateException("code id " + ids[row] + " of row " + row + " is not in the snapshot");
+			}
+		}
+	}
+
+	private static byte toByte(double value){
+		return (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, value));
+	}
+
+	static byte createDaysOfOperationMask(char[] days){
+		int mask = 0;
+		for (char c : days){
+			if (c >= '1' && c <= '7') {
+				mask |= 1 << (c - '1');
+			}
+		}
+		return (byte) mask;
+	}
+
+	public int size(){
+		return this.size;
+	}
+
+	/**
+	 * @return the indices of all rows accepted by the filter in ascending order
+	 */
+	public int[] select(RowFilter filter){
+		int[] selected = new int[16];
+		int count = 0;
+		for (int row = 0; row < this.size; row++){
+			if (filter.accept(this, row)) {
+				if (count == selected.length) {
+					selected = Arrays.copyOf(selected, count * 2);
+				}
+				selected[count] = row;
+				count++;
+			}
+		}
+		return Arrays.copyOf(selected, count);
+	}
+
+	public CodeIndex getAirportCodes(){
+		return this.airports;
+	}
+
+	public CodeIndex getCountryCodes(){
+		return this.countries;
+	}
+
+	public CodeIndex getCarrierCodes(){
+		return this.carriers;
+	}
+
+	public CodeIndex getFlightNumberCodes(){
+		return this.flightNumbers;
+	}
+
+	public CodeIndex getAircraftTypeCodes(){
+		return this.aircraftTypes;
+	}
+
+	public int getCarrierId(int row){
+		return this.carrier[row];
+	}
+
+	public String getCarrier(int row){
+		return this.carriers.getCode(this.carrier[row]);
+	}
+
+	public int getFlightNumberId(int row){
+		return this.flightNumber[row];
+	}
+
+	public String getFlightNumber(int row){
+		return this.flightNumbers.getCode(this.flightNumber[row]);
+	}
+
+	public int getOriginAirportId(int row){
+		return this.originAirport[row];
+	}
+
+	public String getOriginAirport(int row){
+		return this.airports.getCode(this.originAirport[row]);
+	}
+
+	public int getDestinationAirportId(int row){
+		return this.destinationAirport[row];
+	}
+
+	public String getDestinationAirport(int row){
+		return this.airports.getCode(this.destinationAirport[row]);
+	}
+
+	public int getOriginCountryId(int row){
+		return this.originCountry[row];
+	}
+
+	public String getOriginCountry(int row){
+		return this.countries.getCode(this.originCountry[row]);
+	}
+
+	public int getDestinationCountryId(int row){
+		return this.destinationCountry[row];
+	}
+
+	public String getDestinationCountry(int row){
+		return this.countries.getCode(this.destinationCountry[row]);
+	}
+
+	public int getAircraftTypeId(int row){
+		return this.aircraftType[row];
+	}
+
+	public String getAircraftType(int row){
+		return this.aircraftTypes.getCode(this.aircraftType[row]);
+	}
+
+	public int getDepartureTimeSeconds(int row){
+		return this.departureSeconds[row];
+	}
+
+	public int getFlightDurationSeconds(int row){
+		return this.durationSeconds[row];
+	}
+
+	public int getSeatsAvailable(int row){
+		return this.seats[row];
+	}
+
+	public double getFlightDistanceMiles(int row){
+		return this.distanceMiles[row];
+	}
+
+	public double getFlightDistanceKm(int row){
+		return this.distanceMiles[row] * 1.609344; // statute miles to kilometers
+	}
+
+	public int getStops(int row){
+		return this.stops[row];
+	}
+
+	public int getFullRoutingLength(int row){
+		return this.fullRoutingLength[row];
+	}
+
+	/**
+	 * @return bit i is set if the flight operates on day i + 1 of the week, i.e. bit 0 for monday
+	 */
+	public int getDaysOfOperationMask(int row){
+		return this.daysOfOperation[row];
+	}
+
+	public boolean operatesOnDay(int row, int dayOfWeek){
+		return (this.daysOfOperation[row] & (1 << (dayOfWeek - 1))) != 0;
+	}
+
+	/**
+	 * @return the days of operation in the format of {@link DgOagLine#getDaysOfOperation()}
+	 */
+	public char[] getDaysOfOperation(int row){
+		int mask = this.daysOfOperation[row];
+		char[] days = new char[Integer.bitCount(mask)];
+		int i = 0;
+		for (int day = 1; day <= 7; day++){
+			if ((mask & (1 << (day - 1))) != 0) {
+				days[i] = (char) ('0' + day);
+				i++;
+			}
+		}
+		return days;
+	}
+
+	public boolean isCodeshareFlight(int row){
+		return (this.flags[row] & FLAG_CODESHARE) != 0;
+	}
+
+	/**
+	 * Dense mapping of codes to int ids, ids are assigned in the order the codes are added.
+	 */
+	public static final class CodeIndex {
+
+		private String[] codes = new String[64];
+
+		private int[] table = new int[128];
+
+		private int size = 0;
+
+		public CodeIndex(){
+			Arrays.fill(this.table, -1);
+		}
+
+		/**
+		 * @return the id of the code, a new id is assigned if the code is not known yet
+		 */
+		public int getId(String code){
+			int mask = this.table.length - 1;
+			int index = mix(code.hashCode()) & mask;
+			int id = this.table[index];
+			while (id != -1) {
+				if (this.codes[id].equals(code)) {
+					return id;
+				}
+				index = (index + 1) & mask;
+				id = this.table[index];
+			}
+			id = this.size;
+			if (id == this.codes.length) {
+				this.codes = Arrays.copyOf(this.codes, id * 2);
+			}
+			this.codes[id] = code;
+			this.size++;
+			this.table[index] = id;
+			if (this.size * 2 > this.table.length) {
+				this.rehash();
+			}
+			return id;
+		}
+
+		/**
+		 * @return the id of the code or -1 if the code is not known
+		 */
+		public int lookupId(String code){
+			int mask = this.table.length - 1;
+			int index = mix(code.hashCode()) & mask;
+			int id = this.table[index];
+			while (id != -1) {
+				if (this.codes[id].equals(code)) {
+					return id;
+				}
+				index = (index + 1) & mask;
+				id = this.table[index];
+			}
+			return -1;
+		}
+
+		/**
+		 * Adds the codes of the other index in the order of their ids.
+		 * @return the ids in this index by the ids of the other index
+		 */
+		public int[] addAll(CodeIndex other){
+			int[] map = new int[other.size];
+			for (int id = 0; id < other.size; id++){
+				map[id] = this.getId(other.codes[id]);
+			}
+			return map;
+		}
+
+		public String getCode(int id){
+			return this.codes[id];
+		}
+
+		public int size(){
+			return this.size;
+		}
+
+		void writeSnapshot(DgOagSnapshotOutput out) throws IOException {
+			out.putInt(this.size);
+			for (int id = 0; id < this.size; id++){
+				out.putString(this.codes[id]);
+			}
+		}
+
+		void readSnapshot(ByteBuffer in){
+			int n = in.getInt();
+			for (int id = 0; id < n; id++){
+				if (this.getId(DgOagSnapshotOutput.getString(in)) != id) {
+					throw new IllegalStateException("duplicate code in snapshot");
+				}
+			}
+		}
+
+		private void rehash(){
+			this.table = new int[this.table.length * 2];
+			Arrays.fill(this.table, -1);
+			int mask = this.table.length - 1;
+			for (int id = 0; id < this.size; id++){
+				int index = mix(this.codes[id].hashCode()) & mask;
+				while (this.table[index] != -1) {
+					index = (index + 1) & mask;
+				}
+				this.table[index] = id;
+			}
+		}
+
+		private static int mix(int hash){
+			return hash ^ (hash >>> 16);
+		}
+	}
+
+}
@@ -0,0 +1,302 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgTimeZoneIndex
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.utcoffsets;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygon;
+import org.matsim.core.utils.gis.ShapeFileReader;
+import org.opengis.feature.simple.SimpleFeature;
+
+
+/**
+ * Spatial index of time zone polygons in WGS84, x is the longitude and y the latitude in degrees.
+ *
+ * The polygons are read from a shape file with the time zone name of the IANA time zone database in an attribute,
+ * e.g. the shape files of the timezone-boundary-builder project with the attribute "tzid". The rings of the polygons
+ * are copied to flat arrays and the polygons are registered in a grid of one degree cells, thus a lookup tests only the
+ * polygons whose bounding box overlaps the cell of the point. A point is in a polygon if a ray from the point crosses
+ * the rings of the polygon an odd number of times, this includes the holes of the polygon.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgTimeZoneIndex {
+
+	private static final Logger log = Logger.getLogger(DgTimeZoneIndex.class);
+
+	public static final String TZID_ATTRIBUTE = "tzid";
+
+	private static final int COLUMNS = 360;
+
+	private static final int ROWS = 180;
+
+	private final ZoneId[] zones;
+
+	/**
+	 * the x and y values of all rings
+	 */
+	private final double[] coordinates;
+
+	/**
+	 * the first point of the ring in the coordinates, the rings of a polygon are consecutive
+	 */
+	private final int[] ringStarts;
+
+	/**
+	 * the first ring of the polygon
+	 */
+	private final int[] polygonRings;
+
+	/**
+	 * min x, min y, max x and max y of the polygon
+	 */
+	private final double[] bounds;
+
+	/**
+	 * the polygons by the grid cell, row * COLUMNS + column
+	 */
+	private final int[][] cells;
+
+	private DgTimeZoneIndex(Builder builder) {
+		int polygons = builder.zones.size();
+		this.zones = builder.zones.toArray(new ZoneId[polygons]);
+		this.coordinates = Arrays.copyOf(builder.coordinates, builder.numberOfCoordinates);
+		this.ringStarts = new int[builder.ringStarts.size() + 1];
+		for (int i = 0; i < builder.ringStarts.size(); i++) {
+			this.ringStarts[i] = builder.ringStarts.get(i);
+		}
+		this.ringStarts[this.ringStarts.length - 1] = builder.numberOfCoordinates / 2;
+		this.polygonRings = new int[polygons + 1];
+		for (int i = 0; i < polygons; i++) {
+			this.polygonRings[i] = builder.polygonRings.get(i);
+		}
+		this.polygonRings[polygons] = builder.ringStarts.size();
+		this.bounds = new double[polygons * 4];
+		for (int p = 0; p < polygons; p++) {
+			this.computeBounds(p);
+		}
+		this.cells = this.createCells();
+	}
+
+	private void computeBounds(int polygon) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int point = this.ringStarts[this.polygonRings[polygon]]; point < this.ringStarts[this.polygonRings[polygon + 1]]; point++) {
+			double x = this.coordinates[2 * point];
+			double y = this.coordinates[2 * point + 1];
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		this.bounds[4 * polygon] = minX;
+		this.bounds[4 * polygon + 1] = minY;
+		this.bounds[4 * polygon + 2] = maxX;
+		this.bounds[4 * polygon + 3] = maxY;
+	}
+
+	/**
+	 * Counts the polygons of each cell first, then fills the cells.
+	 */
+	private int[][] createCells() {
+		int polygons = this.zones.length;
+		int[] sizes = new int[COLUMNS * ROWS];
+		for (int p = 0; p < polygons; p++) {
+			for (int row = getRow(this.bounds[4 * p + 1]); row <= getRow(this.bounds[4 * p + 3]); row++) {
+				for (int column = getColumn(this.bounds[4 * p]); column <= getColumn(this.bounds[4 * p + 2]); column++) {
+					sizes[row * COLUMNS + column]++;
+				}
+			}
+		}
+		int[][] result = new int[COLUMNS * ROWS][];
+		for (int cell = 0; cell < result.length; cell++) {
+			result[cell] = new int[sizes[cell]];
+			sizes[cell] = 0;
+		}
+		for (int p = 0; p < polygons; p++) {
+			for (int row = getRow(this.bounds[4 * p + 1]); row <= getRow(this.bounds[4 * p + 3]); row++) {
+				for (int column = getColumn(this.bounds[4 * p]); column <= getColumn(this.bounds[4 * p + 2]); column++) {
+					int cell = row * COLUMNS + column;
+					result[cell][sizes[cell]++] = p;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int getColumn(double x) {
+		return Math.min(COLUMNS - 1, Math.max(0, (int) Math.floor(x + 180.0)));
+	}
+
+	private static int getRow(double y) {
+		return Math.min(ROWS - 1, Math.max(0, (int) Math.floor(y + 90.0)));
+	}
+
+	/**
+	 * Reads the polygons and the time zone names in the attribute {@link #TZID_ATTRIBUTE} of a shape file.
+	 */
+	public static DgTimeZoneIndex readShapeFile(String filename) {
+		return readShapeFile(filename, TZID_ATTRIBUTE);
+	}
+
+	public static DgTimeZoneIndex readShapeFile(String filename, String tzidAttribute) {
+		log.info("Reading time zone polygons from " + filename);
+		Builder builder = new Builder();
+		for (SimpleFeature feature : ShapeFileReader.getAllFeatures(filename)) {
+			String tzid = (String) feature.getAttribute(tzidAttribute);
+			Geometry geometry = (Geometry) feature.getDefaultGeometry();
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				Polygon polygon = (Polygon) geometry.getGeometryN(i);
+				List<double[]> rings = new ArrayList<double[]>();
+				rings.add(toRing(polygon.getExteriorRing().getCoordinates()));
+				for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+					rings.add(toRing(polygon.getInteriorRingN(j).getCoordinates()));
+				}
+				builder.addPolygon(tzid, rings);
+			}
+		}
+		DgTimeZoneIndex index = builder.build();
+		log.info("Read " + index.size() + " polygons of time zones.");
+		return index;
+	}
+
+	private static double[] toRing(Coordinate[] coordinates) {
+		double[] ring = new double[coordinates.length * 2];
+		for (int i = 0; i < coordinates.length; i++) {
+			ring[2 * i] = coordinates[i].x;
+			ring[2 * i + 1] = coordinates[i].y;
+		}
+		return ring;
+	}
+
+	/**
+	 * @return the number of polygons
+	 */
+	public int size() {
+		return this.zones.length;
+	}
+
+	/**
+	 * @param x the longitude in degrees
+	 * @param y the latitude in degrees
+	 * @return the time zone of the first polygon that contains the point or null if the point is in no polygon
+	 */
+	public ZoneId getZoneId(double x, double y) {
+		if (x >= 180.0 || x < -180.0) {
+			x = x - 360.0 * Math.floor((x + 180.0) / 360.0);
+		}
+		for (int p : this.cells[getRow(y) * COLUMNS + getColumn(x)]) {
+			if (x < this.bounds[4 * p] || y < this.bounds[4 * p + 1] || x > this.bounds[4 * p + 2] || y > this.bounds[4 * p + 3]) {
+				continue;
+			}
+			if (this.contains(p, x, y)) {
+				return this.zones[p];
+			}
+		}
+		return null;
+	}
+
+	private boolean contains(int polygon, double x, double y) {
+		boolean inside = false;
+		for (int ring = this.polygonRings[polygon]; ring < this.polygonRings[polygon + 1]; ring++) {
+			int first = this.ringStarts[ring];
+			int last = this.ringStarts[ring + 1] - 1;
+			for (int i = first, j = last; i <= last; j = i++) {
+				double xi = this.coordinates[2 * i];
+				double yi = this.coordinates[2 * i + 1];
+				double xj = this.coordinates[2 * j];
+				double yj = this.coordinates[2 * j + 1];
+				if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Collects the polygons of an index. Polygons without a time zone name, e.g. features of a shape file without the
+	 * attribute, or with a name that is not known to {@link ZoneId} are skipped with a warning.
+	 */
+	public static final class Builder {
+
+		private final List<ZoneId> zones = new ArrayList<ZoneId>();
+
+		private final List<Integer> polygonRings = new ArrayList<Integer>();
+
+		private final List<Integer> ringStarts = new ArrayList<Integer>();
+
+		private final Set<String> unknownZones = new HashSet<String>();
+
+		private double[] coordinates = new double[1024];
+
+		private int numberOfCoordinates = 0;
+
+		/**
+		 * @param rings the exterior ring and the holes of the polygon, each as x and y values of its points
+		 */
+		public Builder addPolygon(String tzid, List<double[]> rings) {
+			if (tzid == null) {
+				if (this.unknownZones.add(null)) {
+					log.warn("Polygons without time zone name are skipped.");
+				}
+				return this;
+			}
+			ZoneId zone;
+			try {
+				zone = ZoneId.of(tzid);
+			} catch (DateTimeException e) {
+				if (this.unknownZones.add(tzid)) {
+					log.warn("Unknown time zone " + tzid + ", the polygons of the time zone are skipped.");
+				}
+				return this;
+			}
+			this.zones.add(zone);
+			this.polygonRings.add(this.ringStarts.size());
+			for (double[] ring : rings) {
+				this.ringStarts.add(this.numberOfCoordinates / 2);
+				if (this.numberOfCoordinates + ring.length > this.coordinates.length) {
+					this.coordinates = Arrays.copyOf(this.coordinates, Math.max(2 * this.coordinates.length, this.numberOfCoordinates + ring.length));
+				}
+				System.arraycopy(ring, 0, this.coordinates, this.numberOfCoordinates, ring.length);
+				this.numberOfCoordinates += ring.length;
+			}
+			return this;
+		}
+
+		public DgTimeZoneIndex build() {
+			return new DgTimeZoneIndex(this);
+		}
+
+	}
+
+}
@@ -19,134 +19,110 @@
  * *********************************************************************** */
 package org.matsim.air.scenario.utcoffsets;
 
+import java.util.Arrays;
+
+import org.matsim.air.scenario.countryfilter.DgCountryCodes;
+
 
 /**
+ * UTC offsets of the countries in a table indexed by the ids of {@link DgCountryCodes}, thus a lookup by a country id
+ * is a single array access.
+ *
  * @author dgrether
  *
  */
 public class SfUTCOffsetDb {
 
-	public double getOffsetUTC(String originCountry) {
+	private static final double[] OFFSETS = new double[DgCountryCodes.NUMBER_OF_IDS];
 
-		if (originCountry.equalsIgnoreCase("AD"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("AL"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("AM"))
-			return 5;
-		else if (originCountry.equalsIgnoreCase("AT"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("AX"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("AZ"))
-			return 5;
-		else if (originCountry.equalsIgnoreCase("BA"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("BE"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("BG"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("BY"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("CH"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("CY"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("CZ"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("DE"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("DK"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("EE"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("ES"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("FI"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("FO"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("FR"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("GB"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("GI"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("GE"))
-			return 4;
-		else if (originCountry.equalsIgnoreCase("GG"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("GR"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("HR"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("HU"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("IE"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("IM"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("IS"))
-			return 0;
-		else if (originCountry.equalsIgnoreCase("IT"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("JE"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("KZ"))
-			return 6;
-		else if (originCountry.equalsIgnoreCase("LI"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("LT"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("LU"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("LV"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("MC"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("MD"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("ME"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("MK"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("MT"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("NL"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("NO"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("PL"))
-			return 2;
+	static {
+		Arrays.fill(OFFSETS, Double.NaN);
+		put("AD", 2);
+		put("AL", 2);
+		put("AM", 5);
+		put("AT", 2);
+		put("AX", 3);
+		put("AZ", 5);
+		put("BA", 2);
+		put("BE", 2);
+		put("BG", 3);
+		put("BY", 3);
+		put("CH", 2);
+		put("CY", 3);
+		put("CZ", 2);
+		put("DE", 2);
+		put("DK", 2);
+		put("EE", 3);
+		put("ES", 2);
+		put("FI", 3);
+		put("FO", 1);
+		put("FR", 2);
+		put("GB", 1);
+		put("GI", 2);
+		put("GE", 4);
+		put("GG", 1);
+		put("GR", 3);
+		put("HR", 2);
+		put("HU", 2);
+		put("IE", 1);
+		put("IM", 1);
+		put("IS", 0);
+		put("IT", 2);
+		put("JE", 1);
+		put("KZ", 6);
+		put("LI", 2);
+		put("LT", 3);
+		put("LU", 2);
+		put("LV", 3);
+		put("MC", 2);
+		put("MD", 3);
+		put("ME", 2);
+		put("MK", 2);
+		put("MT", 2);
+		put("NL", 2);
+		put("NO", 2);
+		put("PL", 2);
 		// Azores are UTC, while mainland and Madeira are UTC+1
-		else if (originCountry.equalsIgnoreCase("PT"))
-			return 1;
-		else if (originCountry.equalsIgnoreCase("RO"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("RS"))
-			return 0;
+		put("PT", 1);
+		put("RO", 3);
+		put("RS", 0);
 		// Russia with Moscow time zone offset UTC+4
-		else if (originCountry.equalsIgnoreCase("RU"))
-			return 4;
-		else if (originCountry.equalsIgnoreCase("SE"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("SI"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("SJ"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("SK"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("SM"))
-			return 2;
-		else if (originCountry.equalsIgnoreCase("TR"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("UA"))
-			return 3;
-		else if (originCountry.equalsIgnoreCase("VA"))
-			return 2;
+		put("RU", 4);
+		put("SE", 2);
+		put("SI", 2);
+		put("SJ", 2);
+		put("SK", 2);
+		put("SM", 2);
+		put("TR", 3);
+		put("UA", 3);
+		put("VA", 2);
+	}
+
+	private static void put(String country, double offset) {
+		OFFSETS[DgCountryCodes.getId(country)] = offset;
+	}
+
+	public double getOffsetUTC(String originCountry) {
+		int id = DgCountryCodes.getId(originCountry);
+		if (id < 0 || Double.isNaN(OFFSETS[id])) {
+			throw new RuntimeException("No UTC offset for country " + originCountry
+					+ " found in lookup table. Please add offset first!");
+		}
+		return OFFSETS[id];
+	}
 
-		throw new RuntimeException("No UTC offset for country " + originCountry
-				+ " found in lookup table. Please add offset first!");
+	/**
+	 * @param countryId the id of the country as given by {@link DgCountryCodes#getId(String)}
+	 */
+	public double getOffsetUTC(int countryId) {
+		if (countryId < 0 || countryId >= OFFSETS.length) {
+			throw new RuntimeException("No UTC offset for country id " + countryId + " found in lookup table.");
+		}
+		if (Double.isNaN(OFFSETS[countryId])) {
+			throw new RuntimeException("No UTC offset for country " + DgCountryCodes.getCode(countryId)
+					+ " found in lookup table. Please add offset first!");
+		}
+		return OFFSETS[countryId];
 	}
 	
 }
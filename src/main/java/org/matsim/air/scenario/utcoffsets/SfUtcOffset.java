@@ -19,43 +19,35 @@
  * *********************************************************************** */
 package org.matsim.air.scenario.utcoffsets;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
+import org.matsim.air.scenario.DgAirportsReader;
 import org.matsim.api.core.v01.Coord;
-import org.matsim.core.utils.geometry.CoordImpl;
 
 /**
- * Reads UTC Offsets for all airports in a OSM file from the webservice www.earthtools.org.
+ * Computes the UTC offsets of airports offline from the time zone polygons of a {@link DgTimeZoneIndex} and the rules
+ * of the time zones in java.time, thus daylight saving time is included. The offset is the one at noon local time of
+ * the given date, i.e. the date of the flight schedule.
  * 
- * The response from the webservice is a xml document, example:
- *<?xml version="1.0" encoding="ISO-8859-1" ?>
- *<timezone xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" xsi:noNamespaceSchemaLocation="http://www.earthtools.org/timezone-1.1.xsd">
- *	<version>1.1</version>
- *	<location>
- *		<latitude>41.8543</latitude>
- *  	<longitude>12.6453</longitude>
- * 	</location>
- * 	<offset>1</offset>
- * 	<suffix>A</suffix>
- * 	<localtime>25 Jan 2012 15:30:59</localtime>
- *	<isotime>2012-01-25 15:30:59 +0100</isotime>
- *	<utctime>2012-01-25 14:30:59</utctime>
- * 	<dst>False</dst>
- *</timezone>
+ * Airports outside of all polygons, e.g. if the polygons do not include the oceans, get the offset of the nautical
+ * time zone of their longitude.
  * 
+ * The output file contains a line with the airport code and the offset in hours separated by a tab per airport, as
+ * read by {@link DgUTCOffsetsReader}.
  * 
- * @see http://www.earthtools.org/webservices.htm
+ * Replaces the lookup of the offsets from the webservice www.earthtools.org that needed four seconds per airport.
  * 
  * @author sfuerbas
  * @author dgrether
@@ -72,94 +64,81 @@ public class SfUtcOffset {
 	
 	private static final String INPUTFILE_AIRPORTS = "Z:\\WinHome\\shared-svn\\studies\\countries\\world\\flight\\sf_oag_flight_model\\worldwide_airports_with_coords.csv";
 	private static final String OUTPUTFILE_UTC= "Z:\\WinHome\\shared-svn\\studies\\countries\\world\\flight\\utc_offsets.txt";
+	/**
+	 * the shape file of the time zones with oceans of the timezone-boundary-builder project
+	 */
+	private static final String INPUTFILE_TIMEZONES = "Z:\\WinHome\\shared-svn\\studies\\countries\\world\\timezones\\combined-shapefile-with-oceans.shp";
 	
-	private Map<String, Coord> airports = new HashMap<String,Coord>();
+	private final DgTimeZoneIndex timeZones;
 	
+	private final LocalDate date;
 	
-	public void writeUtcOffset(String inputAirportListFile, String outputFile) throws IOException, InterruptedException{
-
-		BufferedReader br = new BufferedReader(new FileReader(new File(inputAirportListFile)));
-		while (br.ready()) {
-			String line = br.readLine();
-			String[] entries = line.split("\t");
-			String airportCode = entries[0];
-			String xCoord = entries[1];
-			String yCoord = entries[2];
-			this.airports.put(airportCode, new CoordImpl(xCoord,yCoord));
+	private int nauticalZones = 0;
+	
+	public SfUtcOffset(DgTimeZoneIndex timeZones, LocalDate date) {
+		this.timeZones = timeZones;
+		this.date = date;
+	}
+	
+	public void writeUtcOffset(String inputAirportListFile, String outputFile) throws Exception {
+		log.info("Using the following inputfile: " + inputAirportListFile);
+		Map<String, Coord> airports = new DgAirportsReader().loadAirportCoordinates(inputAirportListFile);
+		SortedMap<String, Double> airportUTCOffsetMap = this.getUtcOffsets(airports);
+		log.info("Writing to file: " + outputFile);
+		writeUtcOffsets(airportUTCOffsetMap, outputFile);
+	}
+	
+	/**
+	 * @param airports the coordinates of the airports in WGS84, x the longitude and y the latitude in degrees
+	 * @return the offsets in hours by the airport code
+	 */
+	public SortedMap<String, Double> getUtcOffsets(Map<String, Coord> airports) {
+		log.info("Getting UTC offsets for " + airports.size() + " airports at " + this.date);
+		this.nauticalZones = 0;
+		SortedMap<String, Double> airportUTCOffsetMap = new TreeMap<String, Double>();
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			airportUTCOffsetMap.put(e.getKey(), this.getUtcOffset(e.getValue()));
 		}
-		
-		br.close();
-		
-		log.warn("This tool creates UTC offsets, however ignores daylight saving time");
-		log.warn("Using the following inputfile: "+inputAirportListFile);
-		
-		log.info("Getting UTC offsets for " + this.airports.size() + " airports. This will take 2 seconds per airport, at least...");
-		int count = 0;
-		Map<String, Double> airportUTCOffsetMap = new HashMap<String, Double>();
-		for (Entry<String, Coord> e : this.airports.entrySet()) {
-			Double utcOffset = getUtcOffset(this.airports.get(e.getKey()));
-			log.info("  Got offset for airport: " + e.getKey() + " offset: " + utcOffset);
-			airportUTCOffsetMap.put(e.getKey(), utcOffset);
-			count++;
-			if (count % 100 == 0){
-				log.info("  Got UTC offset for " + count + " airports of in total " + this.airports.size() + " airports");
-			}
+		if (this.nauticalZones > 0) {
+			log.warn(this.nauticalZones + " airports are in no time zone polygon, the offset of the nautical time zone is used.");
 		}
-		
-		log.info("Writing to file: " + outputFile);
-		//Output
+		return airportUTCOffsetMap;
+	}
+	
+	/**
+	 * @return the offset in hours at noon local time of the date
+	 */
+	public double getUtcOffset(Coord coord) {
+		ZoneOffset offset = this.getZoneId(coord).getRules().getOffset(this.date.atTime(LocalTime.NOON));
+		return offset.getTotalSeconds() / 3600.0;
+	}
+	
+	/**
+	 * @return the time zone of the polygon that contains the coordinate or the nautical time zone of the longitude
+	 */
+	public ZoneId getZoneId(Coord coord) {
+		ZoneId zone = this.timeZones.getZoneId(coord.getX(), coord.getY());	// MATSim y-axis used for latitude (north-south), x-axis for longitude (east-west)
+		if (zone == null) {
+			this.nauticalZones++;
+			log.debug("No time zone polygon at " + coord);
+			zone = ZoneOffset.ofHours((int) Math.round(coord.getX() / 15.0));
+		}
+		return zone;
+	}
+	
+	public static void writeUtcOffsets(Map<String, Double> airportUTCOffsetMap, String outputFile) throws IOException {
 		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(outputFile)));
 		for (Entry<String, Double> e : airportUTCOffsetMap.entrySet()) {
-			bw.write(e.getKey().toString() + "\t" +  e.getValue());
+			bw.write(e.getKey() + "\t" +  e.getValue());
 			bw.newLine();
 		}
 		bw.close();
 	}
-	
-	public static Double getUtcOffset(Coord coord) throws IOException, InterruptedException {
-		
-		Thread.sleep(4*1000); //requirement by the web service provider
-		double xCoord = Math.round(coord.getX()*1000.)/1000.;
-		double yCoord = Math.round(coord.getY()*1000.)/1000.;
-		String inputURL = "http://www.earthtools.org/timezone/"+yCoord+"/"+xCoord;	// MATSim y-axis used for latitude (north-south), x-axis for longitude (east-west)
-		
-		System.out.println(inputURL);
-		
-		URL oracle = new URL(inputURL);
-		BufferedReader in = new BufferedReader(
-		new InputStreamReader(oracle.openStream()));
-		
-		String inputLine;
-		double offset = 0;
-		
-		while ((inputLine = in.readLine()) != null) {
-			log.debug(inputLine);
-			if (inputLine.contains("offset")) {
-				inputLine = inputLine.replaceAll("<offset>", "");
-				inputLine = inputLine.replaceAll("</offset>", "");
-				inputLine = inputLine.replaceAll(" ", "");
-				offset = Double.parseDouble(inputLine);
-//				System.out.println(offset);
-			}
-// currently ignore daylight saving time
-			//			if (inputLine.contains("dst")) {
-//				inputLine = inputLine.replaceAll("<dst>", "");
-//				inputLine = inputLine.replaceAll("</dst>", "");
-//				inputLine = inputLine.replaceAll(" ", "");
-//				if (inputLine.equalsIgnoreCase("true"))  {
-//					offset++;
-//				}
-//				System.out.println("neu"+offset);
-//				System.out.println(inputLine);
-//			}
-		}
-		in.close();
-		return offset;
-	}
 
 	public static void main(String args[]) throws Exception {
-		SfUtcOffset test = new SfUtcOffset();
-		test.writeUtcOffset(INPUTFILE_AIRPORTS, OUTPUTFILE_UTC);
+		// the date of the OAG flights of September 2009
+		SfUtcOffset utcOffset = new SfUtcOffset(DgTimeZoneIndex.readShapeFile(INPUTFILE_TIMEZONES), LocalDate.of(2009, 9, 1));
+		utcOffset.writeUtcOffset(INPUTFILE_AIRPORTS, OUTPUTFILE_UTC);
 	}
 
 	
@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgDelayEventHandlerTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.analysis.delay;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgDelayEventHandlerTest {
+
+	@Test
+	public void testDelaysOfFlightRoutes() {
+		DgOagFlightsData flights = new DgOagFlightsData();
+		flights.addFlight(createFlight("LH1", 3600.0));
+		DgDelayEventHandler handler = new DgDelayEventHandler(flights);
+
+		startDriver(handler, "LH1", "FRA_MUC_LH1", "FRA_MUC_LH1");
+		departAndArrive(handler, "LH1", 3660.0, 6720.0);
+
+		// a departure that is not a flight is skipped
+		startDriver(handler, "bus", "bus_route", "bus_1");
+		departAndArrive(handler, "bus", 3700.0, 6800.0);
+
+		Assert.assertEquals(1, handler.getNumberOfUnknownDepartures());
+		Assert.assertEquals(1, handler.getFlightDelaysByFlightDesignatorMap().size());
+		assertDelay(handler, "LH1", 60.0, 120.0);
+	}
+
+	/**
+	 * With pooled departures the flights of a city pair, carrier and duration share a transit route, the flights
+	 * are identified by their departures.
+	 */
+	@Test
+	public void testDelaysOfPooledRoutes() {
+		DgOagFlightsData flights = new DgOagFlightsData();
+		flights.addFlight(createFlight("LH1", 3600.0));
+		flights.addFlight(createFlight("LH2", 7200.0));
+		DgDelayEventHandler handler = new DgDelayEventHandler(flights);
+
+		// the pooled route connectionlink_carrier_duration
+		startDriver(handler, "LH1", "FRA_MUC_LH_3000", "FRA_MUC_LH1");
+		startDriver(handler, "LH2", "FRA_MUC_LH_3000", "FRA_MUC_LH2");
+		departAndArrive(handler, "LH1", 3660.0, 6720.0);
+		departAndArrive(handler, "LH2", 7500.0, 10500.0);
+
+		Assert.assertEquals(0, handler.getNumberOfUnknownDepartures());
+		Assert.assertEquals(2, handler.getFlightDelaysByFlightDesignatorMap().size());
+		assertDelay(handler, "LH1", 60.0, 120.0);
+		assertDelay(handler, "LH2", 300.0, 300.0);
+
+		handler.reset(1);
+		Assert.assertTrue(handler.getFlightDelaysByFlightDesignatorMap().isEmpty());
+	}
+
+	private static DgOagFlight createFlight(String designator, double departureTime) {
+		DgOagFlight flight = new DgOagFlight(designator);
+		flight.setRoute("FRA_MUC");
+		flight.setCarrier("LH");
+		flight.setAircraftType("320");
+		flight.setOriginCode("FRA");
+		flight.setDestinationCode("MUC");
+		flight.setDepartureTime(departureTime);
+		flight.setDuration(3000.0);
+		flight.setSeatsAvailable(150);
+		flight.setDistanceKm(300.0);
+		return flight;
+	}
+
+	private static void startDriver(DgDelayEventHandler handler, String vehicle, String route, String departure) {
+		handler.handleEvent(new TransitDriverStartsEvent(0.0, Id.create("pt_" + vehicle, Person.class), Id.create(vehicle, Vehicle.class),
+				Id.create("FRA_MUC_LH", TransitLine.class), Id.create(route, TransitRoute.class), Id.create(departure, Departure.class)));
+	}
+
+	private static void departAndArrive(DgDelayEventHandler handler, String vehicle, double departureTime, double arrivalTime) {
+		Id<Vehicle> vehicleId = Id.create(vehicle, Vehicle.class);
+		handler.handleEvent(new VehicleDepartsAtFacilityEvent(departureTime, vehicleId, Id.create("FRA", TransitStopFacility.class), 0.0));
+		handler.handleEvent(new VehicleArrivesAtFacilityEvent(arrivalTime, vehicleId, Id.create("MUC", TransitStopFacility.class), 0.0));
+	}
+
+	private static void assertDelay(DgDelayEventHandler handler, String designator, double departureDelay, double arrivalDelay) {
+		DgFlightDelay delay = handler.getFlightDelaysByFlightDesignatorMap().get(designator);
+		Assert.assertNotNull(designator, delay);
+		Assert.assertEquals(departureDelay, delay.getDepartureDelay(), 1e-9);
+		Assert.assertEquals(arrivalDelay, delay.getArrivalDelay(), 1e-9);
+	}
+
+}
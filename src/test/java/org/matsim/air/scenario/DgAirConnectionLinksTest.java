@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirConnectionLinksTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * Tests the links between the airports in the modes of {@link DgAirConnectionLinks}.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAirConnectionLinksTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final double LENGTH = 6200.0 * 1000.0;
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * LH400 and AF10 have the same speed, UA900 is slower, LH401 is the flight back
+	 */
+	private static DgOagFlightsData createFlights() {
+		DgOagFlightsData flights = new DgOagFlightsData();
+		flights.addFlight(createFlight("LH00400", "LH", "FRA", "JFK", 8.0 * 3600.0));
+		flights.addFlight(createFlight("AF00010", "AF", "FRA", "JFK", 8.0 * 3600.0));
+		flights.addFlight(createFlight("UA00900", "UA", "FRA", "JFK", 9.0 * 3600.0));
+		flights.addFlight(createFlight("LH00401", "LH", "JFK", "FRA", 7.5 * 3600.0));
+		return flights;
+	}
+
+	private static DgOagFlight createFlight(String designator, String carrier, String origin, String destination, double duration) {
+		DgOagFlight flight = new DgOagFlight(designator);
+		flight.setRoute(origin + "_" + destination);
+		flight.setCarrier(carrier);
+		flight.setAircraftType("744");
+		flight.setOriginCode(origin);
+		flight.setDestinationCode(destination);
+		flight.setDepartureTime(10.0 * 3600.0);
+		flight.setDuration(duration);
+		flight.setSeatsAvailable(380);
+		flight.setDistanceKm(LENGTH / 1000.0);
+		return flight;
+	}
+
+	private static Map<String, Coord> createAirports() {
+		Map<String, Coord> airports = new HashMap<String, Coord>();
+		airports.put("FRA", new Coord(8.570556, 50.033333));
+		airports.put("JFK", new Coord(-73.778925, 40.639751));
+		return airports;
+	}
+
+	@Test
+	public void testFlightMode() {
+		DgOagFlightsData flights = createFlights();
+		Result result = this.createNetwork(flights, DgAirConnectionLinks.Mode.FLIGHT);
+		Assert.assertEquals(4, result.connectionLinks.size());
+		for (DgOagFlight flight : flights.getFlightDesignatorFlightMap().values()) {
+			Link link = result.getLink(flight);
+			Assert.assertEquals(flight.getOriginCode() + "_" + flight.getDestinationCode() + "_" + flight.getFlightDesignator(), link.getId().toString());
+			Assert.assertEquals(LENGTH, link.getLength(), EPSILON);
+			Assert.assertEquals(LENGTH / result.getCruiseTime(flight), link.getFreespeed(), EPSILON);
+		}
+	}
+
+	/**
+	 * The flights of a city pair share a link with the speed of the mean cruise time.
+	 */
+	@Test
+	public void testCityPairMode() {
+		DgOagFlightsData flights = createFlights();
+		Result result = this.createNetwork(flights, DgAirConnectionLinks.Mode.CITY_PAIR);
+		Assert.assertEquals(2, result.connectionLinks.size());
+		Map<String, DgOagFlight> f = flights.getFlightDesignatorFlightMap();
+		Link outbound = result.getLink(f.get("LH00400"));
+		Assert.assertEquals("FRA_JFK", outbound.getId().toString());
+		Assert.assertSame(outbound, result.getLink(f.get("AF00010")));
+		Assert.assertSame(outbound, result.getLink(f.get("UA00900")));
+		double cruiseTimeSum = result.getCruiseTime(f.get("LH00400")) + result.getCruiseTime(f.get("AF00010")) + result.getCruiseTime(f.get("UA00900"));
+		Assert.assertEquals(LENGTH, outbound.getLength(), EPSILON);
+		Assert.assertEquals(3.0 * LENGTH / cruiseTimeSum, outbound.getFreespeed(), EPSILON);
+
+		Link inbound = result.getLink(f.get("LH00401"));
+		Assert.assertEquals("JFK_FRA", inbound.getId().toString());
+		Assert.assertEquals(LENGTH, inbound.getLength(), EPSILON);
+		Assert.assertEquals(LENGTH / result.getCruiseTime(f.get("LH00401")), inbound.getFreespeed(), EPSILON);
+	}
+
+	/**
+	 * The flights of a city pair with the same speed class share a link with the speed of the class.
+	 */
+	@Test
+	public void testSpeedClassMode() {
+		DgOagFlightsData flights = createFlights();
+		Result result = this.createNetwork(flights, DgAirConnectionLinks.Mode.SPEED_CLASS);
+		Assert.assertEquals(3, result.connectionLinks.size());
+		Map<String, DgOagFlight> f = flights.getFlightDesignatorFlightMap();
+		Link fast = result.getLink(f.get("LH00400"));
+		Assert.assertSame(fast, result.getLink(f.get("AF00010")));
+		Assert.assertNotSame(fast, result.getLink(f.get("UA00900")));
+		for (DgOagFlight flight : flights.getFlightDesignatorFlightMap().values()) {
+			Link link = result.getLink(flight);
+			double speed = LENGTH / result.getCruiseTime(flight);
+			int speedClass = DgAirConnectionLinks.getSpeedClass(speed);
+			Assert.assertEquals(flight.getOriginCode() + "_" + flight.getDestinationCode() + "_s" + speedClass, link.getId().toString());
+			Assert.assertEquals(LENGTH, link.getLength(), EPSILON);
+			Assert.assertEquals(DgAirConnectionLinks.getSpeedClassFreespeed(speedClass), link.getFreespeed(), EPSILON);
+			Assert.assertEquals(speed, link.getFreespeed(), speed * 0.025);
+		}
+	}
+
+	/**
+	 * With the great circle distances of the airports the lengths and speeds of the links do not depend on the OAG distances.
+	 */
+	@Test
+	public void testGreatCircleLength() {
+		DgOagFlightsData flights = createFlights();
+		// a wrong OAG distance
+		flights.getFlightDesignatorFlightMap().get("AF00010").setDistanceKm(1000.0);
+		DgCityPairGeometry geometry = new DgCityPairGeometry(new AirCodeDictionary(), createAirports());
+		double length = geometry.getDistanceKm("FRA", "JFK") * 1000.0;
+		Assert.assertEquals(length, geometry.getDistanceKm("JFK", "FRA") * 1000.0, EPSILON);
+		Assert.assertEquals(LENGTH, length, 0.01 * LENGTH);
+		for (DgAirConnectionLinks.Mode mode : DgAirConnectionLinks.Mode.values()) {
+			Result result = this.createNetwork(flights, mode, true);
+			for (DgOagFlight flight : flights.getFlightDesignatorFlightMap().values()) {
+				Link link = result.getLink(flight);
+				Assert.assertEquals(length, link.getLength(), EPSILON);
+				Assert.assertEquals(length, result.links.getLength(flight), EPSILON);
+				if (mode == DgAirConnectionLinks.Mode.FLIGHT) {
+					Assert.assertEquals(length / result.getCruiseTime(flight), link.getFreespeed(), EPSILON);
+				}
+			}
+			Map<String, DgOagFlight> f = flights.getFlightDesignatorFlightMap();
+			if (mode == DgAirConnectionLinks.Mode.SPEED_CLASS) {
+				Assert.assertSame(result.getLink(f.get("LH00400")), result.getLink(f.get("AF00010")));
+			}
+		}
+	}
+
+	private Result createNetwork(DgOagFlightsData flights, DgAirConnectionLinks.Mode mode) {
+		return this.createNetwork(flights, mode, false);
+	}
+
+	private Result createNetwork(DgOagFlightsData flights, DgAirConnectionLinks.Mode mode, boolean greatCircleDistances) {
+		Set<Id<Link>> airportLinks = this.createNetwork(new DgOagFlightsData(), mode, greatCircleDistances,
+				"airports_" + mode + ".xml").network.getLinks().keySet();
+		Result result = this.createNetwork(flights, mode, greatCircleDistances, "network_" + mode + "_" + greatCircleDistances + ".xml");
+		for (Link link : result.network.getLinks().values()) {
+			if (! airportLinks.contains(link.getId())) {
+				result.connectionLinks.add(link.getId());
+			}
+		}
+		return result;
+	}
+
+	private Result createNetwork(DgOagFlightsData flights, DgAirConnectionLinks.Mode mode, boolean greatCircleDistances, String filename) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		DgFlightScenarioData data = new DgFlightScenarioData(3600.0);
+		data.setConnectionMode(mode);
+		if (greatCircleDistances) {
+			data.createCityPairGeometry(createAirports());
+		}
+		DgAirNetworkBuilder builder = new DgAirNetworkBuilder(scenario,
+				TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84, "EPSG:3395"), data);
+		Network network = builder.createNetwork(flights, createAirports(), this.utils.getOutputDirectory() + filename);
+		return new Result(network, builder.getAirportMap(), data.getConnectionLinks());
+	}
+
+	private static final class Result {
+
+		private final Network network;
+
+		private final Map<Id<Node>, SfMatsimAirport> airports;
+
+		private final DgAirConnectionLinks links;
+
+		private final Set<Id<Link>> connectionLinks = new HashSet<Id<Link>>();
+
+		Result(Network network, Map<Id<Node>, SfMatsimAirport> airports, DgAirConnectionLinks links) {
+			this.network = network;
+			this.airports = airports;
+			this.links = links;
+		}
+
+		SfMatsimAirport getOrigin(DgOagFlight flight) {
+			return this.airports.get(Id.create(flight.getOriginCode(), Node.class));
+		}
+
+		SfMatsimAirport getDestination(DgOagFlight flight) {
+			return this.airports.get(Id.create(flight.getDestinationCode(), Node.class));
+		}
+
+		double getCruiseTime(DgOagFlight flight) {
+			return DgAirConnectionLinks.getCruiseTime(flight, this.getOrigin(flight), this.getDestination(flight));
+		}
+
+		Link getLink(DgOagFlight flight) {
+			Id<Link> linkId = this.links.getLinkId(flight, this.getOrigin(flight), this.getDestination(flight));
+			Assert.assertTrue(linkId.toString(), this.connectionLinks.contains(linkId));
+			Link link = this.network.getLinks().get(linkId);
+			Assert.assertEquals(this.getOrigin(flight).getOutgoingFlightsNodeId(), link.getFromNode().getId());
+			Assert.assertEquals(this.getDestination(flight).getIncomingFlightsNodeId(), link.getToNode().getId());
+			return link;
+		}
+	}
+
+}
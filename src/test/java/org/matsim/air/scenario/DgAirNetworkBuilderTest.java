@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirNetworkBuilderTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgAirNetworkBuilderTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * With several threads the airports are created in fragments, the network must be the same as with one thread,
+	 * including the order of its nodes and links.
+	 */
+	@Test
+	public void testSameNetworkWithOneAndManyThreads() {
+		Random random = new Random(4711);
+		Map<String, Coord> airports = new HashMap<String, Coord>();
+		List<String> codes = new ArrayList<String>();
+		while (airports.size() < 400) {
+			// IATA and ICAO codes, thus the codes of the fragments are not of the same length
+			int length = random.nextInt(4) == 0 ? 4 : 3;
+			StringBuilder code = new StringBuilder();
+			for (int i = 0; i < length; i++) {
+				code.append((char) ('A' + random.nextInt(26)));
+			}
+			if (! airports.containsKey(code.toString())) {
+				codes.add(code.toString());
+				airports.put(code.toString(), new Coord(random.nextDouble() * 360.0 - 180.0, random.nextDouble() * 160.0 - 80.0));
+			}
+		}
+		DgOagFlightsData flights = new DgOagFlightsData();
+		for (int i = 0; i < 1000; i++) {
+			String origin = codes.get(random.nextInt(codes.size()));
+			String destination = codes.get(random.nextInt(codes.size()));
+			if (origin.equals(destination)) {
+				continue;
+			}
+			DgOagFlight flight = new DgOagFlight("XX" + i);
+			flight.setRoute(origin + destination);
+			flight.setCarrier("XX");
+			flight.setAircraftType("320");
+			flight.setOriginCode(origin);
+			flight.setDestinationCode(destination);
+			flight.setDepartureTime(random.nextInt(86400));
+			flight.setDuration(3600.0 + random.nextInt(36000));
+			flight.setSeatsAvailable(150);
+			flight.setDistanceKm(500.0 + random.nextInt(8000));
+			flights.addFlight(flight);
+		}
+
+		Network serial = this.createNetwork(flights, airports, 1, "serial_network.xml");
+		for (int threads : new int[] {2, 3, 8}) {
+			Network parallel = this.createNetwork(flights, airports, threads, "parallel_network_" + threads + ".xml");
+			assertNetworkEquals(serial, parallel);
+		}
+	}
+
+	private Network createNetwork(DgOagFlightsData flights, Map<String, Coord> airports, int numberOfThreads, String filename) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		DgAirNetworkBuilder builder = new DgAirNetworkBuilder(scenario,
+				TransformationFactory.getCoordinateTransformation(TransformationFactory.WGS84, "EPSG:3395"),
+				new DgFlightScenarioData(3600.0));
+		builder.setNumberOfThreads(numberOfThreads);
+		Network network = builder.createNetwork(flights, airports, this.utils.getOutputDirectory() + filename);
+		Assert.assertEquals(airports.size(), builder.getAirportMap().size());
+		return network;
+	}
+
+	private static void assertNetworkEquals(Network expected, Network actual) {
+		Assert.assertEquals(new ArrayList<Id<Node>>(expected.getNodes().keySet()), new ArrayList<Id<Node>>(actual.getNodes().keySet()));
+		for (Node node : expected.getNodes().values()) {
+			Node other = actual.getNodes().get(node.getId());
+			Assert.assertEquals(node.getId().toString(), node.getCoord().getX(), other.getCoord().getX(), 0.0);
+			Assert.assertEquals(node.getId().toString(), node.getCoord().getY(), other.getCoord().getY(), 0.0);
+		}
+		Assert.assertEquals(new ArrayList<Id<Link>>(expected.getLinks().keySet()), new ArrayList<Id<Link>>(actual.getLinks().keySet()));
+		for (Link link : expected.getLinks().values()) {
+			Link other = actual.getLinks().get(link.getId());
+			String message = link.getId().toString();
+			Assert.assertEquals(message, link.getFromNode().getId(), other.getFromNode().getId());
+			Assert.assertEquals(message, link.getToNode().getId(), other.getToNode().getId());
+			Assert.assertEquals(message, link.getLength(), other.getLength(), 0.0);
+			Assert.assertEquals(message, link.getFreespeed(), other.getFreespeed(), 0.0);
+			Assert.assertEquals(message, link.getCapacity(), other.getCapacity(), 0.0);
+			Assert.assertEquals(message, link.getNumberOfLanes(), other.getNumberOfLanes(), 0.0);
+			Assert.assertEquals(message, link.getAllowedModes(), other.getAllowedModes());
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAircraftRotationsTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgAircraftRotationsTest {
+
+	private static final double HOUR = 3600.0;
+
+	private static final String GROUP = DgAircraftRotations.createGroup("744", 380, "LH", 220.0);
+
+	/**
+	 * FRA-JFK-FRA-JFK is flown by one aircraft, the flights are added in any order.
+	 */
+	@Test
+	public void testChainReusesAircraft() {
+		DgAircraftRotations rotations = new DgAircraftRotations(HOUR);
+		int back = rotations.addFlight(GROUP, "JFK", "FRA", 10.0 * HOUR, 17.0 * HOUR);
+		int out = rotations.addFlight(GROUP, "FRA", "JFK", 0.0, 8.0 * HOUR);
+		// departs exactly after the minimum turnaround time
+		int outAgain = rotations.addFlight(GROUP, "FRA", "JFK", 18.0 * HOUR, 26.0 * HOUR);
+		rotations.assign();
+		Assert.assertEquals(1, rotations.getNumberOfVehicles());
+		Assert.assertEquals(rotations.getVehicle(out), rotations.getVehicle(back));
+		Assert.assertEquals(rotations.getVehicle(out), rotations.getVehicle(outAgain));
+		Assert.assertEquals(GROUP, rotations.getVehicleGroup(rotations.getVehicle(out)));
+	}
+
+	@Test
+	public void testShortTurnaroundNeedsSecondAircraft() {
+		DgAircraftRotations rotations = new DgAircraftRotations(HOUR);
+		int out = rotations.addFlight(GROUP, "FRA", "JFK", 0.0, 8.0 * HOUR);
+		int back = rotations.addFlight(GROUP, "JFK", "FRA", 8.5 * HOUR, 15.5 * HOUR);
+		rotations.assign();
+		Assert.assertEquals(2, rotations.getNumberOfVehicles());
+		Assert.assertNotEquals(rotations.getVehicle(out), rotations.getVehicle(back));
+
+		// with a shorter minimum turnaround time one aircraft is sufficient
+		rotations = new DgAircraftRotations(0.5 * HOUR);
+		out = rotations.addFlight(GROUP, "FRA", "JFK", 0.0, 8.0 * HOUR);
+		back = rotations.addFlight(GROUP, "JFK", "FRA", 8.5 * HOUR, 15.5 * HOUR);
+		rotations.assign();
+		Assert.assertEquals(1, rotations.getNumberOfVehicles());
+	}
+
+	/**
+	 * An aircraft can only continue at the airport it arrived at, the schedule is not periodic.
+	 */
+	@Test
+	public void testOtherAirportNeedsSecondAircraft() {
+		DgAircraftRotations rotations = new DgAircraftRotations(HOUR);
+		rotations.addFlight(GROUP, "FRA", "JFK", 0.0, 8.0 * HOUR);
+		rotations.addFlight(GROUP, "MUC", "FRA", 12.0 * HOUR, 13.0 * HOUR);
+		// the first aircraft is at JFK at the end of the schedule
+		rotations.addFlight(GROUP, "JFK", "MUC", -10.0 * HOUR, -2.0 * HOUR);
+		rotations.assign();
+		Assert.assertEquals(2, rotations.getNumberOfVehicles());
+	}
+
+	/**
+	 * Flights of different carriers, seats or speed classes never share an aircraft.
+	 */
+	@Test
+	public void testGroupsDoNotShareAircraft() {
+		String[] groups = {GROUP, DgAircraftRotations.createGroup("744", 380, "UA", 220.0),
+				DgAircraftRotations.createGroup("744", 370, "LH", 220.0), DgAircraftRotations.createGroup("744", 380, "LH", 250.0),
+				DgAircraftRotations.createGroup("74F", 380, "LH", 220.0)};
+		DgAircraftRotations rotations = new DgAircraftRotations(HOUR);
+		int[] out = new int[groups.length];
+		int[] back = new int[groups.length];
+		for (int i = 0; i < groups.length; i++) {
+			out[i] = rotations.addFlight(groups[i], "FRA", "JFK", 0.0, 8.0 * HOUR);
+		}
+		for (int i = 0; i < groups.length; i++) {
+			back[i] = rotations.addFlight(groups[groups.length - 1 - i], "JFK", "FRA", 10.0 * HOUR, 17.0 * HOUR);
+		}
+		rotations.assign();
+		Assert.assertEquals(groups.length, rotations.getNumberOfVehicles());
+		for (int i = 0; i < groups.length; i++) {
+			int vehicle = rotations.getVehicle(out[i]);
+			Assert.assertEquals(groups[i], rotations.getVehicleGroup(vehicle));
+			Assert.assertEquals(vehicle, rotations.getVehicle(back[groups.length - 1 - i]));
+		}
+		// the speed classes of 220 and 250 m/s differ, of 220 and 221 m/s not
+		Assert.assertNotEquals(GROUP, DgAircraftRotations.createGroup("744", 380, "LH", 250.0));
+		Assert.assertEquals(GROUP, DgAircraftRotations.createGroup("744", 380, "LH", 221.0));
+	}
+
+	/**
+	 * Of the aircraft waiting at an airport the one that is ready for the longest time is taken.
+	 */
+	@Test
+	public void testLongestWaitingAircraftIsTaken() {
+		DgAircraftRotations rotations = new DgAircraftRotations(HOUR);
+		int late = rotations.addFlight(GROUP, "MUC", "JFK", 1.0 * HOUR, 9.0 * HOUR);
+		int early = rotations.addFlight(GROUP, "FRA", "JFK", 0.0, 8.0 * HOUR);
+		int first = rotations.addFlight(GROUP, "JFK", "FRA", 11.0 * HOUR, 18.0 * HOUR);
+		int second = rotations.addFlight(GROUP, "JFK", "MUC", 12.0 * HOUR, 19.0 * HOUR);
+		rotations.assign();
+		Assert.assertEquals(2, rotations.getNumberOfVehicles());
+		Assert.assertEquals(rotations.getVehicle(early), rotations.getVehicle(first));
+		Assert.assertEquals(rotations.getVehicle(late), rotations.getVehicle(second));
+	}
+
+	@Test
+	public void testAssignIsRequired() {
+		DgAircraftRotations rotations = new DgAircraftRotations(HOUR);
+		int flight = rotations.addFlight(GROUP, "FRA", "JFK", 0.0, 8.0 * HOUR);
+		rotations.assign();
+		Assert.assertEquals(0, rotations.getVehicle(flight));
+		rotations.addFlight(GROUP, "JFK", "FRA", 10.0 * HOUR, 17.0 * HOUR);
+		try {
+			rotations.getVehicle(flight);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+}
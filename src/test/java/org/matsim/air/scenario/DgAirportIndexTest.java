@@ -0,0 +1,246 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirportIndexTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.AirCodeDictionary;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Compares the queries of the k-d tree and the city pair distances to a brute force scan over all airports.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAirportIndexTest {
+
+	/**
+	 * differences of the chord and the haversine computation of the same distance
+	 */
+	private static final double WGS84_TOLERANCE = 1e-3;
+
+	private static final double PROJECTED_TOLERANCE = 1e-6;
+
+	@Test
+	public void testWgs84QueriesEqualBruteForce() {
+		Random random = new Random(17);
+		Map<String, Coord> airports = new LinkedHashMap<String, Coord>();
+		for (int i = 0; i < 500; i++) {
+			airports.put("A" + i, randomWgs84(random));
+		}
+		// at both sides of the antimeridian and close to the poles
+		for (int i = 0; i < 40; i++) {
+			airports.put("E" + i, new Coord(179.0 + random.nextDouble(), random.nextDouble() * 10.0 - 5.0));
+			airports.put("W" + i, new Coord(-180.0 + random.nextDouble(), random.nextDouble() * 10.0 - 5.0));
+			airports.put("N" + i, new Coord(random.nextDouble() * 360.0 - 180.0, 89.0 + random.nextDouble()));
+		}
+		DgAirportIndex index = DgAirportIndex.createWgs84Index(airports);
+		Assert.assertEquals(airports.size(), index.size());
+
+		List<Coord> queries = new ArrayList<Coord>();
+		for (int i = 0; i < 100; i++) {
+			queries.add(randomWgs84(random));
+		}
+		queries.add(new Coord(179.99, 0.0));
+		queries.add(new Coord(-179.99, 0.0));
+		queries.add(new Coord(180.0, 2.0));
+		queries.add(new Coord(0.0, 90.0));
+		queries.add(new Coord(0.0, -90.0));
+		for (Coord query : queries) {
+			for (int k : new int[] {1, 5, 37}) {
+				assertNearest(airports, index, query, k, true, WGS84_TOLERANCE);
+			}
+			for (double radius : new double[] {0.0, 50000.0, 500000.0, 3000000.0}) {
+				assertWithinRadius(airports, index, query, radius, true, WGS84_TOLERANCE);
+			}
+		}
+
+		// the nearest airports of a query east of the antimeridian are west of it
+		List<String> nearest = index.getNearest(new Coord(179.999, 0.0), 10);
+		boolean west = false;
+		for (String code : nearest) {
+			west |= code.startsWith("W");
+		}
+		Assert.assertTrue(west);
+	}
+
+	@Test
+	public void testProjectedQueriesEqualBruteForce() {
+		Random random = new Random(18);
+		Map<String, Coord> airports = new LinkedHashMap<String, Coord>();
+		for (int i = 0; i < 600; i++) {
+			airports.put("A" + i, toMercator(randomWgs84(random)));
+		}
+		DgAirportIndex index = DgAirportIndex.createProjectedIndex(airports);
+		for (int i = 0; i < 100; i++) {
+			Coord query = toMercator(randomWgs84(random));
+			for (int k : new int[] {1, 4, 50}) {
+				assertNearest(airports, index, query, k, false, PROJECTED_TOLERANCE);
+			}
+			for (double radius : new double[] {0.0, 100000.0, 1000000.0, 5000000.0}) {
+				assertWithinRadius(airports, index, query, radius, false, PROJECTED_TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testMoreNeighboursThanAirports() {
+		Map<String, Coord> airports = new LinkedHashMap<String, Coord>();
+		airports.put("FRA", new Coord(8.57, 50.03));
+		airports.put("MUC", new Coord(11.79, 48.35));
+		airports.put("TXL", new Coord(13.29, 52.56));
+		DgAirportIndex index = DgAirportIndex.createWgs84Index(airports);
+		List<String> nearest = index.getNearest(new Coord(8.0, 50.0), 10);
+		Assert.assertEquals(3, nearest.size());
+		Assert.assertEquals("FRA", nearest.get(0));
+		Assert.assertEquals("MUC", nearest.get(1));
+		Assert.assertEquals("TXL", nearest.get(2));
+		Assert.assertEquals("FRA", index.getNearest(new Coord(8.0, 50.0)));
+		Assert.assertTrue(index.getNearest(new Coord(8.0, 50.0), 0).isEmpty());
+
+		DgAirportIndex empty = DgAirportIndex.createWgs84Index(new LinkedHashMap<String, Coord>());
+		Assert.assertNull(empty.getNearest(new Coord(8.0, 50.0)));
+		Assert.assertTrue(empty.getNearest(new Coord(8.0, 50.0), 3).isEmpty());
+		Assert.assertTrue(empty.getWithinRadius(new Coord(8.0, 50.0), 1e7).isEmpty());
+	}
+
+	@Test
+	public void testCityPairDistancesEqualBruteForce() {
+		Random random = new Random(19);
+		AirCodeDictionary codes = new AirCodeDictionary();
+		Map<String, Coord> airports = new LinkedHashMap<String, Coord>();
+		for (int i = 0; i < 100; i++) {
+			airports.put("A" + i, randomWgs84(random));
+		}
+		airports.put("E", new Coord(179.9, 0.0));
+		airports.put("W", new Coord(-179.9, 0.0));
+		DgCityPairGeometry geometry = new DgCityPairGeometry(codes, airports);
+		DgAirportIndex index = DgAirportIndex.createWgs84Index(airports);
+		List<String> airportCodes = new ArrayList<String>(airports.keySet());
+		for (int i = 0; i < 1000; i++) {
+			String origin = airportCodes.get(random.nextInt(airportCodes.size()));
+			String destination = airportCodes.get(random.nextInt(airportCodes.size()));
+			double expected = haversine(airports.get(origin), airports.get(destination)) / 1000.0;
+			Assert.assertEquals(expected, geometry.getDistanceKm(origin, destination), WGS84_TOLERANCE);
+			Assert.assertEquals(expected, index.getDistance(airports.get(origin), airports.get(destination)) / 1000.0, WGS84_TOLERANCE);
+		}
+		// 0.2 degrees at the equator across the antimeridian
+		Assert.assertEquals(0.2 * Math.PI / 180.0 * DgAirportIndex.EARTH_RADIUS / 1000.0, geometry.getDistanceKm("E", "W"), 1e-6);
+		// an airport without coordinates
+		Assert.assertTrue(Double.isNaN(geometry.getDistanceKm("A0", "XXX")));
+	}
+
+	private static void assertNearest(Map<String, Coord> airports, DgAirportIndex index, Coord query, int k,
+			boolean wgs84, double tolerance) {
+		List<Entry<String, Double>> expected = bruteForce(airports, query, wgs84);
+		List<String> nearest = index.getNearest(query, k);
+		Assert.assertEquals(Math.min(k, airports.size()), nearest.size());
+		Assert.assertEquals(nearest.size(), new HashSet<String>(nearest).size());
+		for (int i = 0; i < nearest.size(); i++) {
+			// ties may be in another order, thus the distances are compared
+			double distance = distance(airports.get(nearest.get(i)), query, wgs84);
+			Assert.assertEquals(query + " k " + k + " at " + i, expected.get(i).getValue(), distance, tolerance);
+		}
+	}
+
+	private static void assertWithinRadius(Map<String, Coord> airports, DgAirportIndex index, Coord query, double radius,
+			boolean wgs84, double tolerance) {
+		List<String> found = index.getWithinRadius(query, radius);
+		Set<String> foundSet = new HashSet<String>(found);
+		Assert.assertEquals(found.size(), foundSet.size());
+		double lastDistance = 0.0;
+		for (String code : found) {
+			double distance = distance(airports.get(code), query, wgs84);
+			Assert.assertTrue(distance <= radius + tolerance);
+			Assert.assertTrue(distance >= lastDistance - tolerance);
+			lastDistance = distance;
+		}
+		for (Entry<String, Double> e : bruteForce(airports, query, wgs84)) {
+			// airports at the boundary may be in or out by rounding
+			if (e.getValue() < radius - tolerance) {
+				Assert.assertTrue(query + " radius " + radius + " " + e.getKey(), foundSet.contains(e.getKey()));
+			}
+		}
+	}
+
+	/**
+	 * @return all airports sorted by distance
+	 */
+	private static List<Entry<String, Double>> bruteForce(Map<String, Coord> airports, Coord query, boolean wgs84) {
+		Map<String, Double> distances = new LinkedHashMap<String, Double>();
+		for (Entry<String, Coord> e : airports.entrySet()) {
+			distances.put(e.getKey(), distance(e.getValue(), query, wgs84));
+		}
+		List<Entry<String, Double>> sorted = new ArrayList<Entry<String, Double>>(distances.entrySet());
+		Collections.sort(sorted, new Comparator<Entry<String, Double>>() {
+			@Override
+			public int compare(Entry<String, Double> e1, Entry<String, Double> e2) {
+				return Double.compare(e1.getValue(), e2.getValue());
+			}
+		});
+		return sorted;
+	}
+
+	private static double distance(Coord c1, Coord c2, boolean wgs84) {
+		if (wgs84) {
+			return haversine(c1, c2);
+		}
+		return Math.hypot(c1.getX() - c2.getX(), c1.getY() - c2.getY());
+	}
+
+	private static double haversine(Coord c1, Coord c2) {
+		double lat1 = Math.toRadians(c1.getY());
+		double lat2 = Math.toRadians(c2.getY());
+		double sinHalfDeltaLat = Math.sin((lat2 - lat1) / 2.0);
+		double sinHalfDeltaLon = Math.sin(Math.toRadians(c2.getX() - c1.getX()) / 2.0);
+		double h = sinHalfDeltaLat * sinHalfDeltaLat + Math.cos(lat1) * Math.cos(lat2) * sinHalfDeltaLon * sinHalfDeltaLon;
+		return 2.0 * DgAirportIndex.EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1.0, h)));
+	}
+
+	private static Coord randomWgs84(Random random) {
+		return new Coord(random.nextDouble() * 360.0 - 180.0, Math.toDegrees(Math.asin(random.nextDouble() * 2.0 - 1.0)));
+	}
+
+	/**
+	 * WGS84 to EPSG:3395, the ellipsoidal world mercator, below 80 degrees latitude
+	 */
+	private static Coord toMercator(Coord coord) {
+		double a = 6378137.0;
+		double e = 0.0818191908426;
+		double lat = Math.toRadians(Math.max(-80.0, Math.min(80.0, coord.getY())));
+		double eSinLat = e * Math.sin(lat);
+		double y = a * Math.log(Math.tan(Math.PI / 4.0 + lat / 2.0) * Math.pow((1.0 - eSinLat) / (1.0 + eSinLat), e / 2.0));
+		return new Coord(a * Math.toRadians(coord.getX()), y);
+	}
+
+}
@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgAirportReferenceIndexTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * Tests the {@link DgAirportReferenceIndex} with a small file in the format of OurAirports and the report of the
+ * missing airports by the {@link SfAirportCoordGetter}.
+ *
+ * @author dgrether
+ *
+ */
+public class DgAirportReferenceIndexTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final String HEADER = "\"id\",\"ident\",\"type\",\"name\",\"latitude_deg\",\"longitude_deg\",\"elevation_ft\",\"continent\","
+			+ "\"iso_country\",\"iso_region\",\"municipality\",\"scheduled_service\",\"gps_code\",\"iata_code\",\"local_code\",\"home_link\","
+			+ "\"wikipedia_link\",\"keywords\"";
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSplitCsvLine() {
+		List<String> fields = new ArrayList<String>();
+		DgAirportReferenceIndex.splitCsvLine("1,\"Frankfurt, am Main\",,\"\",\"The \"\"Big\"\" One\",", fields);
+		Assert.assertEquals(Arrays.asList("1", "Frankfurt, am Main", "", "", "The \"Big\" One", ""), fields);
+		DgAirportReferenceIndex.splitCsvLine("\"a,b\"\"c\"", fields);
+		Assert.assertEquals(Arrays.asList("a,b\"c"), fields);
+		DgAirportReferenceIndex.splitCsvLine("", fields);
+		Assert.assertEquals(Arrays.asList(""), fields);
+	}
+
+	@Test
+	public void testReadOurAirportsFile() throws Exception {
+		String file = this.utils.getOutputDirectory() + "airports.csv";
+		writeFile(file, Arrays.asList(HEADER,
+				"2212,\"EDDF\",\"large_airport\",\"Frankfurt, am Main Airport\",50.033333,8.570556,364,\"EU\",\"DE\",\"DE-HE\",\"Frankfurt, am Main\",\"yes\",\"EDDF\",\"FRA\",,,,\"Rhein-Main\"",
+				"2300,\"EDDT\",\"closed\",\"Berlin \"\"Otto Lilienthal\"\" Tegel\",52.559722,13.287778,122,\"EU\",\"DE\",\"DE-BE\",\"Berlin\",\"no\",\"EDDT\",\"TXL\",,,,",
+				"9999,\"XTXL\",\"large_airport\",\"Other Tegel, closed\",1.0,2.0,0,\"EU\",\"DE\",\"DE-BE\",\"Berlin\",\"no\",\"\",\"txl\",,,,",
+				// duplicate IATA code, the airport with scheduled service wins although it is smaller
+				"1,\"AAA1\",\"large_airport\",\"Large\",10.0,20.0,0,\"EU\",\"DE\",\"DE-BE\",\"A\",\"no\",\"\",\"AAA\",,,,",
+				"2,\"AAA2\",\"small_airport\",\"Small, scheduled\",11.0,21.0,0,\"EU\",\"DE\",\"DE-BE\",\"A\",\"yes\",\"\",\"AAA\",,,,",
+				"3,\"AAA3\",\"medium_airport\",\"Medium\",12.0,22.0,0,\"EU\",\"DE\",\"DE-BE\",\"A\",\"no\",\"\",\"AAA\",,,,",
+				// short line
+				"4,\"SHRT\",\"large_airport\",\"Short\",13.0,23.0",
+				// no coordinate
+				"5,\"NOCO\",\"large_airport\",\"No coordinate\",,,0,\"EU\",\"DE\",\"DE-BE\",\"A\",\"yes\",\"\",\"NOC\",,,,"));
+
+		DgAirportReferenceIndex index = DgAirportReferenceIndex.readOurAirportsFile(file);
+		Assert.assertEquals(6, index.size());
+
+		// quoted commas in the name and the municipality do not shift the columns
+		assertCoord(8.570556, 50.033333, index.getCoord("FRA"));
+		assertCoord(8.570556, 50.033333, index.getCoord("eddf"));
+		assertCoord(8.570556, 50.033333, index.getCoord(" FRA "));
+		// doubled quotes in the name do not shift the columns, the larger type wins
+		assertCoord(2.0, 1.0, index.getCoord("TXL"));
+		assertCoord(13.287778, 52.559722, index.getCoord("EDDT"));
+		assertCoord(2.0, 1.0, index.getCoord("XTXL"));
+		// scheduled service first, then the type
+		assertCoord(21.0, 11.0, index.getCoord("AAA"));
+		assertCoord(20.0, 10.0, index.getCoord("AAA1"));
+		assertCoord(22.0, 12.0, index.getCoord("AAA3"));
+		// skipped lines
+		Assert.assertNull(index.getCoord("SHRT"));
+		Assert.assertNull(index.getCoord("NOCO"));
+		Assert.assertNull(index.getCoord("NOC"));
+		Assert.assertNull(index.getCoord("XXX"));
+	}
+
+	@Test
+	public void testMissingAirports() throws Exception {
+		String file = this.utils.getOutputDirectory() + "airports.csv";
+		writeFile(file, Arrays.asList(HEADER,
+				"2212,\"EDDF\",\"large_airport\",\"Frankfurt am Main Airport\",50.033333,8.570556,364,\"EU\",\"DE\",\"DE-HE\",\"Frankfurt\",\"yes\",\"EDDF\",\"FRA\",,,,",
+				"3,\"ZZZZ\",\"small_airport\",\"Short\",13.0,23.0"));
+		SfAirportCoordGetter getter = new SfAirportCoordGetter(DgAirportReferenceIndex.readOurAirportsFile(file));
+		getter.fillAirportMap(Arrays.asList("FRA", "XXX", "EDDF", "FRA", "ZZZZ", "XXX"));
+		Assert.assertEquals(Arrays.asList("EDDF", "FRA"), new ArrayList<String>(getter.getAirportCoordinates().keySet()));
+		Assert.assertEquals(Arrays.asList("XXX", "ZZZZ"), new ArrayList<String>(getter.getMissingAirports()));
+		assertCoord(8.570556, 50.033333, getter.getAirportCoordinates().get("FRA"));
+
+		String missingFile = this.utils.getOutputDirectory() + "missing.txt";
+		SfAirportCoordGetter.writeMissingAirports(getter.getMissingAirports(), missingFile);
+		Assert.assertEquals(Arrays.asList("XXX", "ZZZZ"), Files.readAllLines(Paths.get(missingFile)));
+	}
+
+	/**
+	 * The index of the airports extracted from OSM knows the IATA codes only.
+	 */
+	@Test
+	public void testCreateIndex() {
+		SortedMap<String, Coord> airports = new TreeMap<String, Coord>();
+		airports.put("FRA", new Coord(8.57, 50.03));
+		airports.put("muc", new Coord(11.79, 48.35));
+		DgAirportReferenceIndex index = DgAirportReferenceIndex.createIndex(airports);
+		Assert.assertEquals(2, index.size());
+		assertCoord(8.57, 50.03, index.getCoord("FRA"));
+		assertCoord(11.79, 48.35, index.getCoord("MUC"));
+		assertCoord(11.79, 48.35, index.getCoord(" muc"));
+		Assert.assertNull(index.getCoord("EDDF"));
+		Assert.assertNull(index.getCoord("TXL"));
+
+		SfAirportCoordGetter getter = new SfAirportCoordGetter(index);
+		getter.fillAirportMap(Arrays.asList("FRA", "TXL", "MUC"));
+		Assert.assertEquals(Arrays.asList("FRA", "MUC"), new ArrayList<String>(getter.getAirportCoordinates().keySet()));
+		Assert.assertEquals(Arrays.asList("TXL"), new ArrayList<String>(getter.getMissingAirports()));
+	}
+
+	private static void assertCoord(double x, double y, Coord coord) {
+		Assert.assertNotNull(coord);
+		Assert.assertEquals(x, coord.getX(), EPSILON);
+		Assert.assertEquals(y, coord.getY(), EPSILON);
+	}
+
+	private static void writeFile(String file, List<String> lines) throws Exception {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		for (String line : lines) {
+			writer.write(line);
+			writer.newLine();
+		}
+		writer.close();
+	}
+
+}
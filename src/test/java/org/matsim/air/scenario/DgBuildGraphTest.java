@@ -0,0 +1,276 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgBuildGraphTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgBuildGraphTest {
+
+	private static final String OUTPUT_FILE = "output.txt";
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testUnchangedStagesAreLoaded() throws Exception {
+		String cache = this.utils.getOutputDirectory() + "cache";
+		String input = this.writeInput("flights");
+		Stages first = new Stages(input);
+		build(cache, first);
+		Assert.assertEquals("target(t middle(m source(s flights)))", first.output);
+		first.assertCounts(1, 0, 1, 0, 1, 0);
+
+		// a cached stage does not need its inputs
+		Stages second = new Stages(input);
+		build(cache, second);
+		Assert.assertEquals(first.output, second.output);
+		second.assertCounts(0, 0, 0, 0, 0, 1);
+
+		// the middle stage as target
+		Stages third = new Stages(input);
+		DgBuildGraph graph = new DgBuildGraph(cache, 2);
+		try {
+			graph.build(third.middle);
+			Assert.assertEquals("middle(m source(s flights))", graph.getOutput(third.middle));
+		}
+		finally {
+			graph.shutdown();
+		}
+		third.assertCounts(0, 0, 0, 1, 0, 0);
+	}
+
+	@Test
+	public void testChangedParameterInvalidatesDownstreamStages() throws Exception {
+		String cache = this.utils.getOutputDirectory() + "cache";
+		String input = this.writeInput("flights");
+		build(cache, new Stages(input));
+
+		// the middle stage and the target are computed, the source is loaded
+		Stages changed = new Stages(input);
+		changed.middle.parameter = "m2";
+		build(cache, changed);
+		Assert.assertEquals("target(t middle(m2 source(s flights)))", changed.output);
+		changed.assertCounts(0, 1, 1, 0, 1, 0);
+
+		// the source parameter changes the keys of all stages
+		changed = new Stages(input);
+		changed.source.parameter = "s2";
+		build(cache, changed);
+		Assert.assertEquals("target(t middle(m source(s2 flights)))", changed.output);
+		changed.assertCounts(1, 0, 1, 0, 1, 0);
+
+		// back to the first parameters, all stages are still in the cache
+		Stages unchanged = new Stages(input);
+		build(cache, unchanged);
+		unchanged.assertCounts(0, 0, 0, 0, 0, 1);
+	}
+
+	@Test
+	public void testChangedInputFileInvalidatesDownstreamStages() throws Exception {
+		String cache = this.utils.getOutputDirectory() + "cache";
+		String input = this.writeInput("flights");
+		build(cache, new Stages(input));
+
+		// another length, thus the file is hashed again even if the modification time did not change
+		this.writeInput("more flights");
+		Stages changed = new Stages(input);
+		build(cache, changed);
+		Assert.assertEquals("target(t middle(m source(s more flights)))", changed.output);
+		changed.assertCounts(1, 0, 1, 0, 1, 0);
+
+		Stages unchanged = new Stages(input);
+		build(cache, unchanged);
+		Assert.assertEquals(changed.output, unchanged.output);
+		unchanged.assertCounts(0, 0, 0, 0, 0, 1);
+	}
+
+	@Test
+	public void testFailedLoadRunsInputs() throws Exception {
+		String cache = this.utils.getOutputDirectory() + "cache";
+		String input = this.writeInput("flights");
+		build(cache, new Stages(input));
+
+		// the target cannot be read, it is computed from the loaded middle stage
+		File targetOutput = findOutput(cache, "target");
+		Assert.assertTrue(targetOutput.delete());
+		Stages stages = new Stages(input);
+		build(cache, stages);
+		Assert.assertEquals("target(t middle(m source(s flights)))", stages.output);
+		stages.assertCounts(0, 0, 0, 1, 1, 0);
+		Assert.assertEquals(1, stages.target.failedLoads);
+
+		// neither the target nor the middle stage can be read
+		Assert.assertTrue(findOutput(cache, "target").delete());
+		Assert.assertTrue(findOutput(cache, "middle").delete());
+		stages = new Stages(input);
+		build(cache, stages);
+		Assert.assertEquals("target(t middle(m source(s flights)))", stages.output);
+		stages.assertCounts(0, 1, 1, 0, 1, 0);
+		Assert.assertEquals(1, stages.middle.failedLoads);
+		Assert.assertEquals(1, stages.target.failedLoads);
+	}
+
+	@Test
+	public void testWithoutCache() throws Exception {
+		String input = this.writeInput("flights");
+		Stages stages = new Stages(input);
+		DgBuildGraph graph = new DgBuildGraph(null, 2);
+		try {
+			graph.build(stages.target);
+			// the outputs are kept by the graph
+			graph.build(stages.target, stages.middle);
+			Assert.assertEquals("target(t middle(m source(s flights)))", graph.getOutput(stages.target));
+		}
+		finally {
+			graph.shutdown();
+		}
+		stages.assertCounts(1, 0, 1, 0, 1, 0);
+	}
+
+	private String writeInput(String content) throws IOException {
+		File file = new File(this.utils.getOutputDirectory(), "input.txt");
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file.getPath();
+	}
+
+	private static void build(String cache, Stages stages) throws Exception {
+		DgBuildGraph graph = new DgBuildGraph(cache, 2);
+		try {
+			graph.build(stages.target);
+			stages.output = graph.getOutput(stages.target);
+		}
+		finally {
+			graph.shutdown();
+		}
+	}
+
+	/**
+	 * @return the output file of the only cached directory of the stage that was written last
+	 */
+	private static File findOutput(String cache, String name) {
+		File output = null;
+		for (File directory : new File(cache).listFiles()) {
+			File file = new File(directory, OUTPUT_FILE);
+			if (directory.getName().startsWith(name + "_") && file.exists()
+					&& (output == null || file.lastModified() >= output.lastModified())) {
+				output = file;
+			}
+		}
+		Assert.assertNotNull(output);
+		return output;
+	}
+
+	/**
+	 * source, reads the input file, then middle, then target
+	 */
+	private static final class Stages {
+
+		private final TestStage source;
+		private final TestStage middle;
+		private final TestStage target;
+		private String output;
+
+		Stages(String inputFile) {
+			this.source = new TestStage("source", "s", inputFile);
+			this.middle = new TestStage("middle", "m", null, this.source);
+			this.target = new TestStage("target", "t", null, this.middle);
+		}
+
+		void assertCounts(int sourceComputed, int sourceLoaded, int middleComputed, int middleLoaded,
+				int targetComputed, int targetLoaded) {
+			Assert.assertEquals("source computed", sourceComputed, this.source.computed);
+			Assert.assertEquals("source loaded", sourceLoaded, this.source.loaded);
+			Assert.assertEquals("middle computed", middleComputed, this.middle.computed);
+			Assert.assertEquals("middle loaded", middleLoaded, this.middle.loaded);
+			Assert.assertEquals("target computed", targetComputed, this.target.computed);
+			Assert.assertEquals("target loaded", targetLoaded, this.target.loaded);
+		}
+	}
+
+	/**
+	 * Concatenates its name, its parameter, the content of its file and the outputs of its inputs.
+	 */
+	private static final class TestStage extends DgBuildStage<String> {
+
+		private String parameter;
+		private final String file;
+		private int computed = 0;
+		private int loaded = 0;
+		private int failedLoads = 0;
+
+		TestStage(String name, String parameter, String file, DgBuildStage<?>... inputs) {
+			super(name, inputs);
+			this.parameter = parameter;
+			this.file = file;
+		}
+
+		@Override
+		public String getParameters(DgBuildGraph graph) throws Exception {
+			return this.file == null ? this.parameter : this.parameter + ";" + graph.hashFile(this.file);
+		}
+
+		@Override
+		public String compute(DgBuildGraph graph) throws Exception {
+			this.computed++;
+			StringBuilder sb = new StringBuilder(this.getName()).append('(').append(this.parameter);
+			if (this.file != null) {
+				sb.append(' ').append(new String(Files.readAllBytes(new File(this.file).toPath()), StandardCharsets.UTF_8));
+			}
+			for (DgBuildStage<?> input : this.getInputs()) {
+				sb.append(' ').append(graph.getOutput(input));
+			}
+			return sb.append(')').toString();
+		}
+
+		@Override
+		public boolean isCached() {
+			return true;
+		}
+
+		@Override
+		public void store(String output, File directory) throws Exception {
+			Files.write(new File(directory, OUTPUT_FILE).toPath(), output.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public String load(File directory) throws Exception {
+			File file = new File(directory, OUTPUT_FILE);
+			if (! file.exists()) {
+				this.failedLoads++;
+				return null;
+			}
+			this.loaded++;
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		}
+	}
+
+}
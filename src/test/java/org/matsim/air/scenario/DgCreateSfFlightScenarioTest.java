@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCreateSfFlightScenarioTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagTestUtils;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleReaderV1;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+
+/**
+ * The SF scenario built in memory must be the same as the one built from the intermediate files of the stages.
+ *
+ * @author dgrether
+ *
+ */
+public class DgCreateSfFlightScenarioTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * SYD has no coordinates and NRT no utc offset, thus some of the flights are filtered
+	 */
+	private static final String[][] AIRPORTS = {{"FRA", "8.57", "50.03", "1.0"}, {"MUC", "11.79", "48.35", "1.0"},
+			{"TXL", "13.29", "52.56", "1.0"}, {"JFK", "-73.78", "40.64", "-5.0"}, {"LHR", "-0.46", "51.47", "0.0"},
+			{"CDG", "2.55", "49.01", "1.0"}, {"NRT", "140.39", "35.77", null}, {"SYD", null, null, "10.0"}};
+
+	@Test
+	public void testInMemoryEqualsFileBasedBuild() throws Exception {
+		String outputDirectory = this.utils.getOutputDirectory();
+		String oagFilename = outputDirectory + "oag.csv";
+		DgOagTestUtils.writeFile(oagFilename, DgOagTestUtils.createLines(500, 4711));
+		String airportsFilename = outputDirectory + "airports_with_coords.txt";
+		String utcOffsetsFilename = outputDirectory + SfAirScheduleBuilder.UTC_OFFSET_FILE;
+		writeAirports(airportsFilename, utcOffsetsFilename);
+
+		// the stages pass their results in memory
+		String inMemoryDirectory = outputDirectory + "in_memory/";
+		new File(inMemoryDirectory).mkdirs();
+		DgFlightScenarioConfig config = DgCreateSfFlightScenario.createConfig().withWriteIntermediateFiles(false);
+		SfAirScheduleBuilder scheduleBuilder = new SfAirScheduleBuilder(config);
+		DgOagFlightsData flights = scheduleBuilder.readDataAndFilter(airportsFilename, oagFilename, inMemoryDirectory,
+				utcOffsetsFilename, null);
+		DgCreateSfFlightScenario.createNetworkAndSchedule(inMemoryDirectory, scheduleBuilder, config, flights);
+
+		// each stage reads the files of the previous one
+		String fileDirectory = outputDirectory + "files/";
+		new File(fileDirectory).mkdirs();
+		DgFlightScenarioConfig fileConfig = DgCreateSfFlightScenario.createConfig().withWriteIntermediateFiles(true);
+		String flightsFilename = fileDirectory + "oag_flights.bin";
+		new SfAirScheduleBuilder(fileConfig).readDataAndFilter(airportsFilename, oagFilename, fileDirectory,
+				utcOffsetsFilename, flightsFilename);
+		new SfAirNetworkBuilder(fileConfig).createNetwork(fileDirectory + SfAirScheduleBuilder.AIRPORTS_OUTPUT_FILE,
+				fileDirectory + SfAirScheduleBuilder.CITY_PAIRS_OUTPUT_FILENAME, fileDirectory + SfAirNetworkBuilder.NETWORK_FILENAME);
+		new SfTransitBuilder(fileConfig).createSchedule(flightsFilename, fileDirectory + SfAirNetworkBuilder.NETWORK_FILENAME, fileDirectory);
+
+		Scenario inMemory = readScenario(inMemoryDirectory);
+		Scenario fileBased = readScenario(fileDirectory);
+		// otherwise the test would not compare anything
+		Assert.assertFalse(flights.getFlightDesignatorFlightMap().isEmpty());
+		Assert.assertFalse(fileBased.getTransitSchedule().getTransitLines().isEmpty());
+		Assert.assertFalse(fileBased.getNetwork().getNodes().containsKey(Id.create("SYD", Node.class)));
+		assertNetworkEquals(fileBased.getNetwork(), inMemory.getNetwork());
+		assertScheduleEquals(fileBased.getTransitSchedule(), inMemory.getTransitSchedule());
+		assertVehiclesEquals(fileBased.getTransitVehicles(), inMemory.getTransitVehicles());
+	}
+
+	private static void writeAirports(String airportsFilename, String utcOffsetsFilename) throws IOException {
+		BufferedWriter airports = new BufferedWriter(new FileWriter(airportsFilename));
+		BufferedWriter utcOffsets = new BufferedWriter(new FileWriter(utcOffsetsFilename));
+		for (String[] airport : AIRPORTS) {
+			if (airport[1] != null) {
+				airports.write(airport[0] + "\t" + airport[1] + "\t" + airport[2]);
+				airports.newLine();
+			}
+			if (airport[3] != null) {
+				utcOffsets.write(airport[0] + "\t" + airport[3]);
+				utcOffsets.newLine();
+			}
+		}
+		airports.close();
+		utcOffsets.close();
+	}
+
+	private static Scenario readScenario(String directory) {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		config.scenario().setUseVehicles(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(directory + SfAirNetworkBuilder.NETWORK_FILENAME);
+		new TransitScheduleReader(scenario).readFile(directory + SfTransitBuilder.FLIGHT_TRANSIT_SCHEDULE);
+		new VehicleReaderV1(scenario.getTransitVehicles()).readFile(directory + SfTransitBuilder.FLIGHT_TRANSIT_VEHICLES);
+		return scenario;
+	}
+
+	private static void assertNetworkEquals(Network expected, Network actual) {
+		Assert.assertEquals(expected.getNodes().keySet(), actual.getNodes().keySet());
+		for (Node node : expected.getNodes().values()) {
+			Node other = actual.getNodes().get(node.getId());
+			Assert.assertEquals(node.getId().toString(), node.getCoord().getX(), other.getCoord().getX(), 1e-6);
+			Assert.assertEquals(node.getId().toString(), node.getCoord().getY(), other.getCoord().getY(), 1e-6);
+		}
+		Assert.assertEquals(expected.getLinks().keySet(), actual.getLinks().keySet());
+		for (Link link : expected.getLinks().values()) {
+			Link other = actual.getLinks().get(link.getId());
+			String message = link.getId().toString();
+			Assert.assertEquals(message, link.getFromNode().getId(), other.getFromNode().getId());
+			Assert.assertEquals(message, link.getToNode().getId(), other.getToNode().getId());
+			Assert.assertEquals(message, link.getLength(), other.getLength(), 1e-6);
+			Assert.assertEquals(message, link.getFreespeed(), other.getFreespeed(), 1e-6);
+			Assert.assertEquals(message, link.getCapacity(), other.getCapacity(), 1e-6);
+			Assert.assertEquals(message, link.getNumberOfLanes(), other.getNumberOfLanes(), 1e-6);
+			Assert.assertEquals(message, link.getAllowedModes(), other.getAllowedModes());
+		}
+	}
+
+	private static void assertScheduleEquals(TransitSchedule expected, TransitSchedule actual) {
+		Assert.assertEquals(expected.getFacilities().keySet(), actual.getFacilities().keySet());
+		for (TransitStopFacility facility : expected.getFacilities().values()) {
+			TransitStopFacility other = actual.getFacilities().get(facility.getId());
+			Assert.assertEquals(facility.getLinkId(), other.getLinkId());
+			Assert.assertEquals(facility.getCoord().getX(), other.getCoord().getX(), 1e-6);
+			Assert.assertEquals(facility.getCoord().getY(), other.getCoord().getY(), 1e-6);
+		}
+		Assert.assertEquals(expected.getTransitLines().keySet(), actual.getTransitLines().keySet());
+		for (TransitLine line : expected.getTransitLines().values()) {
+			TransitLine otherLine = actual.getTransitLines().get(line.getId());
+			Assert.assertEquals(line.getRoutes().keySet(), otherLine.getRoutes().keySet());
+			for (TransitRoute route : line.getRoutes().values()) {
+				TransitRoute otherRoute = otherLine.getRoutes().get(route.getId());
+				String message = route.getId().toString();
+				Assert.assertEquals(message, route.getRoute().getStartLinkId(), otherRoute.getRoute().getStartLinkId());
+				Assert.assertEquals(message, route.getRoute().getLinkIds(), otherRoute.getRoute().getLinkIds());
+				Assert.assertEquals(message, route.getRoute().getEndLinkId(), otherRoute.getRoute().getEndLinkId());
+				List<TransitRouteStop> stops = route.getStops();
+				List<TransitRouteStop> otherStops = otherRoute.getStops();
+				Assert.assertEquals(message, stops.size(), otherStops.size());
+				for (int i = 0; i < stops.size(); i++) {
+					Assert.assertEquals(message, stops.get(i).getStopFacility().getId(), otherStops.get(i).getStopFacility().getId());
+					Assert.assertEquals(message, stops.get(i).getArrivalOffset(), otherStops.get(i).getArrivalOffset(), 1e-9);
+					Assert.assertEquals(message, stops.get(i).getDepartureOffset(), otherStops.get(i).getDepartureOffset(), 1e-9);
+				}
+				Assert.assertEquals(message, route.getDepartures().keySet(), otherRoute.getDepartures().keySet());
+				for (Departure departure : route.getDepartures().values()) {
+					Departure otherDeparture = otherRoute.getDepartures().get(departure.getId());
+					Assert.assertEquals(message, departure.getDepartureTime(), otherDeparture.getDepartureTime(), 1e-9);
+					Assert.assertEquals(message, departure.getVehicleId(), otherDeparture.getVehicleId());
+				}
+			}
+		}
+	}
+
+	private static void assertVehiclesEquals(Vehicles expected, Vehicles actual) {
+		Assert.assertEquals(expected.getVehicleTypes().keySet(), actual.getVehicleTypes().keySet());
+		for (VehicleType type : expected.getVehicleTypes().values()) {
+			VehicleType other = actual.getVehicleTypes().get(type.getId());
+			Assert.assertEquals(type.getId().toString(), type.getCapacity().getSeats(), other.getCapacity().getSeats());
+			Assert.assertEquals(type.getId().toString(), type.getMaximumVelocity(), other.getMaximumVelocity(), 1e-9);
+		}
+		Assert.assertEquals(expected.getVehicles().keySet(), actual.getVehicles().keySet());
+		for (Vehicle vehicle : expected.getVehicles().values()) {
+			Id<VehicleType> typeId = actual.getVehicles().get(vehicle.getId()).getType().getId();
+			Assert.assertEquals(vehicle.getId().toString(), vehicle.getType().getId(), typeId);
+		}
+	}
+
+}
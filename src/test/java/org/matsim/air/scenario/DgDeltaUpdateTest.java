@@ -0,0 +1,216 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgDeltaUpdateTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.DgOagFlight;
+import org.matsim.air.scenario.oag.DgOagFlightsData;
+import org.matsim.air.scenario.oag.DgOagFlightsDelta;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+
+/**
+ * Patching the network and schedule of a previous build with the delta of the flights must give the same
+ * scenario as building it from scratch.
+ *
+ * @author dgrether
+ *
+ */
+public class DgDeltaUpdateTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testDeltaUpdateEqualsFullRebuild() {
+		Map<String, Coord> previousAirports = new HashMap<String, Coord>();
+		previousAirports.put("FRA", new Coord(8.57, 50.03));
+		previousAirports.put("MUC", new Coord(11.79, 48.35));
+		previousAirports.put("TXL", new Coord(13.29, 52.56));
+		previousAirports.put("LHR", new Coord(-0.46, 51.47));
+		DgOagFlightsData previous = new DgOagFlightsData();
+		previous.addFlight(createFlight("LH1", "FRA", "MUC", "LH", 6 * 3600, 3600, 150, 300.0));
+		previous.addFlight(createFlight("LH2", "MUC", "FRA", "LH", 8 * 3600, 3600, 150, 300.0));
+		previous.addFlight(createFlight("LH3", "FRA", "TXL", "LH", 9 * 3600, 4200, 180, 430.0));
+		previous.addFlight(createFlight("BA1", "LHR", "FRA", "BA", 7 * 3600, 5400, 200, 650.0));
+		previous.addFlight(createFlight("BA2", "FRA", "LHR", "BA", 10 * 3600, 5400, 200, 650.0));
+
+		Map<String, Coord> currentAirports = new HashMap<String, Coord>();
+		currentAirports.put("FRA", new Coord(8.57, 50.03));
+		currentAirports.put("MUC", new Coord(11.79, 48.35));
+		currentAirports.put("TXL", new Coord(13.29, 52.56));
+		currentAirports.put("CDG", new Coord(2.55, 49.01));
+		DgOagFlightsData current = new DgOagFlightsData();
+		// unchanged
+		current.addFlight(createFlight("LH1", "FRA", "MUC", "LH", 6 * 3600, 3600, 150, 300.0));
+		// other departure time and seats
+		current.addFlight(createFlight("LH2", "MUC", "FRA", "LH", 9 * 3600, 3600, 120, 300.0));
+		// the designator serves another city pair
+		current.addFlight(createFlight("LH3", "FRA", "CDG", "LH", 9 * 3600, 3900, 180, 450.0));
+		// added flights, one to an added airport
+		current.addFlight(createFlight("LH4", "MUC", "TXL", "LH", 12 * 3600, 4000, 150, 480.0));
+		current.addFlight(createFlight("AF1", "CDG", "FRA", "AF", 11 * 3600, 3900, 170, 450.0));
+
+		DgOagFlightsDelta delta = DgOagFlightsDelta.create(previous, previousAirports, current, currentAirports);
+		Assert.assertEquals(2, delta.getAddedFlights().size());
+		Assert.assertEquals(2, delta.getRemovedFlights().size());
+		Assert.assertEquals(2, delta.getChangedFlights().size());
+		Assert.assertTrue(delta.getAddedAirports().contains("CDG"));
+		Assert.assertTrue(delta.getRemovedAirports().contains("LHR"));
+		Assert.assertTrue(delta.getMovedAirports().isEmpty());
+
+		// the previous build, patched with the delta by builders with the same scenario data as in a delta run
+		DgFlightScenarioData updatedData = new DgFlightScenarioData(3600.0);
+		Scenario updated = createScenario();
+		this.createScenario(updated, updatedData, previous, previousAirports, "previous_");
+		DgAirNetworkBuilder networkBuilder = new DgAirNetworkBuilder(updated, new IdentityTransformation(), updatedData);
+		networkBuilder.setNumberOfThreads(1);
+		networkBuilder.updateNetwork(delta, currentAirports, this.utils.getOutputDirectory() + "updated_network.xml");
+		DgTransitBuilder transitBuilder = new DgTransitBuilder(updated, updatedData);
+		transitBuilder.updateSchedule(delta, networkBuilder.getAirportMap());
+
+		Scenario rebuilt = createScenario();
+		this.createScenario(rebuilt, new DgFlightScenarioData(3600.0), current, currentAirports, "rebuilt_");
+
+		assertNetworkEquals(rebuilt.getNetwork(), updated.getNetwork());
+		assertScheduleEquals(rebuilt.getTransitSchedule(), updated.getTransitSchedule());
+		assertVehiclesEquals(rebuilt.getTransitVehicles(), updated.getTransitVehicles());
+	}
+
+	private void createScenario(Scenario scenario, DgFlightScenarioData data, DgOagFlightsData flights,
+			Map<String, Coord> airports, String prefix) {
+		DgAirNetworkBuilder networkBuilder = new DgAirNetworkBuilder(scenario, new IdentityTransformation(), data);
+		networkBuilder.setNumberOfThreads(1);
+		networkBuilder.createNetwork(flights, airports, this.utils.getOutputDirectory() + prefix + "network.xml");
+		DgTransitBuilder transitBuilder = new DgTransitBuilder(scenario, data);
+		transitBuilder.createSchedule(flights, networkBuilder.getAirportMap());
+	}
+
+	private static Scenario createScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		return ScenarioUtils.createScenario(config);
+	}
+
+	private static DgOagFlight createFlight(String designator, String origin, String destination, String carrier,
+			double departureTime, double duration, int seats, double distanceKm) {
+		DgOagFlight flight = new DgOagFlight(designator);
+		flight.setRoute(origin + destination);
+		flight.setCarrier(carrier);
+		flight.setAircraftType("320");
+		flight.setOriginCode(origin);
+		flight.setDestinationCode(destination);
+		flight.setDepartureTime(departureTime);
+		flight.setDuration(duration);
+		flight.setSeatsAvailable(seats);
+		flight.setDistanceKm(distanceKm);
+		return flight;
+	}
+
+	private static void assertNetworkEquals(Network expected, Network actual) {
+		Assert.assertEquals(expected.getNodes().keySet(), actual.getNodes().keySet());
+		for (Node node : expected.getNodes().values()) {
+			Coord coord = actual.getNodes().get(node.getId()).getCoord();
+			Assert.assertEquals(node.getId().toString(), node.getCoord().getX(), coord.getX(), 1e-9);
+			Assert.assertEquals(node.getId().toString(), node.getCoord().getY(), coord.getY(), 1e-9);
+		}
+		Assert.assertEquals(expected.getLinks().keySet(), actual.getLinks().keySet());
+		for (Link link : expected.getLinks().values()) {
+			Link other = actual.getLinks().get(link.getId());
+			String message = link.getId().toString();
+			Assert.assertEquals(message, link.getFromNode().getId(), other.getFromNode().getId());
+			Assert.assertEquals(message, link.getToNode().getId(), other.getToNode().getId());
+			Assert.assertEquals(message, link.getLength(), other.getLength(), 1e-9);
+			Assert.assertEquals(message, link.getFreespeed(), other.getFreespeed(), 1e-9);
+			Assert.assertEquals(message, link.getCapacity(), other.getCapacity(), 1e-9);
+			Assert.assertEquals(message, link.getNumberOfLanes(), other.getNumberOfLanes(), 1e-9);
+			Assert.assertEquals(message, link.getAllowedModes(), other.getAllowedModes());
+		}
+	}
+
+	private static void assertScheduleEquals(TransitSchedule expected, TransitSchedule actual) {
+		Assert.assertEquals(expected.getFacilities().keySet(), actual.getFacilities().keySet());
+		for (TransitStopFacility facility : expected.getFacilities().values()) {
+			TransitStopFacility other = actual.getFacilities().get(facility.getId());
+			Assert.assertEquals(facility.getLinkId(), other.getLinkId());
+			Assert.assertEquals(facility.getCoord().getX(), other.getCoord().getX(), 1e-9);
+			Assert.assertEquals(facility.getCoord().getY(), other.getCoord().getY(), 1e-9);
+		}
+		Assert.assertEquals(expected.getTransitLines().keySet(), actual.getTransitLines().keySet());
+		for (TransitLine line : expected.getTransitLines().values()) {
+			TransitLine otherLine = actual.getTransitLines().get(line.getId());
+			Assert.assertEquals(line.getRoutes().keySet(), otherLine.getRoutes().keySet());
+			for (TransitRoute route : line.getRoutes().values()) {
+				TransitRoute otherRoute = otherLine.getRoutes().get(route.getId());
+				String message = route.getId().toString();
+				Assert.assertEquals(message, route.getRoute().getStartLinkId(), otherRoute.getRoute().getStartLinkId());
+				Assert.assertEquals(message, route.getRoute().getLinkIds(), otherRoute.getRoute().getLinkIds());
+				Assert.assertEquals(message, route.getRoute().getEndLinkId(), otherRoute.getRoute().getEndLinkId());
+				Assert.assertEquals(message, route.getStops().size(), otherRoute.getStops().size());
+				for (int i = 0; i < route.getStops().size(); i++) {
+					TransitRouteStop stop = route.getStops().get(i);
+					TransitRouteStop otherStop = otherRoute.getStops().get(i);
+					Assert.assertEquals(message, stop.getStopFacility().getId(), otherStop.getStopFacility().getId());
+					Assert.assertEquals(message, stop.getArrivalOffset(), otherStop.getArrivalOffset(), 1e-9);
+					Assert.assertEquals(message, stop.getDepartureOffset(), otherStop.getDepartureOffset(), 1e-9);
+				}
+				Assert.assertEquals(message, route.getDepartures().keySet(), otherRoute.getDepartures().keySet());
+				for (Departure departure : route.getDepartures().values()) {
+					Departure otherDeparture = otherRoute.getDepartures().get(departure.getId());
+					Assert.assertEquals(message, departure.getDepartureTime(), otherDeparture.getDepartureTime(), 1e-9);
+					Assert.assertEquals(message, departure.getVehicleId(), otherDeparture.getVehicleId());
+				}
+			}
+		}
+	}
+
+	private static void assertVehiclesEquals(Vehicles expected, Vehicles actual) {
+		Assert.assertEquals(expected.getVehicleTypes().keySet(), actual.getVehicleTypes().keySet());
+		Assert.assertEquals(expected.getVehicles().keySet(), actual.getVehicles().keySet());
+		for (Vehicle vehicle : expected.getVehicles().values()) {
+			Id<VehicleType> typeId = actual.getVehicles().get(vehicle.getId()).getType().getId();
+			Assert.assertEquals(vehicle.getId().toString(), vehicle.getType().getId(), typeId);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgFlightVehicleTypesTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.matsim.vehicles.Vehicles;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgFlightVehicleTypesTest {
+
+	@Test
+	public void testSeatBuckets() {
+		DgFlightVehicleTypes types = new DgFlightVehicleTypes(VehicleUtils.createVehiclesContainer(), 50);
+		Assert.assertEquals(0, types.getSeatBucket(0));
+		Assert.assertEquals(50, types.getSeatBucket(1));
+		Assert.assertEquals(50, types.getSeatBucket(49));
+		Assert.assertEquals(50, types.getSeatBucket(50));
+		Assert.assertEquals(100, types.getSeatBucket(51));
+		Assert.assertEquals(400, types.getSeatBucket(380));
+
+		// a bucket size of 1 keeps the exact seats
+		types = new DgFlightVehicleTypes(VehicleUtils.createVehiclesContainer(), 1);
+		Assert.assertEquals(1, types.getSeatBucket(1));
+		Assert.assertEquals(379, types.getSeatBucket(379));
+
+		try {
+			new DgFlightVehicleTypes(VehicleUtils.createVehiclesContainer(), 0);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testTypeOfFlight() {
+		Vehicles vehicles = VehicleUtils.createVehiclesContainer();
+		DgFlightVehicleTypes types = new DgFlightVehicleTypes(vehicles, 50);
+		int speedClass = DgAirConnectionLinks.getSpeedClass(220.0);
+		VehicleType type = types.getVehicleType(380, 220.0);
+		Assert.assertEquals("400seats_s" + speedClass + "_pcu" + DgFlightVehicleTypes.DEFAULT_PCU, type.getId().toString());
+		Assert.assertEquals(400, type.getCapacity().getSeats().intValue());
+		Assert.assertEquals(DgFlightVehicleTypes.DEFAULT_PCU, type.getPcuEquivalents(), 0.0);
+		// the velocity of the speed class, not of the flight
+		Assert.assertEquals(DgAirConnectionLinks.getSpeedClassFreespeed(speedClass), type.getMaximumVelocity(), 0.0);
+		Assert.assertEquals(220.0, type.getMaximumVelocity(), 220.0 * (DgAirConnectionLinks.SPEED_CLASS_RATIO - 1.0) / 2.0);
+		Assert.assertTrue(vehicles.getVehicleTypes().containsKey(type.getId()));
+
+		VehicleType heavy = types.getVehicleType(380, 220.0, 2.5);
+		Assert.assertEquals("400seats_s" + speedClass + "_pcu2.5", heavy.getId().toString());
+		Assert.assertEquals(2.5, heavy.getPcuEquivalents(), 0.0);
+		Assert.assertEquals(2, vehicles.getVehicleTypes().size());
+	}
+
+	/**
+	 * Flights of the same seat bucket and speed class share one type, other buckets or classes get their own type.
+	 */
+	@Test
+	public void testFlightsShareType() {
+		Vehicles vehicles = VehicleUtils.createVehiclesContainer();
+		DgFlightVehicleTypes types = new DgFlightVehicleTypes(vehicles, 50);
+		double speed = DgAirConnectionLinks.getSpeedClassFreespeed(DgAirConnectionLinks.getSpeedClass(220.0));
+		VehicleType type = types.getVehicleType(351, speed);
+		Assert.assertSame(type, types.getVehicleType(400, speed * 1.01));
+		Assert.assertSame(type, types.getVehicleType(380, speed / 1.01));
+		Assert.assertEquals(1, vehicles.getVehicleTypes().size());
+
+		Assert.assertNotSame(type, types.getVehicleType(401, speed));
+		Assert.assertNotSame(type, types.getVehicleType(380, speed * DgAirConnectionLinks.SPEED_CLASS_RATIO));
+		Assert.assertEquals(3, vehicles.getVehicleTypes().size());
+	}
+
+}
@@ -0,0 +1,401 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOsmAerowayExtractorTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.zip.Deflater;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * Tests the {@link DgOsmAerowayExtractor} with a small XML and a small PBF file of the same airports. The files are
+ * written by the test, the PBF file by a minimal protocol buffer encoder.
+ *
+ * @author dgrether
+ *
+ */
+public class DgOsmAerowayExtractorTest {
+
+	private static final double EPSILON = 1e-7;
+
+	private static final String[] CODES = {"FRA", "HAM", "JFK", "MUC", "TXL"};
+
+	private static final double[][] COORDS = {{8.5706, 50.0333}, {9.9882, 53.6304}, {-73.7781, 40.6413}, {11.7861, 48.3538}, {13.2878, 52.5597}};
+
+	private static final List<String> XML_LINES = Arrays.asList(
+			"<?xml version='1.0' encoding='UTF-8'?>",
+			"<osm version=\"0.6\" generator=\"Osmosis 0.43.1\">",
+			"  <bound box=\"-90,-180,90,180\" origin=\"test\"/>",
+			"  <node id=\"1\" version=\"1\" timestamp=\"2010-12-28T10:00:00Z\" lat=\"0.5\" lon=\"0.5\"/>",
+			"  <node id=\"2\" version=\"3\" timestamp=\"2010-12-28T10:00:00Z\" lat=\"50.0333\" lon=\"8.5706\">",
+			"    <tag k=\"aeroway\" v=\"aerodrome\"/>",
+			"    <tag k=\"name\" v=\"Frankfurt am Main\"/>",
+			"    <tag k=\"icao\" v=\"EDDF\"/>",
+			"    <tag k=\"iata\" v=\"FRA\"/>",
+			"  </node>",
+			"  <node id=\"3\" version=\"1\" lat=\"1.0\" lon=\"1.0\">",
+			"    <tag k=\"name\" v=\"iata\"/>",
+			"    <tag k=\"iata:old\" v=\"OLD\"/>",
+			"  </node>",
+			"  <node id=\"4\" version=\"1\" timestamp=\"2010-12-28T10:00:00Z\" lat=\"52.5597\" lon=\"13.2878\">",
+			"    <tag k=\"aeroway\" v=\"aerodrome\"/>",
+			"    <tag k=\"iata\" v=\"TXL;SXF\"/>",
+			"  </node>",
+			"  <node id=\"5\" version=\"1\" lat=\"2.0\" lon=\"2.0\"/>",
+			"  <node id=\"6\" version=\"2\" lon=\"9.9882\" timestamp=\"2010-12-28T10:00:00Z\" lat=\"53.6304\">",
+			"    <tag k=\"aeroway\" v=\"aerodrome\"/>",
+			"    <tag k=\"iata\" v=\" HAM \"/>",
+			"  </node>",
+			"  <node id='7' version='1' lat='48.3538' lon='11.7861'>",
+			"    <tag k='aeroway' v='aerodrome'/>",
+			"    <tag k='iata' v='MUC'/>",
+			"  </node>",
+			"  <node id=\"8\" version=\"1\" lat=\"3.0\" lon=\"3.0\">",
+			"    <tag k=\"aeroway\" v=\"aerodrome\"/>",
+			"    <tag k=\"iata\" v=\"FRA\"/>",
+			"  </node>",
+			"  <node id=\"9\" version=\"1\" lat=\"40.6413\" lon=\"-73.7781\">",
+			"    <tag k=\"name\" v=\"John F. Kennedy International Airport\"/>",
+			"    <tag k=\"aeroway\" v=\"aerodrome\"/>",
+			"    <tag k=\"iata\" v=\"JFK\"/>",
+			"  </node>",
+			"  <way id=\"10\" version=\"1\">",
+			"    <nd ref=\"1\"/>",
+			"    <nd ref=\"5\"/>",
+			"    <tag k=\"iata\" v=\"WAY\"/>",
+			"  </way>",
+			"  <relation id=\"11\" version=\"1\">",
+			"    <member type=\"node\" ref=\"1\" role=\"\"/>",
+			"    <tag k=\"iata\" v=\"REL\"/>",
+			"  </relation>",
+			"</osm>");
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testXmlSerialAndInChunks() throws Exception {
+		String file = this.utils.getOutputDirectory() + "aeroway.osm";
+		byte[] bytes = writeXml(file);
+		DgOsmAerowayExtractor extractor = new DgOsmAerowayExtractor(new IdentityTransformation());
+		extractor.setNumberOfThreads(1);
+		SortedMap<String, Coord> serial = extractor.extractAirports(file);
+		assertExpectedAirports(serial);
+
+		int maxLineLength = 0;
+		for (String line : XML_LINES) {
+			maxLineLength = Math.max(maxLineLength, line.length() + 1);
+		}
+		// the node with the code FRA is split by a chunk boundary for some of the chunk sizes
+		int nodeStart = indexOf(bytes, "<node id=\"2\"");
+		int tagStart = indexOf(bytes, "<tag k=\"iata\" v=\"FRA\"");
+		int straddles = 0;
+		extractor.setNumberOfThreads(3);
+		for (int chunkSize = maxLineLength; chunkSize <= bytes.length; chunkSize++) {
+			extractor.setChunkSize(chunkSize);
+			SortedMap<String, Coord> chunked = extractor.extractAirports(file);
+			assertEqualAirports(serial, chunked, 0.0);
+			for (int end : getChunkEnds(bytes, chunkSize)) {
+				if (end > nodeStart && end <= tagStart) {
+					straddles++;
+				}
+			}
+		}
+		Assert.assertTrue(straddles > 0);
+	}
+
+	@Test
+	public void testPbfSerialAndParallel() throws Exception {
+		String file = this.utils.getOutputDirectory() + "aeroway.osm.pbf";
+		writePbf(file);
+		DgOsmAerowayExtractor extractor = new DgOsmAerowayExtractor(new IdentityTransformation());
+		extractor.setNumberOfThreads(1);
+		SortedMap<String, Coord> serial = extractor.extractAirports(file);
+		assertExpectedAirports(serial);
+		for (int threads = 2; threads <= 4; threads++) {
+			extractor.setNumberOfThreads(threads);
+			assertEqualAirports(serial, extractor.extractAirports(file), 0.0);
+		}
+
+		String xmlFile = this.utils.getOutputDirectory() + "aeroway.osm";
+		writeXml(xmlFile);
+		assertEqualAirports(extractor.extractAirports(xmlFile), serial, EPSILON);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedFile() throws Exception {
+		new DgOsmAerowayExtractor(new IdentityTransformation()).extractAirports(this.utils.getOutputDirectory() + "aeroway.osm.bz2");
+	}
+
+	private static void assertExpectedAirports(SortedMap<String, Coord> airports) {
+		Assert.assertEquals(Arrays.asList(CODES), new ArrayList<String>(airports.keySet()));
+		for (int i = 0; i < CODES.length; i++) {
+			Coord coord = airports.get(CODES[i]);
+			Assert.assertEquals(CODES[i], COORDS[i][0], coord.getX(), EPSILON);
+			Assert.assertEquals(CODES[i], COORDS[i][1], coord.getY(), EPSILON);
+		}
+	}
+
+	private static void assertEqualAirports(SortedMap<String, Coord> expected, SortedMap<String, Coord> actual, double delta) {
+		Assert.assertEquals(expected.keySet(), actual.keySet());
+		for (Entry<String, Coord> e : expected.entrySet()) {
+			Assert.assertEquals(e.getKey(), e.getValue().getX(), actual.get(e.getKey()).getX(), delta);
+			Assert.assertEquals(e.getKey(), e.getValue().getY(), actual.get(e.getKey()).getY(), delta);
+		}
+	}
+
+	private static byte[] writeXml(String file) throws IOException {
+		StringBuilder xml = new StringBuilder();
+		for (String line : XML_LINES) {
+			xml.append(line).append('\n');
+		}
+		byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+		return bytes;
+	}
+
+	private static int indexOf(byte[] bytes, String s) {
+		int index = new String(bytes, StandardCharsets.UTF_8).indexOf(s);
+		Assert.assertTrue(index >= 0);
+		return index;
+	}
+
+	/**
+	 * @return the ends of the chunks as split by the extractor, after the last line feed within the chunk size
+	 */
+	private static List<Integer> getChunkEnds(byte[] bytes, int chunkSize) {
+		List<Integer> ends = new ArrayList<Integer>();
+		int start = 0;
+		while (start + chunkSize < bytes.length) {
+			int end = start + chunkSize;
+			while (bytes[end - 1] != '\n') {
+				end--;
+			}
+			ends.add(end);
+			start = end;
+		}
+		return ends;
+	}
+
+	/**
+	 * Writes a header blob and four data blobs:
+	 * <ol>
+	 * <li>compressed, dense nodes with FRA and TXL</li>
+	 * <li>uncompressed, dense nodes without the iata key</li>
+	 * <li>compressed, with coordinate offsets and granularity, dense nodes with FRA again and MUC, a node with HAM and a
+	 * way with an iata tag</li>
+	 * <li>uncompressed, dense nodes with JFK</li>
+	 * </ol>
+	 */
+	private static void writePbf(String file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			PbfOutput header = new PbfOutput();
+			header.writeBytes(4, "OsmSchema-V0.6".getBytes(StandardCharsets.UTF_8));
+			header.writeBytes(4, "DenseNodes".getBytes(StandardCharsets.UTF_8));
+			writeBlob(out, "OSMHeader", header.toByteArray(), true);
+
+			String[] strings = {"", "aeroway", "aerodrome", "iata", "FRA", "name", "Tegel", "TXL;SXF"};
+			PbfOutput dense = createDenseNodes(new long[] {1, 2, 3, 4},
+					new double[] {0.5, 50.0333, 1.0, 52.5597}, new double[] {0.5, 8.5706, 1.0, 13.2878}, 0, 0, 100,
+					new int[] {0, 1, 2, 3, 4, 0, 5, 3, 0, 1, 2, 5, 6, 3, 7, 0});
+			writeBlob(out, "OSMData", createBlock(strings, 100, 0, 0, group(2, dense)), true);
+
+			strings = new String[] {"", "name", "Somewhere", "aeroway"};
+			dense = createDenseNodes(new long[] {5, 6}, new double[] {2.0, 2.5}, new double[] {2.0, 2.5}, 0, 0, 100,
+					new int[] {1, 2, 0, 3, 2, 0});
+			writeBlob(out, "OSMData", createBlock(strings, 100, 0, 0, group(2, dense)), false);
+
+			strings = new String[] {"", "aeroway", "aerodrome", "iata", "FRA", "MUC", " HAM ", "WAY"};
+			long latOffset = 1000000000L;
+			long lonOffset = -2000000000L;
+			dense = createDenseNodes(new long[] {7, 8}, new double[] {3.0, 48.3538}, new double[] {3.0, 11.7861},
+					latOffset, lonOffset, 1000, new int[] {1, 2, 3, 4, 0, 3, 5, 1, 2, 0});
+			PbfOutput node = new PbfOutput();
+			node.writeVarint(1, PbfOutput.encodeZigZag(9));
+			node.writePacked(2, 1, 3);
+			node.writePacked(3, 2, 6);
+			node.writeVarint(8, PbfOutput.encodeZigZag(raw(53.6304, latOffset, 1000)));
+			node.writeVarint(9, PbfOutput.encodeZigZag(raw(9.9882, lonOffset, 1000)));
+			PbfOutput way = new PbfOutput();
+			way.writeVarint(1, 10);
+			way.writePacked(2, 3);
+			way.writePacked(3, 7);
+			way.writePacked(8, PbfOutput.encodeZigZag(7), PbfOutput.encodeZigZag(1));
+			PbfOutput wayGroup = group(3, way);
+			byte[] groups = concat(group(2, dense).toByteArray(), group(1, node).toByteArray());
+			writeBlob(out, "OSMData", createBlock(strings, 1000, latOffset, lonOffset, groups, wayGroup.toByteArray()), true);
+
+			strings = new String[] {"", "iata", "JFK"};
+			dense = createDenseNodes(new long[] {11}, new double[] {40.6413}, new double[] {-73.7781}, 0, 0, 100,
+					new int[] {1, 2, 0});
+			writeBlob(out, "OSMData", createBlock(strings, 100, 0, 0, group(2, dense)), false);
+		}
+	}
+
+	private static long raw(double degrees, long offset, long granularity) {
+		return Math.round((degrees * 1e9 - offset) / granularity);
+	}
+
+	private static PbfOutput createDenseNodes(long[] ids, double[] lats, double[] lons, long latOffset, long lonOffset,
+			long granularity, int[] keysVals) {
+		long[] idDeltas = new long[ids.length];
+		long[] latDeltas = new long[ids.length];
+		long[] lonDeltas = new long[ids.length];
+		long lastId = 0;
+		long lastLat = 0;
+		long lastLon = 0;
+		for (int i = 0; i < ids.length; i++) {
+			long lat = raw(lats[i], latOffset, granularity);
+			long lon = raw(lons[i], lonOffset, granularity);
+			idDeltas[i] = PbfOutput.encodeZigZag(ids[i] - lastId);
+			latDeltas[i] = PbfOutput.encodeZigZag(lat - lastLat);
+			lonDeltas[i] = PbfOutput.encodeZigZag(lon - lastLon);
+			lastId = ids[i];
+			lastLat = lat;
+			lastLon = lon;
+		}
+		long[] tags = new long[keysVals.length];
+		for (int i = 0; i < keysVals.length; i++) {
+			tags[i] = keysVals[i];
+		}
+		PbfOutput dense = new PbfOutput();
+		dense.writePacked(1, idDeltas);
+		dense.writePacked(8, latDeltas);
+		dense.writePacked(9, lonDeltas);
+		dense.writePacked(10, tags);
+		return dense;
+	}
+
+	private static PbfOutput group(int field, PbfOutput element) {
+		PbfOutput group = new PbfOutput();
+		group.writeBytes(field, element.toByteArray());
+		return group;
+	}
+
+	private static byte[] createBlock(String[] strings, long granularity, long latOffset, long lonOffset, PbfOutput group) {
+		return createBlock(strings, granularity, latOffset, lonOffset, group.toByteArray());
+	}
+
+	private static byte[] createBlock(String[] strings, long granularity, long latOffset, long lonOffset, byte[]... groups) {
+		PbfOutput stringTable = new PbfOutput();
+		for (String s : strings) {
+			stringTable.writeBytes(1, s.getBytes(StandardCharsets.UTF_8));
+		}
+		PbfOutput block = new PbfOutput();
+		block.writeBytes(1, stringTable.toByteArray());
+		for (byte[] group : groups) {
+			block.writeBytes(2, group);
+		}
+		block.writeVarint(17, granularity);
+		if (latOffset != 0) {
+			block.writeVarint(19, latOffset);
+		}
+		if (lonOffset != 0) {
+			block.writeVarint(20, lonOffset);
+		}
+		return block.toByteArray();
+	}
+
+	private static byte[] concat(byte[] a, byte[] b) {
+		byte[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	private static void writeBlob(DataOutputStream out, String type, byte[] data, boolean compress) throws IOException {
+		PbfOutput blob = new PbfOutput();
+		if (compress) {
+			Deflater deflater = new Deflater();
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer = new byte[data.length + 64];
+			int length = deflater.deflate(buffer);
+			deflater.end();
+			blob.writeVarint(2, data.length);
+			blob.writeBytes(3, Arrays.copyOf(buffer, length));
+		}
+		else {
+			blob.writeBytes(1, data);
+		}
+		byte[] blobBytes = blob.toByteArray();
+		PbfOutput header = new PbfOutput();
+		header.writeBytes(1, type.getBytes(StandardCharsets.UTF_8));
+		header.writeVarint(3, blobBytes.length);
+		byte[] headerBytes = header.toByteArray();
+		out.writeInt(headerBytes.length);
+		out.write(headerBytes);
+		out.write(blobBytes);
+	}
+
+	/**
+	 * Writes the protocol buffer encoding of the fields of a message.
+	 */
+	private static final class PbfOutput extends ByteArrayOutputStream {
+
+		static long encodeZigZag(long n) {
+			return (n << 1) ^ (n >> 63);
+		}
+
+		private void writeRawVarint(long value) {
+			while ((value & ~0x7fL) != 0) {
+				this.write((int) ((value & 0x7f) | 0x80));
+				value >>>= 7;
+			}
+			this.write((int) value);
+		}
+
+		void writeVarint(int field, long value) {
+			this.writeRawVarint(field << 3);
+			this.writeRawVarint(value);
+		}
+
+		void writeBytes(int field, byte[] bytes) {
+			this.writeRawVarint((field << 3) | 2);
+			this.writeRawVarint(bytes.length);
+			this.write(bytes, 0, bytes.length);
+		}
+
+		void writePacked(int field, long... values) {
+			PbfOutput packed = new PbfOutput();
+			for (long value : values) {
+				packed.writeRawVarint(value);
+			}
+			this.writeBytes(field, packed.toByteArray());
+		}
+
+	}
+
+}
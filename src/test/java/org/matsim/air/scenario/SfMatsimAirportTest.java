@@ -0,0 +1,67 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SfMatsimAirportTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class SfMatsimAirportTest {
+
+	/**
+	 * The free flow times of the queues and the apron, where the arrival route ends, must give the taxi times used
+	 * to compute the cruise time of the flights.
+	 */
+	@Test
+	public void testQueueFreeFlowTimes() {
+		Network network = NetworkUtils.createNetwork();
+		DgFlightScenarioConfig config = new DgFlightScenarioConfig().withCreateStars(false);
+		SfMatsimAirport airport = new SfMatsimAirport(Id.create("FRA", Node.class), new Coord(0.0, 0.0),
+				new DgAirportsCapacityData(3600.0).getAirportCapacity("FRA"), config);
+		airport.createQueues(network);
+
+		Assert.assertEquals(1, airport.getDepartureLinkIdList().size());
+		Assert.assertEquals(1, airport.getArrivalLinkIdList().size());
+		Link outbound = network.getLinks().get(airport.getDepartureLinkIdList().get(0));
+		Link inbound = network.getLinks().get(airport.getArrivalLinkIdList().get(0));
+		Link apron = network.getLinks().get(airport.getStopFacilityLinkId());
+		Assert.assertEquals(apron.getFromNode().getId(), inbound.getToNode().getId());
+
+		Assert.assertEquals(airport.getTaxiTimeOutbound(), freeFlowTime(outbound), 1e-9);
+		Assert.assertEquals(airport.getTaxiTimeInbound(), freeFlowTime(inbound) + freeFlowTime(apron), 1e-9);
+		Assert.assertEquals(SfMatsimAirport.taxiwayLength / SfMatsimAirport.taxiwayFreespeed
+				+ SfMatsimAirport.runwayLength / SfMatsimAirport.runwayFreespeed, freeFlowTime(inbound), 1e-9);
+	}
+
+	private static double freeFlowTime(Link link) {
+		return link.getLength() / link.getFreespeed();
+	}
+
+}
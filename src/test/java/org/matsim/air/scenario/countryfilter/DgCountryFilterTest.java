@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgCountryFilterTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.countryfilter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.air.scenario.SfEuropeCountryFilter;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgCountryFilterTest {
+
+	@Test
+	public void testDefaultIdMethodUsesCodes() {
+		DgCountryFilter filter = new DgCountryFilter() {
+			@Override
+			public boolean isCountryOfInterest(String originCountry, String destinationCountry) {
+				return "DE".equals(originCountry) && ! "FR".equals(destinationCountry);
+			}
+		};
+		int de = DgCountryCodes.getId("DE");
+		int fr = DgCountryCodes.getId("FR");
+		int at = DgCountryCodes.getId("at");
+		Assert.assertTrue(filter.isCountryOfInterest(de, at));
+		Assert.assertFalse(filter.isCountryOfInterest(de, fr));
+		Assert.assertFalse(filter.isCountryOfInterest(at, de));
+		// a code without id is passed as empty String
+		Assert.assertTrue(filter.isCountryOfInterest(de, -1));
+		Assert.assertFalse(filter.isCountryOfInterest(-1, at));
+	}
+
+	/**
+	 * The filters of the repository override the id method, it must give the same result as the code method.
+	 */
+	@Test
+	public void testIdAndCodeMethodsAreEqual() {
+		DgCountryFilter[] filters = {new DgWorldCountryFilter(), new DgGermanyCountryFilter(true), new DgGermanyCountryFilter(false),
+				new DgEuropeCountryFilter(true), new DgEuropeCountryFilter(false), new SfEuropeCountryFilter()};
+		for (DgCountryFilter filter : filters) {
+			for (int origin = -1; origin < DgCountryCodes.NUMBER_OF_IDS; origin++) {
+				for (int destination = -1; destination < DgCountryCodes.NUMBER_OF_IDS; destination += 7) {
+					String originCode = origin < 0 ? "" : DgCountryCodes.getCode(origin);
+					String destinationCode = destination < 0 ? "" : DgCountryCodes.getCode(destination);
+					Assert.assertEquals(filter + " " + originCode + " " + destinationCode,
+							filter.isCountryOfInterest(originCode, destinationCode), filter.isCountryOfInterest(origin, destination));
+				}
+			}
+		}
+	}
+
+}
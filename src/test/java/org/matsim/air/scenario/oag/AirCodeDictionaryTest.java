@@ -0,0 +1,182 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AirCodeDictionaryTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class AirCodeDictionaryTest {
+
+	@Test
+	public void testDenseIds() {
+		AirCodeDictionary codes = new AirCodeDictionary();
+		Assert.assertEquals(0, codes.getAirportId("FRA"));
+		Assert.assertEquals(1, codes.getAirportId("MUC"));
+		Assert.assertEquals(0, codes.getAirportId(new String("FRA")));
+		Assert.assertEquals(2, codes.getAirportId("TXL"));
+		Assert.assertEquals(3, codes.getNumberOfAirports());
+		Assert.assertEquals("MUC", codes.getAirportCode(1));
+		// each kind of code has its own ids
+		Assert.assertEquals(0, codes.getCarrierId("LH"));
+		Assert.assertEquals(1, codes.getCarrierId("BA"));
+		Assert.assertEquals("BA", codes.getCarrierCode(1));
+		Assert.assertEquals(0, codes.getAircraftTypeId("320"));
+		Assert.assertEquals("320", codes.getAircraftTypeCode(0));
+		Assert.assertEquals(0, codes.getFlightDesignatorId("LH1"));
+		Assert.assertEquals("LH1", codes.getFlightDesignator(0));
+		Assert.assertEquals(3, codes.getNumberOfAirports());
+
+		for (int i = 0; i < 5000; i++) {
+			Assert.assertEquals(3 + i, codes.getAirportId("A" + i));
+		}
+		for (int i = 0; i < 5000; i++) {
+			Assert.assertEquals("A" + i, codes.getAirportCode(3 + i));
+			Assert.assertEquals(3 + i, codes.getAirportId("A" + i));
+		}
+	}
+
+	@Test
+	public void testCityPairKeys() {
+		int[] ids = {0, 1, 2, 4711, 65536, Integer.MAX_VALUE};
+		for (int origin : ids) {
+			for (int destination : ids) {
+				long key = AirCodeDictionary.createCityPairKey(origin, destination);
+				Assert.assertEquals(origin, AirCodeDictionary.getOriginAirportId(key));
+				Assert.assertEquals(destination, AirCodeDictionary.getDestinationAirportId(key));
+				if (origin != destination) {
+					Assert.assertNotEquals(key, AirCodeDictionary.createCityPairKey(destination, origin));
+				}
+			}
+		}
+
+		AirCodeDictionary codes = new AirCodeDictionary();
+		long fraMuc = codes.getCityPairKey("FRA", "MUC");
+		long mucFra = codes.getCityPairKey("MUC", "FRA");
+		Assert.assertEquals(AirCodeDictionary.createCityPairKey(0, 1), fraMuc);
+		Assert.assertEquals(AirCodeDictionary.createCityPairKey(1, 0), mucFra);
+		Assert.assertEquals(0, codes.getCityPairId(fraMuc));
+		Assert.assertEquals(1, codes.getCityPairId(mucFra));
+		Assert.assertEquals(0, codes.getCityPairId(fraMuc));
+		Assert.assertEquals(2, codes.getNumberOfCityPairs());
+		Assert.assertEquals(mucFra, codes.getCityPairKey(1));
+		Assert.assertEquals("FRA_MUC", codes.getRouteCode(0));
+		Assert.assertEquals("MUC_FRA", codes.getRouteCode("MUC", "FRA"));
+
+		// more city pairs than the initial capacity
+		for (int i = 0; i < 2000; i++) {
+			long key = codes.getCityPairKey("FRA", "A" + i);
+			Assert.assertEquals(2 + i, codes.getCityPairId(key));
+		}
+		for (int i = 0; i < 2000; i++) {
+			Assert.assertEquals("FRA_A" + i, codes.getRouteCode(2 + i));
+			Assert.assertEquals(codes.getCityPairKey("FRA", "A" + i), codes.getCityPairKey(2 + i));
+		}
+	}
+
+	@Test
+	public void testComposedCodesAreCreatedOnce() {
+		AirCodeDictionary codes = new AirCodeDictionary();
+		String route = codes.getRouteCode("FRA", "MUC");
+		Assert.assertSame(route, codes.getRouteCode(new String("FRA"), new String("MUC")));
+		String line = codes.getLineCode("FRA", "MUC", "LH");
+		Assert.assertEquals("FRA_MUC_LH", line);
+		Assert.assertSame(line, codes.getLineCode("FRA", "MUC", new String("LH")));
+		Assert.assertEquals("FRA_MUC_BA", codes.getLineCode("FRA", "MUC", "BA"));
+		String flight = codes.getFlightCode("FRA", "MUC", "LH1");
+		Assert.assertEquals("FRA_MUC_LH1", flight);
+		Assert.assertSame(flight, codes.getFlightCode("FRA", "MUC", new String("LH1")));
+	}
+
+	/**
+	 * The same designator may serve another city pair, e.g. in the next build of a delta update.
+	 */
+	@Test
+	public void testFlightCodeOfDesignatorOnAnotherCityPair() {
+		AirCodeDictionary codes = new AirCodeDictionary();
+		Assert.assertEquals("FRA_MUC_LH1", codes.getFlightCode("FRA", "MUC", "LH1"));
+		Assert.assertEquals("FRA_TXL_LH1", codes.getFlightCode("FRA", "TXL", "LH1"));
+		Assert.assertEquals("FRA_MUC_LH1", codes.getFlightCode("FRA", "MUC", "LH1"));
+		Assert.assertEquals("FRA_TXL_LH1", codes.getFlightCode("FRA", "TXL", "LH1"));
+		// more designators than the initial capacity
+		for (int i = 0; i < 3000; i++) {
+			Assert.assertEquals("MUC_FRA_LH" + i, codes.getFlightCode("MUC", "FRA", "LH" + i));
+		}
+		Assert.assertEquals("TXL_MUC_LH1", codes.getFlightCode("TXL", "MUC", "LH1"));
+		Assert.assertEquals("MUC_FRA_LH2", codes.getFlightCode("MUC", "FRA", "LH2"));
+
+		DgOagFlight flight = new DgOagFlight("BA7");
+		flight.setOriginCode("LHR");
+		flight.setDestinationCode("FRA");
+		flight.setCarrier("BA");
+		Assert.assertEquals("LHR_FRA", codes.getRouteCode(flight));
+		Assert.assertEquals("LHR_FRA_BA", codes.getLineCode(flight));
+		Assert.assertEquals("LHR_FRA_BA7", codes.getFlightCode(flight));
+	}
+
+	/**
+	 * Scenarios that are built concurrently have their own dictionaries, they do not share any state.
+	 */
+	@Test
+	public void testOwnDictionariesInConcurrentBuilds() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<AirCodeDictionary>> futures = new ArrayList<Future<AirCodeDictionary>>();
+			for (int t = 0; t < 4; t++) {
+				final int offset = t;
+				futures.add(executor.submit(new Callable<AirCodeDictionary>() {
+					@Override
+					public AirCodeDictionary call() {
+						AirCodeDictionary codes = new AirCodeDictionary();
+						for (int i = 0; i < 20000; i++) {
+							int j = (i + offset * 5000) % 20000;
+							codes.getFlightCode("A" + (j % 300), "B" + (j % 7), "F" + j);
+						}
+						return codes;
+					}
+				}));
+			}
+			for (int t = 0; t < 4; t++) {
+				AirCodeDictionary codes = futures.get(t).get();
+				Assert.assertEquals(307, codes.getNumberOfAirports());
+				for (int i = 0; i < 20000; i++) {
+					int j = (i + t * 5000) % 20000;
+					Assert.assertEquals(i, codes.getFlightDesignatorId("F" + j));
+					Assert.assertEquals("A" + (j % 300) + "_B" + (j % 7) + "_F" + j, codes.getFlightCode("A" + (j % 300), "B" + (j % 7), "F" + j));
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
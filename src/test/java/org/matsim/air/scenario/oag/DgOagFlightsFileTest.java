@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagFlightsFileTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgOagFlightsFileTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testBinaryRoundTrip() throws IOException {
+		DgOagFlightsData data = createData();
+		String filename = this.utils.getOutputDirectory() + "oag_flights.bin";
+		DgOagFlightsFile.create(data).write(filename);
+		DgOagFlightsFile file = DgOagFlightsFile.read(filename);
+		assertFlights(data, file);
+
+		// the file is overwritten, not appended
+		DgOagFlightsData one = new DgOagFlightsData();
+		one.addFlight(createFlight("AF00010", "CDG", "NRT", "AF", 100.0, 43200.0, "77W", 350, 9714.2));
+		DgOagFlightsFile.create(one).write(filename);
+		assertFlights(one, DgOagFlightsFile.read(filename));
+	}
+
+	@Test
+	public void testTextFallback() throws IOException {
+		DgOagFlightsData data = createData();
+		String filename = this.utils.getOutputDirectory() + "oag_flights.txt";
+		DgOagFlightsFile.create(data).writeText(filename);
+		assertFlights(data, DgOagFlightsFile.read(filename));
+
+		// an empty file is an empty text file
+		String empty = this.utils.getOutputDirectory() + "empty.txt";
+		new File(empty).createNewFile();
+		Assert.assertEquals(0, DgOagFlightsFile.read(empty).size());
+	}
+
+	@Test
+	public void testWrongMagicIsRejected() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "oag_flights.bin";
+		DgOagFlightsFile.create(createData()).write(filename);
+		try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
+			raf.seek(0);
+			raf.writeInt(0x12345678);
+		}
+		assertRejected(filename);
+	}
+
+	@Test
+	public void testWrongVersionIsRejected() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "oag_flights.bin";
+		DgOagFlightsFile.create(createData()).write(filename);
+		for (int version : new int[] {0, DgOagFlightsFile.VERSION + 1, -1}) {
+			try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
+				raf.seek(4);
+				raf.writeInt(version);
+			}
+			try {
+				DgOagFlightsFile.read(filename);
+				Assert.fail("version " + version);
+			} catch (IOException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains("version " + version));
+			}
+		}
+	}
+
+	@Test
+	public void testTruncatedFileIsRejected() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "oag_flights.bin";
+		DgOagFlightsFile.create(createData()).write(filename);
+		long length = new File(filename).length();
+		for (long truncated : new long[] {length - 1, length / 2, 12, 6}) {
+			DgOagFlightsFile.create(createData()).write(filename);
+			try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
+				raf.setLength(truncated);
+			}
+			assertRejected(filename);
+		}
+	}
+
+	private static void assertRejected(String filename) {
+		try {
+			DgOagFlightsFile.read(filename);
+			Assert.fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static DgOagFlightsData createData() {
+		DgOagFlightsData data = new DgOagFlightsData();
+		data.addFlight(createFlight("LH00400_1", "FRA", "JFK", "LH", 36000.0, 30900.0, "744", 380, 6197.6));
+		data.addFlight(createFlight("LH00400_3", "FRA", "JFK", "LH", 208800.0, 30900.0, "744", 380, 6197.6));
+		data.addFlight(createFlight("LH00401_1", "JFK", "FRA", "LH", 79200.5, 27600.25, "744", 380, 6197.6));
+		data.addFlight(createFlight("4U00123_2", "TXL", "MUC", "4U", 86400.0, 3900.0, "320", 150, 480.0));
+		return data;
+	}
+
+	private static DgOagFlight createFlight(String designator, String origin, String destination, String carrier,
+			double departure, double duration, String aircraftType, int seats, double distanceKm) {
+		DgOagFlight flight = new DgOagFlight(designator);
+		flight.setRoute(origin + "_" + destination);
+		flight.setOriginCode(origin);
+		flight.setDestinationCode(destination);
+		flight.setCarrier(carrier);
+		flight.setDepartureTime(departure);
+		flight.setDuration(duration);
+		flight.setAircraftType(aircraftType);
+		flight.setSeatsAvailable(seats);
+		flight.setDistanceKm(distanceKm);
+		return flight;
+	}
+
+	private static void assertFlights(DgOagFlightsData expected, DgOagFlightsFile file) {
+		Assert.assertEquals(expected.getFlightDesignatorFlightMap().size(), file.size());
+		for (int i = 0; i < file.size(); i++) {
+			DgOagFlight flight = expected.getFlightDesignatorFlightMap().get(file.getFlightDesignator(i));
+			Assert.assertNotNull(file.getFlightDesignator(i), flight);
+			Assert.assertEquals(flight.getRoute(), file.getRoute(i));
+			Assert.assertEquals(flight.getRoute() + "_" + flight.getCarrier(), file.getTransitLine(i));
+			Assert.assertEquals(flight.getDepartureTime(), file.getDepartureTime(i), 0.0);
+			Assert.assertEquals(flight.getScheduledDuration(), file.getDuration(i), 0.0);
+			Assert.assertEquals(flight.getAircraftType(), file.getAircraftType(i));
+			Assert.assertEquals(flight.getSeatsAvailable(), file.getSeatsAvailable(i));
+			Assert.assertEquals(flight.getDistanceKm(), file.getDistanceKm(i), 0.0);
+			Assert.assertEquals(flight.getCarrier(), file.getCarrier(i));
+			Assert.assertEquals(flight.getOriginCode(), file.getOrigin(i));
+			Assert.assertEquals(flight.getDestinationCode(), file.getDestination(i));
+		}
+		// the flights of the file are the same as the flights of the data
+		DgOagFlightsData data = new DgOagFlightsData();
+		file.addFlights(data);
+		Map<String, DgOagFlight> flights = data.getFlightDesignatorFlightMap();
+		Assert.assertEquals(expected.getFlightDesignatorFlightMap().keySet(), flights.keySet());
+		for (DgOagFlight flight : expected.getFlightDesignatorFlightMap().values()) {
+			DgOagFlight read = flights.get(flight.getFlightDesignator());
+			Assert.assertEquals(flight.getRoute(), read.getRoute());
+			Assert.assertEquals(flight.getCarrier(), read.getCarrier());
+			Assert.assertEquals(flight.getOriginCode(), read.getOriginCode());
+			Assert.assertEquals(flight.getDestinationCode(), read.getDestinationCode());
+			Assert.assertEquals(flight.getDepartureTime(), read.getDepartureTime(), 0.0);
+			Assert.assertEquals(flight.getScheduledDuration(), read.getScheduledDuration(), 0.0);
+			Assert.assertEquals(flight.getAircraftType(), read.getAircraftType());
+			Assert.assertEquals(flight.getSeatsAvailable(), read.getSeatsAvailable());
+			Assert.assertEquals(flight.getDistanceKm(), read.getDistanceKm(), 0.0);
+		}
+	}
+
+}
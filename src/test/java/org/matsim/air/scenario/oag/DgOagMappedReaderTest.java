@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagMappedReaderTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgOagMappedReaderTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRecordFields() {
+		String line = DgOagTestUtils.createLine(" LH", "   40", "FRA", "de ", "JFK", "US", "0930", "00815", "1 3 5  ",
+				1, "744", 380, "FRAJFK", 3851.5, true);
+		DgOagRecord record = setLine(line);
+		Assert.assertEquals("LH", record.getTrimmedString(DgOagRecord.CARRIER));
+		Assert.assertEquals("00040", record.getStringReplaceSpaces(DgOagRecord.FLIGHT_NUMBER, '0'));
+		Assert.assertEquals("FRA", record.getTrimmedString(DgOagRecord.ORIGIN_AIRPORT));
+		Assert.assertEquals("DE", record.getTrimmedUpperCaseString(DgOagRecord.ORIGIN_COUNTRY));
+		Assert.assertEquals(9 * 3600 + 30 * 60, record.getTimeOfDaySeconds(DgOagRecord.DEPARTURE_TIME));
+		Assert.assertEquals(8 * 3600 + 15 * 60, record.getElapsedTimeSeconds(DgOagRecord.ELAPSED_TIME));
+		Assert.assertArrayEquals(new char[] {'1', '3', '5'}, record.getCharsWithoutSpaces(DgOagRecord.DAYS_OF_OPERATION));
+		Assert.assertEquals(1, record.getInt(DgOagRecord.STOPS));
+		Assert.assertEquals(380, record.getInt(DgOagRecord.SEATS));
+		Assert.assertEquals(3851.5, record.getDouble(DgOagRecord.DISTANCE_MILES), 0.0);
+		Assert.assertEquals(6, record.getFieldLength(DgOagRecord.FULL_ROUTING));
+		Assert.assertTrue(record.isEmpty(DgOagRecord.OPERATING_MARKER));
+		Assert.assertTrue(new DgOagLine(record).isCodeshareFlight());
+	}
+
+	@Test
+	public void testQuotedAndUnquotedFieldsAreEqual() {
+		String quoted = DgOagTestUtils.createLine("LH", "  400", "FRA", "DE", "MUC", "DE", "0700", "00100", "1234567",
+				0, "320", 150, "FRAMUC", 186, false);
+		DgOagLine fromQuoted = new DgOagLine(setLine(quoted));
+		DgOagLine fromUnquoted = new DgOagLine(setLine(quoted.replace("\"", "")));
+		Assert.assertEquals(describe(fromQuoted), describe(fromUnquoted));
+		Assert.assertFalse(fromQuoted.isCodeshareFlight());
+		// the String[] based parsing of the former reader
+		DgOagLine fromStrings = new DgOagLine(quoted.replace("\"", "").split(",", -1));
+		Assert.assertEquals(describe(fromStrings), describe(fromQuoted));
+	}
+
+	@Test
+	public void testMalformedLines() {
+		DgOagRecord record = new DgOagRecord(new DgOagStringCache());
+		Assert.assertFalse(setLine(record, ""));
+		Assert.assertFalse(setLine(record, "\"LH\",\"400\",\"\",\"\",\"FRA\""));
+		String line = DgOagTestUtils.createLine("LH", "400", "FRA", "DE", "MUC", "DE", "0700", "00100", "1",
+				0, "320", 150, "FRAMUC", 186, false);
+		Assert.assertFalse(setLine(record, line.substring(0, line.lastIndexOf(',', line.lastIndexOf(',') - 1))));
+		Assert.assertTrue(setLine(record, line));
+		// more columns than needed are ignored
+		Assert.assertTrue(setLine(record, line + ",\"extra\""));
+		Assert.assertEquals("FRA", record.getTrimmedString(DgOagRecord.ORIGIN_AIRPORT));
+		Assert.assertTrue(setLine(record, line.replace("\"0700\"", "\"07x0\"")));
+		try {
+			record.getTimeOfDaySeconds(DgOagRecord.DEPARTURE_TIME);
+			Assert.fail("departure time 07x0 must not be parsed");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The file contains short lines, empty lines and CRLF line endings, the chunks are small, thus there are many
+	 * chunks and lines cross the nominal chunk boundaries.
+	 */
+	@Test
+	public void testSerialAndParallelReadersReturnSameRows() throws Exception {
+		List<String> lines = DgOagTestUtils.createLines(500, 4711);
+		String filename = this.utils.getOutputDirectory() + "oag.csv";
+		BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
+		writer.write(DgOagTestUtils.HEADER + "\r\n");
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < lines.size(); i++) {
+			writer.write(lines.get(i) + (i % 7 == 0 ? "\r\n" : "\n"));
+			expected.add(describe(new DgOagLine(lines.get(i).replace("\"", "").split(",", -1))));
+			if (i % 50 == 3) {
+				writer.write("\"LH\",\"too short\"\n");
+			}
+			if (i % 90 == 5) {
+				writer.write("\n");
+			}
+		}
+		// the last line without line feed
+		writer.write(lines.get(0));
+		expected.add(expected.get(0));
+		writer.close();
+
+		DescriptionHandler serial = new DescriptionHandler();
+		new DgOagMappedReader().readFile(filename, serial);
+		Assert.assertEquals(expected, serial.rows);
+
+		int lineLength = lines.get(0).length();
+		for (long chunkSize : new long[] {lineLength + 7, 3 * lineLength + 1, 4096}) {
+			final List<DescriptionHandler> chunks = new ArrayList<DescriptionHandler>();
+			new DgOagMappedReader().readFileParallel(filename, 4, chunkSize, new Supplier<DescriptionHandler>() {
+				@Override
+				public DescriptionHandler get() {
+					return new DescriptionHandler();
+				}
+			}, new Consumer<DescriptionHandler>() {
+				@Override
+				public void accept(DescriptionHandler chunk) {
+					chunks.add(chunk);
+				}
+			});
+			Assert.assertTrue(chunks.size() > 1);
+			List<String> parallel = new ArrayList<String>();
+			for (DescriptionHandler chunk : chunks) {
+				parallel.addAll(chunk.rows);
+			}
+			Assert.assertEquals("chunk size " + chunkSize, expected, parallel);
+		}
+	}
+
+	private static DgOagRecord setLine(String line) {
+		DgOagRecord record = new DgOagRecord(new DgOagStringCache());
+		Assert.assertTrue(setLine(record, line));
+		return record;
+	}
+
+	private static boolean setLine(DgOagRecord record, String line) {
+		byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+		return record.setLine(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+	static String describe(DgOagLine l) {
+		return l.getCarrier() + "|" + l.getFlightNumber() + "|" + l.getOriginAirport() + "|" + l.getOriginCountry()
+				+ "|" + l.getDestinationAirport() + "|" + l.getDestinationCountry() + "|" + l.getDepartureTimeSeconds()
+				+ "|" + l.getFlightDurationSeconds() + "|" + Arrays.toString(l.getDaysOfOperation()) + "|" + l.getStops()
+				+ "|" + l.getAircraftType() + "|" + l.getSeatsAvailable() + "|" + l.getFullRouting()
+				+ "|" + l.getFlightDistanceMiles() + "|" + l.isCodeshareFlight();
+	}
+
+	private static final class DescriptionHandler implements DgOagRecordHandler {
+
+		private final List<String> rows = new ArrayList<String>();
+
+		@Override
+		public void handleRecord(DgOagRecord record) {
+			this.rows.add(describe(new DgOagLine(record)));
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagReaderTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.air.scenario.filter.DgOagFilterPipeline;
+import org.matsim.air.scenario.filter.DgOagRowConsumer;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgOagReaderTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testStreamedTablesHaveTheirOwnCodeIds() throws Exception {
+		String file = this.utils.getOutputDirectory() + "oag.csv";
+		List<String> lines = DgOagTestUtils.createLines(500, 11);
+		DgOagTestUtils.writeFile(file, lines);
+
+		DgOagReader reader = new DgOagReader();
+		reader.setNumberOfThreads(1);
+		OagFlightTable all = reader.readOagTable(file);
+		Assert.assertEquals(lines.size(), all.size());
+		List<String> expected = new ArrayList<String>();
+		for (int row = 0; row < all.size(); row++) {
+			expected.add(describe(all, row));
+		}
+
+		// sequential stream in tables of 37 rows
+		reader.setChunkSize(0, 37);
+		RowCollector serial = new RowCollector();
+		reader.readOagTable(file, serial);
+		Assert.assertEquals(expected, serial.rows);
+		Assert.assertEquals((lines.size() + 36) / 37, serial.tables.size());
+		assertIdsDifferAcrossTables(serial.tables);
+
+		// parallel stream in chunks of about 40 lines
+		reader.setNumberOfThreads(3);
+		reader.setChunkSize(40 * lines.get(0).length(), 37);
+		RowCollector parallel = new RowCollector();
+		reader.readOagTable(file, parallel);
+		Assert.assertEquals(expected, parallel.rows);
+		Assert.assertTrue(parallel.tables.size() > 1);
+		assertIdsDifferAcrossTables(parallel.tables);
+	}
+
+	@Test
+	public void testStreamedTablesThroughFilterPipeline() throws Exception {
+		String file = this.utils.getOutputDirectory() + "oag.csv";
+		List<String> lines = DgOagTestUtils.createLines(300, 12);
+		DgOagTestUtils.writeFile(file, lines);
+		DgOagReader reader = new DgOagReader();
+		reader.setNumberOfThreads(1);
+		OagFlightTable all = reader.readOagTable(file);
+
+		reader.setChunkSize(0, 25);
+		final List<String> consumed = new ArrayList<String>();
+		DgOagFilterPipeline pipeline = new DgOagFilterPipeline(new DgOagRowConsumer() {
+			@Override
+			public void consume(OagFlightTable table, int row) {
+				consumed.add(describe(table, row));
+			}
+		});
+		reader.readOagTable(file, pipeline);
+		Assert.assertEquals(all.size(), pipeline.getRows());
+		Assert.assertEquals(all.size(), consumed.size());
+		for (int row = 0; row < all.size(); row++) {
+			Assert.assertEquals(describe(all, row), consumed.get(row));
+		}
+	}
+
+	/**
+	 * The first code of each table gets the id 0, thus the id of the same code differs between the tables and the
+	 * same id stands for different codes.
+	 */
+	private static void assertIdsDifferAcrossTables(List<OagFlightTable> tables) {
+		boolean sameCodeOtherId = false;
+		boolean sameIdOtherCode = false;
+		OagFlightTable first = tables.get(0);
+		for (OagFlightTable table : tables.subList(1, tables.size())) {
+			for (int id = 0; id < table.getAirportCodes().size(); id++) {
+				String code = table.getAirportCodes().getCode(id);
+				int firstId = first.getAirportCodes().lookupId(code);
+				sameCodeOtherId |= firstId != -1 && firstId != id;
+				sameIdOtherCode |= id < first.getAirportCodes().size() && ! code.equals(first.getAirportCodes().getCode(id));
+			}
+		}
+		Assert.assertTrue(sameCodeOtherId);
+		Assert.assertTrue(sameIdOtherCode);
+	}
+
+	private static String describe(OagFlightTable table, int row) {
+		return table.getCarrier(row) + "|" + table.getFlightNumber(row) + "|" + table.getOriginAirport(row) + "|"
+				+ table.getOriginCountry(row) + "|" + table.getDestinationAirport(row) + "|" + table.getDestinationCountry(row)
+				+ "|" + table.getAircraftType(row) + "|" + table.getDepartureTimeSeconds(row) + "|"
+				+ table.getFlightDurationSeconds(row) + "|" + table.getSeatsAvailable(row) + "|"
+				+ table.getDaysOfOperationMask(row) + "|" + table.isCodeshareFlight(row);
+	}
+
+	private static final class RowCollector implements Consumer<OagFlightTable> {
+
+		private final List<OagFlightTable> tables = new ArrayList<OagFlightTable>();
+
+		private final List<String> rows = new ArrayList<String>();
+
+		@Override
+		public void accept(OagFlightTable table) {
+			this.tables.add(table);
+			for (int row = 0; row < table.size(); row++) {
+				this.rows.add(describe(table, row));
+			}
+		}
+	}
+
+}
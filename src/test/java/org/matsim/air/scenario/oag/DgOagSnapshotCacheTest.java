@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagSnapshotCacheTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * A truncated or corrupt snapshot must be a cache miss, not an exception.
+ *
+ * @author dgrether
+ *
+ */
+public class DgOagSnapshotCacheTest {
+
+	/**
+	 * magic, version and kind
+	 */
+	private static final int HEADER_SIZE = 9;
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testTruncatedTableIsCacheMiss() throws IOException {
+		DgOagSnapshotCache cache = this.createCache();
+		OagFlightTable table = createTable();
+		cache.storeTable("key", table);
+		File file = new File(this.utils.getOutputDirectory() + "snapshots", "oag_table_key.bin");
+		long length = file.length();
+		for (long truncated : new long[] {length - 1, length - 13, length / 2, HEADER_SIZE + 2, HEADER_SIZE, 3, 0}) {
+			cache.storeTable("key", table);
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(truncated);
+			}
+			Assert.assertNull("truncated to " + truncated, cache.loadTable("key"));
+		}
+		// the fallback stores the table again
+		cache.storeTable("key", table);
+		Assert.assertEquals(table.size(), cache.loadTable("key").size());
+	}
+
+	@Test
+	public void testFlippedByteInTableIsCacheMiss() throws IOException {
+		DgOagSnapshotCache cache = this.createCache();
+		OagFlightTable table = createTable();
+		File file = new File(this.utils.getOutputDirectory() + "snapshots", "oag_table_key.bin");
+
+		// magic
+		cache.storeTable("key", table);
+		flipByte(file, 0);
+		Assert.assertNull(cache.loadTable("key"));
+
+		// the high byte of the number of airport codes
+		cache.storeTable("key", table);
+		flipByte(file, HEADER_SIZE);
+		Assert.assertNull(cache.loadTable("key"));
+
+		// the high byte of the length of the first airport code, without the check an array of 2 GB is allocated
+		cache.storeTable("key", table);
+		flipByte(file, HEADER_SIZE + 4);
+		Assert.assertNull(cache.loadTable("key"));
+
+		// the first character of the second airport code, it is then equal to the first one
+		cache.storeTable("key", table);
+		String first = table.getAirportCodes().getCode(0);
+		String second = table.getAirportCodes().getCode(1);
+		int position = HEADER_SIZE + 4 + 4 + first.length() + 4;
+		setByte(file, position, (byte) first.charAt(0));
+		for (int i = 1; i < second.length(); i++) {
+			setByte(file, position + i, (byte) first.charAt(i));
+		}
+		Assert.assertNull(cache.loadTable("key"));
+
+		// a byte appended to the file
+		cache.storeTable("key", table);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() + 1);
+		}
+		Assert.assertNull(cache.loadTable("key"));
+
+		cache.storeTable("key", table);
+		Assert.assertEquals(table.size(), cache.loadTable("key").size());
+	}
+
+	@Test
+	public void testCorruptFlightsAreCacheMiss() throws IOException {
+		DgOagSnapshotCache cache = this.createCache();
+		DgOagFlightsData data = new DgOagFlightsData();
+		for (int i = 0; i < 20; i++) {
+			DgOagFlight flight = new DgOagFlight("LH" + i);
+			flight.setRoute("FRA_MUC");
+			flight.setCarrier("LH");
+			flight.setAircraftType("320");
+			flight.setOriginCode("FRA");
+			flight.setDestinationCode("MUC");
+			flight.setDepartureTime(3600.0 * i);
+			flight.setDuration(3000.0);
+			flight.setSeatsAvailable(150);
+			flight.setDistanceKm(300.0);
+			data.addFlight(flight);
+		}
+		Map<String, Coord> airports = new HashMap<String, Coord>();
+		airports.put("FRA", new Coord(8.57, 50.03));
+		airports.put("MUC", new Coord(11.79, 48.35));
+		cache.storeFlights("key", data, airports);
+		File file = new File(this.utils.getOutputDirectory() + "snapshots", "oag_flights_key.bin");
+		long length = file.length();
+
+		Map<String, Coord> loadedAirports = new HashMap<String, Coord>();
+		Assert.assertEquals(20, cache.loadFlights("key", loadedAirports).getFlightDesignatorFlightMap().size());
+		Assert.assertEquals(2, loadedAirports.size());
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(length - 5);
+		}
+		Assert.assertNull(cache.loadFlights("key", new HashMap<String, Coord>()));
+
+		cache.storeFlights("key", data, airports);
+		// the high byte of the length of the configuration string
+		flipByte(file, HEADER_SIZE);
+		Assert.assertNull(cache.loadFlights("key", new HashMap<String, Coord>()));
+	}
+
+	private DgOagSnapshotCache createCache() {
+		return new DgOagSnapshotCache(this.utils.getOutputDirectory() + "snapshots");
+	}
+
+	private static OagFlightTable createTable() {
+		OagFlightTable table = new OagFlightTable();
+		for (String line : DgOagTestUtils.createLines(100, 3)) {
+			table.addLine(new DgOagLine(line.replace("\"", "").split(",", -1)));
+		}
+		return table;
+	}
+
+	private static void flipByte(File file, long position) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(position);
+			int b = raf.read();
+			raf.seek(position);
+			raf.write(b ^ 0xff);
+		}
+	}
+
+	private static void setByte(File file, long position, byte value) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(position);
+			raf.write(value);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagTestUtils
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Creates lines in the format of the OAG csv dump for tests, strings are quoted as in the dump.
+ *
+ * @author dgrether
+ *
+ */
+public final class DgOagTestUtils {
+
+	public static final String HEADER = "\"Carrier\",\"FlightNo\",\"Op\",\"Sfx\",\"DepAirport\",\"DepCity\",\"DepCtry\",\"ArrAirport\",\"ArrCity\",\"ArrCtry\",\"DepTime\"";
+
+	private static final String[] AIRPORTS = {"FRA", "MUC", "TXL", "JFK", "LHR", "CDG", "NRT", "SYD"};
+
+	private static final String[] COUNTRIES = {"de", "DE", "DE", "US", "GB", "FR", "JP", "AU"};
+
+	private static final String[] CARRIERS = {"LH", "BA", "AF", "UA", "4U"};
+
+	private static final String[] AIRCRAFT_TYPES = {"744", "320", "73H", "CR9"};
+
+	private DgOagTestUtils() {
+	}
+
+	/**
+	 * @param departure HHMM
+	 * @param elapsedTime HHHMM
+	 * @param days the days of operation, e.g. "1 3 5  "
+	 */
+	public static String createLine(String carrier, String flightNumber, String origin, String originCountry,
+			String destination, String destinationCountry, String departure, String elapsedTime, String days, int stops,
+			String aircraftType, int seats, String fullRouting, double distanceMiles, boolean codeshare) {
+		String[] fields = new String[DgOagRecord.NUMBER_OF_COLUMNS];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = "\"\"";
+		}
+		fields[DgOagRecord.CARRIER] = quote(carrier);
+		fields[DgOagRecord.FLIGHT_NUMBER] = quote(flightNumber);
+		fields[DgOagRecord.ORIGIN_AIRPORT] = quote(origin);
+		fields[DgOagRecord.ORIGIN_COUNTRY] = quote(originCountry);
+		fields[DgOagRecord.DESTINATION_AIRPORT] = quote(destination);
+		fields[DgOagRecord.DESTINATION_COUNTRY] = quote(destinationCountry);
+		fields[DgOagRecord.DEPARTURE_TIME] = quote(departure);
+		fields[DgOagRecord.ELAPSED_TIME] = quote(elapsedTime);
+		fields[DgOagRecord.DAYS_OF_OPERATION] = quote(days);
+		fields[DgOagRecord.STOPS] = Integer.toString(stops);
+		fields[DgOagRecord.AIRCRAFT_TYPE] = quote(aircraftType);
+		fields[DgOagRecord.SEATS] = Integer.toString(seats);
+		fields[DgOagRecord.FULL_ROUTING] = quote(fullRouting);
+		fields[DgOagRecord.DISTANCE_MILES] = Double.toString(distanceMiles);
+		// a codeshare flight has a shared airline designator and a duplicate marker but no operating marker
+		fields[DgOagRecord.SHARED_AIRLINE_DESIGNATOR] = quote("S");
+		fields[DgOagRecord.DUPLICATE] = quote("D");
+		fields[DgOagRecord.OPERATING_MARKER] = quote(codeshare ? "" : "O");
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append(fields[i]);
+		}
+		return line.toString();
+	}
+
+	private static String quote(String s) {
+		return "\"" + s + "\"";
+	}
+
+	/**
+	 * @return lines with random but valid content
+	 */
+	public static List<String> createLines(int numberOfLines, long seed) {
+		Random random = new Random(seed);
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < numberOfLines; i++) {
+			int origin = random.nextInt(AIRPORTS.length);
+			int destination = (origin + 1 + random.nextInt(AIRPORTS.length - 1)) % AIRPORTS.length;
+			String days = (random.nextBoolean() ? "1" : " ") + " 3" + (random.nextBoolean() ? "5" : " ") + "  7";
+			lines.add(createLine(CARRIERS[random.nextInt(CARRIERS.length)], String.format("%5d", random.nextInt(9999)),
+					AIRPORTS[origin], COUNTRIES[origin], AIRPORTS[destination], COUNTRIES[destination],
+					String.format("%02d%02d", random.nextInt(24), random.nextInt(60)),
+					String.format("%03d%02d", random.nextInt(20), random.nextInt(60)), days, random.nextInt(3),
+					AIRCRAFT_TYPES[random.nextInt(AIRCRAFT_TYPES.length)], 50 + random.nextInt(400),
+					AIRPORTS[origin] + AIRPORTS[destination], 100 + random.nextInt(8000) + 0.5 * random.nextInt(2),
+					random.nextInt(4) == 0));
+		}
+		return lines;
+	}
+
+	/**
+	 * Writes the header line and the lines.
+	 */
+	public static void writeFile(String filename, List<String> lines) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
+		writer.write(HEADER);
+		writer.newLine();
+		for (String line : lines) {
+			writer.write(line);
+			writer.newLine();
+		}
+		writer.close();
+	}
+
+}
@@ -0,0 +1,216 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgOagWeekScheduleExpanderTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.air.scenario.filter.DgDuplicateFlightFilterStage;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class DgOagWeekScheduleExpanderTest {
+
+	private static final int DAY = DgOagWeekScheduleExpander.SECONDS_PER_DAY;
+
+	private static final int HOUR = 3600;
+
+	@Test
+	public void testUtcOffsetSeconds() {
+		Assert.assertEquals(2 * HOUR, DgOagWeekScheduleExpander.getUtcOffsetSeconds(2.0));
+		Assert.assertEquals(-5 * HOUR, DgOagWeekScheduleExpander.getUtcOffsetSeconds(-5.0));
+		Assert.assertEquals(5 * HOUR + 30 * 60, DgOagWeekScheduleExpander.getUtcOffsetSeconds(5.5));
+		Assert.assertEquals(-3 * HOUR - 30 * 60, DgOagWeekScheduleExpander.getUtcOffsetSeconds(-3.5));
+		Assert.assertEquals(5 * HOUR + 45 * 60, DgOagWeekScheduleExpander.getUtcOffsetSeconds(5.75));
+		Assert.assertEquals(0, DgOagWeekScheduleExpander.getUtcOffsetSeconds(0.0));
+	}
+
+	@Test
+	public void testInvalidMasks() {
+		for (int mask : new int[] {0, 0x80, 0x81, -1}) {
+			try {
+				new DgOagWeekScheduleExpander(mask);
+				Assert.fail("mask " + mask);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * A tuesday model, departures before 00:00 UTC are moved to the end of the day, departures after 24:00 UTC to the
+	 * begin of the day.
+	 */
+	@Test
+	public void testSingleDayWrapsIntoTheDay() {
+		OagFlightTable table = new OagFlightTable();
+		int early = addRow(table, "LH", "  400", "0030", "1234567");
+		int late = addRow(table, "UA", "  900", "2300", "1234567");
+		int noon = addRow(table, "AF", "   10", "1200", " 2     ");
+		int notOnTuesday = addRow(table, "BA", "    1", "1200", "1 3 5 7");
+		DgOagWeekScheduleExpander expander = DgOagWeekScheduleExpander.createSingleDayExpander(2);
+		Assert.assertTrue(expander.isSingleDay());
+		Assert.assertEquals(0, expander.getOperatingDays(table, notOnTuesday));
+
+		int[] rows = {early, late, noon, notOnTuesday};
+		int[] offsets = {2 * HOUR, -5 * HOUR, 0, 0};
+		DgOagDepartures departures = expander.expand(table, rows, offsets, rows.length);
+		Assert.assertEquals(3, departures.size());
+		assertDeparture(departures, 0, early, 2, DAY - 90 * 60);
+		assertDeparture(departures, 1, late, 2, 4 * HOUR);
+		assertDeparture(departures, 2, noon, 2, 12 * HOUR);
+
+		// only the given number of rows is expanded
+		Assert.assertEquals(1, expander.expand(table, rows, offsets, 1).size());
+	}
+
+	/**
+	 * A week model, departures before 00:00 UTC of monday are moved to the end of sunday, departures after 24:00 UTC of
+	 * sunday to monday.
+	 */
+	@Test
+	public void testWeekWrapsIntoTheWeek() {
+		OagFlightTable table = new OagFlightTable();
+		int early = addRow(table, "LH", "  400", "0030", "1  4  7");
+		int late = addRow(table, "UA", "  900", "2300", "      7");
+		int noon = addRow(table, "AF", "   10", "1200", " 2 4   ");
+		DgOagWeekScheduleExpander expander = DgOagWeekScheduleExpander.createWeekExpander();
+		Assert.assertFalse(expander.isSingleDay());
+
+		int[] rows = {early, late, noon};
+		int[] offsets = {2 * HOUR, -5 * HOUR, -HOUR};
+		DgOagDepartures departures = expander.expand(table, rows, offsets, rows.length);
+		Assert.assertEquals(6, departures.size());
+		assertDeparture(departures, 0, early, 1, 7 * DAY - 90 * 60);
+		assertDeparture(departures, 1, early, 4, 3 * DAY - 90 * 60);
+		assertDeparture(departures, 2, early, 7, 6 * DAY - 90 * 60);
+		assertDeparture(departures, 3, late, 7, 4 * HOUR);
+		assertDeparture(departures, 4, noon, 2, DAY + 13 * HOUR);
+		assertDeparture(departures, 5, noon, 4, 3 * DAY + 13 * HOUR);
+	}
+
+	/**
+	 * A mask of some days, the period is from the first to the last selected day.
+	 */
+	@Test
+	public void testPeriodOfSelectedDays() {
+		DgOagWeekScheduleExpander expander = new DgOagWeekScheduleExpander(0x2 | 0x8);
+		Assert.assertFalse(expander.isSingleDay());
+		// tuesday to thursday
+		Assert.assertEquals(0, expander.getDepartureSeconds(2, 0));
+		Assert.assertEquals(2 * DAY + HOUR, expander.getDepartureSeconds(4, HOUR));
+		Assert.assertEquals(3 * DAY - HOUR, expander.getDepartureSeconds(2, -HOUR));
+		Assert.assertEquals(HOUR, expander.getDepartureSeconds(4, DAY + HOUR));
+
+		OagFlightTable table = new OagFlightTable();
+		int row = addRow(table, "LH", "  400", "1200", "1234567");
+		Assert.assertEquals(0x2 | 0x8, expander.getOperatingDays(table, row));
+	}
+
+	/**
+	 * Bit i of the mask is the day i + 1 of the week, a flight has the day as suffix of its designator unless a single
+	 * day is expanded.
+	 */
+	@Test
+	public void testDaysAndDesignators() {
+		OagFlightTable table = new OagFlightTable();
+		int row = addRow(table, "LH", "  400", "1200", "1234567");
+		int[] rows = {row};
+		int[] offsets = {0};
+		for (int day = 1; day <= 7; day++) {
+			DgOagWeekScheduleExpander expander = DgOagWeekScheduleExpander.createSingleDayExpander(day);
+			Assert.assertEquals(1 << (day - 1), expander.getOperatingDays(table, row));
+			DgOagDepartures departures = expander.expand(table, rows, offsets, 1);
+			Assert.assertEquals(1, departures.size());
+			Assert.assertEquals(day, departures.getDay(0));
+			Assert.assertEquals("LH00400", expander.getFlightDesignator(table.getCarrier(row) + table.getFlightNumber(row), day));
+		}
+
+		DgOagWeekScheduleExpander week = DgOagWeekScheduleExpander.createWeekExpander();
+		DgOagDepartures departures = week.expand(table, rows, offsets, 1);
+		Assert.assertEquals(7, departures.size());
+		for (int i = 0; i < departures.size(); i++) {
+			Assert.assertEquals(i + 1, departures.getDay(i));
+			Assert.assertEquals(i * DAY + 12 * HOUR, departures.getDepartureSeconds(i));
+			Assert.assertEquals("LH00400_" + (i + 1), week.getFlightDesignator("LH00400", departures.getDay(i)));
+		}
+	}
+
+	/**
+	 * The duplicate filter compares the designators without day suffix and the days of operation that are used, thus a
+	 * flight with the same designator is rejected on the days that are already expanded and accepted on the others.
+	 */
+	@Test
+	public void testSameDesignatorOnSeveralDays() {
+		OagFlightTable table = new OagFlightTable();
+		int first = addRow(table, "LH", "  400", "1200", "1 3  6 ");
+		int overlapping = addRow(table, "LH", "  400", "1300", "  3    ");
+		int otherDays = addRow(table, "LH", "  400", "1300", " 2  5 7");
+		int otherFlight = addRow(table, "LH", "  401", "1200", "1 3  6 ");
+
+		DgOagWeekScheduleExpander week = DgOagWeekScheduleExpander.createWeekExpander();
+		DgDuplicateFlightFilterStage duplicates = new DgDuplicateFlightFilterStage();
+		duplicates.addFlight(table, first, week.getOperatingDays(table, first));
+		Assert.assertFalse(duplicates.accept(table, overlapping));
+		Assert.assertTrue(duplicates.accept(table, otherDays));
+		Assert.assertTrue(duplicates.accept(table, otherFlight));
+		duplicates.addFlight(table, otherDays, week.getOperatingDays(table, otherDays));
+		Assert.assertFalse(duplicates.accept(table, otherDays));
+
+		// the designators of the departures of both rows differ by the day
+		int[] rows = {first, otherDays};
+		DgOagDepartures departures = week.expand(table, rows, new int[2], rows.length);
+		Assert.assertEquals(6, departures.size());
+		String[] expected = {"LH00400_1", "LH00400_3", "LH00400_6", "LH00400_2", "LH00400_5", "LH00400_7"};
+		for (int i = 0; i < departures.size(); i++) {
+			int row = departures.getRow(i);
+			Assert.assertEquals(expected[i], week.getFlightDesignator(table.getCarrier(row) + table.getFlightNumber(row), departures.getDay(i)));
+		}
+
+		// a tuesday model uses only the tuesday of the flight, the thursday flight is no duplicate
+		DgOagWeekScheduleExpander tuesday = DgOagWeekScheduleExpander.createSingleDayExpander(2);
+		DgDuplicateFlightFilterStage tuesdayDuplicates = new DgDuplicateFlightFilterStage();
+		Assert.assertEquals(0, tuesday.getOperatingDays(table, first));
+		tuesdayDuplicates.addFlight(table, otherDays, tuesday.getOperatingDays(table, otherDays));
+		Assert.assertTrue(tuesdayDuplicates.accept(table, first));
+		Assert.assertFalse(tuesdayDuplicates.accept(table, otherDays));
+	}
+
+	private static void assertDeparture(DgOagDepartures departures, int departure, int row, int day, int seconds) {
+		Assert.assertEquals(row, departures.getRow(departure));
+		Assert.assertEquals(day, departures.getDay(departure));
+		Assert.assertEquals(seconds, departures.getDepartureSeconds(departure));
+	}
+
+	private static int addRow(OagFlightTable table, String carrier, String flightNumber, String departure, String days) {
+		String line = DgOagTestUtils.createLine(carrier, flightNumber, "FRA", "DE", "JFK", "US", departure, "00815", days,
+				0, "744", 380, "FRAJFK", 3851.5, false);
+		DgOagRecord record = new DgOagRecord(new DgOagStringCache());
+		byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+		Assert.assertTrue(record.setLine(ByteBuffer.wrap(bytes), 0, bytes.length));
+		return table.addRecord(record);
+	}
+
+}
@@ -0,0 +1,230 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OagFlightTableTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.oag;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.air.scenario.oag.OagFlightTable.CodeIndex;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/**
+ * @author dgrether
+ *
+ */
+public class OagFlightTableTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testAddRecordAndAddLine() {
+		String line = DgOagTestUtils.createLine("LH", "  400", "FRA", "de", "JFK", "US", "0930", "00815", "1 3  6 ",
+				1, "744", 380, "FRAJFK", 3851.5, true);
+		OagFlightTable table = new OagFlightTable();
+		int row = addRecord(table, line);
+		Assert.assertEquals(0, row);
+		Assert.assertEquals("LH", table.getCarrier(row));
+		Assert.assertEquals("00400", table.getFlightNumber(row));
+		Assert.assertEquals("FRA", table.getOriginAirport(row));
+		Assert.assertEquals("DE", table.getOriginCountry(row));
+		Assert.assertEquals("JFK", table.getDestinationAirport(row));
+		Assert.assertEquals("US", table.getDestinationCountry(row));
+		Assert.assertEquals("744", table.getAircraftType(row));
+		Assert.assertEquals(9 * 3600 + 30 * 60, table.getDepartureTimeSeconds(row));
+		Assert.assertEquals(8 * 3600 + 15 * 60, table.getFlightDurationSeconds(row));
+		Assert.assertEquals(380, table.getSeatsAvailable(row));
+		Assert.assertEquals(3851.5, table.getFlightDistanceMiles(row), 0.0);
+		Assert.assertEquals(3851.5 * 1.609344, table.getFlightDistanceKm(row), 1e-9);
+		Assert.assertEquals(1, table.getStops(row));
+		Assert.assertEquals(6, table.getFullRoutingLength(row));
+		Assert.assertEquals(0x1 | 0x4 | 0x20, table.getDaysOfOperationMask(row));
+		Assert.assertArrayEquals(new char[] {'1', '3', '6'}, table.getDaysOfOperation(row));
+		Assert.assertTrue(table.operatesOnDay(row, 6));
+		Assert.assertFalse(table.operatesOnDay(row, 7));
+		Assert.assertTrue(table.isCodeshareFlight(row));
+
+		// the String[] based line gives the same row
+		int lineRow = table.addLine(new DgOagLine(line.replace("\"", "").split(",", -1)));
+		assertRowEquals(table, row, table, lineRow, true);
+	}
+
+	/**
+	 * The stops are clamped to the range of a byte, of the full routing only the length is kept.
+	 */
+	@Test
+	public void testStopsAndFullRouting() {
+		OagFlightTable table = new OagFlightTable();
+		StringBuilder routing = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			routing.append("FRA");
+		}
+		int many = addRecord(table, DgOagTestUtils.createLine("LH", "1", "FRA", "DE", "MUC", "DE", "0700", "00100", "1",
+				300, "320", 150, routing.toString(), 186, false));
+		int negative = addRecord(table, DgOagTestUtils.createLine("LH", "2", "FRA", "DE", "MUC", "DE", "0700", "00100", "1",
+				-300, "320", 150, "", 186, false));
+		Assert.assertEquals(Byte.MAX_VALUE, table.getStops(many));
+		Assert.assertEquals(120, table.getFullRoutingLength(many));
+		Assert.assertEquals(Byte.MIN_VALUE, table.getStops(negative));
+		Assert.assertEquals(0, table.getFullRoutingLength(negative));
+	}
+
+	@Test
+	public void testCodeIndex() {
+		CodeIndex index = new CodeIndex();
+		Assert.assertEquals(-1, index.lookupId("FRA"));
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals(i, index.getId("A" + i));
+		}
+		Assert.assertEquals(1000, index.size());
+		for (int i = 0; i < 1000; i++) {
+			// a new String instance with the same content gets the same id
+			String code = new String("A" + i);
+			Assert.assertEquals(i, index.getId(code));
+			Assert.assertEquals(i, index.lookupId(code));
+			Assert.assertEquals("A" + i, index.getCode(i));
+		}
+		Assert.assertEquals(1000, index.size());
+		Assert.assertEquals(-1, index.lookupId("B1"));
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() throws Exception {
+		OagFlightTable table = createTable(DgOagTestUtils.createLines(300, 42));
+		DgOagSnapshotCache cache = new DgOagSnapshotCache(this.utils.getOutputDirectory() + "snapshots");
+		Assert.assertNull(cache.loadTable("key"));
+		cache.storeTable("key", table);
+		OagFlightTable loaded = cache.loadTable("key");
+		Assert.assertNotNull(loaded);
+		Assert.assertEquals(table.size(), loaded.size());
+		assertCodesEqual(table.getAirportCodes(), loaded.getAirportCodes());
+		assertCodesEqual(table.getCountryCodes(), loaded.getCountryCodes());
+		assertCodesEqual(table.getCarrierCodes(), loaded.getCarrierCodes());
+		assertCodesEqual(table.getFlightNumberCodes(), loaded.getFlightNumberCodes());
+		assertCodesEqual(table.getAircraftTypeCodes(), loaded.getAircraftTypeCodes());
+		for (int row = 0; row < table.size(); row++) {
+			assertRowEquals(table, row, loaded, row, true);
+		}
+		// the loaded table can be extended
+		List<String> more = DgOagTestUtils.createLines(20, 43);
+		for (String line : more) {
+			addRecord(loaded, line);
+		}
+		Assert.assertEquals(table.size() + more.size(), loaded.size());
+
+		Assert.assertNull(cache.loadTable("otherKey"));
+	}
+
+	/**
+	 * The tables of a chunked read have their own code ids, addAll maps them to the ids of the merged table.
+	 */
+	@Test
+	public void testAddAllMapsCodeIds() {
+		List<String> lines = DgOagTestUtils.createLines(400, 7);
+		OagFlightTable first = createTable(lines.subList(0, 150));
+		OagFlightTable second = createTable(lines.subList(150, 400));
+		OagFlightTable all = createTable(lines);
+
+		OagFlightTable merged = new OagFlightTable(16);
+		merged.addAll(first);
+		merged.addAll(second);
+		Assert.assertEquals(all.size(), merged.size());
+
+		boolean differentIds = false;
+		for (int row = 0; row < all.size(); row++) {
+			// merging in order gives the same ids as reading all lines in one table
+			assertRowEquals(all, row, merged, row, true);
+			OagFlightTable source = row < first.size() ? first : second;
+			int sourceRow = row < first.size() ? row : row - first.size();
+			assertRowEquals(source, sourceRow, merged, row, false);
+			differentIds |= source.getOriginAirportId(sourceRow) != merged.getOriginAirportId(row)
+					|| source.getCarrierId(sourceRow) != merged.getCarrierId(row);
+		}
+		// otherwise the test would not show that the ids are mapped
+		Assert.assertTrue(differentIds);
+
+		// merging in another order gives other ids for the same codes
+		OagFlightTable reversed = new OagFlightTable();
+		reversed.addAll(second);
+		reversed.addAll(first);
+		for (int row = 0; row < second.size(); row++) {
+			assertRowEquals(second, row, reversed, row, true);
+		}
+		for (int row = 0; row < first.size(); row++) {
+			assertRowEquals(first, row, reversed, second.size() + row, false);
+		}
+	}
+
+	private static OagFlightTable createTable(List<String> lines) {
+		OagFlightTable table = new OagFlightTable(16);
+		for (String line : lines) {
+			addRecord(table, line);
+		}
+		return table;
+	}
+
+	private static int addRecord(OagFlightTable table, String line) {
+		DgOagRecord record = new DgOagRecord(new DgOagStringCache());
+		byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+		Assert.assertTrue(record.setLine(ByteBuffer.wrap(bytes), 0, bytes.length));
+		return table.addRecord(record);
+	}
+
+	private static void assertCodesEqual(CodeIndex expected, CodeIndex actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int id = 0; id < expected.size(); id++) {
+			Assert.assertEquals(expected.getCode(id), actual.getCode(id));
+			Assert.assertEquals(id, actual.lookupId(expected.getCode(id)));
+		}
+	}
+
+	private static void assertRowEquals(OagFlightTable expected, int expectedRow, OagFlightTable actual, int actualRow, boolean sameIds) {
+		String message = "row " + actualRow;
+		Assert.assertEquals(message, expected.getCarrier(expectedRow), actual.getCarrier(actualRow));
+		Assert.assertEquals(message, expected.getFlightNumber(expectedRow), actual.getFlightNumber(actualRow));
+		Assert.assertEquals(message, expected.getOriginAirport(expectedRow), actual.getOriginAirport(actualRow));
+		Assert.assertEquals(message, expected.getDestinationAirport(expectedRow), actual.getDestinationAirport(actualRow));
+		Assert.assertEquals(message, expected.getOriginCountry(expectedRow), actual.getOriginCountry(actualRow));
+		Assert.assertEquals(message, expected.getDestinationCountry(expectedRow), actual.getDestinationCountry(actualRow));
+		Assert.assertEquals(message, expected.getAircraftType(expectedRow), actual.getAircraftType(actualRow));
+		Assert.assertEquals(message, expected.getDepartureTimeSeconds(expectedRow), actual.getDepartureTimeSeconds(actualRow));
+		Assert.assertEquals(message, expected.getFlightDurationSeconds(expectedRow), actual.getFlightDurationSeconds(actualRow));
+		Assert.assertEquals(message, expected.getSeatsAvailable(expectedRow), actual.getSeatsAvailable(actualRow));
+		Assert.assertEquals(message, expected.getFlightDistanceMiles(expectedRow), actual.getFlightDistanceMiles(actualRow), 0.0);
+		Assert.assertEquals(message, expected.getStops(expectedRow), actual.getStops(actualRow));
+		Assert.assertEquals(message, expected.getFullRoutingLength(expectedRow), actual.getFullRoutingLength(actualRow));
+		Assert.assertEquals(message, expected.getDaysOfOperationMask(expectedRow), actual.getDaysOfOperationMask(actualRow));
+		Assert.assertEquals(message, expected.isCodeshareFlight(expectedRow), actual.isCodeshareFlight(actualRow));
+		if (sameIds) {
+			Assert.assertEquals(message, expected.getCarrierId(expectedRow), actual.getCarrierId(actualRow));
+			Assert.assertEquals(message, expected.getFlightNumberId(expectedRow), actual.getFlightNumberId(actualRow));
+			Assert.assertEquals(message, expected.getOriginAirportId(expectedRow), actual.getOriginAirportId(actualRow));
+			Assert.assertEquals(message, expected.getDestinationAirportId(expectedRow), actual.getDestinationAirportId(actualRow));
+			Assert.assertEquals(message, expected.getOriginCountryId(expectedRow), actual.getOriginCountryId(actualRow));
+			Assert.assertEquals(message, expected.getDestinationCountryId(expectedRow), actual.getDestinationCountryId(actualRow));
+			Assert.assertEquals(message, expected.getAircraftTypeId(expectedRow), actual.getAircraftTypeId(actualRow));
+		}
+	}
+
+}
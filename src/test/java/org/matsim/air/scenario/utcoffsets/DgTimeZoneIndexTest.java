@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DgTimeZoneIndexTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.air.scenario.utcoffsets;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+
+
+/**
+ * Tests the {@link DgTimeZoneIndex} and the offsets of {@link SfUtcOffset} with synthetic polygons.
+ *
+ * @author dgrether
+ *
+ */
+public class DgTimeZoneIndexTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+	private static final ZoneId LAGOS = ZoneId.of("Africa/Lagos");
+
+	private static final ZoneId AUCKLAND = ZoneId.of("Pacific/Auckland");
+
+	/**
+	 * Berlin with two holes, one of them filled by Lagos, and Auckland at the antimeridian
+	 */
+	private static DgTimeZoneIndex createIndex() {
+		DgTimeZoneIndex.Builder builder = new DgTimeZoneIndex.Builder();
+		builder.addPolygon("Europe/Berlin", rings(box(5.0, 45.0, 15.0, 55.0), box(9.0, 49.0, 11.0, 51.0), box(12.0, 46.0, 14.0, 48.0)));
+		builder.addPolygon("Africa/Lagos", rings(box(9.0, 49.0, 11.0, 51.0)));
+		builder.addPolygon("Pacific/Auckland", rings(box(170.0, -50.0, 180.0, -30.0)));
+		return builder.build();
+	}
+
+	/**
+	 * @return the closed ring of the box, counterclockwise
+	 */
+	private static double[] box(double minX, double minY, double maxX, double maxY) {
+		return new double[] {minX, minY, maxX, minY, maxX, maxY, minX, maxY, minX, minY};
+	}
+
+	private static List<double[]> rings(double[]... rings) {
+		return new ArrayList<double[]>(Arrays.asList(rings));
+	}
+
+	@Test
+	public void testPolygonWithHoles() {
+		DgTimeZoneIndex index = createIndex();
+		Assert.assertEquals(3, index.size());
+		Assert.assertEquals(BERLIN, index.getZoneId(7.0, 52.0));
+		Assert.assertEquals(BERLIN, index.getZoneId(11.5, 50.0));
+		// the hole filled by another polygon
+		Assert.assertEquals(LAGOS, index.getZoneId(10.0, 50.0));
+		// the empty hole
+		Assert.assertNull(index.getZoneId(13.0, 47.0));
+		Assert.assertNull(index.getZoneId(4.5, 50.0));
+		Assert.assertNull(index.getZoneId(10.0, 55.5));
+	}
+
+	@Test
+	public void testLongitudeNormalization() {
+		DgTimeZoneIndex index = createIndex();
+		Assert.assertEquals(AUCKLAND, index.getZoneId(175.0, -40.0));
+		Assert.assertEquals(AUCKLAND, index.getZoneId(-185.0, -40.0));
+		Assert.assertEquals(AUCKLAND, index.getZoneId(535.0, -40.0));
+		Assert.assertEquals(BERLIN, index.getZoneId(367.0, 52.0));
+		Assert.assertEquals(BERLIN, index.getZoneId(-353.0, 52.0));
+		Assert.assertNull(index.getZoneId(-175.0, -40.0));
+	}
+
+	@Test
+	public void testUnknownAndMissingZonesAreSkipped() {
+		DgTimeZoneIndex.Builder builder = new DgTimeZoneIndex.Builder();
+		builder.addPolygon(null, rings(box(0.0, 0.0, 10.0, 10.0)));
+		builder.addPolygon("Mars/Olympus_Mons", rings(box(0.0, 0.0, 10.0, 10.0)));
+		builder.addPolygon(null, rings(box(20.0, 0.0, 30.0, 10.0)));
+		builder.addPolygon("Europe/Berlin", rings(box(40.0, 0.0, 50.0, 10.0)));
+		DgTimeZoneIndex index = builder.build();
+		Assert.assertEquals(1, index.size());
+		Assert.assertNull(index.getZoneId(5.0, 5.0));
+		Assert.assertNull(index.getZoneId(25.0, 5.0));
+		Assert.assertEquals(BERLIN, index.getZoneId(45.0, 5.0));
+	}
+
+	@Test
+	public void testDaylightSavingTime() {
+		DgTimeZoneIndex index = createIndex();
+		SfUtcOffset summer = new SfUtcOffset(index, LocalDate.of(2009, 7, 1));
+		SfUtcOffset winter = new SfUtcOffset(index, LocalDate.of(2009, 1, 15));
+		Coord berlin = new Coord(7.0, 52.0);
+		Coord lagos = new Coord(10.0, 50.0);
+		Coord auckland = new Coord(175.0, -40.0);
+		Assert.assertEquals(2.0, summer.getUtcOffset(berlin), EPSILON);
+		Assert.assertEquals(1.0, winter.getUtcOffset(berlin), EPSILON);
+		// no daylight saving time in Lagos
+		Assert.assertEquals(1.0, summer.getUtcOffset(lagos), EPSILON);
+		Assert.assertEquals(1.0, winter.getUtcOffset(lagos), EPSILON);
+		// southern hemisphere
+		Assert.assertEquals(12.0, summer.getUtcOffset(auckland), EPSILON);
+		Assert.assertEquals(13.0, winter.getUtcOffset(auckland), EPSILON);
+	}
+
+	@Test
+	public void testNauticalZoneOutsideOfAllPolygons() {
+		SfUtcOffset utcOffset = new SfUtcOffset(createIndex(), LocalDate.of(2009, 7, 1));
+		Assert.assertEquals(ZoneOffset.ofHours(-2), utcOffset.getZoneId(new Coord(-30.0, 0.0)));
+		Assert.assertEquals(ZoneOffset.ofHours(-3), utcOffset.getZoneId(new Coord(-37.6, 0.0)));
+		Assert.assertEquals(ZoneOffset.ofHours(1), utcOffset.getZoneId(new Coord(13.0, 47.0)));
+		Assert.assertEquals(ZoneOffset.ofHours(12), utcOffset.getZoneId(new Coord(179.0, 0.0)));
+		Assert.assertEquals(-2.0, utcOffset.getUtcOffset(new Coord(-30.0, 0.0)), EPSILON);
+		Assert.assertEquals(BERLIN, utcOffset.getZoneId(new Coord(7.0, 52.0)));
+	}
+
+}